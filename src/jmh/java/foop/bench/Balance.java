@@ -0,0 +1,44 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.bench
+ * File: Balance.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 9:30:14 PM
+ */
+package foop.bench;
+
+import foop.core.State;
+
+/**
+ * <p>
+ * The balance of a bank account, the state used by the benchmarks.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.bench.Balance
+ *
+ */
+public final class Balance extends State {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long amount;
+    
+    /**
+     * @param amount
+     *            The amount in the bank account
+     */
+    public Balance(long amount) {
+        
+        this.amount = amount;
+    }
+    
+    /**
+     * @return The amount in the bank account
+     */
+    public long getAmount() {
+        
+        return this.amount;
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.bench
+ * File: Bank.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 9:32:40 PM
+ */
+package foop.bench;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+
+/**
+ * <p>
+ * Helpers shared by the benchmarks for setting up bank accounts and moving
+ * money between them.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.bench.Bank
+ *
+ */
+final class Bank {
+    
+    static final long INITIAL_BALANCE = 1_000_000L;
+    
+    private Bank() {}
+    
+    /**
+     * <p>
+     * Makes the names of the bank accounts
+     * 
+     * @param accounts
+     *            The number of bank accounts
+     * 
+     * @return The names of the bank accounts
+     */
+    static String[] names(int accounts) {
+        
+        String[] names = new String[accounts];
+        
+        for (int i = 0; i < accounts; i++) {
+            
+            names[i] = "Account" + i;
+        }
+        
+        return names;
+    }
+    
+    /**
+     * <p>
+     * Makes a state manager with the bank accounts, each holding the initial
+     * balance.
+     * 
+     * @param names
+     *            The names of the bank accounts
+     * @param mode
+     *            The default write mode of the transactions
+     * 
+     * @return The state manager
+     */
+    static StateManager open(String[] names, WriteMode mode) {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(mode);
+        
+        for (String name : names) {
+            
+            manager.make(name);
+        }
+        
+        manager.newTransaction("Open").op(() -> {
+            
+            try {
+                
+                for (String name : names) {
+                    
+                    manager.writeT(name, new Balance(INITIAL_BALANCE));
+                }
+            } catch (Exception e) {
+                
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return manager;
+    }
+    
+    /**
+     * <p>
+     * Moves the amount between the bank accounts, to be used as an operation
+     * of a transaction.
+     * 
+     * @param manager
+     *            The state manager
+     * @param from
+     *            The bank account to withdraw from
+     * @param to
+     *            The bank account to deposit into
+     * @param amount
+     *            The amount to move
+     * 
+     * @return DONE if the amount was moved, FAIL otherwise
+     */
+    static TAction transfer(StateManager manager, String from, String to, long amount) {
+        
+        try {
+            
+            Balance a = (Balance) manager.readT(from).get();
+            Balance b = (Balance) manager.readT(to).get();
+            
+            manager.writeT(from, new Balance(a.getAmount() - amount));
+            manager.writeT(to, new Balance(b.getAmount() + amount));
+        } catch (Exception e) {
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    /**
+     * <p>
+     * Sums up the balances of the bank accounts, to be used as an operation of
+     * a transaction.
+     * 
+     * @param manager
+     *            The state manager
+     * @param names
+     *            The names of the bank accounts
+     * @param total
+     *            Holds the total on return
+     * 
+     * @return DONE if the balances were summed up, FAIL otherwise
+     */
+    static TAction total(StateManager manager, String[] names, long[] total) {
+        
+        try {
+            
+            long sum = 0;
+            
+            for (String name : names) {
+                
+                sum += ((Balance) manager.readT(name).get()).getAmount();
+            }
+            
+            total[0] = sum;
+        } catch (Exception e) {
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+}
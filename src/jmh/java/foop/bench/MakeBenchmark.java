@@ -0,0 +1,76 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.bench
+ * File: MakeBenchmark.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 9:58:10 PM
+ */
+package foop.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import foop.core.StateManager;
+import foop.core.Variable;
+
+/**
+ * <p>
+ * The throughput of making new variables, i.e ingesting accounts into a
+ * <i>StateManager</i>. The names are made ahead of time so that only `make()`
+ * is measured, a fresh <i>StateManager</i> is used for every iteration.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.bench.MakeBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeBenchmark {
+    
+    @Param({ "1000000" })
+    int                         accounts;
+    
+    private String[]            names;
+    private StateManager        manager;
+    private final AtomicInteger next = new AtomicInteger();
+    
+    @Setup
+    public void setup() {
+        
+        this.names = Bank.names(this.accounts);
+    }
+    
+    @Setup(Level.Iteration)
+    public void fresh() {
+        
+        this.manager = new StateManager();
+        this.next.set(0);
+    }
+    
+    @Benchmark
+    public Variable make() {
+        
+        // once the names run out, the variables are made again, which measures
+        // making an existing variable
+        return this.manager.make(this.names[Math.floorMod(this.next.getAndIncrement(), this.accounts)]);
+    }
+}
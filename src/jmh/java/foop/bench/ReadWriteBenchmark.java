@@ -0,0 +1,167 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.bench
+ * File: ReadWriteBenchmark.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 9:40:02 PM
+ */
+package foop.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import foop.core.StateManager;
+import foop.core.StateManager.Transactions;
+import foop.core.StateManager.WriteMode;
+import foop.core.Transaction;
+import foop.core.Variable;
+import foop.utils.InstanceFactory;
+
+/**
+ * <p>
+ * The latency of a single `readT` and `writeT` from within a transaction
+ * context, without the cost of running the transaction around it, and of
+ * their primitive counterparts `readLongT` and `writeLongT` on variables made
+ * using `makeLong`. The `Handle` variants take the <i>Variable</i> returned by
+ * `make` instead of its name, skipping the lookup of the `MemCell`.
+ * 
+ * <p>
+ * Every benchmark thread gets its own <i>StateManager</i> and transaction
+ * context, so the numbers are those of the uncontended hot path.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.bench.ReadWriteBenchmark
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadWriteBenchmark {
+    
+    private static final Transactions ts = InstanceFactory.getInstance(Transactions.class);
+    
+    @Param({ "16", "65536" })
+    int                               accounts;
+    
+    @Param({ "DIRECT", "DEFERRED" })
+    WriteMode                         writeMode;
+    
+    private String[]                  names;
+    private String[]                  longs;
+    private Variable[]                handles;
+    private Variable[]                longHandles;
+    private Balance[]                 balances;
+    private StateManager              manager;
+    private int                       next;
+    
+    @Setup
+    public void setup() {
+        
+        this.names = Bank.names(this.accounts);
+        this.manager = Bank.open(this.names, this.writeMode);
+        this.balances = new Balance[] { new Balance(1), new Balance(2) };
+        this.longs = new String[this.accounts];
+        this.handles = new Variable[this.accounts];
+        this.longHandles = new Variable[this.accounts];
+        
+        for (int i = 0; i < this.accounts; i++) {
+            
+            this.longs[i] = "Long" + this.names[i];
+            this.longHandles[i] = this.manager.makeLong(this.longs[i], 100L);
+            
+            // made again for its handle, the balance is kept
+            this.handles[i] = this.manager.make(this.names[i]);
+        }
+        
+        Transaction t = this.manager.newTransaction("ReadWrite").done();
+        
+        // bind the transaction context to the benchmark thread, its operations
+        // never run
+        ts.setT(t);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        
+        ts.setT(null);
+    }
+    
+    private int nextIndex() {
+        
+        int i = this.next;
+        
+        this.next = i + 1 == this.accounts ? 0 : i + 1;
+        
+        return i;
+    }
+    
+    private String nextName() {
+        
+        return this.names[this.nextIndex()];
+    }
+    
+    @Benchmark
+    public Object readT() throws Exception {
+        
+        return this.manager.readT(this.nextName());
+    }
+    
+    @Benchmark
+    public void writeT() throws Exception {
+        
+        this.manager.writeT(this.nextName(), this.balances[this.next & 1]);
+    }
+    
+    @Benchmark
+    public long readLongT() throws Exception {
+        
+        return this.manager.readLongT(this.longs[this.nextIndex()]);
+    }
+    
+    @Benchmark
+    public void writeLongT() throws Exception {
+        
+        this.manager.writeLongT(this.longs[this.nextIndex()], this.next);
+    }
+    
+    @Benchmark
+    public Object readTHandle() throws Exception {
+        
+        return this.manager.readT(this.handles[this.nextIndex()]);
+    }
+    
+    @Benchmark
+    public void writeTHandle() throws Exception {
+        
+        this.manager.writeT(this.handles[this.nextIndex()], this.balances[this.next & 1]);
+    }
+    
+    @Benchmark
+    public long readLongTHandle() throws Exception {
+        
+        return this.manager.readLongT(this.longHandles[this.nextIndex()]);
+    }
+    
+    @Benchmark
+    public void writeLongTHandle() throws Exception {
+        
+        this.manager.writeLongT(this.longHandles[this.nextIndex()], this.next);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.bench
+ * File: ScanBenchmark.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 9:53:51 PM
+ */
+package foop.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+
+/**
+ * <p>
+ * The latency of a read-only transaction that sums up the balances of all the
+ * bank accounts, on its own and while a writer keeps transferring money
+ * between random accounts.
+ * 
+ * <p>
+ * With a single version per variable the scan restarts whenever a writer
+ * commits to an account it has already read, with more versions it reads its
+ * snapshot without restarting.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.bench.ScanBenchmark
+ *
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanBenchmark {
+    
+    @Param({ "100", "10000" })
+    int                           accounts;
+    
+    @Param({ "1", "8" })
+    int                           maxVersions;
+    
+    private String[]              names;
+    private StateManager          manager;
+    
+    private final SplittableRandom random = new SplittableRandom();
+    
+    @Setup
+    public void setup() {
+        
+        this.names = Bank.names(this.accounts);
+        this.manager = Bank.open(this.names, WriteMode.DIRECT);
+        
+        this.manager.setMaxVersions(this.maxVersions);
+    }
+    
+    private long scan() {
+        
+        long[] total = new long[1];
+        
+        this.manager.newTransaction("Scan").readOnly().op(() -> Bank.total(this.manager, this.names, total)).done()
+                .execute();
+        
+        return total[0];
+    }
+    
+    @Benchmark
+    @Group("alone")
+    @GroupThreads(1)
+    public long scan_alone() {
+        
+        return this.scan();
+    }
+    
+    @Benchmark
+    @Group("underWrites")
+    @GroupThreads(1)
+    public long scan_underWrites() {
+        
+        return this.scan();
+    }
+    
+    @Benchmark
+    @Group("underWrites")
+    @GroupThreads(1)
+    public TAction transfer_underWrites() {
+        
+        int from;
+        int to;
+        
+        synchronized (this.random) {
+            
+            from = this.random.nextInt(this.accounts);
+            to = (from + 1 + this.random.nextInt(this.accounts - 1)) % this.accounts;
+        }
+        
+        String a = this.names[from];
+        String b = this.names[to];
+        
+        return this.manager.newTransaction("Transfer").op(() -> Bank.transfer(this.manager, a, b, 1)).done().execute();
+    }
+}
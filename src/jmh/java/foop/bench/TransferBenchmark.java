@@ -0,0 +1,132 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.bench
+ * File: TransferBenchmark.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 9:46:27 PM
+ */
+package foop.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+
+/**
+ * <p>
+ * The throughput of transfers between bank accounts, each transfer is a
+ * transaction run to completion on the calling thread.
+ * 
+ * <p>
+ * The `conflictRate` is the fraction of the transfers that move money between
+ * the two hot accounts, the rest move money between two accounts picked at
+ * random. A conflict rate of 0 with many accounts is the uncontended case. The
+ * number of threads is picked with the `-t` option of JMH, for example
+ * `-t 1`, `-t 4` and `-t max`.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.bench.TransferBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferBenchmark {
+    
+    @Param({ "64", "65536" })
+    int                  accounts;
+    
+    @Param({ "0.0", "0.1", "0.5" })
+    double               conflictRate;
+    
+    @Param({ "DIRECT", "DEFERRED" })
+    WriteMode            writeMode;
+    
+    private String[]     names;
+    private StateManager manager;
+    
+    @Setup
+    public void setup() {
+        
+        this.names = Bank.names(this.accounts);
+        this.manager = Bank.open(this.names, this.writeMode);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        
+        long[] total = new long[1];
+        
+        this.manager.newTransaction("Total").readOnly().op(() -> Bank.total(this.manager, this.names, total)).done()
+                .execute();
+        
+        if (total[0] != Bank.INITIAL_BALANCE * this.accounts) {
+            
+            throw new IllegalStateException("Money was lost or made, the total is " + total[0]);
+        }
+    }
+    
+    /**
+     * <p>
+     * The random source of a benchmark thread.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.bench.TransferBenchmark.Picker
+     *
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+        
+        private final SplittableRandom random = new SplittableRandom();
+        
+        int from;
+        int to;
+        
+        void pick(TransferBenchmark bench) {
+            
+            if (this.random.nextDouble() < bench.conflictRate) {
+                
+                // between the hot accounts, in either direction
+                this.from = this.random.nextInt(2);
+                this.to = 1 - this.from;
+            } else {
+                
+                this.from = this.random.nextInt(bench.accounts);
+                this.to = (this.from + 1 + this.random.nextInt(bench.accounts - 1)) % bench.accounts;
+            }
+        }
+    }
+    
+    @Benchmark
+    public TAction transfer(Picker picker) {
+        
+        picker.pick(this);
+        
+        String from = this.names[picker.from];
+        String to = this.names[picker.to];
+        
+        return this.manager.newTransaction("Transfer").op(() -> Bank.transfer(this.manager, from, to, 1)).done()
+                .execute();
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: AdaptiveControl.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 8:26:05 AM
+ */
+package foop.core;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Decides which variables of a <i>StateManager</i> are locked by its
+ * transactions when its concurrency control is
+ * {@link StateManager.ConcurrencyControl#ADAPTIVE}.
+ * 
+ * <p>
+ * Every variable starts optimistic. The contention on a variable is counted
+ * in windows of {@link #WINDOW}: while it is optimistic, the attempts that
+ * aborted on it, and while it is locked, the transactions that had to wait
+ * for it or restart on it. An optimistic variable that sees {@link #PROMOTE}
+ * aborts within a window is locked from then on, and a locked variable that
+ * sees at most {@link #DEMOTE} waits in a window goes back to optimistic. The
+ * gap between the two is the hysteresis that keeps a variable from flipping
+ * back and forth, the switches are counted in the {@link TransactionMetrics}.
+ * 
+ * <p>
+ * Only the variables that ever saw contention are tracked, the `MemCell`s
+ * hold on to their {@link Contention} so that checking them costs a field
+ * read.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.AdaptiveControl
+ *
+ */
+final class AdaptiveControl {
+    
+    /**
+     * <p>
+     * The contention on a variable in the current window, and if it is locked.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.AdaptiveControl.Contention
+     *
+     */
+    static final class Contention {
+        
+        // the aborts or waits in the current window
+        private final AtomicInteger events = new AtomicInteger();
+        
+        // when the current window started
+        private final AtomicLong    window = new AtomicLong();
+        
+        // flipped by CAS, so that every switch is counted once
+        private final AtomicBoolean locked = new AtomicBoolean();
+        
+        Contention(long now) {
+            
+            this.window.set(now);
+        }
+        
+        /**
+         * @return true if the transactions lock the variable, else false
+         */
+        boolean isLocked() {
+            
+            return this.locked.get();
+        }
+    }
+    
+    // the length of a window
+    static final long                          WINDOW  = TimeUnit.MILLISECONDS.toNanos(50L);
+    
+    // the aborts within a window that lock a variable
+    static final int                           PROMOTE = 4;
+    
+    // the most waits within a window that let a locked variable go back to
+    // optimistic
+    static final int                           DEMOTE  = 1;
+    
+    private final ConcurrentMap<String, Contention> contentions = new ConcurrentHashMap<>();
+    
+    private final StateManager                 manager;
+    
+    /**
+     * @param manager
+     *            The <i>StateManager</i> whose variables are tracked
+     */
+    AdaptiveControl(StateManager manager) {
+        
+        this.manager = manager;
+    }
+    
+    /**
+     * <p>
+     * Checks if the transactions lock the `MemCell`
+     * 
+     * @param cell
+     *            The `MemCell`
+     * 
+     * @return true if the `MemCell` is locked, else false
+     */
+    boolean isLocked(MemCell cell) {
+        
+        Contention contention = cell.getContention();
+        
+        return !Objects.isNull(contention) && contention.isLocked();
+    }
+    
+    /**
+     * <p>
+     * Checks if the transactions lock the variable
+     * 
+     * @param variableName
+     *            The name of the variable
+     * 
+     * @return true if the variable is locked, else false
+     */
+    boolean isLocked(String variableName) {
+        
+        Contention contention = this.contentions.get(variableName);
+        
+        return !Objects.isNull(contention) && contention.isLocked();
+    }
+    
+    /**
+     * <p>
+     * Counts the abort of an attempt of the transaction against the variable
+     * it ran into another transaction on, if it is known.
+     * 
+     * @param t
+     *            The transaction, before it is rolled back
+     */
+    void aborted(Transaction t) {
+        
+        String variableName = t.getRecord().getContended();
+        
+        if (Objects.isNull(variableName)) {
+            
+            return;
+        }
+        
+        long now = System.nanoTime();
+        Contention contention = this.contentions.get(variableName);
+        
+        if (Objects.isNull(contention)) {
+            
+            contention = this.contentions.computeIfAbsent(variableName, n -> new Contention(now));
+            
+            OffHeapStore offHeap = this.manager.getOffHeap();
+            
+            if (Objects.isNull(offHeap) || offHeap.slot(variableName) < 0) {
+                
+                this.manager.cell(variableName).setContention(contention);
+            }
+        }
+        
+        this.roll(contention, now);
+        
+        if (contention.events.incrementAndGet() >= PROMOTE && contention.locked.compareAndSet(false, true)) {
+            
+            // the variable is hot, its transactions lock it from now on
+            contention.events.set(0);
+            contention.window.set(now);
+            
+            this.manager.getMetrics().switchedToPessimistic();
+        }
+    }
+    
+    /**
+     * <p>
+     * Counts a transaction that locked the variable, along with if it had to
+     * wait for it.
+     * 
+     * @param contention
+     *            The contention on the variable
+     * @param waited
+     *            If the transaction waited for the variable
+     */
+    void locked(Contention contention, boolean waited) {
+        
+        this.roll(contention, System.nanoTime());
+        
+        if (waited) {
+            
+            contention.events.incrementAndGet();
+        }
+    }
+    
+    /**
+     * <p>
+     * Gets the contention on the variable, if it is tracked.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * 
+     * @return the contention, null if the variable never saw any
+     */
+    Contention contention(String variableName) {
+        
+        return this.contentions.get(variableName);
+    }
+    
+    /**
+     * <p>
+     * Starts a new window once the current one is over, a locked variable
+     * that was quiet in it goes back to optimistic.
+     */
+    private void roll(Contention contention, long now) {
+        
+        long window = contention.window.get();
+        
+        if (now - window < WINDOW || !contention.window.compareAndSet(window, now)) {
+            
+            return;
+        }
+        
+        int events = contention.events.getAndSet(0);
+        
+        if (events <= DEMOTE && contention.locked.compareAndSet(true, false)) {
+            
+            this.manager.getMetrics().switchedToOptimistic();
+        }
+    }
+}
@@ -0,0 +1,510 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: Batch.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 11:05:18 PM
+ */
+package foop.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.EventTracer.Event;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.Transactions;
+import foop.core.TransactionMetrics.Abort;
+import foop.utils.InstanceFactory;
+
+/**
+ * <p>
+ * A batch of transactions that is run as a single task of the transaction
+ * runtime, see {@link StateManager#submitBatch(List)}.
+ * 
+ * <p>
+ * The transactions of the batch are run one after the other and gathered into
+ * groups that commit together: the members of a group take a single commit
+ * version from the global version clock and are validated and published as
+ * one. A transaction joins the current group only if it doesn't touch what the
+ * group writes and doesn't write what the group reads, so the members of a
+ * group are independent of each other and committing them together is the same
+ * as committing them one after the other. A transaction that overlaps the
+ * group commits the group first and starts a new one.
+ * 
+ * <p>
+ * Snapshot readers, pessimistic and adaptive transactions and the
+ * transactions that run into transactions outside of the batch are run on
+ * their own, the way {@link Transaction#run()} does.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.Batch
+ *
+ */
+final class Batch implements Runnable {
+    
+    private static final Logger       logger     = LoggerFactory.getLogger(Batch.class);
+    
+    // the most transactions that commit together, the members of a group in
+    // the direct write mode hold on to their writeSet members till the group
+    // commits
+    static final int                  GROUP_SIZE = 64;
+    
+    // the per thread transaction context
+    private static final Transactions ts         = InstanceFactory.getInstance(Transactions.class);
+    
+    private final StateManager        manager;
+    private final List<Transaction>   members;
+    
+    // the current group along with the variables it reads and writes
+    private final List<Transaction>   group      = new ArrayList<>();
+    private final Set<String>         reads      = new HashSet<>();
+    private final Set<String>         writes     = new HashSet<>();
+    
+    /**
+     * @param manager
+     *            The <i>StateManager</i> that made the transactions
+     * @param members
+     *            The transactions of the batch, in order
+     */
+    Batch(StateManager manager, List<Transaction> members) {
+        
+        this.manager = manager;
+        this.members = new ArrayList<>(members);
+    }
+    
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        
+        Transaction previous = ts.getT();
+        
+        try {
+            
+            for (Transaction t : this.members) {
+                
+                if (t.readsSnapshot() || t.locks()) {
+                    
+                    // the snapshot must include the updates of the transactions
+                    // before it, and a transaction that locks would wait for
+                    // the locks of the group
+                    this.flush();
+                    
+                    t.run();
+                } else {
+                    
+                    this.join(t);
+                }
+            }
+            
+            this.flush();
+        } catch (RuntimeException | Error e) {
+            
+            for (Transaction t : this.group) {
+                
+                t.rollback();
+            }
+            
+            this.fail(e);
+            
+            throw e;
+        } finally {
+            
+            ts.setT(previous);
+        }
+    }
+    
+    /**
+     * <p>
+     * Fails the transactions of the batch that are not done yet
+     * 
+     * @param error
+     *            The error the batch ran into
+     */
+    void fail(Throwable error) {
+        
+        for (Transaction t : this.members) {
+            
+            if (!t.getOutcome().isDone()) {
+                
+                t.fail(error);
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Operates the transaction and adds it to the current group, or runs it on
+     * its own if it can't be grouped.
+     * 
+     * @param t
+     *            The transaction
+     */
+    private void join(Transaction t) {
+        
+        TransactionMetrics metrics = this.manager.getMetrics();
+        Record record = t.getRecord();
+        
+        t.begin();
+        
+        ts.setT(t);
+        
+        boolean operated;
+        
+        try {
+            
+            operated = t.operate();
+        } catch (RuntimeException e) {
+            
+            // only this transaction is failed, the rest of the batch goes on
+            logger.error(e.getMessage(), e);
+            
+            t.rollback();
+            t.fail(e);
+            
+            return;
+        } finally {
+            
+            ts.setT(null);
+        }
+        
+        if (!operated && record.getRetry() && !record.getConflicted()) {
+            
+            // the group is committed first, so that the transactions the
+            // retry waits for don't run into its writes, and then it is run
+            // on its own
+            t.rollback();
+            
+            this.flush();
+            
+            t.run();
+            
+            return;
+        }
+        
+        if (!operated && !record.getConflicted()) {
+            
+            // faulty operational logic, the transaction is not retried
+            logger.error(String.format(
+                    "CRITICAL:: Transaction:: %s has faulty operational logic, bailing out after rolling back",
+                    t.getName()));
+            
+            t.aborted(Abort.OPERATION_FAIL);
+            
+            t.rollback();
+            
+            record.setStatus(true);
+            
+            metrics.finished(record.getAttempts());
+            
+            t.complete(TAction.FAIL);
+            
+            return;
+        }
+        
+        if (record.getConflicted() || this.overlaps(record)) {
+            
+            // the transaction ran into the group or into a transaction outside
+            // of the batch
+            t.aborted(record.getConflicted() ? record.getAbort() : Abort.OWNERSHIP_CONFLICT);
+            
+            t.rollback();
+            
+            if (this.group.isEmpty()) {
+                
+                t.run();
+            } else {
+                
+                this.flush();
+                this.join(t);
+            }
+            
+            return;
+        }
+        
+        this.group.add(t);
+        for (MemCell cell : record.getRedoLog().keySet()) {
+            
+            this.writes.add(cell.getName());
+        }
+        
+        addNames(this.reads, record.getReadVersions());
+        addNames(this.writes, record.getWriteCells());
+        addNames(this.reads, record.getPrimitiveReads());
+        addNames(this.writes, record.getPrimitiveWrites());
+        addNames(this.reads, record.getOffHeapReads());
+        addNames(this.writes, record.getOffHeapWrites());
+        
+        // the deltas of the members commute, but a group owns its updates
+        // together, so they are kept apart like writes
+        addNames(this.writes, record.getPrimitiveDeltas());
+        addNames(this.writes, record.getOffHeapDeltas());
+        
+        if (this.group.size() >= GROUP_SIZE) {
+            
+            this.flush();
+        }
+    }
+    
+    /**
+     * <p>
+     * Checks if the transaction touches what the current group writes or
+     * writes what the current group reads.
+     * 
+     * @param record
+     *            The record of the transaction
+     * 
+     * @return true if the transaction can't join the group, else false
+     */
+    private boolean overlaps(Record record) {
+        
+        for (MemCell cell : record.getRedoLog().keySet()) {
+            
+            if (this.writes.contains(cell.getName()) || this.reads.contains(cell.getName())) {
+                
+                return true;
+            }
+        }
+        
+        return this.overlaps(record.getWriteCells(), true) || this.overlaps(record.getReadVersions(), false)
+                || this.overlaps(record.getPrimitiveWrites(), true) || this.overlaps(record.getPrimitiveReads(), false)
+                || this.overlaps(record.getPrimitiveDeltas(), true) || this.overlaps(record.getOffHeapWrites(), true)
+                || this.overlaps(record.getOffHeapReads(), false) || this.overlaps(record.getOffHeapDeltas(), true);
+    }
+    
+    /**
+     * <p>
+     * Checks if the `MemCell`s are written by the current group, or read by it
+     * when they are written.
+     * 
+     * @param cells
+     *            The `MemCell`s read or written by a transaction
+     * @param written
+     *            If the transaction writes the `MemCell`s
+     * 
+     * @return true if the transaction can't join the group, else false
+     */
+    private boolean overlaps(CellSet cells, boolean written) {
+        
+        for (int i = 0; i < cells.size(); i++) {
+            
+            String variableName = cells.cell(i).getName();
+            
+            if (this.writes.contains(variableName) || (written && this.reads.contains(variableName))) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * <p>
+     * Checks if the off-heap variables are written by the current group, or
+     * read by it when they are written.
+     * 
+     * @param slots
+     *            The off-heap variables read or written by a transaction
+     * @param written
+     *            If the transaction writes the variables
+     * 
+     * @return true if the transaction can't join the group, else false
+     */
+    private boolean overlaps(SlotSet slots, boolean written) {
+        
+        for (int i = 0; i < slots.size(); i++) {
+            
+            String variableName = this.manager.getOffHeap().name(slots.slot(i));
+            
+            if (this.writes.contains(variableName) || (written && this.reads.contains(variableName))) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * <p>
+     * Adds the names of the `MemCell`s to the variables of the group.
+     * 
+     * @param names
+     *            The variables read or written by the group
+     * @param cells
+     *            The `MemCell`s read or written by a member
+     */
+    private static void addNames(Set<String> names, CellSet cells) {
+        
+        for (int i = 0; i < cells.size(); i++) {
+            
+            names.add(cells.cell(i).getName());
+        }
+    }
+    
+    /**
+     * <p>
+     * Adds the names of the off-heap variables to the variables of the group.
+     * 
+     * @param names
+     *            The variables read or written by the group
+     * @param slots
+     *            The off-heap variables read or written by a member
+     */
+    private void addNames(Set<String> names, SlotSet slots) {
+        
+        for (int i = 0; i < slots.size(); i++) {
+            
+            names.add(this.manager.getOffHeap().name(slots.slot(i)));
+        }
+    }
+    
+    /**
+     * <p>
+     * Commits the current group with a single commit version. The members that
+     * fail to lock or validate are rolled back and run on their own.
+     */
+    private void flush() {
+        
+        if (this.group.isEmpty()) {
+            
+            return;
+        }
+        
+        TransactionMetrics metrics = this.manager.getMetrics();
+        
+        long commitStart = System.nanoTime();
+        
+        List<Transaction> writers = new ArrayList<>();
+        List<Transaction> committed = new ArrayList<>();
+        List<Transaction> failed = new ArrayList<>();
+        
+        for (Transaction t : this.group) {
+            
+            if (!t.hasUpdates()) {
+                
+                // nothing to publish, the reads are consistent
+                this.manager.trace(Event.COMMIT, t, null, t.getRecord().getStartVersion());
+                
+                committed.add(t);
+            } else if (t.lock()) {
+                
+                writers.add(t);
+            } else {
+                
+                failed.add(t);
+            }
+        }
+        
+        if (!writers.isEmpty()) {
+            
+            for (Transaction t : writers) {
+                
+                t.committing(Transaction.COMMITTING);
+            }
+            
+            long commitVersion = this.manager.tick();
+            
+            for (Transaction t : writers) {
+                
+                t.committing(commitVersion);
+            }
+            
+            List<Transaction> valid = new ArrayList<>();
+            
+            for (Transaction t : writers) {
+                
+                if (t.validateAt(commitVersion)) {
+                    
+                    valid.add(t);
+                } else {
+                    
+                    failed.add(t);
+                }
+            }
+            
+            WriteAheadLog log = this.manager.getLog();
+            
+            if (!Objects.isNull(log) && !valid.isEmpty()) {
+                
+                // the commit records of the group are forced together
+                for (Transaction t : valid) {
+                    
+                    t.log(log, commitVersion);
+                }
+                
+                log.beforePublish(valid.get(valid.size() - 1).getLsn());
+            }
+            
+            for (Transaction t : valid) {
+                
+                t.publish(commitVersion);
+            }
+            
+            committed.addAll(valid);
+        }
+        
+        for (Transaction t : committed) {
+            
+            t.releaseOwnership();
+            
+            this.manager.getWaiters().committed(t);
+        }
+        
+        WriteAheadLog log = this.manager.getLog();
+        long lsn = 0L;
+        
+        for (Transaction t : committed) {
+            
+            lsn = Math.max(lsn, t.getLsn());
+        }
+        
+        if (lsn > 0 && !Objects.isNull(log)) {
+            
+            log.afterPublish(lsn);
+        }
+        
+        long commitLatency = System.nanoTime() - commitStart;
+        
+        for (Transaction t : committed) {
+            
+            metrics.getCommitLatency().record(commitLatency);
+            
+            t.getRecord().setStatus(true);
+            
+            metrics.committed();
+            metrics.finished(t.getRecord().getAttempts());
+            
+            t.complete(TAction.DONE);
+        }
+        
+        for (Transaction t : failed) {
+            
+            t.aborted(t.getRecord().getAbort());
+            
+            t.rollback();
+        }
+        
+        this.group.clear();
+        this.reads.clear();
+        this.writes.clear();
+        
+        for (Transaction t : failed) {
+            
+            // retried on its own
+            t.run();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: CellSet.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 4:02:31 AM
+ */
+package foop.core;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>
+ * The `MemCell`s read or written by a transaction, each along with a long,
+ * for eg. the version it was read at or the raw bits written to it.
+ * 
+ * <p>
+ * The entries are kept in arrays that are reused across the attempts of the
+ * transaction and only grow, so adding an entry doesn't make any objects once
+ * the arrays are large enough. Transactions touch few `MemCell`s, so entries
+ * are looked up by a linear scan till there are more than {@link #SCAN}
+ * of them, then through an open addressed index of their positions.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.CellSet
+ *
+ */
+final class CellSet {
+    
+    // the most entries looked up by a linear scan
+    static final int  SCAN   = 8;
+    
+    private MemCell[] cells  = new MemCell[4];
+    private long[]    values = new long[4];
+    private int       size;
+    
+    // the positions of the entries plus 1 keyed by the hash of the ids of
+    // their `MemCell`s, 0 marks a free slot, it is used only while there are
+    // more than SCAN entries and kept across attempts
+    private int[]     index;
+    
+    /**
+     * @return the number of entries
+     */
+    int size() {
+        
+        return this.size;
+    }
+    
+    /**
+     * @return true if there are no entries, else false
+     */
+    boolean isEmpty() {
+        
+        return this.size == 0;
+    }
+    
+    /**
+     * @param i
+     *            The position of the entry
+     * 
+     * @return the `MemCell` of the entry
+     */
+    MemCell cell(int i) {
+        
+        return this.cells[i];
+    }
+    
+    /**
+     * @param i
+     *            The position of the entry
+     * 
+     * @return the value of the entry
+     */
+    long value(int i) {
+        
+        return this.values[i];
+    }
+    
+    /**
+     * <p>
+     * Finds the entry of the `MemCell`
+     * 
+     * @param cell
+     *            The `MemCell`
+     * 
+     * @return the index of the entry, -1 if there is none
+     */
+    int indexOf(MemCell cell) {
+        
+        if (this.size <= SCAN) {
+            
+            for (int i = 0; i < this.size; i++) {
+                
+                if (this.cells[i] == cell) {
+                    
+                    return i;
+                }
+            }
+            
+            return -1;
+        }
+        
+        int mask = this.index.length - 1;
+        
+        for (int slot = hash(cell) & mask;; slot = (slot + 1) & mask) {
+            
+            int i = this.index[slot] - 1;
+            
+            if (i < 0 || this.cells[i] == cell) {
+                
+                return i;
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Adds an entry for the `MemCell` unless it already has one
+     * 
+     * @param cell
+     *            The `MemCell`
+     * @param value
+     *            The value of the entry
+     */
+    void putIfAbsent(MemCell cell, long value) {
+        
+        if (this.indexOf(cell) < 0) {
+            
+            this.add(cell, value);
+        }
+    }
+    
+    /**
+     * <p>
+     * Sets the value of the entry for the `MemCell`, adding it if needed
+     * 
+     * @param cell
+     *            The `MemCell`
+     * @param value
+     *            The value of the entry
+     */
+    void put(MemCell cell, long value) {
+        
+        int i = this.indexOf(cell);
+        
+        if (i < 0) {
+            
+            this.add(cell, value);
+        } else {
+            
+            this.values[i] = value;
+        }
+    }
+    
+    private void add(MemCell cell, long value) {
+        
+        if (this.size == this.cells.length) {
+            
+            this.cells = Arrays.copyOf(this.cells, 2 * this.size);
+            this.values = Arrays.copyOf(this.values, 2 * this.size);
+        }
+        
+        this.cells[this.size] = cell;
+        this.values[this.size] = value;
+        this.size++;
+        
+        if (this.size > SCAN) {
+            
+            if (this.size == SCAN + 1 || 2 * this.size > this.index.length) {
+                
+                this.reindex();
+            } else {
+                
+                this.insert(this.size - 1);
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Rebuilds the index of the entries, large enough to keep it at most half
+     * full.
+     */
+    private void reindex() {
+        
+        int length = Integer.highestOneBit(4 * this.size);
+        
+        if (Objects.isNull(this.index) || this.index.length < length) {
+            
+            this.index = new int[length];
+        } else {
+            
+            Arrays.fill(this.index, 0);
+        }
+        
+        for (int i = 0; i < this.size; i++) {
+            
+            this.insert(i);
+        }
+    }
+    
+    private void insert(int i) {
+        
+        int mask = this.index.length - 1;
+        int slot = hash(this.cells[i]) & mask;
+        
+        while (this.index[slot] != 0) {
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        this.index[slot] = i + 1;
+    }
+    
+    private static int hash(MemCell cell) {
+        
+        // the ids are dense, the multiply spreads them over the index
+        int h = cell.getId() * 0x9e3779b9;
+        
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * <p>
+     * Drops the entries added after the first `size` entries.
+     * 
+     * @param size
+     *            The number of entries kept
+     */
+    void truncate(int size) {
+        
+        if (size >= this.size) {
+            
+            return;
+        }
+        
+        Arrays.fill(this.cells, size, this.size, null);
+        
+        this.size = size;
+        
+        if (size > SCAN) {
+            
+            this.reindex();
+        }
+    }
+    
+    /**
+     * <p>
+     * Removes all the entries, keeping the arrays
+     */
+    void clear() {
+        
+        Arrays.fill(this.cells, 0, this.size, null);
+        
+        if (this.size > SCAN) {
+            
+            Arrays.fill(this.index, 0);
+        }
+        
+        this.size = 0;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: Change.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 10:21:43 AM
+ */
+package foop.core;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * A committed update of a variable, as published to the subscribers of
+ * {@link StateManager#watch(String)}.
+ * 
+ * <p>
+ * The state is the one the transaction committed, the primitive and off-heap
+ * variables are handed out as a copy of their value. The changes a
+ * transaction committed share its commit version.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.Change
+ *
+ */
+public final class Change {
+    
+    /**
+     * <p>
+     * The name of the variable
+     */
+    private final @Getter String name;
+    
+    /**
+     * <p>
+     * The commit version of the update
+     */
+    private final @Getter long   version;
+    
+    /**
+     * <p>
+     * The committed state of the variable
+     */
+    private final @Getter State  state;
+    
+    /**
+     * @param name
+     *            The name of the variable
+     * @param version
+     *            The commit version of the update
+     * @param state
+     *            The committed state of the variable
+     */
+    Change(String name, long version, State state) {
+        
+        this.name = name;
+        this.version = version;
+        this.state = state;
+    }
+    
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        
+        return String.format("Change(%s, %d, %s)", this.name, this.version, this.state);
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: Checkpoint.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 12:52:07 AM
+ */
+package foop.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.MemCell.Versioned;
+
+/**
+ * <p>
+ * The checkpoints of a durable <i>StateManager</i>. A checkpoint holds the
+ * latest committed state of every `MemCell` along with its version, and the
+ * position in the write-ahead log from where the log must be replayed on top
+ * of it.
+ * 
+ * <p>
+ * Checkpoints are fuzzy, they are taken while transactions keep running. The
+ * log position is taken first and the `MemCell`s are read one by one, waiting
+ * only for the commits that are publishing to a `MemCell` when it is read.
+ * Every commit whose record is before the log position is in the checkpoint,
+ * the later ones may or may not be. Replaying the log applies a state only if
+ * it is newer than the one in the `MemCell`, so the commits in both the
+ * checkpoint and the log tail are applied once.
+ * 
+ * <p>
+ * The `MemCell`s are written in segments that are decoded independently of
+ * each other. On restart the checkpoint is memory-mapped and its segments
+ * decoded in parallel. Every variable is noted along with whether it lived in
+ * a `MemCell` or in the off-heap store, so that it is put back where it was.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.Checkpoint
+ *
+ */
+final class Checkpoint {
+    
+    private static final Logger logger   = LoggerFactory.getLogger(Checkpoint.class);
+    
+    // version 2 notes which variables live in the off-heap store
+    private static final long   MAGIC    = 0x666f6f7043505432L;
+    
+    // the magic number, the log position, the version clock and the number of
+    // segments
+    private static final int    HEADER   = 3 * Long.BYTES + Integer.BYTES;
+    
+    // the most `MemCell`s in a segment
+    static final int            SEGMENT  = 1 << 16;
+    
+    private Checkpoint() {}
+    
+    /**
+     * <p>
+     * Takes a checkpoint of the <i>StateManager</i>. The checkpoint is written
+     * to a temporary file that replaces the previous checkpoint once it is
+     * forced to the disk, so a crash while taking a checkpoint leaves the
+     * previous one intact.
+     * 
+     * @param manager
+     *            The StateManager
+     * @param log
+     *            The write-ahead log of the StateManager
+     * @param path
+     *            The checkpoint file
+     * 
+     * @return the number of `MemCell`s in the checkpoint
+     * 
+     * @throws IOException
+     *             if the checkpoint couldn't be written
+     */
+    static long write(StateManager manager, WriteAheadLog log, Path path) throws IOException {
+        
+        long position = log.position();
+        long count = 0;
+        int segments = 0;
+        
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            
+            channel.position(HEADER);
+            
+            Segment segment = new Segment();
+            
+            for (MemCell cell : manager.getCells()) {
+                
+                // waits for a commit publishing to the `MemCell`
+                Versioned v = cell.stable(null, Long.MAX_VALUE);
+                
+                if (v.getState() instanceof PrimitiveState) {
+                    
+                    // updated in place, a consistent copy is written instead
+                    PrimitiveState p = ((PrimitiveState) v.getState()).snapshot();
+                    
+                    segment.add(cell.getName(), p, p.version(), false);
+                } else {
+                    
+                    segment.add(cell.getName(), v.getState(), v.getVersion(), false);
+                }
+                
+                count++;
+                
+                if (segment.size() == SEGMENT) {
+                    
+                    segment.writeTo(channel);
+                    segments++;
+                    
+                    segment = new Segment();
+                }
+            }
+            
+            OffHeapStore offHeap = manager.getOffHeap();
+            
+            for (int slot = 0; !Objects.isNull(offHeap) && slot < offHeap.size(); slot++) {
+                
+                PrimitiveState p = offHeap.snapshot(slot);
+                
+                segment.add(offHeap.name(slot), p, p.version(), true);
+                
+                count++;
+                
+                if (segment.size() == SEGMENT) {
+                    
+                    segment.writeTo(channel);
+                    segments++;
+                    
+                    segment = new Segment();
+                }
+            }
+            
+            if (segment.size() > 0) {
+                
+                segment.writeTo(channel);
+                segments++;
+            }
+            
+            // the states read may have been published before their commit
+            // records were forced, the checkpoint must not get ahead of the
+            // log
+            log.flush();
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            
+            header.putLong(MAGIC).putLong(position).putLong(manager.now()).putInt(segments).flip();
+            
+            while (header.hasRemaining()) {
+                
+                channel.write(header, header.position());
+            }
+            
+            channel.force(true);
+        }
+        
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        logger.info(String.format("Checkpointed %d variables, the log is replayed from %d", count, position));
+        
+        // the records before the position are in the checkpoint now
+        log.truncate(position);
+        
+        return count;
+    }
+    
+    /**
+     * <p>
+     * Loads the checkpoint into the `MemCell`s of the <i>StateManager</i>.
+     * 
+     * @param manager
+     *            The StateManager
+     * @param path
+     *            The checkpoint file
+     * 
+     * @return the position in the write-ahead log from where it must be
+     *         replayed, 0 if there is no checkpoint
+     * 
+     * @throws IOException
+     *             if the checkpoint couldn't be read
+     */
+    static long load(StateManager manager, Path path) throws IOException {
+        
+        if (!Files.exists(path)) {
+            
+            return 0L;
+        }
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            
+            if (channel.size() < HEADER) {
+                
+                throw new IOException("The checkpoint " + path + " is truncated");
+            }
+            
+            MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0L, HEADER);
+            
+            if (header.getLong() != MAGIC) {
+                
+                throw new IOException("The file " + path + " is not a checkpoint");
+            }
+            
+            long position = header.getLong();
+            long version = header.getLong();
+            int segments = header.getInt();
+            
+            // find the segments, then decode them in parallel
+            List<MappedByteBuffer> mapped = new ArrayList<>(segments);
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            long offset = HEADER;
+            
+            for (int i = 0; i < segments; i++) {
+                
+                length.clear();
+                
+                while (length.hasRemaining()) {
+                    
+                    if (channel.read(length, offset + length.position()) < 0) {
+                        
+                        throw new IOException("The checkpoint " + path + " is truncated");
+                    }
+                }
+                
+                int size = length.getInt(0);
+                
+                mapped.add(channel.map(MapMode.READ_ONLY, offset + Integer.BYTES, size));
+                
+                offset += Integer.BYTES + size;
+            }
+            
+            try {
+                
+                mapped.parallelStream().forEach(segment -> Segment.readFrom(segment, manager));
+            } catch (UncheckedIOException e) {
+                
+                throw e.getCause();
+            }
+            
+            manager.recover(version);
+            
+            logger.info(String.format("Loaded the checkpoint %s, the log is replayed from %d", path, position));
+            
+            return position;
+        }
+    }
+    
+    /**
+     * <p>
+     * A segment of a checkpoint, its `MemCell`s are serialized as a single
+     * stream that is decoded on its own.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.Checkpoint.Segment
+     *
+     */
+    private static final class Segment {
+        
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final ObjectOutputStream    out;
+        private int                         size;
+        
+        Segment() throws IOException {
+            
+            this.out = new ObjectOutputStream(this.bytes);
+        }
+        
+        int size() {
+            
+            return this.size;
+        }
+        
+        void add(String name, State state, long version, boolean offHeapSlot) throws IOException {
+            
+            this.out.writeBoolean(true);
+            this.out.writeUTF(name);
+            this.out.writeBoolean(offHeapSlot);
+            this.out.writeLong(version);
+            this.out.writeObject(state);
+            
+            this.size++;
+        }
+        
+        void writeTo(FileChannel channel) throws IOException {
+            
+            this.out.writeBoolean(false);
+            this.out.close();
+            
+            byte[] segment = this.bytes.toByteArray();
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + segment.length);
+            
+            buffer.putInt(segment.length).put(segment).flip();
+            
+            while (buffer.hasRemaining()) {
+                
+                channel.write(buffer);
+            }
+        }
+        
+        static void readFrom(ByteBuffer segment, StateManager manager) {
+            
+            try (ObjectInputStream in = new ObjectInputStream(new BufferInputStream(segment))) {
+                
+                while (in.readBoolean()) {
+                    
+                    String name = in.readUTF();
+                    boolean offHeapSlot = in.readBoolean();
+                    long version = in.readLong();
+                    State state = (State) in.readObject();
+                    
+                    // put back where it lived, whatever order the segments
+                    // are decoded in
+                    manager.recover(name, state, version, offHeapSlot);
+                }
+            } catch (IOException e) {
+                
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                
+                throw new UncheckedIOException(new IOException(e));
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Reads a mapped segment without copying it to the heap first.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.Checkpoint.BufferInputStream
+     *
+     */
+    private static final class BufferInputStream extends InputStream {
+        
+        private final ByteBuffer buffer;
+        
+        BufferInputStream(ByteBuffer buffer) {
+            
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() {
+            
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            
+            if (!this.buffer.hasRemaining()) {
+                
+                return -1;
+            }
+            
+            int n = Math.min(len, this.buffer.remaining());
+            
+            this.buffer.get(b, off, n);
+            
+            return n;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: ConflictScheduler.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 6:58:36 AM
+ */
+package foop.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Queues the transactions of a <i>StateManager</i> on the variables they
+ * keep colliding on, see {@link StateManager#setScheduler(ConflictScheduler)}.
+ * 
+ * <p>
+ * The scheduler learns from the aborts of the transactions: every variable
+ * read or written by an attempt that ran into another transaction heats up,
+ * and a variable that ran into {@link #getThreshold()} conflicts within the
+ * cooldown of each other is hot. A transaction remembers the variables it
+ * touched in its aborted attempts, and the ones declared with the `touches`
+ * step of the transaction builder. Before each attempt it waits in a first
+ * come first served queue of each of them that is hot, so the transactions on
+ * a hot variable run one after another instead of aborting each other, while
+ * the transactions on cold variables keep running in parallel.
+ * 
+ * <p>
+ * The queues are taken in the order of the names of the variables, so two
+ * transactions never wait for each other. A hot variable cools down once its
+ * queue stays empty for the cooldown.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.ConflictScheduler
+ *
+ */
+public final class ConflictScheduler {
+    
+    /**
+     * <p>
+     * The queue of the transactions on a variable along with how hot the
+     * variable is.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.ConflictScheduler.Lane
+     *
+     */
+    static final class Lane {
+        
+        // a fair lock hands the variable over in the order of arrival
+        private final ReentrantLock lock = new ReentrantLock(true);
+        
+        // the conflicts on the variable since it was last cold
+        private final AtomicInteger heat = new AtomicInteger();
+        
+        // when the variable was last contended
+        private volatile long       last;
+    }
+    
+    // the default number of conflicts that make a variable hot
+    static final int                   THRESHOLD = 3;
+    
+    // the default time a variable stays hot after it was last contended
+    static final long                  COOLDOWN  = TimeUnit.MILLISECONDS.toNanos(100L);
+    
+    private final Map<String, Lane>    lanes     = new ConcurrentHashMap<>();
+    
+    private final int                  threshold;
+    private final long                 cooldown;
+    
+    /**
+     * <p>
+     * Makes a scheduler that makes a variable hot after 3 conflicts and lets
+     * it cool down after 100 milliseconds without contention.
+     */
+    public ConflictScheduler() {
+        
+        this(THRESHOLD, COOLDOWN, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * @param threshold
+     *            The number of conflicts that make a variable hot
+     * @param cooldown
+     *            The time a variable stays hot after it was last contended
+     * @param unit
+     *            The time unit of the cooldown
+     */
+    public ConflictScheduler(int threshold, long cooldown, TimeUnit unit) {
+        
+        if (threshold <= 0 || cooldown <= 0) {
+            
+            throw new IllegalArgumentException("The threshold and the cooldown of the scheduler must be positive");
+        }
+        
+        this.threshold = threshold;
+        this.cooldown = unit.toNanos(cooldown);
+    }
+    
+    /**
+     * @return the number of conflicts that make a variable hot
+     */
+    public int getThreshold() {
+        
+        return this.threshold;
+    }
+    
+    /**
+     * <p>
+     * Checks if the variable is hot, i.e if the transactions touching it are
+     * queued.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * 
+     * @return true if the variable is hot, else false
+     */
+    public boolean isHot(String variableName) {
+        
+        Lane lane = this.lanes.get(variableName);
+        
+        return !Objects.isNull(lane) && this.hot(lane, System.nanoTime());
+    }
+    
+    private boolean hot(Lane lane, long now) {
+        
+        return lane.heat.get() >= this.threshold && now - lane.last <= this.cooldown;
+    }
+    
+    /**
+     * <p>
+     * Waits for the turn of the transaction on each of the hot variables it
+     * touches, before an attempt.
+     * 
+     * @param t
+     *            The transaction
+     * 
+     * @return the queues the transaction holds, to be left after the attempt
+     */
+    List<Lane> enter(Transaction t) {
+        
+        if (t.getFootprint().isEmpty()) {
+            
+            return Collections.emptyList();
+        }
+        
+        long now = System.nanoTime();
+        List<Lane> held = new ArrayList<>();
+        
+        // the footprint is sorted by name, so the queues are always taken in
+        // the same order
+        for (String variableName : t.getFootprint()) {
+            
+            Lane lane = this.lanes.get(variableName);
+            
+            if (!Objects.isNull(lane) && this.hot(lane, now)) {
+                
+                lane.lock.lock();
+                
+                held.add(lane);
+            }
+        }
+        
+        if (!held.isEmpty()) {
+            
+            t.getManager().getMetrics().queued();
+        }
+        
+        return held;
+    }
+    
+    /**
+     * <p>
+     * Hands the variables over to the next transactions in their queues.
+     * 
+     * @param held
+     *            The queues the transaction holds
+     */
+    static void exit(List<Lane> held) {
+        
+        long now = System.nanoTime();
+        
+        for (int i = held.size() - 1; i >= 0; i--) {
+            
+            Lane lane = held.get(i);
+            
+            if (lane.lock.hasQueuedThreads()) {
+                
+                // still contended, the variable stays hot
+                lane.last = now;
+            }
+            
+            lane.lock.unlock();
+        }
+    }
+    
+    /**
+     * <p>
+     * Learns from an attempt of the transaction that ran into another
+     * transaction, the variables it read and wrote heat up and the
+     * transaction waits for their turn from the next attempt on.
+     * 
+     * @param t
+     *            The transaction, before it is rolled back
+     */
+    void conflicted(Transaction t) {
+        
+        Record record = t.getRecord();
+        Set<String> touched = new TreeSet<>();
+        
+        if (!Objects.isNull(record.getContended())) {
+            
+            // it isn't in the readSet or writeSet of the attempt
+            touched.add(record.getContended());
+        }
+        
+        names(touched, record.getReadVersions());
+        names(touched, record.getWriteCells());
+        names(touched, record.getPrimitiveReads());
+        names(touched, record.getPrimitiveWrites());
+        
+        for (MemCell cell : record.getRedoLog().keySet()) {
+            
+            touched.add(cell.getName());
+        }
+        
+        OffHeapStore offHeap = t.getManager().getOffHeap();
+        
+        for (SlotSet slots : new SlotSet[] { record.getOffHeapReads(), record.getOffHeapWrites() }) {
+            
+            for (int i = 0; i < slots.size(); i++) {
+                
+                touched.add(offHeap.name(slots.slot(i)));
+            }
+        }
+        
+        long now = System.nanoTime();
+        boolean first = record.getAttempts() == 1;
+        
+        for (String variableName : touched) {
+            
+            // a variable heats up once per transaction, so a transaction that
+            // keeps aborting doesn't make its own variables hot
+            if (!t.getFootprint().add(variableName) && !first) {
+                
+                continue;
+            }
+            
+            Lane lane = this.lanes.computeIfAbsent(variableName, n -> new Lane());
+            
+            if (now - lane.last > this.cooldown) {
+                
+                // it cooled down since it was last contended
+                lane.heat.set(0);
+            }
+            
+            lane.heat.incrementAndGet();
+            lane.last = now;
+        }
+    }
+    
+    private static void names(Set<String> names, CellSet cells) {
+        
+        for (int i = 0; i < cells.size(); i++) {
+            
+            names.add(cells.cell(i).getName());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: ContentionManager.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 8:14:05 PM
+ */
+package foop.core;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * The {@link ContentionManager} decides how long a <i>Transaction</i> waits
+ * before retrying, after it ran into another transaction or failed to commit.
+ * 
+ * <p>
+ * It can be set for all the transactions of a <i>StateManager</i> using
+ * `setContentionManager` or for a single transaction using the
+ * `contentionManager` step of the transaction builder.
+ * 
+ * <p>
+ * The built-in policies are:
+ * <ul>
+ * <li>{@link #exponentialBackoff()} -- waits for a random time up to an
+ * exponentially growing bound, the jitter keeps colliding transactions from
+ * retrying in lockstep. This is the default.
+ * <li>{@link #immediate()} -- retries right away.
+ * <li>{@link #polite()} -- spins, then yields, then backs off exponentially.
+ * <li>{@link #fixed(long)} -- waits for a fixed time.
+ * </ul>
+ * 
+ * <p>
+ * The waits park the thread without holding any monitor, so transactions
+ * running on virtual threads unmount while waiting.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.ContentionManager
+ *
+ */
+public interface ContentionManager {
+    
+    /**
+     * <p>
+     * Called before the transaction is retried, waits as long as the policy
+     * wants the transaction to back off.
+     * 
+     * @param t
+     *            The transaction that is about to be retried
+     * @param attempt
+     *            The number of attempts the transaction has made so far,
+     *            starting at 1
+     */
+    public void backoff(Transaction t, int attempt);
+    
+    /**
+     * <p>
+     * Exponential backoff with full jitter, starting at 10 microseconds and
+     * capped at 10 milliseconds.
+     * 
+     * @return The contention manager
+     */
+    public static ContentionManager exponentialBackoff() {
+        
+        return new ExponentialBackoff(TimeUnit.MICROSECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    
+    /**
+     * <p>
+     * Exponential backoff with full jitter.
+     * 
+     * @param base
+     *            The bound of the wait of the first retry
+     * @param cap
+     *            The maximum bound of the wait
+     * @param unit
+     *            The time unit of the bounds
+     * 
+     * @return The contention manager
+     */
+    public static ContentionManager exponentialBackoff(long base, long cap, TimeUnit unit) {
+        
+        return new ExponentialBackoff(unit.toNanos(base), unit.toNanos(cap));
+    }
+    
+    /**
+     * <p>
+     * Retries right away, without waiting.
+     * 
+     * @return The contention manager
+     */
+    public static ContentionManager immediate() {
+        
+        return (t, attempt) -> {};
+    }
+    
+    /**
+     * <p>
+     * Spins for the first few retries, yields for the next few and then backs
+     * off exponentially with jitter.
+     * 
+     * @return The contention manager
+     */
+    public static ContentionManager polite() {
+        
+        return new PoliteBackoff(4, 8, exponentialBackoff());
+    }
+    
+    /**
+     * <p>
+     * Waits for a fixed time before every retry.
+     * 
+     * @param millis
+     *            The wait in milliseconds
+     * 
+     * @return The contention manager
+     */
+    public static ContentionManager fixed(long millis) {
+        
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        
+        return (t, attempt) -> park(nanos);
+    }
+    
+    /**
+     * <p>
+     * Parks the calling thread for the given time, returns early if the thread
+     * is interrupted.
+     * 
+     * @param nanos
+     *            The time to park for in nanoseconds
+     */
+    static void park(long nanos) {
+        
+        long deadline = System.nanoTime() + nanos;
+        
+        while (nanos > 0 && !Thread.currentThread().isInterrupted()) {
+            
+            LockSupport.parkNanos(nanos);
+            
+            nanos = deadline - System.nanoTime();
+        }
+    }
+    
+    /**
+     * <p>
+     * Exponential backoff with full jitter, the wait before the n-th retry is
+     * random between 0 and min(cap, base * 2^(n - 1)).
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.ContentionManager.ExponentialBackoff
+     *
+     */
+    public static final class ExponentialBackoff implements ContentionManager {
+        
+        private final long base;
+        private final long cap;
+        
+        /**
+         * @param base
+         *            The bound of the wait of the first retry in nanoseconds
+         * @param cap
+         *            The maximum bound of the wait in nanoseconds
+         */
+        public ExponentialBackoff(long base, long cap) {
+            
+            this.base = Math.max(1L, base);
+            this.cap = Math.max(this.base, cap);
+        }
+        
+        /*
+         * (non-Javadoc)
+         * 
+         * @see foop.core.ContentionManager#backoff(foop.core.Transaction, int)
+         */
+        @Override
+        public void backoff(Transaction t, int attempt) {
+            
+            int shift = Math.min(Math.max(attempt - 1, 0), 62);
+            
+            // base << shift is only computed when it can't overflow the cap
+            long bound = (this.cap >> shift) < this.base ? this.cap : this.base << shift;
+            
+            park(ThreadLocalRandom.current().nextLong(bound + 1));
+        }
+    }
+    
+    /**
+     * <p>
+     * Spins for the first few retries, yields for the next few and then hands
+     * over to a fallback contention manager.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.ContentionManager.PoliteBackoff
+     *
+     */
+    public static final class PoliteBackoff implements ContentionManager {
+        
+        private final int               spins;
+        private final int               yields;
+        private final ContentionManager fallback;
+        
+        /**
+         * @param spins
+         *            The number of retries that spin
+         * @param yields
+         *            The number of retries after the spinning ones that yield
+         * @param fallback
+         *            The contention manager for the retries after that
+         */
+        public PoliteBackoff(int spins, int yields, ContentionManager fallback) {
+            
+            this.spins = spins;
+            this.yields = yields;
+            this.fallback = fallback;
+        }
+        
+        /*
+         * (non-Javadoc)
+         * 
+         * @see foop.core.ContentionManager#backoff(foop.core.Transaction, int)
+         */
+        @Override
+        public void backoff(Transaction t, int attempt) {
+            
+            if (attempt <= this.spins) {
+                
+                for (int i = 0; i < 1 << attempt; i++) {
+                    
+                    Thread.onSpinWait();
+                }
+            } else if (attempt <= this.spins + this.yields) {
+                
+                Thread.yield();
+            } else {
+                
+                this.fallback.backoff(t, attempt - this.spins - this.yields);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: DoubleState.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 1:36:02 AM
+ */
+package foop.core;
+
+/**
+ * <p>
+ * A state holding a double, see {@link PrimitiveState}. Use
+ * {@link StateManager#readDoubleT(String)} and
+ * {@link StateManager#writeDoubleT(String, double)} to update it without
+ * making objects.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.DoubleState
+ *
+ */
+public final class DoubleState extends PrimitiveState {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * @param value
+     *            The value
+     */
+    public DoubleState(double value) {
+        
+        super(Double.doubleToRawLongBits(value));
+    }
+    
+    /**
+     * @return the value
+     */
+    public double get() {
+        
+        return Double.longBitsToDouble(this.bits());
+    }
+    
+    @Override
+    PrimitiveState copy(long bits) {
+        
+        return new DoubleState(Double.longBitsToDouble(bits));
+    }
+    
+    @Override
+    long add(long bits, long delta) {
+        
+        return Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + Double.longBitsToDouble(delta));
+    }
+    
+    @Override
+    public String toString() {
+        
+        return "DoubleState(" + this.get() + ")";
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: EventTracer.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 4:41:09 AM
+ */
+package foop.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.TransactionMetrics.Abort;
+import foop.utils.NamedThreadFactory;
+
+/**
+ * <p>
+ * Records the events of the transactions run by a <i>StateManager</i> into a
+ * ring buffer, see {@link StateManager#enableTracing(int)}.
+ * 
+ * <p>
+ * The ring buffer is made of arrays allocated up front, so recording an event
+ * neither takes a lock nor allocates nor formats anything. A recorder claims
+ * the next entry with a single atomic increment and stamps the entry once it
+ * is written, the oldest entries are overwritten when the ring is full. The
+ * events are only turned into text when they are dumped, or by the background
+ * thread that streams them to a file.
+ * 
+ * <p>
+ * Every event holds the time it was recorded at, the transaction, the
+ * variable if any, and a value that depends on the event: the start version
+ * for {@link Event#BEGIN}, the version read for {@link Event#READ}, 1 or 0 for
+ * the outcome of {@link Event#OWN} and {@link Event#VALIDATE}, the commit
+ * version for {@link Event#COMMIT} and the {@link Abort} reason for
+ * {@link Event#ABORT}.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.EventTracer
+ *
+ */
+public final class EventTracer implements Closeable {
+    
+    /**
+     * <p>
+     * The events of a transaction.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.EventTracer.Event
+     *
+     */
+    public static enum Event {
+        
+        /**
+         * <p>
+         * An attempt of the transaction began
+         */
+        BEGIN,
+        
+        /**
+         * <p>
+         * The transaction read a committed variable
+         */
+        READ,
+        
+        /**
+         * <p>
+         * The transaction wrote a variable
+         */
+        WRITE,
+        
+        /**
+         * <p>
+         * The transaction took ownership of a variable, or of all of its
+         * writeSet members when it commits
+         */
+        OWN,
+        
+        /**
+         * <p>
+         * The transaction validated what it read
+         */
+        VALIDATE,
+        
+        /**
+         * <p>
+         * The transaction committed
+         */
+        COMMIT,
+        
+        /**
+         * <p>
+         * The attempt of the transaction, or of a nested transaction, was
+         * aborted
+         */
+        ABORT;
+    }
+    
+    private static final Logger            logger   = LoggerFactory.getLogger(EventTracer.class);
+    
+    // how often the events are streamed to the file
+    static final long                      INTERVAL = 10L;
+    
+    private final int                      mask;
+    
+    // the next entry to claim, the number of events recorded so far
+    private final AtomicLong               cursor   = new AtomicLong();
+    
+    // the number of the event in each entry plus 1, 0 while it is written
+    private final AtomicLongArray          stamps;
+    
+    private final long[]                   times;
+    private final Event[]                  events;
+    private final long[]                   ids;
+    private final String[]                 transactions;
+    private final String[]                 variables;
+    private final long[]                   values;
+    
+    // the file the events are streamed to and how far they were streamed
+    private Writer                         out;
+    private long                           streamed;
+    private ScheduledExecutorService       streamer;
+    
+    /**
+     * <p>
+     * Makes a ring buffer holding the latest events.
+     * 
+     * @param capacity
+     *            The number of events kept, rounded up to a power of 2
+     */
+    public EventTracer(int capacity) {
+        
+        if (capacity <= 0 || capacity > 1 << 30) {
+            
+            throw new IllegalArgumentException("The capacity of the ring buffer must be between 1 and 2^30");
+        }
+        
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        
+        this.mask = size - 1;
+        this.stamps = new AtomicLongArray(size);
+        this.times = new long[size];
+        this.events = new Event[size];
+        this.ids = new long[size];
+        this.transactions = new String[size];
+        this.variables = new String[size];
+        this.values = new long[size];
+    }
+    
+    /**
+     * @return the number of events the ring buffer holds
+     */
+    public int capacity() {
+        
+        return this.mask + 1;
+    }
+    
+    /**
+     * @return the number of events recorded so far, including the ones that
+     *         were overwritten
+     */
+    public long recorded() {
+        
+        return this.cursor.get();
+    }
+    
+    /**
+     * <p>
+     * Records an event.
+     * 
+     * @param event
+     *            The event
+     * @param t
+     *            The transaction
+     * @param variableName
+     *            The name of the variable, null if the event is not about a
+     *            single variable
+     * @param value
+     *            The value of the event
+     */
+    void record(Event event, Transaction t, String variableName, long value) {
+        
+        long n = this.cursor.getAndIncrement();
+        int i = (int) n & this.mask;
+        
+        // readers skip the entry while it is written
+        this.stamps.set(i, 0L);
+        
+        VarHandle.storeStoreFence();
+        
+        this.times[i] = System.nanoTime();
+        this.events[i] = event;
+        this.ids[i] = t.getId();
+        this.transactions[i] = t.getName();
+        this.variables[i] = variableName;
+        this.values[i] = value;
+        
+        this.stamps.setRelease(i, n + 1);
+    }
+    
+    /**
+     * <p>
+     * Writes the events in the ring buffer to the output, oldest first, one
+     * line per event.
+     * 
+     * @param out
+     *            The output
+     * 
+     * @throws IOException
+     *             if the events couldn't be written
+     */
+    public void dump(Appendable out) throws IOException {
+        
+        long end = this.cursor.get();
+        
+        this.write(out, Math.max(0L, end - this.capacity()), end);
+    }
+    
+    /**
+     * <p>
+     * Writes the events numbered from `from` to `end` that are still in the
+     * ring buffer, noting how many were overwritten before they could be
+     * written. It stops at the first event that is still being written.
+     * 
+     * @return the number of the next event to write
+     */
+    private long write(Appendable out, long from, long end) throws IOException {
+        
+        StringBuilder line = new StringBuilder();
+        long lost = 0;
+        long n = from;
+        
+        for (; n < end; n++) {
+            
+            int i = (int) n & this.mask;
+            
+            if (this.stamps.getAcquire(i) == n + 1) {
+                
+                line.setLength(0);
+                
+                Event event = this.events[i];
+                long value = this.values[i];
+                
+                line.append(this.times[i]).append(' ').append(event).append(' ').append(this.transactions[i])
+                        .append('#').append(this.ids[i]).append(' ')
+                        .append(Objects.isNull(this.variables[i]) ? "-" : this.variables[i]).append(' ');
+                
+                if (event == Event.ABORT && value >= 0 && value < Abort.values().length) {
+                    
+                    line.append(Abort.values()[(int) value]);
+                } else {
+                    
+                    line.append(value);
+                }
+                
+                line.append('\n');
+                
+                VarHandle.acquireFence();
+                
+                if (this.stamps.get(i) == n + 1) {
+                    
+                    lost = this.lost(out, lost);
+                    
+                    out.append(line);
+                    
+                    continue;
+                }
+            }
+            
+            if (n >= this.cursor.get() - this.capacity()) {
+                
+                // still being written
+                break;
+            }
+            
+            lost++;
+        }
+        
+        this.lost(out, lost);
+        
+        return n;
+    }
+    
+    private long lost(Appendable out, long lost) throws IOException {
+        
+        if (lost > 0) {
+            
+            out.append("# ").append(Long.toString(lost)).append(" events were overwritten\n");
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * <p>
+     * Streams the events to the file from now on, a background thread appends
+     * the events recorded since it last ran. The events that are overwritten
+     * before they are streamed are counted in the file.
+     * 
+     * @param path
+     *            The file, the events are appended to it
+     * 
+     * @throws IOException
+     *             if the file couldn't be opened
+     */
+    public synchronized void streamTo(Path path) throws IOException {
+        
+        this.close();
+        
+        this.out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        this.streamed = this.cursor.get();
+        
+        this.streamer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("foop-tracer"));
+        this.streamer.scheduleWithFixedDelay(this::streamQuietly, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * <p>
+     * Appends the events recorded since the last time to the file.
+     * 
+     * @throws UncheckedIOException
+     *             if the events couldn't be written
+     */
+    public synchronized void flush() {
+        
+        if (Objects.isNull(this.out)) {
+            
+            return;
+        }
+        
+        try {
+            
+            long end = this.cursor.get();
+            
+            this.streamed = this.write(this.out, this.streamed, end);
+            this.out.flush();
+        } catch (IOException e) {
+            
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void streamQuietly() {
+        
+        try {
+            
+            this.flush();
+        } catch (UncheckedIOException e) {
+            
+            logger.error("Couldn't stream the transaction events", e);
+        }
+    }
+    
+    /**
+     * <p>
+     * Stops streaming the events, after appending the ones not streamed yet.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        
+        if (Objects.isNull(this.out)) {
+            
+            return;
+        }
+        
+        this.streamer.shutdown();
+        
+        try {
+            
+            this.flush();
+        } catch (UncheckedIOException e) {
+            
+            throw e.getCause();
+        } finally {
+            
+            this.out.close();
+            this.out = null;
+            this.streamer = null;
+        }
+    }
+}
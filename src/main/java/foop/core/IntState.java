@@ -0,0 +1,61 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: IntState.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 1:37:15 AM
+ */
+package foop.core;
+
+/**
+ * <p>
+ * A state holding an int, see {@link PrimitiveState}. Use
+ * {@link StateManager#readIntT(String)} and
+ * {@link StateManager#writeIntT(String, int)} to update it without making
+ * objects.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.IntState
+ *
+ */
+public final class IntState extends PrimitiveState {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * @param value
+     *            The value
+     */
+    public IntState(int value) {
+        
+        super(value);
+    }
+    
+    /**
+     * @return the value
+     */
+    public int get() {
+        
+        return (int) this.bits();
+    }
+    
+    @Override
+    PrimitiveState copy(long bits) {
+        
+        return new IntState((int) bits);
+    }
+    
+    @Override
+    long add(long bits, long delta) {
+        
+        return (int) bits + (int) delta;
+    }
+    
+    @Override
+    public String toString() {
+        
+        return "IntState(" + this.get() + ")";
+    }
+}
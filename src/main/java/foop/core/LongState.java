@@ -0,0 +1,61 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: LongState.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 1:34:40 AM
+ */
+package foop.core;
+
+/**
+ * <p>
+ * A state holding a long, see {@link PrimitiveState}. Use
+ * {@link StateManager#readLongT(String)} and
+ * {@link StateManager#writeLongT(String, long)} to update it without making
+ * objects.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.LongState
+ *
+ */
+public final class LongState extends PrimitiveState {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * @param value
+     *            The value
+     */
+    public LongState(long value) {
+        
+        super(value);
+    }
+    
+    /**
+     * @return the value
+     */
+    public long get() {
+        
+        return this.bits();
+    }
+    
+    @Override
+    PrimitiveState copy(long bits) {
+        
+        return new LongState(bits);
+    }
+    
+    @Override
+    long add(long bits, long delta) {
+        
+        return bits + delta;
+    }
+    
+    @Override
+    public String toString() {
+        
+        return "LongState(" + this.get() + ")";
+    }
+}
@@ -0,0 +1,449 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: MemCell.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 7:20:00 PM
+ */
+package foop.core;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import foop.core.AdaptiveControl.Contention;
+
+/**
+ * <p>
+ * The `MemCell` brings together the immutable part(<i>Variable</i>), the
+ * mutable part(<i>State</i>) and the owner <i>Transaction</i> of a single
+ * variable.
+ * 
+ * <p>
+ * Each `MemCell` is independent of the others, the state is published through
+ * a volatile field and the ownership is claimed using CAS. So, transactions
+ * operating on unrelated `MemCell`s never contend with each other.
+ * 
+ * <p>
+ * Every committed state carries the version it was committed at, readers
+ * validate what they read by comparing versions instead of states.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.MemCell
+ *
+ */
+final class MemCell {
+    
+    /**
+     * <p>
+     * The name of the <i>Variable</i>, it is the key of the `MemCell`.
+     */
+    private final @Getter String                 name;
+    
+    /**
+     * <p>
+     * The id of the `MemCell`, dense within its <i>StateManager</i>.
+     */
+    private final @Getter int                    id;
+    
+    /**
+     * <p>
+     * The immutable part of the `MemCell`, it is null till the variable is
+     * made using the <i>StateManager</i>.
+     */
+    private volatile @Getter @Setter Variable    variable;
+    
+    /**
+     * <p>
+     * The mutable part of the `MemCell` along with the version it was
+     * committed at. The state and its version are published together so that
+     * readers always see a consistent pair.
+     */
+    private volatile @Getter @Setter Versioned   head;
+    
+    /**
+     * <p>
+     * The transaction that owns the `MemCell`.
+     */
+    private final AtomicReference<Transaction> owner = new AtomicReference<>();
+    
+    /**
+     * <p>
+     * The contention on the `MemCell` tracked by the {@link AdaptiveControl},
+     * null till it sees any.
+     */
+    private volatile @Getter(AccessLevel.PACKAGE) @Setter(AccessLevel.PACKAGE) Contention contention;
+    
+    /**
+     * @param name
+     *            The name of the <i>Variable</i>
+     * @param id
+     *            The id of the `MemCell`
+     */
+    MemCell(String name, int id) {
+        
+        this.name = name;
+        this.id = id;
+        this.head = new Versioned(null, 0L, null);
+    }
+    
+    /**
+     * <p>
+     * Gets the latest state of the `MemCell`, it may be uncommitted if the
+     * owner is updating the `MemCell` in place.
+     * 
+     * @return the latest state
+     */
+    State getState() {
+        
+        return this.head.getState();
+    }
+    
+    /**
+     * <p>
+     * Gets the latest committed version of the `MemCell` as seen by the
+     * transaction. The uncommitted state written by the transaction itself is
+     * skipped, the uncommitted state written by any other transaction is not
+     * visible and null is returned.
+     * 
+     * @param t
+     *            The transaction looking at the `MemCell`
+     * 
+     * @return the latest committed version, null if the `MemCell` is being
+     *         updated by some other transaction
+     */
+    Versioned committed(Transaction t) {
+        
+        Versioned v = this.head;
+        
+        if (!v.isCommitted()) {
+            
+            return this.owner.get() == t ? v.getPrev() : null;
+        }
+        
+        return v;
+    }
+    
+    /**
+     * <p>
+     * Gets the owner of the `MemCell`
+     * 
+     * @return the owner transaction, null if the `MemCell` is not owned
+     */
+    Transaction getOwner() {
+        
+        return this.owner.get();
+    }
+    
+    /**
+     * <p>
+     * Sets the owner of the `MemCell` unconditionally
+     * 
+     * @param t
+     *            The new owner, null removes the owner
+     */
+    void setOwner(Transaction t) {
+        
+        this.owner.set(t);
+    }
+    
+    /**
+     * <p>
+     * Tries to take ownership of the `MemCell` on behalf of the transaction.
+     * 
+     * @param t
+     *            The transaction that wants to own the `MemCell`
+     * 
+     * @return true if the transaction owns the `MemCell` now, else false
+     */
+    boolean own(Transaction t) {
+        
+        return this.owner.compareAndSet(null, t) || this.owner.get() == t;
+    }
+    
+    /**
+     * <p>
+     * Releases the ownership of the `MemCell` only if it is owned by the
+     * transaction.
+     * 
+     * @param t
+     *            The transaction releasing the `MemCell`
+     * 
+     * @return true if the ownership was released, else false
+     */
+    boolean release(Transaction t) {
+        
+        return this.owner.compareAndSet(t, null);
+    }
+    
+    /**
+     * <p>
+     * Gets the latest committed version of the `MemCell` that is stable for a
+     * reader that started at the given version, without taking ownership.
+     * 
+     * <p>
+     * An uncommitted state being written in place is skipped in favour of the
+     * committed state it replaces. If the owner is publishing a commit that
+     * the reader must see, the reader waits for the commit to finish. The
+     * returned version may still be newer than the start version of the
+     * reader, the caller must check it.
+     * 
+     * @param t
+     *            The reader
+     * @param startVersion
+     *            The start version of the reader
+     * 
+     * @return the latest committed version
+     */
+    Versioned stable(Transaction t, long startVersion) {
+        
+        for (;;) {
+            
+            Versioned v = this.head;
+            
+            this.awaitCommit(t, startVersion);
+            
+            if (v != this.head) {
+                
+                // the `MemCell` changed while the owner was being looked at
+                continue;
+            }
+            
+            return v.isCommitted() ? v : v.getPrev();
+        }
+    }
+    
+    /**
+     * <p>
+     * Waits while the owner of the `MemCell` is publishing a commit that a
+     * reader that started at the given version must see.
+     * 
+     * @param t
+     *            The reader
+     * @param startVersion
+     *            The start version of the reader
+     */
+    void awaitCommit(Transaction t, long startVersion) {
+        
+        for (int spins = 0;; spins++) {
+            
+            Transaction o = this.owner.get();
+            
+            if (Objects.isNull(o) || o == t || !o.isCommittingAt(startVersion)) {
+                
+                return;
+            }
+            
+            // the owner's commit is in the reader's snapshot, wait for it
+            if (spins < 64) {
+                
+                Thread.onSpinWait();
+            } else {
+                
+                Thread.yield();
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Gets the {@link PrimitiveState} held by the `MemCell`.
+     * 
+     * @return the primitive state, null if the `MemCell` holds some other
+     *         state
+     */
+    PrimitiveState primitive() {
+        
+        State s = this.head.getState();
+        
+        return s instanceof PrimitiveState ? (PrimitiveState) s : null;
+    }
+    
+    /**
+     * <p>
+     * Gets the committed version of the `MemCell` as of the start version of a
+     * snapshot reader, walking back the chain of committed versions if the
+     * `MemCell` was updated after the reader started.
+     * 
+     * @param t
+     *            The reader
+     * @param startVersion
+     *            The start version of the reader
+     * 
+     * @return the latest version committed at or before the start version,
+     *         null if that version is no longer kept
+     */
+    Versioned at(Transaction t, long startVersion) {
+        
+        Versioned v = this.stable(t, startVersion);
+        
+        while (!Objects.isNull(v) && v.getVersion() > startVersion) {
+            
+            v = v.getPrev();
+        }
+        
+        return v;
+    }
+    
+    /**
+     * <p>
+     * Commits the uncommitted state written by the owner transaction, stamping
+     * it with the commit version.
+     * 
+     * @param t
+     *            The owner transaction
+     * @param version
+     *            The commit version
+     * @param horizon
+     *            The oldest version that an active snapshot reader may need
+     * @param history
+     *            The maximum number of committed versions to keep
+     */
+    void commit(Transaction t, long version, long horizon, int history) {
+        
+        Versioned v = this.head;
+        
+        if (!v.isCommitted() && this.owner.get() == t) {
+            
+            this.head = trim(new Versioned(v.getState(), version, v.getPrev()), horizon, history);
+        }
+    }
+    
+    /**
+     * <p>
+     * Publishes the committed state of the `MemCell`, the caller must own the
+     * `MemCell`.
+     * 
+     * @param state
+     *            The committed state
+     * @param version
+     *            The commit version
+     * @param horizon
+     *            The oldest version that an active snapshot reader may need
+     * @param history
+     *            The maximum number of committed versions to keep
+     */
+    void publish(State state, long version, long horizon, int history) {
+        
+        this.head = trim(new Versioned(state, version, this.head), horizon, history);
+    }
+    
+    /**
+     * <p>
+     * Trims the chain of committed versions, keeping at most `history`
+     * versions and dropping the versions that no active snapshot reader can
+     * see. The latest version at or before the horizon is kept, the versions
+     * before it are dropped.
+     * 
+     * @param v
+     *            The latest committed version
+     * @param horizon
+     *            The oldest version that an active snapshot reader may need
+     * @param history
+     *            The maximum number of committed versions to keep
+     * 
+     * @return the latest committed version
+     */
+    private static Versioned trim(Versioned v, long horizon, int history) {
+        
+        Versioned last = v;
+        
+        for (int kept = 1; !Objects.isNull(last.getPrev()); kept++) {
+            
+            if (kept >= history || last.getVersion() <= horizon) {
+                
+                last.setPrev(null);
+                
+                break;
+            }
+            
+            last = last.getPrev();
+        }
+        
+        return v;
+    }
+    
+    /**
+     * <p>
+     * Reverts the uncommitted state written by the owner transaction,
+     * reinstating the committed state it replaced.
+     * 
+     * @param t
+     *            The owner transaction
+     */
+    void revert(Transaction t) {
+        
+        Versioned v = this.head;
+        
+        if (!v.isCommitted() && this.owner.get() == t) {
+            
+            this.head = v.getPrev();
+        }
+    }
+    
+    /**
+     * <p>
+     * The state of the `MemCell` along with its version.
+     * 
+     * <p>
+     * The version is stamped from the global version clock of the
+     * <i>StateManager</i> when the state is committed. An uncommitted state is
+     * stamped with {@link Versioned#UNCOMMITTED} and keeps the committed
+     * state it replaced as its `prev`, so that it can be reinstated on
+     * rollback.
+     * 
+     * <p>
+     * A committed state keeps the committed state it replaced as its `prev`
+     * when the <i>StateManager</i> keeps more than one version per variable,
+     * forming a chain of committed versions, latest first, that snapshot
+     * readers walk back.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.MemCell.Versioned
+     *
+     */
+    static final class Versioned {
+        
+        /**
+         * <p>
+         * The version of the states that are not committed yet
+         */
+        static final long                UNCOMMITTED = -1L;
+        
+        private final @Getter State     state;
+        private final @Getter long      version;
+        private volatile @Getter @Setter(AccessLevel.PRIVATE) Versioned prev;
+        
+        /**
+         * @param state
+         *            The state
+         * @param version
+         *            The version of the state
+         * @param prev
+         *            The previous version
+         */
+        Versioned(State state, long version, Versioned prev) {
+            
+            this.state = state;
+            this.version = version;
+            this.prev = prev;
+        }
+        
+        /**
+         * <p>
+         * Checks if the state has been committed.
+         * 
+         * @return true if the state is committed, else false
+         */
+        boolean isCommitted() {
+            
+            return this.version != UNCOMMITTED;
+        }
+    }
+}
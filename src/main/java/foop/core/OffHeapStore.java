@@ -0,0 +1,443 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: OffHeapStore.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 3:05:18 AM
+ */
+package foop.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Keeps the primitive variables of a <i>StateManager</i> in off-heap memory,
+ * see {@link StateManager#useOffHeapStore()}.
+ * 
+ * <p>
+ * Every variable gets a slot, a dense int id, in segments of direct
+ * <i>ByteBuffer</i>s. A slot holds everything a `MemCell` and its
+ * {@link PrimitiveState} would: the raw bits of the value, its version, the
+ * sequence number that readers validate against, the id of the owner
+ * transaction, the version the owner is committing at and the type of the
+ * value. Only the state of the variables is kept off-heap: the index from
+ * their names to their slots stays on the heap, so every variable still costs
+ * its name, a boxed slot and an entry of the index, along with its entry in
+ * the names of the slots.
+ * 
+ * <p>
+ * The slots are read and updated through a <i>VarHandle</i> with volatile
+ * semantics and ownership is claimed using CAS, like the fields of a
+ * `MemCell`.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.OffHeapStore
+ *
+ */
+final class OffHeapStore {
+    
+    private static final VarHandle LONGS      = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+    
+    // the types of the values
+    static final long              LONG       = 1L;
+    static final long              DOUBLE     = 2L;
+    static final long              INT        = 3L;
+    
+    // the layout of a slot
+    private static final int       BITS       = 0;
+    private static final int       VERSION    = 8;
+    private static final int       SEQ        = 16;
+    private static final int       OWNER      = 24;
+    private static final int       COMMITTING = 32;
+    private static final int       TYPE       = 40;
+    private static final int       SLOT       = 48;
+    
+    // the number of slots in a segment
+    static final int               SEGMENT    = 1 << 16;
+    
+    private final ConcurrentMap<String, Integer> index = new ConcurrentHashMap<>();
+    
+    // the segments and the names of their slots, grown while holding the
+    // index's lock
+    private volatile ByteBuffer[]  segments   = new ByteBuffer[0];
+    private volatile String[][]    names      = new String[0][];
+    private volatile int           size;
+    
+    /**
+     * @return the number of variables in the store
+     */
+    int size() {
+        
+        return this.size;
+    }
+    
+    /**
+     * <p>
+     * Finds the slot of the variable
+     * 
+     * @param variableName
+     *            The name of the variable
+     * 
+     * @return the slot, -1 if the variable is not in the store
+     */
+    int slot(String variableName) {
+        
+        Integer slot = this.index.get(variableName);
+        
+        return Objects.isNull(slot) ? -1 : slot;
+    }
+    
+    /**
+     * <p>
+     * Adds the variable to the store unless it is already there.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * @param type
+     *            The type of the value
+     * @param bits
+     *            The raw bits of the initial value
+     * @param version
+     *            The version of the initial value
+     * 
+     * @return the slot of the variable, -1 if it is in the store with some
+     *         other type of value
+     */
+    int make(String variableName, long type, long bits, long version) {
+        
+        int existing = this.slot(variableName);
+        
+        if (existing < 0) {
+            
+            synchronized (this.index) {
+                
+                existing = this.slot(variableName);
+                
+                if (existing < 0) {
+                    
+                    int slot = this.size;
+                    
+                    if (slot == this.segments.length * SEGMENT) {
+                        
+                        this.grow();
+                    }
+                    
+                    ByteBuffer segment = this.segments[slot / SEGMENT];
+                    int at = (slot % SEGMENT) * SLOT;
+                    
+                    LONGS.setVolatile(segment, at + BITS, bits);
+                    LONGS.setVolatile(segment, at + VERSION, version);
+                    LONGS.setVolatile(segment, at + TYPE, type);
+                    
+                    this.names[slot / SEGMENT][slot % SEGMENT] = variableName;
+                    this.size = slot + 1;
+                    this.index.put(variableName, slot);
+                    
+                    return slot;
+                }
+            }
+        }
+        
+        return this.type(existing) == type ? existing : -1;
+    }
+    
+    private void grow() {
+        
+        int n = this.segments.length;
+        
+        ByteBuffer[] segments = Arrays.copyOf(this.segments, n + 1);
+        String[][] names = Arrays.copyOf(this.names, n + 1);
+        
+        // the slots must be 8 byte aligned for the atomic updates
+        segments[n] = ByteBuffer.allocateDirect(SEGMENT * SLOT + Long.BYTES).alignedSlice(Long.BYTES);
+        names[n] = new String[SEGMENT];
+        
+        this.names = names;
+        this.segments = segments;
+    }
+    
+    private ByteBuffer segment(int slot) {
+        
+        return this.segments[slot / SEGMENT];
+    }
+    
+    private static int at(int slot) {
+        
+        return (slot % SEGMENT) * SLOT;
+    }
+    
+    /**
+     * @return the name of the variable in the slot
+     */
+    String name(int slot) {
+        
+        return this.names[slot / SEGMENT][slot % SEGMENT];
+    }
+    
+    long bits(int slot) {
+        
+        return (long) LONGS.getVolatile(this.segment(slot), at(slot) + BITS);
+    }
+    
+    long version(int slot) {
+        
+        return (long) LONGS.getVolatile(this.segment(slot), at(slot) + VERSION);
+    }
+    
+    long seq(int slot) {
+        
+        return (long) LONGS.getVolatile(this.segment(slot), at(slot) + SEQ);
+    }
+    
+    long type(int slot) {
+        
+        return (long) LONGS.getVolatile(this.segment(slot), at(slot) + TYPE);
+    }
+    
+    /**
+     * @return the id of the owner transaction of the slot, 0 if it is not
+     *         owned
+     */
+    long owner(int slot) {
+        
+        return (long) LONGS.getVolatile(this.segment(slot), at(slot) + OWNER);
+    }
+    
+    /**
+     * <p>
+     * Tries to take ownership of the slot on behalf of the transaction.
+     * 
+     * @param slot
+     *            The slot
+     * @param t
+     *            The id of the transaction
+     * 
+     * @return true if the transaction owns the slot now, else false
+     */
+    boolean own(int slot, long t) {
+        
+        ByteBuffer segment = this.segment(slot);
+        int at = at(slot) + OWNER;
+        
+        return LONGS.compareAndSet(segment, at, 0L, t) || (long) LONGS.getVolatile(segment, at) == t;
+    }
+    
+    /**
+     * <p>
+     * Releases the ownership of the slot only if it is owned by the
+     * transaction, clearing the version it was committing at first.
+     * 
+     * @param slot
+     *            The slot
+     * @param t
+     *            The id of the transaction
+     */
+    void release(int slot, long t) {
+        
+        if (this.owner(slot) == t) {
+            
+            LONGS.setVolatile(this.segment(slot), at(slot) + COMMITTING, 0L);
+            LONGS.compareAndSet(this.segment(slot), at(slot) + OWNER, t, 0L);
+        }
+    }
+    
+    /**
+     * <p>
+     * Notes the version the owner of the slot is committing at, only the
+     * owner may call it.
+     * 
+     * @param slot
+     *            The slot
+     * @param commitVersion
+     *            The commit version, {@link Transaction#COMMITTING} till it is
+     *            drawn
+     */
+    void committing(int slot, long commitVersion) {
+        
+        LONGS.setVolatile(this.segment(slot), at(slot) + COMMITTING, commitVersion);
+    }
+    
+    /**
+     * <p>
+     * Waits while the owner of the slot is publishing a commit that a reader
+     * that started at the given version must see, like
+     * {@link MemCell#awaitCommit(Transaction, long)}.
+     * 
+     * @param slot
+     *            The slot
+     * @param t
+     *            The id of the reader, 0 if it is not a transaction
+     * @param startVersion
+     *            The start version of the reader
+     */
+    void awaitCommit(int slot, long t, long startVersion) {
+        
+        ByteBuffer segment = this.segment(slot);
+        int at = at(slot);
+        
+        for (int spins = 0;; spins++) {
+            
+            long o = (long) LONGS.getVolatile(segment, at + OWNER);
+            long c = (long) LONGS.getVolatile(segment, at + COMMITTING);
+            
+            if (o == 0L || o == t || !(c == Transaction.COMMITTING || (c > 0 && c <= startVersion))) {
+                
+                return;
+            }
+            
+            if (spins < 64) {
+                
+                Thread.onSpinWait();
+            } else {
+                
+                Thread.yield();
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Publishes a new value along with its version under the sequence lock of
+     * the slot, only the owner may call it.
+     * 
+     * @param slot
+     *            The slot
+     * @param bits
+     *            The raw bits of the new value
+     * @param version
+     *            The commit version
+     */
+    void publish(int slot, long bits, long version) {
+        
+        ByteBuffer segment = this.segment(slot);
+        int at = at(slot);
+        long s = (long) LONGS.getVolatile(segment, at + SEQ);
+        
+        LONGS.setVolatile(segment, at + SEQ, s + 1);
+        LONGS.setVolatile(segment, at + BITS, bits);
+        LONGS.setVolatile(segment, at + VERSION, version);
+        LONGS.setVolatile(segment, at + SEQ, s + 2);
+    }
+    
+    /**
+     * <p>
+     * Makes a state holding the bits, of the type of the value in the slot.
+     * 
+     * @param slot
+     *            The slot
+     * @param bits
+     *            The raw bits of the value
+     * 
+     * @return the state
+     */
+    PrimitiveState copy(int slot, long bits) {
+        
+        return state(this.type(slot), bits);
+    }
+    
+    /**
+     * <p>
+     * Adds a delta to a value of the type of the value in the slot, like
+     * {@link PrimitiveState#add(long, long)}.
+     * 
+     * @param slot
+     *            The slot
+     * @param bits
+     *            The raw bits of the value
+     * @param delta
+     *            The raw bits of the delta
+     * 
+     * @return the raw bits of the sum
+     */
+    long add(int slot, long bits, long delta) {
+        
+        long type = this.type(slot);
+        
+        if (type == LONG) {
+            
+            return bits + delta;
+        }
+        
+        return type == DOUBLE
+                ? Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + Double.longBitsToDouble(delta))
+                : (int) bits + (int) delta;
+    }
+    
+    /**
+     * <p>
+     * Makes a consistent copy of the value in the slot along with its
+     * version, after waiting for a commit that is publishing to it.
+     * 
+     * @param slot
+     *            The slot
+     * 
+     * @return the copy
+     */
+    PrimitiveState snapshot(int slot) {
+        
+        for (;;) {
+            
+            this.awaitCommit(slot, 0L, Long.MAX_VALUE);
+            
+            long s = this.seq(slot);
+            long b = this.bits(slot);
+            long v = this.version(slot);
+            
+            if ((s & 1L) == 0 && s == this.seq(slot)) {
+                
+                PrimitiveState copy = this.copy(slot, b);
+                
+                copy.setVersion(v);
+                
+                return copy;
+            }
+            
+            Thread.onSpinWait();
+        }
+    }
+    
+    /**
+     * <p>
+     * Gets the type of value held by a type of primitive state
+     * 
+     * @param type
+     *            The type of primitive state
+     * 
+     * @return the type of value
+     */
+    static long type(Class<? extends PrimitiveState> type) {
+        
+        return type == LongState.class ? LONG : type == DoubleState.class ? DOUBLE : INT;
+    }
+    
+    /**
+     * <p>
+     * Makes a primitive state of the type holding the bits
+     * 
+     * @param type
+     *            The type of the value
+     * @param bits
+     *            The raw bits of the value
+     * 
+     * @return the state
+     */
+    static PrimitiveState state(long type, long bits) {
+        
+        if (type == LONG) {
+            
+            return new LongState(bits);
+        }
+        
+        return type == DOUBLE ? new DoubleState(Double.longBitsToDouble(bits)) : new IntState((int) bits);
+    }
+}
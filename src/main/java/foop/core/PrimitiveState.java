@@ -0,0 +1,161 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: PrimitiveState.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 1:31:12 AM
+ */
+package foop.core;
+
+/**
+ * <p>
+ * A state holding a single primitive value, kept unboxed as 64 raw bits.
+ * 
+ * <p>
+ * A variable made with a primitive state, see
+ * {@link StateManager#makeLong(String, long)}, keeps the same state object for
+ * its whole life. Commits update the value and its version in place under a
+ * sequence lock instead of publishing a new state, and transactions buffer
+ * their updates in preallocated arrays of their <i>Record</i>. So updating a
+ * primitive variable doesn't make any objects.
+ * 
+ * <p>
+ * Primitive variables keep a single version, a snapshot reader that comes
+ * across a primitive variable committed after it started is restarted.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.PrimitiveState
+ *
+ */
+public abstract class PrimitiveState extends State {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private volatile long     bits;
+    private volatile long     version;
+    
+    // odd while the value is being updated
+    private transient volatile long seq;
+    
+    /**
+     * @param bits
+     *            The raw bits of the value
+     */
+    PrimitiveState(long bits) {
+        
+        this.bits = bits;
+    }
+    
+    /**
+     * @return the raw bits of the value
+     */
+    final long bits() {
+        
+        return this.bits;
+    }
+    
+    /**
+     * @return the version of the value
+     */
+    final long version() {
+        
+        return this.version;
+    }
+    
+    /**
+     * @return the sequence number of the value, odd while it is being updated
+     */
+    final long seq() {
+        
+        return this.seq;
+    }
+    
+    /**
+     * <p>
+     * Publishes a new value along with its version, only the owner of the
+     * `MemCell` holding the state may call it.
+     * 
+     * @param bits
+     *            The raw bits of the new value
+     * @param version
+     *            The commit version
+     */
+    final void publish(long bits, long version) {
+        
+        long s = this.seq;
+        
+        this.seq = s + 1;
+        this.bits = bits;
+        this.version = version;
+        this.seq = s + 2;
+    }
+    
+    /**
+     * <p>
+     * Makes a state of the same type holding the bits, it is what is handed
+     * out by `readT` and written to the write-ahead log.
+     * 
+     * @param bits
+     *            The raw bits of the value
+     * 
+     * @return the new state
+     */
+    abstract PrimitiveState copy(long bits);
+    
+    /**
+     * <p>
+     * Adds a delta to a value of the type of the state, it is how the deltas
+     * of {@link StateManager#addLongT(String, long)} and the like are summed up
+     * and applied.
+     * 
+     * @param bits
+     *            The raw bits of the value
+     * @param delta
+     *            The raw bits of the delta
+     * 
+     * @return the raw bits of the sum
+     */
+    abstract long add(long bits, long delta);
+    
+    /**
+     * <p>
+     * Makes a consistent copy of the state along with its version.
+     * 
+     * @return the copy
+     */
+    final PrimitiveState snapshot() {
+        
+        for (;;) {
+            
+            long s = this.seq;
+            long b = this.bits;
+            long v = this.version;
+            
+            if ((s & 1L) == 0 && s == this.seq) {
+                
+                PrimitiveState copy = this.copy(b);
+                
+                copy.version = v;
+                
+                return copy;
+            }
+            
+            Thread.onSpinWait();
+        }
+    }
+    
+    /**
+     * <p>
+     * Sets the version of a state that is not shared yet, for eg. one that is
+     * being recovered.
+     * 
+     * @param version
+     *            The version
+     */
+    final void setVersion(long version) {
+        
+        this.version = version;
+    }
+}
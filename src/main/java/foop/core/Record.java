@@ -10,9 +10,12 @@ package foop.core;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+import foop.core.TransactionMetrics.Abort;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -30,6 +33,17 @@ import lombok.Setter;
  * 
  * <li><b> description </b>: The description of the transaction.
  * 
+ * <li><b> conflicted </b>: If the transaction ran into another transaction
+ * while operating.
+ * 
+ * <li><b> abort </b>: Why the last attempt of the transaction was aborted.
+ * 
+ * <li><b> contended </b>: The variable the last attempt of the transaction ran
+ * into another transaction on, if it is known.
+ * 
+ * <li><b> retry </b>: If the transaction waits for what it read to change
+ * before it is run again.
+ * 
  * <li><b>writeSet</b>: The set of MemCells/addresses that the transaction
  * intends to write to.
  * 
@@ -39,6 +53,47 @@ import lombok.Setter;
  * <li><b> oldValues </b>: The set of oldValues of the MemCells/addresses
  * that acts as a backup incase the transaction fails to commit.
  * 
+ * <li><b> startVersion </b>: The version of the global version clock when the
+ * transaction started.
+ * 
+ * <li><b> attempts </b>: The number of attempts the transaction has made.
+ * 
+ * <li><b> readVersions </b>: The versions of the readSet members, used for
+ * validating the readSet at commit.
+ * 
+ * <li><b> writeCells </b>: The `MemCell`s updated in place by the
+ * transaction.
+ * 
+ * <li><b> redoLog </b>: The deferred updates of the writeSet members.
+ * 
+ * <li><b> primitiveReads </b>: The primitive `MemCell`s read by the
+ * transaction along with the versions they were read at.
+ * 
+ * <li><b> primitiveWrites </b>: The deferred updates of the primitive
+ * `MemCell`s.
+ * 
+ * <li><b> offHeapReads </b>: The off-heap variables read by the transaction
+ * along with the versions they were read at.
+ * 
+ * <li><b> offHeapWrites </b>: The deferred updates of the off-heap variables.
+ * 
+ * <li><b> primitiveDeltas </b>: The deltas added to the primitive `MemCell`s.
+ * 
+ * <li><b> offHeapDeltas </b>: The deltas added to the off-heap variables.
+ * 
+ * <li><b> locks </b>: The `MemCell`s locked by a pessimistic transaction.
+ * 
+ * <li><b> slotLocks </b>: The off-heap variables locked by a pessimistic
+ * transaction.
+ * 
+ * <p>
+ * The commit works off the `MemCell`s, the readVersions, the writeCells, the
+ * redoLog and the primitive and off-heap sets. The names in the readSet and
+ * the writeSet and the backups in the oldValues are kept for the variables
+ * read and written by name, the handle based `readT` and `writeT` of the
+ * <i>StateManager</i> skip them so that they don't hash names or make
+ * objects.
+ * 
  * <br>
  * <br>
  * Uses Project Lombok for boilerplate generation
@@ -59,11 +114,57 @@ public class Record {
     private @Getter @Setter Integer            version;
     private @Getter @Setter String             description;
     
+    /**
+     * <p>
+     * Set when the transaction ran into another transaction while operating,
+     * for eg. it couldn't take ownership of a writeSet member. A conflicted
+     * transaction is rolled back and retried instead of being failed.
+     */
+    private @Getter @Setter Boolean            conflicted;
+    
+    /**
+     * <p>
+     * The reason the current attempt of the transaction is being aborted, it
+     * is reported in the metrics of the <i>StateManager</i>.
+     */
+    private @Getter @Setter Abort              abort;
+    
+    /**
+     * <p>
+     * The name of the variable the last attempt of the transaction ran into
+     * another transaction on, when it failed to read, write, lock or validate
+     * it. It is null if the attempt wasn't aborted by a conflict.
+     */
+    private @Getter @Setter String             contended;
+    
+    /**
+     * <p>
+     * Set when an operation of the transaction called
+     * {@link StateManager#retryT()}, the transaction is rolled back and parked
+     * till one of the variables it read is committed by another transaction.
+     */
+    private @Getter @Setter Boolean            retry;
+    
+    /**
+     * <p>
+     * The version of the global version clock when the transaction started
+     * its current attempt. The transaction can only read the states that were
+     * committed at or before this version.
+     */
+    private @Getter @Setter long               startVersion;
+    
+    /**
+     * <p>
+     * The number of attempts the transaction has made so far, it is more than
+     * 1 if the transaction had to be retried.
+     */
+    private @Getter @Setter int                attempts;
+    
     /**
      * <p>
      * The <i>writeSet</i> contains all the names of the <i>Variable</i>s or
      * `MemCell`s that the transaction needs to access(take ownership) inorder
-     * to modify.
+     * to modify, when they are written by name.
      */
     private @Getter Set<String>                writeSet;
     
@@ -71,26 +172,154 @@ public class Record {
      * <p>
      * The <i>readSet</i> contains all the names of the <i>Variable</i>s or
      * `MemCell`s that the transaction needs to access in order to read the
-     * values from.
+     * values from, when they are read by name.
      */
     private @Getter Set<String>                readSet;
     
     /**
      * <p>
-     * The <i>oldValues</i> contains the backup of the state of the
-     * <i>Variable</i>s or `MemCell`s so that it can restore them incase it
-     * fails to commit.
+     * The <i>oldValues</i> contains the backup of the state of the writeSet
+     * <i>Variable</i>s or `MemCell`s as they were before the transaction
+     * updated them.
      */
     private @Getter @Setter Map<String, State> oldValues;
     
+    /**
+     * <p>
+     * The <i>readVersions</i> contains the versions of the readSet members as
+     * they were read by the transaction. They are validated at commit by
+     * comparing them against the current versions of the `MemCell`s.
+     */
+    private @Getter(AccessLevel.PACKAGE) CellSet readVersions;
+    
+    /**
+     * <p>
+     * The <i>writeCells</i> contains the `MemCell`s the transaction took
+     * ownership of and updated in place, in the direct write mode. They are
+     * stamped, reverted or released by the commit and the rollback.
+     */
+    private @Getter(AccessLevel.PACKAGE) CellSet writeCells;
+    
+    /**
+     * <p>
+     * The <i>redoLog</i> buffers the updates of the writeSet members made by a
+     * transaction in the deferred write mode. The updates are published to the
+     * `MemCell`s when the transaction commits.
+     */
+    private @Getter(AccessLevel.PACKAGE) Map<MemCell, State> redoLog;
+    
+    /**
+     * <p>
+     * The <i>primitiveReads</i> contains the `MemCell`s holding a
+     * {@link PrimitiveState} that the transaction read, along with the
+     * versions they were read at. They are validated along with the
+     * readVersions.
+     */
+    private @Getter(AccessLevel.PACKAGE) CellSet primitiveReads;
+    
+    /**
+     * <p>
+     * The <i>primitiveWrites</i> buffers the raw bits written to the
+     * `MemCell`s holding a {@link PrimitiveState}, in every write mode. They
+     * are published in place when the transaction commits.
+     */
+    private @Getter(AccessLevel.PACKAGE) CellSet primitiveWrites;
+    
+    /**
+     * <p>
+     * The <i>offHeapReads</i> contains the slots of the {@link OffHeapStore}
+     * that the transaction read, along with the versions they were read at.
+     */
+    private @Getter(AccessLevel.PACKAGE) SlotSet      offHeapReads;
+    
+    /**
+     * <p>
+     * The <i>offHeapWrites</i> buffers the raw bits written to the slots of
+     * the {@link OffHeapStore}, they are published when the transaction
+     * commits.
+     */
+    private @Getter(AccessLevel.PACKAGE) SlotSet      offHeapWrites;
+    
+    /**
+     * <p>
+     * The <i>primitiveDeltas</i> sums up the raw bits of the deltas added to
+     * the `MemCell`s holding a {@link PrimitiveState}. Adding commutes, so
+     * the deltas are neither read nor owned till the transaction commits,
+     * when they are added to the values then committed. A delta to a
+     * `MemCell` that the transaction also writes is folded into the write.
+     */
+    private @Getter(AccessLevel.PACKAGE) CellSet primitiveDeltas;
+    
+    /**
+     * <p>
+     * The <i>offHeapDeltas</i> sums up the raw bits of the deltas added to the
+     * slots of the {@link OffHeapStore}, like the primitiveDeltas.
+     */
+    private @Getter(AccessLevel.PACKAGE) SlotSet      offHeapDeltas;
+    
+    /**
+     * <p>
+     * The <i>locks</i> contains the `MemCell`s a pessimistic transaction
+     * locked by taking ownership of them, they are released when the
+     * transaction commits or is rolled back.
+     */
+    private @Getter(AccessLevel.PACKAGE) CellSet locks;
+    
+    /**
+     * <p>
+     * The <i>slotLocks</i> contains the slots of the {@link OffHeapStore} a
+     * pessimistic transaction locked, like the locks.
+     */
+    private @Getter(AccessLevel.PACKAGE) SlotSet      slotLocks;
+    
     /**
      * 
      */
     public Record() {
         
         this.status = false;
+        this.conflicted = false;
+        this.retry = false;
         this.writeSet = new HashSet<>();
         this.readSet = new HashSet<>();
         this.oldValues = new HashMap<>();
+        this.readVersions = new CellSet();
+        this.writeCells = new CellSet();
+        this.redoLog = new LinkedHashMap<>();
+        this.primitiveReads = new CellSet();
+        this.primitiveWrites = new CellSet();
+        this.offHeapReads = new SlotSet();
+        this.offHeapWrites = new SlotSet();
+        this.primitiveDeltas = new CellSet();
+        this.offHeapDeltas = new SlotSet();
+        this.locks = new CellSet();
+        this.slotLocks = new SlotSet();
+    }
+    
+    /**
+     * <p>
+     * Clears the bookkeeping of the previous attempt of the transaction so
+     * that it can be retried.
+     */
+    void reset() {
+        
+        this.conflicted = false;
+        this.abort = null;
+        this.contended = null;
+        this.retry = false;
+        this.writeSet.clear();
+        this.readSet.clear();
+        this.oldValues.clear();
+        this.readVersions.clear();
+        this.writeCells.clear();
+        this.redoLog.clear();
+        this.primitiveReads.clear();
+        this.primitiveWrites.clear();
+        this.offHeapReads.clear();
+        this.offHeapWrites.clear();
+        this.primitiveDeltas.clear();
+        this.offHeapDeltas.clear();
+        this.locks.clear();
+        this.slotLocks.clear();
     }
 }
@@ -0,0 +1,217 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: Savepoint.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 5:38:44 AM
+ */
+package foop.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import foop.core.MemCell.Versioned;
+
+/**
+ * <p>
+ * Marks the <i>Record</i> of a transaction where a nested transaction starts,
+ * see {@link Transaction#nested(StateManager.TOperation...)}.
+ * 
+ * <p>
+ * The bookkeeping of a transaction only grows while it operates, so the
+ * readSet and writeSet of the nested transaction are the entries added after
+ * the savepoint. Rolling back to the savepoint drops them and undoes the
+ * updates made after it: the `MemCell`s first updated in place by the nested
+ * transaction are reverted and released, and the updates of the enclosing
+ * transaction that the nested transaction overwrote are reinstated from the
+ * copies taken at the savepoint.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.Savepoint
+ *
+ */
+final class Savepoint {
+    
+    // the sizes of the sets of the record at the savepoint
+    private final int                     readVersions;
+    private final int                     writeCells;
+    private final int                     primitiveReads;
+    private final int                     primitiveWrites;
+    private final int                     offHeapReads;
+    private final int                     offHeapWrites;
+    private final int                     primitiveDeltas;
+    private final int                     offHeapDeltas;
+    
+    // the uncommitted heads of the writeCells, the redo log and the raw bits
+    // of the primitive and off-heap updates and deltas at the savepoint
+    private final Versioned[]             heads;
+    private final Map<MemCell, State>     redoLog;
+    private final long[]                  primitiveBits;
+    private final long[]                  offHeapBits;
+    private final long[]                  primitiveDeltaBits;
+    private final long[]                  offHeapDeltaBits;
+    
+    /**
+     * <p>
+     * Marks the current end of the bookkeeping of the transaction.
+     * 
+     * @param record
+     *            The record of the transaction
+     */
+    Savepoint(Record record) {
+        
+        CellSet writeCells = record.getWriteCells();
+        CellSet primitiveWrites = record.getPrimitiveWrites();
+        SlotSet offHeapWrites = record.getOffHeapWrites();
+        
+        this.readVersions = record.getReadVersions().size();
+        this.writeCells = writeCells.size();
+        this.primitiveReads = record.getPrimitiveReads().size();
+        this.primitiveWrites = primitiveWrites.size();
+        this.offHeapReads = record.getOffHeapReads().size();
+        this.offHeapWrites = offHeapWrites.size();
+        this.primitiveDeltas = record.getPrimitiveDeltas().size();
+        this.offHeapDeltas = record.getOffHeapDeltas().size();
+        
+        this.heads = new Versioned[this.writeCells];
+        
+        for (int i = 0; i < this.writeCells; i++) {
+            
+            this.heads[i] = writeCells.cell(i).getHead();
+        }
+        
+        this.redoLog = record.getRedoLog().isEmpty() ? null : new LinkedHashMap<>(record.getRedoLog());
+        
+        this.primitiveBits = values(primitiveWrites);
+        this.offHeapBits = values(offHeapWrites);
+        this.primitiveDeltaBits = values(record.getPrimitiveDeltas());
+        this.offHeapDeltaBits = values(record.getOffHeapDeltas());
+    }
+    
+    private static long[] values(CellSet cells) {
+        
+        long[] values = new long[cells.size()];
+        
+        for (int i = 0; i < values.length; i++) {
+            
+            values[i] = cells.value(i);
+        }
+        
+        return values;
+    }
+    
+    private static long[] values(SlotSet slots) {
+        
+        long[] values = new long[slots.size()];
+        
+        for (int i = 0; i < values.length; i++) {
+            
+            values[i] = slots.value(i);
+        }
+        
+        return values;
+    }
+    
+    private static void restore(CellSet cells, int size, long[] values) {
+        
+        cells.truncate(size);
+        
+        for (int i = 0; i < size; i++) {
+            
+            cells.put(cells.cell(i), values[i]);
+        }
+    }
+    
+    private static void restore(SlotSet slots, int size, long[] values) {
+        
+        slots.truncate(size);
+        
+        for (int i = 0; i < size; i++) {
+            
+            slots.put(slots.slot(i), values[i]);
+        }
+    }
+    
+    /**
+     * <p>
+     * Undoes what the transaction did after the savepoint.
+     * 
+     * @param t
+     *            The transaction
+     */
+    void rollback(Transaction t) {
+        
+        this.rollback(t, false);
+    }
+    
+    /**
+     * <p>
+     * Undoes what the transaction did after the savepoint, keeping what it
+     * read after it if asked to. The reads that are kept are validated when
+     * the transaction commits and waited on if it retries.
+     * 
+     * @param t
+     *            The transaction
+     * @param keepReads
+     *            If the readSet members added after the savepoint are kept
+     */
+    void rollback(Transaction t, boolean keepReads) {
+        
+        Record record = t.getRecord();
+        CellSet writeCells = record.getWriteCells();
+        
+        for (int i = writeCells.size() - 1; i >= this.writeCells; i--) {
+            
+            // first updated after the savepoint
+            MemCell cell = writeCells.cell(i);
+            
+            cell.revert(t);
+            
+            if (record.getLocks().indexOf(cell) < 0) {
+                
+                // a pessimistic transaction holds its locks till it is done
+                cell.release(t);
+            }
+        }
+        
+        writeCells.truncate(this.writeCells);
+        
+        for (int i = 0; i < this.writeCells; i++) {
+            
+            // the transaction still owns the `MemCell`, so it reinstates its
+            // own uncommitted update
+            if (writeCells.cell(i).getHead() != this.heads[i]) {
+                
+                writeCells.cell(i).setHead(this.heads[i]);
+            }
+        }
+        
+        Map<MemCell, State> redoLog = record.getRedoLog();
+        
+        redoLog.clear();
+        
+        if (!Objects.isNull(this.redoLog)) {
+            
+            redoLog.putAll(this.redoLog);
+        }
+        
+        restore(record.getPrimitiveWrites(), this.primitiveWrites, this.primitiveBits);
+        restore(record.getOffHeapWrites(), this.offHeapWrites, this.offHeapBits);
+        restore(record.getPrimitiveDeltas(), this.primitiveDeltas, this.primitiveDeltaBits);
+        restore(record.getOffHeapDeltas(), this.offHeapDeltas, this.offHeapDeltaBits);
+        
+        if (!keepReads) {
+            
+            record.getReadVersions().truncate(this.readVersions);
+            record.getPrimitiveReads().truncate(this.primitiveReads);
+            record.getOffHeapReads().truncate(this.offHeapReads);
+        }
+        
+        record.setConflicted(false);
+        record.setAbort(null);
+        record.setRetry(false);
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: SlotSet.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 3:21:50 AM
+ */
+package foop.core;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>
+ * The slots of the {@link OffHeapStore} read or written by a transaction,
+ * each along with a long, the version it was read at or the raw bits written
+ * to it. It is the {@link CellSet} of the off-heap variables.
+ * 
+ * <p>
+ * The entries are kept in arrays that are reused across the attempts of the
+ * transaction and only grow, so adding an entry doesn't make any objects once
+ * the arrays are large enough. Transactions touch few slots, so entries
+ * are looked up by a linear scan till there are more than {@link #SCAN}
+ * of them, then through an open addressed index of their positions.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.SlotSet
+ *
+ */
+final class SlotSet {
+    
+    // the most entries looked up by a linear scan
+    static final int  SCAN   = 8;
+    
+    private int[]     slots  = new int[4];
+    private long[]    values = new long[4];
+    private int       size;
+    
+    // the positions of the entries plus 1 keyed by the hash of their slots, 0
+    // marks a free slot, it is used only while there are more
+    // than SCAN entries and kept across attempts
+    private int[]     index;
+    
+    /**
+     * @return the number of entries
+     */
+    int size() {
+        
+        return this.size;
+    }
+    
+    /**
+     * @return true if there are no entries, else false
+     */
+    boolean isEmpty() {
+        
+        return this.size == 0;
+    }
+    
+    /**
+     * @param i
+     *            The position of the entry
+     * 
+     * @return the slot of the entry
+     */
+    int slot(int i) {
+        
+        return this.slots[i];
+    }
+    
+    /**
+     * @param i
+     *            The position of the entry
+     * 
+     * @return the value of the entry
+     */
+    long value(int i) {
+        
+        return this.values[i];
+    }
+    
+    /**
+     * <p>
+     * Finds the entry of the slot
+     * 
+     * @param slot
+     *            The slot
+     * 
+     * @return the index of the entry, -1 if there is none
+     */
+    int indexOf(int slot) {
+        
+        if (this.size <= SCAN) {
+            
+            for (int i = 0; i < this.size; i++) {
+                
+                if (this.slots[i] == slot) {
+                    
+                    return i;
+                }
+            }
+            
+            return -1;
+        }
+        
+        int mask = this.index.length - 1;
+        
+        for (int probe = hash(slot) & mask;; probe = (probe + 1) & mask) {
+            
+            int i = this.index[probe] - 1;
+            
+            if (i < 0 || this.slots[i] == slot) {
+                
+                return i;
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Adds an entry for the slot unless it already has one
+     * 
+     * @param slot
+     *            The slot
+     * @param value
+     *            The value of the entry
+     */
+    void putIfAbsent(int slot, long value) {
+        
+        if (this.indexOf(slot) < 0) {
+            
+            this.add(slot, value);
+        }
+    }
+    
+    /**
+     * <p>
+     * Sets the value of the entry for the slot, adding it if needed
+     * 
+     * @param slot
+     *            The slot
+     * @param value
+     *            The value of the entry
+     */
+    void put(int slot, long value) {
+        
+        int i = this.indexOf(slot);
+        
+        if (i < 0) {
+            
+            this.add(slot, value);
+        } else {
+            
+            this.values[i] = value;
+        }
+    }
+    
+    private void add(int slot, long value) {
+        
+        if (this.size == this.slots.length) {
+            
+            this.slots = Arrays.copyOf(this.slots, 2 * this.size);
+            this.values = Arrays.copyOf(this.values, 2 * this.size);
+        }
+        
+        this.slots[this.size] = slot;
+        this.values[this.size] = value;
+        this.size++;
+        
+        if (this.size > SCAN) {
+            
+            if (this.size == SCAN + 1 || 2 * this.size > this.index.length) {
+                
+                this.reindex();
+            } else {
+                
+                this.insert(this.size - 1);
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Rebuilds the index of the entries, large enough to keep it at most half
+     * full.
+     */
+    private void reindex() {
+        
+        int length = Integer.highestOneBit(4 * this.size);
+        
+        if (Objects.isNull(this.index) || this.index.length < length) {
+            
+            this.index = new int[length];
+        } else {
+            
+            Arrays.fill(this.index, 0);
+        }
+        
+        for (int i = 0; i < this.size; i++) {
+            
+            this.insert(i);
+        }
+    }
+    
+    private void insert(int i) {
+        
+        int mask = this.index.length - 1;
+        int probe = hash(this.slots[i]) & mask;
+        
+        while (this.index[probe] != 0) {
+            
+            probe = (probe + 1) & mask;
+        }
+        
+        this.index[probe] = i + 1;
+    }
+    
+    private static int hash(int slot) {
+        
+        int h = slot * 0x9e3779b9;
+        
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * <p>
+     * Drops the entries added after the first `size` entries.
+     * 
+     * @param size
+     *            The number of entries kept
+     */
+    void truncate(int size) {
+        
+        if (size >= this.size) {
+            
+            return;
+        }
+        
+        this.size = size;
+        
+        if (size > SCAN) {
+            
+            this.reindex();
+        }
+    }
+    
+    /**
+     * <p>
+     * Removes all the entries, keeping the arrays
+     */
+    void clear() {
+        
+        if (this.size > SCAN) {
+            
+            Arrays.fill(this.index, 0);
+        }
+        
+        this.size = 0;
+    }
+}
@@ -8,14 +8,24 @@
  */
 package foop.core;
 
+import java.io.Serializable;
+
 /**
  * <p>
  * The <em> State </em> represents the state of the `Object`. It is maintained
  * in the `<i>stateTable</i>`. It is the `mutable` part of the `MemCell`.
  * 
+ * <p>
+ * States are serializable so that they can be written to the write-ahead log
+ * of a durable <i>StateManager</i>, the fields of a state must be
+ * serializable too.
+ * 
  * @author sidmishraw
  *
  *         Qualified Name: foop.core.State
  *
  */
-public abstract class State {}
+public abstract class State implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+}
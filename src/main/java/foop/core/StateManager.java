@@ -8,18 +8,42 @@
  */
 package foop.core;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import foop.core.EventTracer.Event;
+import foop.core.MemCell.Versioned;
+import foop.core.TransactionMetrics.Abort;
 import foop.utils.InstanceFactory;
+import foop.utils.NamedThreadFactory;
+import foop.utils.VirtualThreads;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -118,418 +142,2521 @@ import lombok.Setter;
 public class StateManager {
     
     /** logging stuff **/
-    private static final Logger               logger           = LoggerFactory.getLogger(StateManager.class);
+    private static final Logger                 logger = LoggerFactory.getLogger(StateManager.class);
     /** logging stuff **/
     
     // # Transactions Utility for making transctions
-    private static volatile Transactions      ts               = InstanceFactory.getInstance(Transactions.class);
+    private static volatile Transactions        ts     = InstanceFactory.getInstance(Transactions.class);
     // # Transactions Utility for making transctions
     
-    // # For Locking and Synchronization
     /**
      * <p>
-     * The <i>stateManagerLock</i> will be used for granular locking of
-     * resources in methods that will be exposed to multiple threads.
+     * The `cells` hold the `MemCell`s keyed by their <i>Variable</i>'s name.
      * 
      * <p>
-     * This approach is being taken because ideally there will be one
-     * StateManager. Even though the StateManager is using locks internally, it
-     * is still hiding away this complexity from the user of the framework.
+     * Each `MemCell` brings together the entries of `memory`, `stateTable` and
+     * `stm` for its <i>Variable</i>, so the three tables are now represented
+     * by a single concurrent map. There is no global lock, the state of a
+     * `MemCell` is published through a volatile field and its ownership is
+     * claimed using CAS.
      */
-    private volatile ReadWriteLock            stateManagerLock = null;
-    // # For Locking and Synchronization
+    private final ConcurrentMap<String, MemCell> cells;
     
     /**
      * <p>
-     * The `memory` is used to hold the `Variable` object references so that
-     * they don't get GC'ed. Moreover, the memory represents part of the
-     * `MemCell` collections.
+     * Hands out the ids of the `MemCell`s, dense and in the order the
+     * `MemCell`s are made.
      */
-    private volatile Map<String, Variable>    memory;
+    private final AtomicInteger                  ids    = new AtomicInteger();
     
     /**
      * <p>
-     * The <i>stateTable</i> `associates` the immutable part of the `MemCell` to
-     * its mutable part. It uses the <i>Variable</i>'s name as the key.
+     * The global version clock, every commit that updates `MemCell`s ticks it
+     * and stamps the updated `MemCell`s with the new version. Transactions
+     * sample it when they start and validate their readSet members by
+     * comparing versions.
      */
-    private volatile Map<String, State>       stateTable;
+    private final AtomicLong                     clock;
     
     /**
-     * Represents the Software Transactional Memory(STM)
+     * <p>
+     * The default {@link WriteMode} of the transactions made by this
+     * StateManager.
+     */
+    private volatile @Getter @Setter WriteMode   writeMode;
+    
+    /**
+     * <p>
+     * The transaction runtime, transactions made by this StateManager are
+     * submitted to it for execution. By default it is a cached pool of daemon
+     * threads, so threads are reused across transactions.
+     */
+    private volatile @Getter @Setter ExecutorService executor;
+    
+    /**
+     * <p>
+     * The default {@link ContentionManager} of the transactions made by this
+     * StateManager.
+     */
+    private volatile @Getter @Setter ContentionManager contentionManager;
+    
+    /**
+     * <p>
+     * The {@link ConflictScheduler} that queues the transactions made by this
+     * StateManager on the variables they collide on, null by default so that
+     * all transactions run optimistically.
+     */
+    private volatile @Getter @Setter ConflictScheduler scheduler;
+    
+    /**
+     * <p>
+     * The default {@link Isolation} of the transactions made by this
+     * StateManager.
+     */
+    private volatile @Getter @Setter Isolation   isolation;
+    
+    /**
+     * <p>
+     * The {@link ConcurrencyControl} of the transactions made by this
+     * StateManager, optimistic by default.
+     */
+    private volatile @Getter @Setter ConcurrencyControl concurrencyControl;
+    
+    /**
+     * <p>
+     * Decides which variables are locked when the concurrency control is
+     * adaptive.
+     */
+    private final @Getter(AccessLevel.PACKAGE) AdaptiveControl adaptiveControl;
+    
+    /**
+     * <p>
+     * The transactions parked by {@link #retryT()} till what they read
+     * changes.
+     */
+    private final @Getter(AccessLevel.PACKAGE) Waiters waiters;
+    
+    /**
+     * <p>
+     * Publishes the committed changes to the watches of {@link #watch(String)}.
+     */
+    private final @Getter(AccessLevel.PACKAGE) Watchers watchers;
+    
+    /**
+     * <p>
+     * The maximum number of committed versions kept per `MemCell`. When it is
+     * more than 1, the `MemCell`s keep a chain of their committed versions so
+     * that snapshot readers can read them as of their start version.
+     */
+    private volatile @Getter int                 maxVersions;
+    
+    /**
+     * <p>
+     * The active snapshot readers, ordered by the version they registered
+     * with. The oldest of them decides which committed versions can no longer
+     * be seen and are dropped.
+     */
+    private final ConcurrentSkipListSet<Transaction> snapshots;
+    
+    /**
+     * <p>
+     * The metrics of the transactions made by this StateManager, they can be
+     * exposed over JMX using {@link TransactionMetrics#register(String)}.
+     */
+    private final @Getter TransactionMetrics     metrics;
+    
+    /**
+     * <p>
+     * The write-ahead log of the commits, null when the StateManager is not
+     * durable.
+     */
+    private volatile @Getter(AccessLevel.PACKAGE) WriteAheadLog log;
+    
+    /**
+     * <p>
+     * The checkpoint file of the write-ahead log, null when the StateManager
+     * is not durable.
+     */
+    private volatile Path                        checkpointPath;
+    
+    /**
+     * <p>
+     * Takes the periodic checkpoints, null when they are not scheduled.
+     */
+    private ScheduledExecutorService             checkpointer;
+    
+    /**
+     * <p>
+     * The off-heap store of the primitive variables, null when they are kept
+     * in `MemCell`s.
+     */
+    private volatile @Getter(AccessLevel.PACKAGE) OffHeapStore offHeap;
+    
+    /**
+     * <p>
+     * The ring buffer the events of the transactions are recorded into, null
+     * when they are not traced.
+     */
+    private volatile @Getter EventTracer         tracer;
+    
+    /**
+     * Initializes the StateManager with empty tables for each of the memory,
+     * stm and stateTable.
+     */
+    public StateManager() {
+        
+        this.cells = new ConcurrentHashMap<>();
+        this.clock = new AtomicLong(0L);
+        this.writeMode = WriteMode.DIRECT;
+        this.executor = Executors.newCachedThreadPool(new NamedThreadFactory("foop-transaction"));
+        this.contentionManager = ContentionManager.exponentialBackoff();
+        this.isolation = Isolation.SERIALIZABLE;
+        this.concurrencyControl = ConcurrencyControl.OPTIMISTIC;
+        this.maxVersions = 1;
+        this.snapshots = new ConcurrentSkipListSet<>(Transaction.BY_SNAPSHOT_VERSION);
+        this.metrics = new TransactionMetrics();
+        this.adaptiveControl = new AdaptiveControl(this);
+        this.waiters = new Waiters(this);
+        this.watchers = new Watchers(this);
+    }
+    
+    /**
+     * <p>
+     * Switches the transaction runtime to run each transaction on a virtual
+     * thread of its own. Virtual threads are cheap, so hundreds of thousands of
+     * transactions can be in flight without sizing a pool of platform threads,
+     * and the transactions waiting to retry don't hold on to carrier threads.
+     * 
+     * <p>
+     * The previous runtime is left as is, the caller owns its lifecycle if it
+     * was set explicitly.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the JVM doesn't support virtual threads, they need Java 21
+     *             or later
+     */
+    public void useVirtualThreads() {
+        
+        this.executor = VirtualThreads.newExecutor();
+    }
+    
+    /**
+     * <p>
+     * Sets the maximum number of committed versions kept per `MemCell`. 1 keeps
+     * only the latest version, more than 1 turns the state table into a
+     * multi-version one where snapshot readers read as of their start version
+     * instead of restarting when a `MemCell` is updated after they started.
+     * The versions that no active snapshot reader can see are dropped.
+     * 
+     * @param maxVersions
+     *            The maximum number of committed versions, at least 1
+     */
+    public void setMaxVersions(int maxVersions) {
+        
+        if (maxVersions < 1) {
+            
+            throw new IllegalArgumentException("At least 1 version must be kept per variable");
+        }
+        
+        this.maxVersions = maxVersions;
+    }
+    
+    /**
+     * <p>
+     * Keeps the primitive variables made from now on, see
+     * {@link #makeLong(String, long)}, in off-heap memory instead of
+     * `MemCell`s. They are indexed by a dense slot id and read and written
+     * using the same `readT`/`writeT` and `readLongT`/`writeLongT` API, but
+     * the heap no longer holds their states, versions and owners, only their
+     * names. It must be called when the StateManager starts, before the
+     * variables are made or recovered from the write-ahead log.
+     * 
+     * <p>
+     * Off-heap variables keep a single version, like the primitive variables
+     * kept in `MemCell`s.
+     */
+    public synchronized void useOffHeapStore() {
+        
+        if (Objects.isNull(this.offHeap)) {
+            
+            this.offHeap = new OffHeapStore();
+        }
+    }
+    
+    /**
+     * <p>
+     * Records the events of the transactions, their begin, reads, writes,
+     * ownership, validation, commit and aborts, into a ring buffer holding the
+     * latest events. The events can be dumped using
+     * {@link EventTracer#dump(Appendable)} or streamed to a file using
+     * {@link EventTracer#streamTo(Path)}. Recording an event doesn't lock,
+     * allocate or format anything, so tracing can be left on under load.
+     * 
+     * @param capacity
+     *            The number of events kept
+     * 
+     * @return the tracer
+     */
+    public synchronized EventTracer enableTracing(int capacity) {
+        
+        if (Objects.isNull(this.tracer)) {
+            
+            this.tracer = new EventTracer(capacity);
+        }
+        
+        return this.tracer;
+    }
+    
+    /**
+     * <p>
+     * Stops recording the events of the transactions, the file they were
+     * streamed to is closed.
+     */
+    public synchronized void disableTracing() throws IOException {
+        
+        EventTracer tracer = this.tracer;
+        
+        this.tracer = null;
+        
+        if (!Objects.isNull(tracer)) {
+            
+            tracer.close();
+        }
+    }
+    
+    /**
+     * <p>
+     * Records an event of the transaction if tracing is enabled.
+     * 
+     * @param event
+     *            The event
+     * @param t
+     *            The transaction
+     * @param variableName
+     *            The name of the variable, null if the event is not about a
+     *            single variable
+     * @param value
+     *            The value of the event
+     */
+    void trace(Event event, Transaction t, String variableName, long value) {
+        
+        EventTracer tracer = this.tracer;
+        
+        if (!Objects.isNull(tracer)) {
+            
+            tracer.record(event, t, variableName, value);
+        }
+    }
+    
+    /**
+     * <p>
+     * Watches a variable, the returned publisher gets its committed changes.
+     * The changes are handed over by the commits without waiting and are
+     * delivered in batches on the executor of the StateManager, as many as
+     * each subscriber requested. A subscriber gets the changes committed
+     * after it subscribed, the changes a slow subscriber has no room for are
+     * dropped and counted in the metrics.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * 
+     * @return the publisher of the changes of the variable
+     */
+    public Flow.Publisher<Change> watch(String variableName) {
+        
+        return this.watchers.watch(variableName::equals);
+    }
+    
+    /**
+     * <p>
+     * Watches the variables whose names start with the prefix, like
+     * {@link #watch(String)}.
+     * 
+     * @param prefix
+     *            The prefix of the names of the variables
+     * 
+     * @return the publisher of the changes of the variables
+     */
+    public Flow.Publisher<Change> watchPrefix(String prefix) {
+        
+        return this.watchers.watch(name -> name.startsWith(prefix));
+    }
+    
+    /**
+     * <p>
+     * Watches the variables whose names the filter matches, like
+     * {@link #watch(String)}. The filter is run off the commit path.
+     * 
+     * @param filter
+     *            Matches the names of the variables
+     * 
+     * @return the publisher of the changes of the variables
+     */
+    public Flow.Publisher<Change> watch(Predicate<String> filter) {
+        
+        return this.watchers.watch(filter);
+    }
+    
+    /**
+     * <p>
+     * Stops a watch, its subscribers get the changes committed till now and
+     * then complete.
+     * 
+     * @param watch
+     *            The publisher returned by `watch`
+     * 
+     * @return true if the watch was stopped, false if it isn't a watch of the
+     *         StateManager
+     */
+    public boolean unwatch(Flow.Publisher<Change> watch) {
+        
+        return this.watchers.unwatch(watch);
+    }
+    
+    /**
+     * <p>
+     * Makes the commits of the StateManager durable by appending them to a
+     * write-ahead log. The `MemCell`s are rebuilt from the commit records
+     * already in the log first, so it must be called when the StateManager
+     * starts, before any transaction runs.
+     * 
+     * <p>
+     * The log keeps the states of the variables, not their immutable
+     * properties. The variables are made again, without properties, when they
+     * are recovered, `make` can be called afterwards to give them their
+     * properties back.
+     * 
+     * @param path
+     *            The log file, it is made if it doesn't exist
+     * @param durability
+     *            How long the transactions wait for their commits to be
+     *            durable
+     * 
+     * @throws IOException
+     *             if the log couldn't be read or opened
+     */
+    public synchronized void enableLog(Path path, Durability durability) throws IOException {
+        
+        if (!Objects.isNull(this.log)) {
+            
+            throw new IllegalStateException("The write-ahead log is already enabled");
+        }
+        
+        Path checkpointPath = path.resolveSibling(path.getFileName() + ".checkpoint");
+        
+        // only the tail of the log after the latest checkpoint is replayed
+        long from = Checkpoint.load(this, checkpointPath);
+        
+        this.log = WriteAheadLog.open(this, path, from, durability);
+        this.checkpointPath = checkpointPath;
+    }
+    
+    /**
+     * <p>
+     * Takes a checkpoint of the latest committed states of all the variables,
+     * next to the write-ahead log. Transactions keep running while the
+     * checkpoint is taken. When the StateManager restarts, the checkpoint is
+     * memory-mapped and only the commits logged after it started are
+     * replayed.
+     * 
+     * @return the number of variables in the checkpoint
+     * 
+     * @throws IOException
+     *             if the checkpoint couldn't be written
+     */
+    public long checkpoint() throws IOException {
+        
+        WriteAheadLog log = this.log;
+        Path checkpointPath = this.checkpointPath;
+        
+        if (Objects.isNull(log) || Objects.isNull(checkpointPath)) {
+            
+            throw new IllegalStateException("Checkpoints need the write-ahead log, call `enableLog` first");
+        }
+        
+        // one checkpoint at a time
+        synchronized (log) {
+            
+            return Checkpoint.write(this, log, checkpointPath);
+        }
+    }
+    
+    /**
+     * <p>
+     * Takes a checkpoint periodically in the background, till the write-ahead
+     * log is closed.
+     * 
+     * @param period
+     *            The time between the checkpoints
+     * @param unit
+     *            The unit of the period
+     */
+    public synchronized void scheduleCheckpoints(long period, TimeUnit unit) {
+        
+        if (Objects.isNull(this.log)) {
+            
+            throw new IllegalStateException("Checkpoints need the write-ahead log, call `enableLog` first");
+        }
+        
+        if (!Objects.isNull(this.checkpointer)) {
+            
+            this.checkpointer.shutdown();
+        }
+        
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("foop-checkpoint"));
+        this.checkpointer.scheduleWithFixedDelay(() -> {
+            
+            try {
+                
+                this.checkpoint();
+            } catch (IOException | RuntimeException e) {
+                
+                logger.error(e.getMessage(), e);
+            }
+        }, period, period, unit);
+    }
+    
+    /**
+     * <p>
+     * Forces the commit records appended so far and closes the write-ahead
+     * log, the commits made afterwards are not durable.
+     * 
+     * @throws IOException
+     *             if the commit records couldn't be forced
+     */
+    public synchronized void closeLog() throws IOException {
+        
+        WriteAheadLog log = this.log;
+        
+        if (!Objects.isNull(this.checkpointer)) {
+            
+            this.checkpointer.shutdown();
+            this.checkpointer = null;
+        }
+        
+        if (!Objects.isNull(log)) {
+            
+            this.log = null;
+            this.checkpointPath = null;
+            
+            // waits for a checkpoint being taken
+            synchronized (log) {
+                
+                log.close();
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Reinstates the state of a variable from the write-ahead log, like
+     * {@link #recover(String, State, long, boolean)}. The log is replayed
+     * after the checkpoint is loaded, so a variable is put where the
+     * checkpoint put it, and a variable made after the checkpoint where
+     * `makeLong` would have.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * @param state
+     *            The state
+     * @param version
+     *            The version the state was committed at
+     */
+    void recover(String variableName, State state, long version) {
+        
+        OffHeapStore offHeap = this.offHeap;
+        boolean offHeapSlot = !Objects.isNull(offHeap) && state instanceof PrimitiveState
+                && (offHeap.slot(variableName) >= 0 || !this.cells.containsKey(variableName));
+        
+        this.recover(variableName, state, version, offHeapSlot);
+    }
+    
+    /**
+     * <p>
+     * Reinstates the state of a variable from the checkpoint or the
+     * write-ahead log, unless the `MemCell` or the slot already has a newer
+     * state. The version clock is moved past the version of the state.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * @param state
+     *            The state
+     * @param version
+     *            The version the state was committed at
+     * @param offHeapSlot
+     *            If the variable lived in the off-heap store, it is put in a
+     *            `MemCell` if this StateManager doesn't use one
+     */
+    void recover(String variableName, State state, long version, boolean offHeapSlot) {
+        
+        OffHeapStore offHeap = this.offHeap;
+        
+        if (offHeapSlot && !Objects.isNull(offHeap) && state instanceof PrimitiveState) {
+            
+            PrimitiveState p = (PrimitiveState) state;
+            int slot = offHeap.make(variableName, OffHeapStore.type(p.getClass()), p.bits(), version);
+            
+            if (slot >= 0 && offHeap.version(slot) < version) {
+                
+                offHeap.publish(slot, p.bits(), version);
+            }
+            
+            this.clock.accumulateAndGet(version, Math::max);
+            
+            return;
+        }
+        
+        MemCell cell = this.cell(variableName);
+        
+        if (Objects.isNull(cell.getVariable())) {
+            
+            this.bind(cell, new Variable(variableName));
+        }
+        
+        PrimitiveState p = cell.primitive();
+        
+        if (!Objects.isNull(p) && state instanceof PrimitiveState) {
+            
+            // the primitive state is updated in place
+            if (p.version() < version) {
+                
+                p.publish(((PrimitiveState) state).bits(), version);
+            }
+        } else if (cell.getHead().getVersion() < version) {
+            
+            if (state instanceof PrimitiveState) {
+                
+                ((PrimitiveState) state).setVersion(version);
+            }
+            
+            cell.setHead(new Versioned(state, version, null));
+        }
+        
+        this.clock.accumulateAndGet(version, Math::max);
+    }
+    
+    /**
+     * <p>
+     * Moves the version clock past the version recovered from a checkpoint.
+     * 
+     * @param version
+     *            The version
+     */
+    void recover(long version) {
+        
+        this.clock.accumulateAndGet(version, Math::max);
+    }
+    
+    /**
+     * <p>
+     * Gets the `MemCell`s, in no particular order.
+     * 
+     * @return the `MemCell`s
+     */
+    Collection<MemCell> getCells() {
+        
+        return this.cells.values();
+    }
+    
+    /**
+     * <p>
+     * Registers the transaction as an active snapshot reader and gives it its
+     * start version. The transaction is registered with a version that is not
+     * newer than its start version, so the versions it needs are not dropped
+     * while it is active.
+     * 
+     * @param t
+     *            The snapshot reader
+     * 
+     * @return The start version of the transaction
+     */
+    long register(Transaction t) {
+        
+        if (this.maxVersions == 1) {
+            
+            return this.now();
+        }
+        
+        t.setSnapshotVersion(this.now());
+        
+        this.snapshots.add(t);
+        
+        return this.now();
+    }
+    
+    /**
+     * <p>
+     * Removes the transaction from the active snapshot readers.
+     * 
+     * @param t
+     *            The snapshot reader
+     */
+    void deregister(Transaction t) {
+        
+        if (t.getSnapshotVersion() != Transaction.NO_SNAPSHOT) {
+            
+            this.snapshots.remove(t);
+            
+            t.setSnapshotVersion(Transaction.NO_SNAPSHOT);
+        }
+    }
+    
+    /**
+     * <p>
+     * Gets the oldest version that an active snapshot reader may need, the
+     * committed versions before the latest version at or before it can be
+     * dropped.
+     * 
+     * @return The horizon of the active snapshot readers
+     */
+    long horizon() {
+        
+        // the clock is read before the readers, a reader that registers later
+        // starts at or after this version
+        long horizon = this.now();
+        
+        Iterator<Transaction> oldest = this.snapshots.iterator();
+        
+        return oldest.hasNext() ? Math.min(horizon, oldest.next().getSnapshotVersion()) : horizon;
+    }
+    
+    /**
+     * <p>
+     * Reads the global version clock.
+     * 
+     * @return the current version
+     */
+    long now() {
+        
+        return this.clock.get();
+    }
+    
+    /**
+     * <p>
+     * Ticks the global version clock.
+     * 
+     * @return the new version
+     */
+    long tick() {
+        
+        return this.clock.incrementAndGet();
+    }
+    
+    /**
+     * <p>
+     * Gets the copy of the state table, this snapshot acts as the old values.
+     * 
+     * @return The copy of state table is the old values
+     */
+    Map<String, State> getStateTable() {
+        
+        Map<String, State> stateTable = new HashMap<>();
+        
+        this.cells.forEach((variableName, cell) -> {
+            
+            if (!Objects.isNull(cell.getState())) {
+                
+                stateTable.put(variableName, cell.getState());
+            }
+        });
+        
+        return stateTable;
+    }
+    
+    /**
+     * <p>
+     * Fetches the `MemCell` of the <i>Variable</i>, making an empty one if it
+     * doesn't exist yet. Only `make` and the writes make `MemCell`s, the reads
+     * look them up using {@link #lookup(String)}.
+     * 
+     * @param variableName
+     *            The name of the <i>Variable</i>
+     * 
+     * @return The `MemCell` of the <i>Variable</i>
+     */
+    MemCell cell(String variableName) {
+        
+        MemCell cell = this.cells.get(variableName);
+        
+        return Objects.isNull(cell)
+                ? this.cells.computeIfAbsent(variableName, name -> new MemCell(name, this.ids.getAndIncrement()))
+                : cell;
+    }
+    
+    /**
+     * <p>
+     * Looks up the `MemCell` of the <i>Variable</i> without making one, so
+     * that reading a variable that was never made leaves the `MemCell`s as
+     * they are.
+     * 
+     * @param variableName
+     *            The name of the <i>Variable</i>
+     * 
+     * @return The `MemCell` of the <i>Variable</i>, null if it doesn't exist
+     */
+    MemCell lookup(String variableName) {
+        
+        return this.cells.get(variableName);
+    }
+    
+    /**
+     * <p>
+     * Makes the <i>Variable</i> the immutable part of the `MemCell`, binding it
+     * to the `MemCell` so that it can be used as a handle.
+     * 
+     * @param cell
+     *            The `MemCell`
+     * @param var
+     *            The <i>Variable</i>
+     * 
+     * @return The <i>Variable</i>
+     */
+    private Variable bind(MemCell cell, Variable var) {
+        
+        var.bind(this, cell, -1);
+        cell.setVariable(var);
+        
+        return var;
+    }
+    
+    /****** STM operations START ********/
+    /**
+     * <p>
+     * Checks if the updating transactions lock the variable, see
+     * {@link ConcurrencyControl}.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * 
+     * @return true if the variable is locked, always under the pessimistic
+     *         concurrency control and while it is hot under the adaptive one,
+     *         else false
+     */
+    public boolean isPessimistic(String variableName) {
+        
+        ConcurrencyControl control = this.concurrencyControl;
+        
+        return control == ConcurrencyControl.PESSIMISTIC
+                || (control == ConcurrencyControl.ADAPTIVE && this.adaptiveControl.isLocked(variableName));
+    }
+    
+    /**
+     * <p>
+     * Gets the owner of the `MemCell`,
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` or `MemCell` that you want
+     *            to <b>own</b>.
+     * 
+     * @return an Optional Transaction, which may be empty if the `MemCell` is
+     *         not owned by any <i>Transaction</i>.
+     */
+    public Optional<Transaction> getOwner(String variableName) {
+        
+        MemCell cell = this.cells.get(variableName);
+        
+        return Objects.isNull(cell) ? Optional.empty() : Optional.ofNullable(cell.getOwner());
+    }
+    
+    /**
+     * <p>
+     * Sets the owner of the `MemCell`,
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` or `MemCell` that you want
+     *            to <b>own</b>.
+     * 
+     * @param owner
+     *            The Transaction that now owns the `MemCell`.
+     */
+    public void setOwner(String variableName, Transaction owner) {
+        
+        this.cell(variableName).setOwner(owner);
+    }
+    
+    /**
+     * <p>
+     * Removes the owner transaction reference for the `MemCell`
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` or `MemCell` that you want
+     *            to free from ownership
+     * 
+     */
+    public void releaseOwnership(String variableName) {
+        
+        MemCell cell = this.cells.get(variableName);
+        
+        if (!Objects.isNull(cell)) {
+            
+            cell.setOwner(null);
+        }
+    }
+    
+    /**
+     * <p>
+     * Removes the owner transaction reference for the `MemCell` only if it is
+     * owned by the given transaction.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` or `MemCell` that you want
+     *            to free from ownership
+     * 
+     * @param owner
+     *            The Transaction that owns the `MemCell`
+     * 
+     * @return true if the ownership was released, else false
+     */
+    boolean releaseOwnership(String variableName, Transaction owner) {
+        
+        MemCell cell = this.cells.get(variableName);
+        
+        return !Objects.isNull(cell) && cell.release(owner);
+    }
+    /****** STM operations END ********/
+    
+    /****** Object - State, stateTable related START *******/
+    /**
+     * <p>
+     * Makes you a brand new `<i>Variable</i>` or `MemCell` that is allocated in
+     * the memory.(JK!)
+     * 
+     * @param variableName
+     *            The name of the <i>Variable</i>
+     * @param props
+     *            The properties that can be present in the immutable part of
+     *            the `MemCell` or <i>Variable</i>
+     * 
+     * @return The new <i>Variable</i>
+     */
+    public Variable make(String variableName, @SuppressWarnings("unchecked") Map.Entry<String, Object>... props) {
+        
+        Variable var = null;
+        
+        try {
+            
+            var = new Variable(variableName, props);
+            
+            OffHeapStore offHeap = this.offHeap;
+            int slot = Objects.isNull(offHeap) ? -1 : offHeap.slot(variableName);
+            
+            if (slot >= 0) {
+                
+                // the variable lives in the off-heap store, it gets no
+                // `MemCell`
+                var.bind(this, null, slot);
+                
+                return var;
+            }
+            
+            // add the var to the memory
+            this.bind(this.cell(variableName), var);
+        } catch (Exception e) {
+            
+            logger.error(e.getMessage(), e);
+        }
+        
+        return var;
+    }
+    
+    /**
+     * <p>
+     * Makes a `<i>Variable</i>` holding a long that can be updated without
+     * making objects, using {@link #readLongT(String)} and
+     * {@link #writeLongT(String, long)}. If the variable already holds a long,
+     * for eg. one recovered from the write-ahead log, it is kept as it is.
+     * 
+     * @param variableName
+     *            The name of the <i>Variable</i>
+     * @param value
+     *            The initial value
+     * 
+     * @return The <i>Variable</i>, null if it already holds some other state
+     */
+    public Variable makeLong(String variableName, long value) {
+        
+        return this.makePrimitive(variableName, new LongState(value));
+    }
+    
+    /**
+     * <p>
+     * Makes a `<i>Variable</i>` holding a double that can be updated without
+     * making objects, using {@link #readDoubleT(String)} and
+     * {@link #writeDoubleT(String, double)}. If the variable already holds a
+     * double it is kept as it is.
+     * 
+     * @param variableName
+     *            The name of the <i>Variable</i>
+     * @param value
+     *            The initial value
+     * 
+     * @return The <i>Variable</i>, null if it already holds some other state
+     */
+    public Variable makeDouble(String variableName, double value) {
+        
+        return this.makePrimitive(variableName, new DoubleState(value));
+    }
+    
+    /**
+     * <p>
+     * Makes a `<i>Variable</i>` holding an int that can be updated without
+     * making objects, using {@link #readIntT(String)} and
+     * {@link #writeIntT(String, int)}. If the variable already holds an int it
+     * is kept as it is.
+     * 
+     * @param variableName
+     *            The name of the <i>Variable</i>
+     * @param value
+     *            The initial value
+     * 
+     * @return The <i>Variable</i>, null if it already holds some other state
+     */
+    public Variable makeInt(String variableName, int value) {
+        
+        return this.makePrimitive(variableName, new IntState(value));
+    }
+    
+    /**
+     * <p>
+     * Makes a `<i>Variable</i>` holding the primitive state, the state stays
+     * in the `MemCell` for the life of the variable and commits update it in
+     * place. With the off-heap store, a new variable gets a slot instead, but
+     * a variable that already has a `MemCell`, for eg. made by `make`, keeps
+     * it so that a name never lives in both.
+     * 
+     * @param variableName
+     *            The name of the <i>Variable</i>
+     * @param state
+     *            The primitive state holding the initial value
+     * 
+     * @return The <i>Variable</i>, null if it already holds some other state
+     */
+    private Variable makePrimitive(String variableName, PrimitiveState state) {
+        
+        OffHeapStore offHeap = this.offHeap;
+        MemCell existing = this.cells.get(variableName);
+        
+        if (!Objects.isNull(offHeap) && Objects.isNull(existing)) {
+            
+            int slot = offHeap.make(variableName, OffHeapStore.type(state.getClass()), state.bits(), this.tick());
+            
+            if (slot < 0) {
+                
+                logger.error(String.format("The off-heap Variable:: %s already holds some other type of value",
+                        variableName));
+                
+                return null;
+            }
+            
+            Variable var = new Variable(variableName);
+            
+            var.bind(this, null, slot);
+            
+            return var;
+        }
+        
+        MemCell cell = this.cell(variableName);
+        
+        synchronized (cell) {
+            
+            State current = cell.getState();
+            
+            if (!Objects.isNull(current) && current.getClass() != state.getClass()) {
+                
+                logger.error(String.format("The Variable:: %s already holds the state:: %s", variableName, current));
+                
+                return null;
+            }
+            
+            if (Objects.isNull(cell.getVariable())) {
+                
+                this.bind(cell, new Variable(variableName));
+            }
+            
+            if (Objects.isNull(current)) {
+                
+                long version = this.tick();
+                
+                state.setVersion(version);
+                
+                cell.setHead(new Versioned(state, version, null));
+            }
+        }
+        
+        return cell.getVariable();
+    }
+    
+    /**
+     * <p>
+     * Package scope, not to be used lightly
+     * Fetches the current state of the <i>Variable</i> or `MemCell`
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` whose current state is
+     *            needed
+     * 
+     * @return The current state of the `<i>Variable</i>` which may be empty if
+     *         the Variable never had any state, i.e The `MemCell` has not yet
+     *         been initialized.
+     */
+    Optional<State> read(String variableName) {
+        
+        MemCell cell = this.cells.get(variableName);
+        
+        State s = Objects.isNull(cell) ? null : cell.getState();
+        
+        if (logger.isDebugEnabled()) {
+            
+            logger.debug(String.format("Variable :: name: %s, has state: %s", variableName, s));
+        }
+        
+        return Optional.ofNullable(s);
+    }
+    
+    /**
+     * <p>
+     * Package scoped, not to be used lightly
+     * Writes the new state of the <i>Variable</i>, updating its state in the
+     * `stateTable`.
+     * <br>
+     * This action symbolizes that the `MemCell`'s contents were updated.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` whose state needs to be
+     *            updated
+     * 
+     * @param state
+     *            The new state of the `<i>Variable</i>`. This symbolizes that
+     *            the `MemCell`'s contents have been updated to this value since
+     *            `<i>State</i>` represents the `mutable` part of the `MemCell`.
+     */
+    void write(String variableName, State state) {
+        
+        MemCell cell = this.cell(variableName);
+        
+        if (logger.isDebugEnabled()) {
+            
+            logger.debug(String.format("Updating Variable :: name: %s with current state: %s", variableName,
+                    cell.getState()));
+        }
+        
+        cell.setHead(new Versioned(state, this.tick(), null));
+        
+        if (logger.isDebugEnabled()) {
+            
+            logger.debug(String.format("Updated Variable :: name: %s to new state: %s", variableName, state));
+        }
+    }
+    
+    // # STM improvement
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the current state of the <i>Variable</i> or `MemCell`. Also, adds
+     * the variable to the transaction's readSet.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` whose current state is
+     *            needed
+     * 
+     * @return The current state of the `<i>Variable</i>` which may be empty if
+     *         the Variable never had any state, i.e The `MemCell` has not yet
+     *         been initialized.
+     */
+    public Optional<State> readT(String variableName) throws Exception {
+        
+        Transaction t = null;
+        
+        if (Objects.isNull(t = ts.getT())) {
+            // Objects.isNull(t = ts.getT()) is shorthand for (t = ts.getT();
+            // Objects.isNull(t))
+            
+            throw new Exception("The `read` operation can only be used when within a Transaction context");
+        }
+        
+        OffHeapStore offHeap = this.offHeap;
+        int slot = Objects.isNull(offHeap) ? -1 : offHeap.slot(variableName);
+        
+        if (slot >= 0) {
+            
+            // # a copy of the off-heap value
+            return Optional.of(offHeap.copy(slot, this.readBits(t, offHeap, slot)));
+        }
+        
+        MemCell cell = this.lookup(variableName);
+        
+        // a variable that was never made has no state
+        State s = Objects.isNull(cell) ? null : this.read(t, cell);
+        
+        if (!t.readsSnapshot()) {
+            
+            // add variable to read-set of the transaction t
+            t.addReadSetMembers(variableName);
+        }
+        
+        return Optional.ofNullable(s);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the current state of the <i>Variable</i> using the handle made
+     * by {@link #make(String, Map.Entry...)}. The handle points to the
+     * `MemCell` of the variable, so no name is looked up or hashed and
+     * nothing is added to the name based readSet of the transaction, its
+     * `MemCell` is validated all the same.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>` whose current state is
+     *            needed
+     * 
+     * @return The current state of the `<i>Variable</i>`, null if the Variable
+     *         never had any state
+     */
+    public State readT(Variable variable) throws Exception {
+        
+        Transaction t = this.context("read", variable.getName());
+        
+        int slot = this.slot(variable);
+        
+        if (slot >= 0) {
+            
+            // # a copy of the off-heap value
+            return this.offHeap.copy(slot, this.readBits(t, this.offHeap, slot));
+        }
+        
+        MemCell cell = this.lookup(variable);
+        
+        return Objects.isNull(cell) ? null : this.read(t, cell);
+    }
+    
+    /**
+     * <p>
+     * Reads the state of the `MemCell` on behalf of the transaction, noting
+     * the version it was read at.
+     * 
+     * @param t
+     *            The transaction
+     * @param cell
+     *            The `MemCell`
+     * 
+     * @return The current state of the `MemCell`, null if it has none
+     */
+    private State read(Transaction t, MemCell cell) throws Exception {
+        
+        PrimitiveState p = cell.primitive();
+        
+        if (!Objects.isNull(p)) {
+            
+            // # a copy of the primitive state, it is updated in place
+            return p.copy(this.readBits(t, cell, p));
+        }
+        
+        t.acquire(cell);
+        
+        Map<MemCell, State> redoLog = t.getRecord().getRedoLog();
+        
+        if (!redoLog.isEmpty() && redoLog.containsKey(cell)) {
+            
+            // the transaction reads its own deferred update
+            return redoLog.get(cell);
+        }
+        
+        if (t.readsSnapshot()) {
+            
+            // # snapshot read, the state as of the start version of the
+            // transaction, no readSet
+            Versioned head = cell.getHead();
+            
+            if (!head.isCommitted() && cell.getOwner() == t) {
+                
+                // the transaction reads its own update
+                return head.getState();
+            }
+            
+            Versioned v = cell.at(t, t.getRecord().getStartVersion());
+            
+            if (Objects.isNull(v)) {
+                
+                t.conflict(Abort.VALIDATION_FAILURE, cell.getName());
+                
+                throw new Exception(
+                        "The version of the Memory cell as of the transaction's start is no longer kept, restarting...");
+            }
+            
+            this.trace(Event.READ, t, cell.getName(), v.getVersion());
+            
+            return v.getState();
+        }
+        
+        Versioned v = cell.getHead();
+        
+        if (!v.isCommitted()) {
+            
+            if (cell.getOwner() != t) {
+                
+                // the MemCell is being updated by some other transaction
+                t.conflict(Abort.OWNERSHIP_CONFLICT, cell.getName());
+                
+                throw new Exception("The Memory cell is being updated by another transaction, bailing out...");
+            }
+            
+            // the transaction reads its own update
+            return v.getState();
+        }
+        
+        if (v.getVersion() > t.getRecord().getStartVersion() && !t.extend()) {
+            
+            // the MemCell was updated after the transaction started and the
+            // readSet members read so far are stale
+            t.conflict(Abort.VALIDATION_FAILURE, cell.getName());
+            
+            throw new Exception("The Memory cell was updated after the transaction started, bailing out...");
+        }
+        
+        // # note the version of the readSet member
+        t.getRecord().getReadVersions().putIfAbsent(cell, v.getVersion());
+        // # note the version of the readSet member
+        
+        this.trace(Event.READ, t, cell.getName(), v.getVersion());
+        
+        return v.getState();
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the new state of the <i>Variable</i>, updating its state in the
+     * `stateTable`. Also, adds the variable to the transaction's writeSet.
+     * <br>
+     * This action symbolizes that the `MemCell`'s contents were updated.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>` whose state needs to be
+     *            updated
+     * 
+     * @param state
+     *            The new state of the `<i>Variable</i>`. This symbolizes that
+     *            the `MemCell`'s contents have been updated to this value since
+     *            `<i>State</i>` represents the `mutable` part of the `MemCell`.
+     */
+    public void writeT(String variableName, State state) throws Exception {
+        
+        Transaction t = null;
+        
+        if (Objects.isNull(t = ts.getT())) {
+            
+            throw new Exception("The `write` operation can only be used when within a Transaction context");
+        }
+        
+        if (t.isReadOnly()) {
+            
+            throw new Exception(String.format("The read-only transaction:: %s can't write to Variable:: %s",
+                    t.getName(), variableName));
+        }
+        
+        OffHeapStore offHeap = this.offHeap;
+        int slot = Objects.isNull(offHeap) ? -1 : offHeap.slot(variableName);
+        
+        if (slot >= 0) {
+            
+            this.writeOffHeap(t, slot, state);
+            
+            return;
+        }
+        
+        State backup = this.write(t, this.cell(variableName), state);
+        
+        t.addWriteSetMembers(variableName); // add to write-set
+        
+        if (!Objects.isNull(backup)) {
+            
+            // # take backup after taking ownership
+            t.getRecord().getOldValues().put(variableName, backup);
+        }
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the new state of the <i>Variable</i> using the handle made by
+     * {@link #make(String, Map.Entry...)}. The handle points to the `MemCell`
+     * of the variable, so no name is looked up or hashed, and nothing is added
+     * to the name based writeSet or the oldValues of the transaction.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>` whose state needs to be
+     *            updated
+     * @param state
+     *            The new state of the `<i>Variable</i>`
+     */
+    public void writeT(Variable variable, State state) throws Exception {
+        
+        Transaction t = this.context("write", variable.getName());
+        
+        if (t.isReadOnly()) {
+            
+            throw new Exception(String.format("The read-only transaction:: %s can't write to Variable:: %s",
+                    t.getName(), variable.getName()));
+        }
+        
+        int slot = this.slot(variable);
+        
+        if (slot >= 0) {
+            
+            this.writeOffHeap(t, slot, state);
+            
+            return;
+        }
+        
+        this.write(t, this.cell(variable), state);
+    }
+    
+    /**
+     * <p>
+     * Writes the state to the `MemCell` on behalf of the transaction, in
+     * place or to the redo log depending on its write mode.
+     * 
+     * @param t
+     *            The transaction
+     * @param cell
+     *            The `MemCell`
+     * @param state
+     *            The new state
+     * 
+     * @return the committed state replaced by the first in place update of the
+     *         `MemCell`, null otherwise
+     */
+    private State write(Transaction t, MemCell cell, State state) throws Exception {
+        
+        PrimitiveState p = cell.primitive();
+        
+        if (!Objects.isNull(p) || state instanceof PrimitiveState) {
+            
+            if (Objects.isNull(p) || Objects.isNull(state) || state.getClass() != p.getClass()) {
+                
+                throw new Exception(String.format(
+                        "The Variable:: %s can't be written with the state:: %s, primitive states are made using `makeLong`, `makeDouble` or `makeInt`",
+                        cell.getName(), state));
+            }
+            
+            this.writeBits(t, cell, ((PrimitiveState) state).bits());
+            
+            return null;
+        }
+        
+        t.acquire(cell);
+        
+        if (t.getWriteMode() == WriteMode.DEFERRED) {
+            
+            // # buffer the update in the redo log, the `MemCell` is owned and
+            // updated only when the transaction commits
+            t.getRecord().getRedoLog().put(cell, state);
+            
+            this.trace(Event.WRITE, t, cell.getName(), 0L);
+            
+            return null;
+        }
+        
+        // # try to take ownership of the writeSet member
+        boolean owned = cell.getOwner() == t;
+        
+        if (!cell.own(t)) {
+            
+            this.trace(Event.OWN, t, cell.getName(), 0L);
+            
+            // bail out, couldn't take ownership
+            // the conflict is noted in the record so that the transaction is
+            // retried even if the operation swallows the exception
+            t.conflict(Abort.OWNERSHIP_CONFLICT, cell.getName());
+            
+            throw new Exception("Couldn't take ownership of the Memory cell, bailing out...");
+        }
+        
+        if (!owned) {
+            
+            this.trace(Event.OWN, t, cell.getName(), 1L);
+            
+            t.owned(cell);
+        }
+        
+        t.getRecord().getWriteCells().putIfAbsent(cell, 0L);
+        // # try to take ownership of the writeSet member
+        
+        Versioned current = cell.getHead();
+        Versioned committed = current.isCommitted() ? current : current.getPrev();
+        
+        // # update state in state table, it stays uncommitted till the
+        // transaction commits
+        cell.setHead(new Versioned(state, Versioned.UNCOMMITTED, committed));
+        // # update state in state table
+        
+        this.trace(Event.WRITE, t, cell.getName(), 0L);
+        
+        return current.isCommitted() ? committed.getState() : null;
+    }
+    
+    /**
+     * <p>
+     * Writes the primitive state to an off-heap variable on behalf of the
+     * transaction.
+     * 
+     * @param t
+     *            The transaction
+     * @param slot
+     *            The slot of the variable
+     * @param state
+     *            The new state, a primitive state of the type of the variable
+     */
+    private void writeOffHeap(Transaction t, int slot, State state) throws Exception {
+        
+        if (!(state instanceof PrimitiveState)) {
+            
+            throw new Exception(String.format("The off-heap Variable:: %s can't be written with the state:: %s",
+                    this.offHeap.name(slot), state));
+        }
+        
+        this.writeBits(t, this.slot(this.offHeap, slot, ((PrimitiveState) state).getClass()),
+                ((PrimitiveState) state).bits());
+    }
+    
+    /**
+     * <p>
+     * Gets the `MemCell` a handle points to, a handle made by some other
+     * StateManager or by hand is looked up by its name.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * 
+     * @return The `MemCell` of the variable
+     */
+    private MemCell cell(Variable variable) {
+        
+        MemCell cell = variable.getCell();
+        
+        return !Objects.isNull(cell) && variable.getManager() == this ? cell : this.cell(variable.getName());
+    }
+    
+    /**
+     * <p>
+     * Gets the `MemCell` a handle points to without making one, like
+     * {@link #lookup(String)}.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * 
+     * @return The `MemCell` of the variable, null if it doesn't exist
+     */
+    private MemCell lookup(Variable variable) {
+        
+        MemCell cell = variable.getCell();
+        
+        return !Objects.isNull(cell) && variable.getManager() == this ? cell : this.lookup(variable.getName());
+    }
+    
+    /**
+     * <p>
+     * Gets the off-heap slot a handle points to, a handle made by some other
+     * StateManager or by hand is looked up by its name.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * 
+     * @return The slot of the variable, -1 if it is not kept off-heap
+     */
+    private int slot(Variable variable) {
+        
+        if (variable.getManager() == this) {
+            
+            return variable.getSlot();
+        }
+        
+        OffHeapStore offHeap = this.offHeap;
+        
+        return Objects.isNull(offHeap) ? -1 : offHeap.slot(variable.getName());
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the value of a <i>Variable</i> made using
+     * {@link #makeLong(String, long)}, without making any objects.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * 
+     * @return The value of the `<i>Variable</i>`
+     */
+    public long readLongT(String variableName) throws Exception {
+        
+        return this.readBits(variableName, LongState.class);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the value of a <i>Variable</i> made using
+     * {@link #makeLong(String, long)}, without making any objects. The value is
+     * published when the transaction commits.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param value
+     *            The new value of the `<i>Variable</i>`
+     */
+    public void writeLongT(String variableName, long value) throws Exception {
+        
+        this.writeBits(variableName, LongState.class, value);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the value of a <i>Variable</i> made using
+     * {@link #makeDouble(String, double)}, without making any objects.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * 
+     * @return The value of the `<i>Variable</i>`
+     */
+    public double readDoubleT(String variableName) throws Exception {
+        
+        return Double.longBitsToDouble(this.readBits(variableName, DoubleState.class));
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the value of a <i>Variable</i> made using
+     * {@link #makeDouble(String, double)}, without making any objects. The
+     * value is published when the transaction commits.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param value
+     *            The new value of the `<i>Variable</i>`
+     */
+    public void writeDoubleT(String variableName, double value) throws Exception {
+        
+        this.writeBits(variableName, DoubleState.class, Double.doubleToRawLongBits(value));
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the value of a <i>Variable</i> made using
+     * {@link #makeInt(String, int)}, without making any objects.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * 
+     * @return The value of the `<i>Variable</i>`
+     */
+    public int readIntT(String variableName) throws Exception {
+        
+        return (int) this.readBits(variableName, IntState.class);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the value of a <i>Variable</i> made using
+     * {@link #makeInt(String, int)}, without making any objects. The value is
+     * published when the transaction commits.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param value
+     *            The new value of the `<i>Variable</i>`
+     */
+    public void writeIntT(String variableName, int value) throws Exception {
+        
+        this.writeBits(variableName, IntState.class, value);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the value of a <i>Variable</i> made using
+     * {@link #makeLong(String, long)} using its handle, without looking up its
+     * name or making any objects.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * 
+     * @return The value of the `<i>Variable</i>`
+     */
+    public long readLongT(Variable variable) throws Exception {
+        
+        return this.readBits(variable, LongState.class);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the value of a <i>Variable</i> made using
+     * {@link #makeLong(String, long)} using its handle, without looking up its
+     * name or making any objects.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param value
+     *            The new value of the `<i>Variable</i>`
+     */
+    public void writeLongT(Variable variable, long value) throws Exception {
+        
+        this.writeBits(variable, LongState.class, value);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the value of a <i>Variable</i> made using
+     * {@link #makeDouble(String, double)} using its handle.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * 
+     * @return The value of the `<i>Variable</i>`
+     */
+    public double readDoubleT(Variable variable) throws Exception {
+        
+        return Double.longBitsToDouble(this.readBits(variable, DoubleState.class));
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the value of a <i>Variable</i> made using
+     * {@link #makeDouble(String, double)} using its handle.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param value
+     *            The new value of the `<i>Variable</i>`
+     */
+    public void writeDoubleT(Variable variable, double value) throws Exception {
+        
+        this.writeBits(variable, DoubleState.class, Double.doubleToRawLongBits(value));
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Fetches the value of a <i>Variable</i> made using
+     * {@link #makeInt(String, int)} using its handle.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * 
+     * @return The value of the `<i>Variable</i>`
+     */
+    public int readIntT(Variable variable) throws Exception {
+        
+        return (int) this.readBits(variable, IntState.class);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Writes the value of a <i>Variable</i> made using
+     * {@link #makeInt(String, int)} using its handle.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param value
+     *            The new value of the `<i>Variable</i>`
+     */
+    public void writeIntT(Variable variable, int value) throws Exception {
+        
+        this.writeBits(variable, IntState.class, value);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Adds the delta to the value of a <i>Variable</i> made using
+     * {@link #makeLong(String, long)}. Adding commutes, so the delta is applied to the
+     * latest value when the transaction commits, without reading the
+     * <i>Variable</i> or taking ownership of it till then. Concurrent
+     * transactions adding to the same <i>Variable</i> don't conflict.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param delta
+     *            The delta
+     */
+    public void addLongT(String variableName, long delta) throws Exception {
+        
+        this.addBits(variableName, LongState.class, delta);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Adds the delta to the value of a <i>Variable</i> made using
+     * {@link #makeLong(String, long)} using its handle, see
+     * {@link #addLongT(String, long)}.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param delta
+     *            The delta
+     */
+    public void addLongT(Variable variable, long delta) throws Exception {
+        
+        this.addBits(variable, LongState.class, delta);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Adds the delta to the value of a <i>Variable</i> made using
+     * {@link #makeDouble(String, double)}. Adding commutes, so the delta is applied to the
+     * latest value when the transaction commits, without reading the
+     * <i>Variable</i> or taking ownership of it till then. Concurrent
+     * transactions adding to the same <i>Variable</i> don't conflict.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param delta
+     *            The delta
+     */
+    public void addDoubleT(String variableName, double delta) throws Exception {
+        
+        this.addBits(variableName, DoubleState.class, Double.doubleToRawLongBits(delta));
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Adds the delta to the value of a <i>Variable</i> made using
+     * {@link #makeDouble(String, double)} using its handle, see
+     * {@link #addDoubleT(String, double)}.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param delta
+     *            The delta
+     */
+    public void addDoubleT(Variable variable, double delta) throws Exception {
+        
+        this.addBits(variable, DoubleState.class, Double.doubleToRawLongBits(delta));
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Adds the delta to the value of a <i>Variable</i> made using
+     * {@link #makeInt(String, int)}. Adding commutes, so the delta is applied to the
+     * latest value when the transaction commits, without reading the
+     * <i>Variable</i> or taking ownership of it till then. Concurrent
+     * transactions adding to the same <i>Variable</i> don't conflict.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param delta
+     *            The delta
+     */
+    public void addIntT(String variableName, int delta) throws Exception {
+        
+        this.addBits(variableName, IntState.class, delta);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Adds the delta to the value of a <i>Variable</i> made using
+     * {@link #makeInt(String, int)} using its handle, see
+     * {@link #addIntT(String, int)}.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param delta
+     *            The delta
+     */
+    public void addIntT(Variable variable, int delta) throws Exception {
+        
+        this.addBits(variable, IntState.class, delta);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Runs the operations as a closed nested transaction of the running
+     * transaction. If the nested transaction runs into another transaction,
+     * only its own reads and updates are rolled back and it is retried alone,
+     * the work the running transaction did before it is kept. Its updates
+     * become visible to others when the running transaction commits.
+     * 
+     * <p>
+     * If an operation fails on its own, the updates of the nested transaction
+     * are undone and FAIL is returned, so the running transaction can carry
+     * on without them. If it calls {@link #retryT()}, FAIL is returned and
+     * the running transaction retries.
+     * 
+     * @param operations
+     *            The operations of the nested transaction
+     * 
+     * @return DONE if the operations were done, else FAIL
+     * 
+     * @throws Exception
+     *             if there is no running transaction
+     */
+    public TAction nestedT(TOperation... operations) throws Exception {
+        
+        Transaction t = ts.getT();
+        
+        if (Objects.isNull(t)) {
+            
+            throw new Exception("A nested transaction can only be run when within a Transaction context");
+        }
+        
+        return t.nested(operations);
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Gives up on the running transaction because what it read doesn't let
+     * it go on, for eg. the balance it needs isn't there yet. The transaction
+     * is rolled back and parked till one of the variables it read is committed
+     * by another transaction, then it is run again. So a transaction can wait
+     * on the variables without polling them.
+     * 
+     * <p>
+     * The exception thrown unwinds the operation, which returns FAIL like it
+     * does when it runs into another transaction. Within
+     * {@link #orElseT(TOperation...)} the next alternative is run instead.
+     * 
+     * @throws Exception
+     *             always, to unwind the operation
+     */
+    public void retryT() throws Exception {
+        
+        Transaction t = ts.getT();
+        
+        if (Objects.isNull(t)) {
+            
+            throw new Exception("The `retry` operation can only be used when within a Transaction context");
+        }
+        
+        t.getRecord().setRetry(true);
+        
+        throw new Exception(
+                String.format("The transaction:: %s waits for what it read to change, retrying...", t.getName()));
+    }
+    
+    /**
+     * <p>
+     * <b>Transaction Context</b>
+     * Runs the alternatives as closed nested transactions of the running
+     * transaction, one after the other till one of them doesn't call
+     * {@link #retryT()}. The updates of an alternative that retried are
+     * undone before the next one is run. If every alternative retries, the
+     * running transaction retries, waiting for a change to what any of them
+     * read.
+     * 
+     * @param alternatives
+     *            The operations of the alternatives
+     * 
+     * @return DONE if an alternative was done, else FAIL
+     * 
+     * @throws Exception
+     *             if there is no running transaction
+     */
+    public TAction orElseT(TOperation... alternatives) throws Exception {
+        
+        Transaction t = ts.getT();
+        
+        if (Objects.isNull(t)) {
+            
+            throw new Exception("The alternatives can only be run when within a Transaction context");
+        }
+        
+        return t.orElse(alternatives);
+    }
+    
+    /**
+     * <p>
+     * Gets the running transaction of the calling thread.
+     * 
+     * @param operation
+     *            The operation that needs the transaction
+     * @param variableName
+     *            The name of the `<i>Variable</i>` being operated on
      * 
-     * The `<i>stm</i>` `associates` <i>Variable</i> to `<i>Transaction</i>`
-     * that owns it during a particular time frame using the `<i>Variable</i>`'s
-     * `name` as key.
+     * @return the running transaction
+     * 
+     * @throws Exception
+     *             if there is no running transaction
      */
-    private volatile Map<String, Transaction> stm;
+    private Transaction context(String operation, String variableName) throws Exception {
+        
+        Transaction t = ts.getT();
+        
+        if (Objects.isNull(t)) {
+            
+            throw new Exception(String.format(
+                    "The `%s` operation on Variable:: %s can only be used when within a Transaction context", operation,
+                    variableName));
+        }
+        
+        return t;
+    }
     
     /**
-     * Initializes the StateManager with empty tables for each of the memory,
-     * stm and stateTable.
+     * <p>
+     * Reads the raw bits of a primitive variable, from the off-heap store or
+     * its `MemCell`.
+     * 
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param type
+     *            The type of primitive state expected
+     * 
+     * @return the raw bits of the value
      */
-    public StateManager() {
+    private long readBits(String variableName, Class<? extends PrimitiveState> type) throws Exception {
+        
+        Transaction t = this.context("read", variableName);
+        OffHeapStore offHeap = this.offHeap;
+        int slot = Objects.isNull(offHeap) ? -1 : offHeap.slot(variableName);
         
-        this.memory = new HashMap<>();
-        this.stm = new HashMap<>();
-        this.stateTable = new HashMap<>();
+        if (slot >= 0) {
+            
+            return this.readBits(t, offHeap, this.slot(offHeap, slot, type));
+        }
         
-        // # locking and synchronization
-        this.stateManagerLock = new ReentrantReadWriteLock();
-        // # locking and synchronization
+        MemCell cell = this.lookup(variableName);
+        
+        return this.readBits(t, cell, this.primitive(variableName, cell, type));
     }
     
     /**
      * <p>
-     * Gets the copy of the state table, this snapshot acts as the old values.
+     * Writes the raw bits of a primitive variable, to the off-heap store or
+     * its `MemCell`.
      * 
-     * @return The copy of state table is the old values
+     * @param variableName
+     *            The name of the `<i>Variable</i>`
+     * @param type
+     *            The type of primitive state expected
+     * @param bits
+     *            The raw bits of the new value
      */
-    Map<String, State> getStateTable() {
+    private void writeBits(String variableName, Class<? extends PrimitiveState> type, long bits) throws Exception {
+        
+        Transaction t = this.context("write", variableName);
+        OffHeapStore offHeap = this.offHeap;
+        int slot = Objects.isNull(offHeap) ? -1 : offHeap.slot(variableName);
+        
+        if (slot >= 0) {
+            
+            this.writeBits(t, this.slot(offHeap, slot, type), bits);
+            
+            return;
+        }
         
-        return new HashMap<>(this.stateTable);
+        MemCell cell = this.cell(variableName);
+        
+        this.primitive(cell, type);
+        this.writeBits(t, cell, bits);
     }
     
-    /****** STM operations START ********/
     /**
      * <p>
-     * Gets the owner of the `MemCell`,
+     * Reads the raw bits of a primitive variable using its handle.
      * 
-     * @param variableName
-     *            The name of the `<i>Variable</i>` or `MemCell` that you want
-     *            to <b>own</b>.
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param type
+     *            The type of primitive state expected
      * 
-     * @return an Optional Transaction, which may be empty if the `MemCell` is
-     *         not owned by any <i>Transaction</i>.
+     * @return the raw bits of the value
      */
-    @ReadLocked
-    public Optional<Transaction> getOwner(String variableName) {
+    private long readBits(Variable variable, Class<? extends PrimitiveState> type) throws Exception {
         
-        Lock readLock = this.stateManagerLock.readLock();
+        Transaction t = this.context("read", variable.getName());
+        int slot = this.slot(variable);
         
-        readLock.lock(); // get a read lock, since nothing is being modified, it
-                         // is well and good
+        if (slot >= 0) {
+            
+            return this.readBits(t, this.offHeap, this.slot(this.offHeap, slot, type));
+        }
         
-        Transaction owner = null;
+        MemCell cell = this.lookup(variable);
         
-        try {
-            
-            owner = this.stm.get(variableName);
-        } catch (Exception e) {
+        return this.readBits(t, cell, this.primitive(variable.getName(), cell, type));
+    }
+    
+    /**
+     * <p>
+     * Writes the raw bits of a primitive variable using its handle.
+     * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param type
+     *            The type of primitive state expected
+     * @param bits
+     *            The raw bits of the new value
+     */
+    private void writeBits(Variable variable, Class<? extends PrimitiveState> type, long bits) throws Exception {
+        
+        Transaction t = this.context("write", variable.getName());
+        int slot = this.slot(variable);
+        
+        if (slot >= 0) {
             
-            logger.error(e.getMessage(), e);
-        } finally {
+            this.writeBits(t, this.slot(this.offHeap, slot, type), bits);
             
-            if (!Objects.isNull(readLock)) {
-                
-                readLock.unlock();
-            }
+            return;
         }
         
-        return Optional.ofNullable(owner);
+        MemCell cell = this.cell(variable);
+        
+        this.primitive(cell, type);
+        this.writeBits(t, cell, bits);
     }
     
     /**
      * <p>
-     * Sets the owner of the `MemCell`,
+     * Adds the raw bits of a delta to a primitive variable, in the off-heap
+     * store or its `MemCell`.
      * 
      * @param variableName
-     *            The name of the `<i>Variable</i>` or `MemCell` that you want
-     *            to <b>own</b>.
-     * 
-     * @param owner
-     *            The Transaction that now owns the `MemCell`.
+     *            The name of the `<i>Variable</i>`
+     * @param type
+     *            The type of primitive state expected
+     * @param delta
+     *            The raw bits of the delta
      */
-    @WriteLocked
-    public void setOwner(String variableName, Transaction owner) {
-        
-        Lock writeLock = this.stateManagerLock.writeLock();
+    private void addBits(String variableName, Class<? extends PrimitiveState> type, long delta) throws Exception {
         
-        writeLock.lock();
+        Transaction t = this.context("add", variableName);
+        OffHeapStore offHeap = this.offHeap;
+        int slot = Objects.isNull(offHeap) ? -1 : offHeap.slot(variableName);
         
-        try {
-            
-            this.stm.put(variableName, owner);
-        } catch (Exception e) {
+        if (slot >= 0) {
             
-            logger.error(e.getMessage(), e);
-        } finally {
+            this.addBits(t, this.slot(offHeap, slot, type), delta);
             
-            if (!Objects.isNull(writeLock)) {
-                
-                writeLock.unlock();
-            }
+            return;
         }
+        
+        MemCell cell = this.cell(variableName);
+        
+        this.addBits(t, cell, this.primitive(cell, type), delta);
     }
     
     /**
      * <p>
-     * Removes the owner transaction reference for the `MemCell`
-     * 
-     * @param variableName
-     *            The name of the `<i>Variable</i>` or `MemCell` that you want
-     *            to free from ownership
+     * Adds the raw bits of a delta to a primitive variable using its handle.
      * 
+     * @param variable
+     *            The handle of the `<i>Variable</i>`
+     * @param type
+     *            The type of primitive state expected
+     * @param delta
+     *            The raw bits of the delta
      */
-    @WriteLocked
-    public void releaseOwnership(String variableName) {
+    private void addBits(Variable variable, Class<? extends PrimitiveState> type, long delta) throws Exception {
         
-        Lock writeLock = this.stateManagerLock.writeLock();
+        Transaction t = this.context("add", variable.getName());
+        int slot = this.slot(variable);
         
-        writeLock.lock();
-        
-        try {
-            
-            this.stm.remove(variableName);
-        } catch (Exception e) {
+        if (slot >= 0) {
             
-            logger.error(e.getMessage(), e);
-        } finally {
+            this.addBits(t, this.slot(this.offHeap, slot, type), delta);
             
-            if (!Objects.isNull(writeLock)) {
-                
-                writeLock.unlock();
-            }
+            return;
         }
+        
+        MemCell cell = this.cell(variable);
+        
+        this.addBits(t, cell, this.primitive(cell, type), delta);
     }
-    /****** STM operations END ********/
     
-    /****** Object - State, stateTable related START *******/
     /**
      * <p>
-     * Makes you a brand new `<i>Variable</i>` or `MemCell` that is allocated in
-     * the memory.(JK!)
+     * Checks the type of the value in the slot of the off-heap store.
      * 
-     * @param variableName
-     *            The name of the <i>Variable</i>
-     * @param props
-     *            The properties that can be present in the immutable part of
-     *            the `MemCell` or <i>Variable</i>
+     * @param offHeap
+     *            The off-heap store
+     * @param slot
+     *            The slot
+     * @param type
+     *            The type of primitive state expected
      * 
-     * @return The new <i>Variable</i>
+     * @return the slot
+     * 
+     * @throws Exception
+     *             if the slot doesn't hold a value of the type
      */
-    @WriteLocked
-    public Variable make(String variableName, @SuppressWarnings("unchecked") Map.Entry<String, Object>... props) {
+    private int slot(OffHeapStore offHeap, int slot, Class<? extends PrimitiveState> type) throws Exception {
         
-        Lock writeLock = this.stateManagerLock.writeLock();
+        if (offHeap.type(slot) != OffHeapStore.type(type)) {
+            
+            throw new Exception(String.format("The Variable:: %s doesn't hold a %s", offHeap.name(slot),
+                    type.getSimpleName()));
+        }
         
-        writeLock.lock();
+        return slot;
+    }
+    
+    /**
+     * <p>
+     * Gets the primitive state held by the `MemCell`, checking its type.
+     * 
+     * @param cell
+     *            The `MemCell`
+     * @param type
+     *            The type of primitive state expected
+     * 
+     * @return the primitive state
+     * 
+     * @throws Exception
+     *             if the `MemCell` doesn't hold a primitive state of the type
+     */
+    private PrimitiveState primitive(MemCell cell, Class<? extends PrimitiveState> type) throws Exception {
         
-        Variable var = null;
+        return this.primitive(cell.getName(), cell, type);
+    }
+    
+    /**
+     * <p>
+     * Gets the primitive state of a `MemCell` that was looked up, checking its
+     * type.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * @param cell
+     *            The `MemCell`, null if the variable was never made
+     * @param type
+     *            The type of primitive state expected
+     * 
+     * @return the primitive state
+     */
+    private PrimitiveState primitive(String variableName, MemCell cell, Class<? extends PrimitiveState> type)
+            throws Exception {
         
-        try {
-            
-            var = new Variable(variableName, props);
-            
-            // add the var to the memory
-            this.memory.put(variableName, var);
-        } catch (Exception e) {
-            
-            logger.error(e.getMessage(), e);
-        } finally {
+        PrimitiveState p = Objects.isNull(cell) ? null : cell.primitive();
+        
+        if (!type.isInstance(p)) {
             
-            if (!Objects.isNull(writeLock)) {
-                
-                writeLock.unlock();
-            }
+            throw new Exception(String.format("The Variable:: %s doesn't hold a %s, it holds:: %s", variableName,
+                    type.getSimpleName(), Objects.isNull(cell) ? null : cell.getState()));
         }
         
-        return var;
+        return p;
     }
     
     /**
      * <p>
-     * Package scope, not to be used lightly
-     * Fetches the current state of the <i>Variable</i> or `MemCell`
+     * Reads the raw bits of a primitive `MemCell` on behalf of the transaction,
+     * noting the version they were read at.
      * 
-     * @param variableName
-     *            The name of the `<i>Variable</i>` whose current state is
-     *            needed
+     * <p>
+     * The value is read under the sequence lock of the primitive state, after
+     * waiting for a commit that the transaction must see. A primitive state
+     * keeps a single version, if it was committed after the transaction
+     * started the transaction extends its start version, snapshot readers
+     * can't and are restarted.
      * 
-     * @return The current state of the `<i>Variable</i>` which may be empty if
-     *         the Variable never had any state, i.e The `MemCell` has not yet
-     *         been initialized.
+     * @param t
+     *            The transaction
+     * @param cell
+     *            The primitive `MemCell`
+     * @param p
+     *            The primitive state held by the `MemCell`
+     * 
+     * @return the raw bits of the value
      */
-    @ReadLocked
-    Optional<State> read(String variableName) {
+    private long readBits(Transaction t, MemCell cell, PrimitiveState p) throws Exception {
+        
+        t.acquire(cell);
         
-        Lock readLock = this.stateManagerLock.readLock();
+        Record record = t.getRecord();
+        CellSet writes = record.getPrimitiveWrites();
+        int i = writes.isEmpty() ? -1 : writes.indexOf(cell);
         
-        readLock.lock();
+        if (i >= 0) {
+            
+            // the transaction reads its own update
+            return writes.value(i);
+        }
         
-        State s = null;
+        long bits;
+        long version;
         
-        try {
+        for (;;) {
             
-            logger.debug(String.format("Variable :: name: %s, has state: %s", variableName,
-                    Optional.ofNullable(this.stateTable.get(variableName))));
+            long start = record.getStartVersion();
             
-            s = this.stateTable.get(variableName);
-        } catch (Exception e) {
+            cell.awaitCommit(t, start);
             
-            logger.error(e.getMessage(), e);
-        } finally {
+            long seq = p.seq();
+            
+            bits = p.bits();
+            version = p.version();
+            
+            if ((seq & 1L) != 0 || seq != p.seq()) {
+                
+                // the value is being published
+                Thread.onSpinWait();
+                
+                continue;
+            }
+            
+            if (version <= start) {
+                
+                break;
+            }
             
-            if (!Objects.isNull(readLock)) {
+            if (t.readsSnapshot() || !t.extend()) {
+                
+                // the value was updated after the transaction started and
+                // only the latest version is kept, or the reads so far are
+                // stale
+                t.conflict(Abort.VALIDATION_FAILURE, cell.getName());
                 
-                readLock.unlock();
+                throw new Exception("The Memory cell was updated after the transaction started, bailing out...");
             }
         }
         
-        return Optional.ofNullable(s);
+        if (!t.readsSnapshot()) {
+            
+            // # note the version of the readSet member
+            record.getPrimitiveReads().putIfAbsent(cell, version);
+        }
+        
+        this.trace(Event.READ, t, cell.getName(), version);
+        
+        CellSet deltas = record.getPrimitiveDeltas();
+        int j = deltas.isEmpty() ? -1 : deltas.indexOf(cell);
+        
+        // the transaction reads its own deltas on top of the value
+        return j < 0 ? bits : p.add(bits, deltas.value(j));
     }
     
     /**
      * <p>
-     * Package scoped, not to be used lightly
-     * Writes the new state of the <i>Variable</i>, updating its state in the
-     * `stateTable`.
-     * <br>
-     * This action symbolizes that the `MemCell`'s contents were updated.
+     * Reads the raw bits of an off-heap variable on behalf of the transaction,
+     * the way {@link #readBits(Transaction, MemCell, PrimitiveState)} reads a
+     * primitive `MemCell`.
      * 
-     * @param variableName
-     *            The name of the `<i>Variable</i>` whose state needs to be
-     *            updated
+     * @param t
+     *            The transaction
+     * @param offHeap
+     *            The off-heap store
+     * @param slot
+     *            The slot of the variable
      * 
-     * @param state
-     *            The new state of the `<i>Variable</i>`. This symbolizes that
-     *            the `MemCell`'s contents have been updated to this value since
-     *            `<i>State</i>` represents the `mutable` part of the `MemCell`.
+     * @return the raw bits of the value
      */
-    @WriteLocked
-    void write(String variableName, State state) {
+    private long readBits(Transaction t, OffHeapStore offHeap, int slot) throws Exception {
         
-        Lock writeLock = this.stateManagerLock.writeLock();
+        t.acquire(slot);
         
-        writeLock.lock();
+        Record record = t.getRecord();
+        SlotSet writes = record.getOffHeapWrites();
+        int i = writes.isEmpty() ? -1 : writes.indexOf(slot);
         
-        try {
-            if (logger.isInfoEnabled()) {
+        if (i >= 0) {
+            
+            // the transaction reads its own update
+            return writes.value(i);
+        }
+        
+        long bits;
+        long version;
+        
+        for (;;) {
+            
+            long start = record.getStartVersion();
+            
+            offHeap.awaitCommit(slot, t.getId(), start);
+            
+            long seq = offHeap.seq(slot);
+            
+            bits = offHeap.bits(slot);
+            version = offHeap.version(slot);
+            
+            if ((seq & 1L) != 0 || seq != offHeap.seq(slot)) {
                 
-                State oldState = Optional.ofNullable(this.stateTable.get(variableName)).orElse(null);
+                // the value is being published
+                Thread.onSpinWait();
                 
-                logger.debug(
-                        String.format("Updating Variable :: name: %s with current state: %s", variableName, oldState));
+                continue;
             }
             
-            this.stateTable.put(variableName, state);
-            
-            logger.debug(String.format("Updated Variable :: name: %s to new state: %s", variableName, state));
-        } catch (Exception e) {
-            
-            logger.error(e.getMessage(), e);
-        } finally {
+            if (version <= start) {
+                
+                break;
+            }
             
-            if (!Objects.isNull(writeLock)) {
+            if (t.readsSnapshot() || !t.extend()) {
                 
-                writeLock.unlock();
+                t.conflict(Abort.VALIDATION_FAILURE, offHeap.name(slot));
+                
+                throw new Exception("The Memory cell was updated after the transaction started, bailing out...");
             }
         }
+        
+        if (!t.readsSnapshot()) {
+            
+            // # note the version of the readSet member
+            record.getOffHeapReads().putIfAbsent(slot, version);
+        }
+        
+        this.trace(Event.READ, t, offHeap.name(slot), version);
+        
+        SlotSet deltas = record.getOffHeapDeltas();
+        int j = deltas.isEmpty() ? -1 : deltas.indexOf(slot);
+        
+        return j < 0 ? bits : offHeap.add(slot, bits, deltas.value(j));
     }
     
-    // # STM improvement
     /**
      * <p>
-     * <b>Transaction Context</b>
-     * Fetches the current state of the <i>Variable</i> or `MemCell`. Also, adds
-     * the variable to the transaction's readSet.
-     * 
-     * @param variableName
-     *            The name of the `<i>Variable</i>` whose current state is
-     *            needed
+     * Buffers the raw bits written to an off-heap variable on behalf of the
+     * transaction, they are published when the transaction commits.
      * 
-     * @return The current state of the `<i>Variable</i>` which may be empty if
-     *         the Variable never had any state, i.e The `MemCell` has not yet
-     *         been initialized.
+     * @param t
+     *            The transaction
+     * @param slot
+     *            The slot of the variable
+     * @param bits
+     *            The raw bits of the new value
      */
-    public Optional<State> readT(String variableName) throws Exception {
-        
-        Transaction t = null;
+    private void writeBits(Transaction t, int slot, long bits) throws Exception {
         
-        if (Objects.isNull(t = ts.getT())) {
-            // Objects.isNull(t = ts.getT()) is shorthand for (t = ts.getT();
-            // Objects.isNull(t))
+        if (t.isReadOnly()) {
             
-            throw new Exception("The `read` operation can only be used when within a Transaction context");
+            throw new Exception(String.format("The read-only transaction:: %s can't write to Variable:: %s",
+                    t.getName(), this.offHeap.name(slot)));
         }
         
-        // add variable to read-set of the transaction t
-        t.addReadSetMembers(variableName);
+        t.acquire(slot);
+        
+        t.getRecord().getOffHeapWrites().put(slot, bits);
+        
+        this.trace(Event.WRITE, t, this.offHeap.name(slot), 0L);
+    }
+    
+    /**
+     * <p>
+     * Buffers the raw bits written to a primitive `MemCell` on behalf of the
+     * transaction, they are published when the transaction commits.
+     * 
+     * @param t
+     *            The transaction
+     * @param cell
+     *            The primitive `MemCell`
+     * @param bits
+     *            The raw bits of the new value
+     */
+    private void writeBits(Transaction t, MemCell cell, long bits) throws Exception {
         
-        // # take backup of the readSet member
-        if (!Objects.isNull(this.stateTable.get(variableName))) {
+        if (t.isReadOnly()) {
             
-            t.getRecord().getOldValues().put(variableName, this.stateTable.get(variableName));
+            throw new Exception(String.format("The read-only transaction:: %s can't write to Variable:: %s",
+                    t.getName(), cell.getName()));
         }
-        // # take backup of the readSet member
         
-        logger.debug(String.format("Variable :: name: %s, has state: %s", variableName,
-                Optional.ofNullable(this.stateTable.get(variableName))));
+        t.acquire(cell);
+        
+        t.getRecord().getPrimitiveWrites().put(cell, bits);
         
-        return Optional.ofNullable(this.stateTable.get(variableName));
+        this.trace(Event.WRITE, t, cell.getName(), 0L);
     }
     
     /**
      * <p>
-     * <b>Transaction Context</b>
-     * Writes the new state of the <i>Variable</i>, updating its state in the
-     * `stateTable`. Also, adds the variable to the transaction's writeSet.
-     * <br>
-     * This action symbolizes that the `MemCell`'s contents were updated.
-     * 
-     * @param variableName
-     *            The name of the `<i>Variable</i>` whose state needs to be
-     *            updated
+     * Sums up the raw bits of a delta added to a primitive `MemCell` on behalf
+     * of the transaction, the sum is added to the value of the `MemCell` when
+     * the transaction commits. The delta is folded into the update of the
+     * transaction if it wrote to the `MemCell` already.
      * 
-     * @param state
-     *            The new state of the `<i>Variable</i>`. This symbolizes that
-     *            the `MemCell`'s contents have been updated to this value since
-     *            `<i>State</i>` represents the `mutable` part of the `MemCell`.
+     * @param t
+     *            The transaction
+     * @param cell
+     *            The primitive `MemCell`
+     * @param p
+     *            The primitive state held by the `MemCell`
+     * @param delta
+     *            The raw bits of the delta
      */
-    public void writeT(String variableName, State state) throws Exception {
-        
-        Transaction t = null;
+    private void addBits(Transaction t, MemCell cell, PrimitiveState p, long delta) throws Exception {
         
-        if (Objects.isNull(t = ts.getT())) {
+        if (t.isReadOnly()) {
             
-            throw new Exception("The `write` operation can only be used when within a Transaction context");
+            throw new Exception(String.format("The read-only transaction:: %s can't write to Variable:: %s",
+                    t.getName(), cell.getName()));
         }
         
-        t.addWriteSetMembers(variableName); // add to write-set
+        // a pessimistic transaction locks the variable even for a delta, so
+        // that it doesn't wait for it at commit
+        t.acquire(cell);
         
-        // # try to take ownership of the writeSet member
-        Optional<Transaction> currentOwner = this.getOwner(variableName);
+        Record record = t.getRecord();
+        CellSet writes = record.getPrimitiveWrites();
+        int i = writes.isEmpty() ? -1 : writes.indexOf(cell);
         
-        if (!currentOwner.isPresent() || (currentOwner.isPresent() && currentOwner.get().equals(t))) {
+        if (i >= 0) {
             
-            this.setOwner(variableName, t);
-            
-            logger.debug(String.format("Transaction:: %s took ownership of Variable:: %s", t.getName(), variableName));
+            writes.put(cell, p.add(writes.value(i), delta));
         } else {
             
-            // bail out, couldn't take ownership
-            throw new Exception("Couldn't take ownership of the Memory cell, bailing out...");
+            CellSet deltas = record.getPrimitiveDeltas();
+            int j = deltas.indexOf(cell);
+            
+            deltas.put(cell, p.add(j < 0 ? 0L : deltas.value(j), delta));
         }
-        // # try to take ownership of the writeSet member
         
-        // # take backup after taking ownership
-        if (!Objects.isNull(this.stateTable.get(variableName))) {
+        this.trace(Event.WRITE, t, cell.getName(), 0L);
+    }
+    
+    /**
+     * <p>
+     * Sums up the raw bits of a delta added to an off-heap variable on behalf
+     * of the transaction, like
+     * {@link #addBits(Transaction, MemCell, PrimitiveState, long)}.
+     * 
+     * @param t
+     *            The transaction
+     * @param slot
+     *            The slot of the variable
+     * @param delta
+     *            The raw bits of the delta
+     */
+    private void addBits(Transaction t, int slot, long delta) throws Exception {
+        
+        if (t.isReadOnly()) {
             
-            t.getRecord().getOldValues().put(variableName, this.stateTable.get(variableName));
+            throw new Exception(String.format("The read-only transaction:: %s can't write to Variable:: %s",
+                    t.getName(), this.offHeap.name(slot)));
         }
-        // # take backup after taking ownership
         
-        if (logger.isDebugEnabled()) {
+        t.acquire(slot);
+        
+        Record record = t.getRecord();
+        SlotSet writes = record.getOffHeapWrites();
+        int i = writes.isEmpty() ? -1 : writes.indexOf(slot);
+        
+        if (i >= 0) {
+            
+            writes.put(slot, this.offHeap.add(slot, writes.value(i), delta));
+        } else {
             
-            State oldState = Optional.ofNullable(this.stateTable.get(variableName)).orElse(null);
+            SlotSet deltas = record.getOffHeapDeltas();
+            int j = deltas.indexOf(slot);
             
-            logger.debug(String.format("Updating Variable :: name: %s with current state: %s", variableName, oldState));
+            deltas.put(slot, this.offHeap.add(slot, j < 0 ? 0L : deltas.value(j), delta));
         }
         
-        // # update state in state table
-        this.stateTable.put(variableName, state);
-        // # update state in state table
-        
-        logger.debug(String.format("Updated Variable :: name: %s to new state: %s", variableName, state));
+        this.trace(Event.WRITE, t, this.offHeap.name(slot), 0L);
     }
     // # STM improvement
     
@@ -545,7 +2672,10 @@ public class StateManager {
      * <i>StateManager</i>
      * <br>
      * <br>
-     * <b>Note: This is not thread safe for creating transactions</b>
+     * The transaction context is kept per thread, so every thread has its own
+     * transaction under construction(the builder) and its own running
+     * transaction(the one `readT` and `writeT` resolve to). This lets many
+     * threads build and run transactions concurrently.
      * 
      * @author sidmishraw
      *
@@ -560,15 +2690,32 @@ public class StateManager {
          * be a
          * simple int that will get updated for each transaction we make.
          */
-        private @Getter int                 tVersion = 0;
+        private final AtomicInteger             tVersion = new AtomicInteger(0);
+        
+        /**
+         * <p>
+         * The transaction that is currently running on the calling thread, it
+         * is the transaction context used by `readT` and `writeT`.
+         */
+        private final ThreadLocal<Transaction> current  = new ThreadLocal<>();
         
         /**
          * <p>
-         * The static Transaction is going to be used to provide a non thread
-         * safe
-         * builder style of making transactions by method chaining
+         * The transaction that is being constructed by the calling thread
+         * using the builder style of making transactions by method chaining.
          */
-        private @Getter @Setter Transaction t        = null;
+        private final ThreadLocal<Transaction> builder  = new ThreadLocal<>();
+        
+        /**
+         * <p>
+         * Gets the current value of the version counter
+         * 
+         * @return the current version
+         */
+        public int getTVersion() {
+            
+            return this.tVersion.get();
+        }
         
         /**
          * <p>
@@ -576,7 +2723,79 @@ public class StateManager {
          */
         public void updateVersion() {
             
-            tVersion++;
+            this.tVersion.incrementAndGet();
+        }
+        
+        /**
+         * <p>
+         * Atomically fetches the current version and updates the counter.
+         * 
+         * @return the version assigned to the caller
+         */
+        public int nextVersion() {
+            
+            return this.tVersion.getAndIncrement();
+        }
+        
+        /**
+         * <p>
+         * Gets the transaction running on the calling thread.
+         * 
+         * @return the current transaction, null when the calling thread is not
+         *         within a transaction context
+         */
+        public Transaction getT() {
+            
+            return this.current.get();
+        }
+        
+        /**
+         * <p>
+         * Sets the transaction running on the calling thread, null clears the
+         * transaction context.
+         * 
+         * @param t
+         *            The transaction
+         */
+        public void setT(Transaction t) {
+            
+            if (Objects.isNull(t)) {
+                
+                this.current.remove();
+            } else {
+                
+                this.current.set(t);
+            }
+        }
+        
+        /**
+         * <p>
+         * Gets the transaction being constructed by the calling thread.
+         * 
+         * @return the transaction under construction, null if there is none
+         */
+        Transaction getBuilder() {
+            
+            return this.builder.get();
+        }
+        
+        /**
+         * <p>
+         * Sets the transaction being constructed by the calling thread, null
+         * clears it.
+         * 
+         * @param t
+         *            The transaction under construction
+         */
+        void setBuilder(Transaction t) {
+            
+            if (Objects.isNull(t)) {
+                
+                this.builder.remove();
+            } else {
+                
+                this.builder.set(t);
+            }
         }
     }
     // # Transactions Utility
@@ -616,6 +2835,123 @@ public class StateManager {
          */
         public TAction go();
     }
+    /**
+     * <p>
+     * The {@link WriteMode} decides how `writeT` updates the writeSet members
+     * of a transaction.
+     * 
+     * <ul>
+     * <li>DIRECT -- The transaction takes ownership of the `MemCell` and
+     * updates it in place, the update stays uncommitted till the transaction
+     * commits and is reverted on rollback.
+     * <li>DEFERRED -- The transaction buffers the update in its redo log and
+     * reads its own updates from there. The `MemCell`s are owned and updated
+     * only when the transaction commits, so readers never come across an
+     * uncommitted state and rollback is free.
+     * </ul>
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.WriteMode
+     *
+     */
+    public static enum WriteMode {
+        
+        DIRECT, DEFERRED;
+    }
+    
+    /**
+     * <p>
+     * The {@link Isolation} of a transaction decides what it reads and what is
+     * validated when it commits.
+     * 
+     * <ul>
+     * <li>SERIALIZABLE -- The transaction reads the latest committed states and
+     * validates its readSet when it commits. The transactions behave as if
+     * they ran one after another.
+     * <li>SNAPSHOT -- The transaction reads the committed states as of its
+     * start version and keeps no readSet. It only fails to commit if one of
+     * its writeSet members was committed by some other transaction after it
+     * started(first committer wins). Long transactions reading many `MemCell`s
+     * are not invalidated by concurrent writers, but write skew is possible.
+     * </ul>
+     * 
+     * <p>
+     * Reading as of the start version needs the StateManager to keep more than
+     * one version per variable, see {@link StateManager#setMaxVersions(int)}.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.Isolation
+     *
+     */
+    public static enum Isolation {
+        
+        SERIALIZABLE, SNAPSHOT;
+    }
+    
+    /**
+     * <p>
+     * The {@link ConcurrencyControl} of the transactions decides how they keep
+     * out of each other's way. The transactions are written the same way with
+     * either, using `readT`, `writeT` and the like.
+     * 
+     * <ul>
+     * <li>OPTIMISTIC -- The transactions run without waiting for each other,
+     * validate what they read when they commit and are rolled back and
+     * retried when they run into each other.
+     * <li>PESSIMISTIC -- Two-phase locking. An updating transaction locks
+     * every variable it reads or writes before touching it and holds the locks
+     * till it commits, waiting for a variable locked by another transaction
+     * instead of aborting. The locks are taken in the order of the ids of the
+     * variables, the variables declared with `touches` and the ones found by
+     * earlier attempts up front. A transaction that comes across a locked
+     * variable ordered before one it holds restarts once, to take its locks in
+     * order, so transactions never wait for each other in a cycle. The
+     * transactions are serializable and read-only transactions still read
+     * snapshots without locking.
+     * <li>ADAPTIVE -- Every variable starts optimistic, the variables the
+     * transactions keep aborting on are locked the pessimistic way till the
+     * contention on them dies down, see {@link AdaptiveControl}. So the few
+     * hot variables are waited for while the many cold ones are not. The
+     * transactions are serializable.
+     * </ul>
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.ConcurrencyControl
+     *
+     */
+    public static enum ConcurrencyControl {
+        
+        OPTIMISTIC, PESSIMISTIC, ADAPTIVE;
+    }
+    
+    /**
+     * <p>
+     * The {@link Durability} of the commits decides how long a transaction
+     * waits for its commit record to be forced to the write-ahead log.
+     * 
+     * <ul>
+     * <li>SYNC -- The commit record is forced before the updates are
+     * published, no transaction can see an update that isn't durable.
+     * <li>GROUP -- The updates are published first and the transaction waits
+     * for its commit record to be forced after releasing its writeSet members.
+     * Commits that happen together are forced by a single fsync.
+     * <li>ASYNC -- The transaction doesn't wait, the commit records are forced
+     * in the background every few milliseconds. The latest commits may be lost
+     * if the process dies.
+     * </ul>
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.Durability
+     *
+     */
+    public static enum Durability {
+        
+        SYNC, GROUP, ASYNC;
+    }
     // # Operations utility
     
     /**
@@ -635,7 +2971,6 @@ public class StateManager {
      * @return The <i>StateManager</i> the state manager, used for method
      *         chaining
      */
-    @WriteLocked
     public final StateManager newTransaction(String nameTransaction) {
         
         if (Objects.isNull(nameTransaction)) {
@@ -643,30 +2978,23 @@ public class StateManager {
             nameTransaction = String.format("Transaction#%d", new Double(Math.random() * 100).intValue());
         }
         
-        this.stateManagerLock.writeLock().lock();
+        Record record = new Record();
+        record.setDescription(nameTransaction);
+        record.setVersion(ts.nextVersion());
         
-        try {
-            
-            Record record = new Record();
-            record.setDescription(nameTransaction);
-            record.setVersion(ts.getTVersion());
-            
-            ts.updateVersion();
-            
-            ts.setT(new Transaction());
-            
-            ts.getT().setName(nameTransaction);
-            ts.getT().setRecord(record);
-            ts.getT().setManager(this);
-        } catch (Exception e) {
-            
-            logger.error(e.getMessage(), e);
-            
-            if (!Objects.isNull(this.stateManagerLock.writeLock())) {
-                
-                this.stateManagerLock.writeLock().unlock();
-            }
-        }
+        Transaction t = new Transaction();
+        
+        t.setName(nameTransaction);
+        t.setRecord(record);
+        t.setManager(this);
+        t.setWriteMode(this.writeMode);
+        t.setContentionManager(this.contentionManager);
+        t.setIsolation(this.isolation);
+        t.setConcurrencyControl(this.concurrencyControl);
+        
+        // the transaction under construction is private to the calling thread,
+        // so no global lock is needed while building it
+        ts.setBuilder(t);
         
         return this;
     }
@@ -679,10 +3007,135 @@ public class StateManager {
      *            The operation of the transaction
      * @return
      */
-    @WriteLocked
     public final StateManager op(TOperation operation) {
         
-        ts.getT().getOperations().add(operation);
+        this.builder().getOperations().add(operation);
+        
+        return this;
+    }
+    
+    /**
+     * <p>
+     * Adds the operations to the transaction as a closed nested transaction,
+     * see {@link #nestedT(TOperation...)}. The transaction fails if the nested
+     * transaction fails.
+     * 
+     * @param operations
+     *            The operations of the nested transaction
+     * @return The <i>StateManager</i> the state manager, used for method
+     *         chaining
+     */
+    public final StateManager nest(TOperation... operations) {
+        
+        Transaction t = this.builder();
+        
+        t.getOperations().add(() -> t.nested(operations));
+        
+        return this;
+    }
+    
+    /**
+     * <p>
+     * Adds the alternatives to the transaction, see
+     * {@link #orElseT(TOperation...)}. The transaction waits for what they
+     * read to change if all of them retry.
+     * 
+     * @param alternatives
+     *            The operations of the alternatives
+     * @return The <i>StateManager</i> the state manager, used for method
+     *         chaining
+     */
+    public final StateManager orElse(TOperation... alternatives) {
+        
+        Transaction t = this.builder();
+        
+        t.getOperations().add(() -> t.orElse(alternatives));
+        
+        return this;
+    }
+    
+    /**
+     * <p>
+     * Sets the {@link WriteMode} of the transaction, overriding the default
+     * write mode of the StateManager.
+     * 
+     * @param mode
+     *            The write mode of the transaction
+     * @return The <i>StateManager</i> the state manager, used for method
+     *         chaining
+     */
+    public final StateManager writeMode(WriteMode mode) {
+        
+        this.builder().setWriteMode(mode);
+        
+        return this;
+    }
+    
+    /**
+     * <p>
+     * Marks the transaction as read-only. A read-only transaction reads a
+     * consistent snapshot of the `MemCell`s without keeping a readSet, taking
+     * ownership or taking backups, and its commit has nothing to validate.
+     * `writeT` fails within a read-only transaction.
+     * 
+     * @return The <i>StateManager</i> the state manager, used for method
+     *         chaining
+     */
+    public final StateManager readOnly() {
+        
+        this.builder().setReadOnly(true);
+        
+        return this;
+    }
+    
+    /**
+     * <p>
+     * Sets the {@link Isolation} of the transaction, overriding the default
+     * isolation of the StateManager.
+     * 
+     * @param isolation
+     *            The isolation of the transaction
+     * @return The <i>StateManager</i> the state manager, used for method
+     *         chaining
+     */
+    public final StateManager isolation(Isolation isolation) {
+        
+        this.builder().setIsolation(isolation);
+        
+        return this;
+    }
+    
+    /**
+     * <p>
+     * Sets the {@link ContentionManager} of the transaction, overriding the
+     * default contention manager of the StateManager.
+     * 
+     * @param contentionManager
+     *            The contention manager of the transaction
+     * @return The <i>StateManager</i> the state manager, used for method
+     *         chaining
+     */
+    public final StateManager contentionManager(ContentionManager contentionManager) {
+        
+        this.builder().setContentionManager(contentionManager);
+        
+        return this;
+    }
+    
+    /**
+     * <p>
+     * Declares the variables the transaction is expected to touch, so that the
+     * {@link ConflictScheduler} queues it on the hot ones from its first
+     * attempt instead of after its first conflict.
+     * 
+     * @param variableNames
+     *            The names of the variables
+     * @return The <i>StateManager</i> the state manager, used for method
+     *         chaining
+     */
+    public final StateManager touches(String... variableNames) {
+        
+        Collections.addAll(this.builder().getFootprint(), variableNames);
         
         return this;
     }
@@ -694,17 +3147,119 @@ public class StateManager {
      * 
      * @return The constructed transaction
      */
-    @WriteLocked
     public final Transaction done() {
         
-        Transaction t = null;
+        Transaction t = this.builder();
+        
+        ts.setBuilder(null);
+        
+        return t;
+    }
+    
+    /**
+     * <p>
+     * Submits the transactions as a batch to the transaction runtime. The
+     * batch is run as a single task, the transactions are run in order and
+     * the ones that don't touch each other's updates are validated and
+     * published together with a single commit version, so the fixed cost of
+     * running a transaction is paid once per group instead of once per
+     * transaction.
+     * 
+     * @param batch
+     *            The transactions made by this StateManager, none of them
+     *            executed yet
+     * 
+     * @return The outcomes of the transactions in the order of the batch
+     */
+    public CompletableFuture<List<TAction>> submitBatchAsync(List<Transaction> batch) {
+        
+        Batch task = new Batch(this, batch);
         
         try {
             
-            t = ts.getT();
-        } finally {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            
+            logger.error(e.getMessage(), e);
+            
+            task.fail(e);
+        }
+        
+        List<CompletableFuture<TAction>> outcomes = new ArrayList<>();
+        
+        for (Transaction t : batch) {
+            
+            outcomes.add(t.getOutcome());
+        }
+        
+        return CompletableFuture.allOf(outcomes.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            
+            List<TAction> actions = new ArrayList<>();
+            
+            for (CompletableFuture<TAction> outcome : outcomes) {
+                
+                actions.add(outcome.join());
+            }
+            
+            return actions;
+        });
+    }
+    
+    /**
+     * <p>
+     * Submits the transactions as a batch, see
+     * {@link #submitBatchAsync(List)}, the calling thread waits till all of
+     * them are done.
+     * 
+     * @param batch
+     *            The transactions made by this StateManager, none of them
+     *            executed yet
+     * 
+     * @return The outcomes of the transactions in the order of the batch, FAIL
+     *         for the ones that ran into an error
+     */
+    public List<TAction> submitBatch(List<Transaction> batch) {
+        
+        this.submitBatchAsync(batch);
+        
+        List<TAction> actions = new ArrayList<>();
+        
+        for (Transaction t : batch) {
+            
+            try {
+                
+                actions.add(t.getOutcome().get());
+            } catch (InterruptedException e) {
+                
+                logger.error(e.getMessage(), e);
+                
+                Thread.currentThread().interrupt();
+                
+                actions.add(TAction.FAIL);
+            } catch (ExecutionException e) {
+                
+                logger.error(e.getMessage(), e);
+                
+                actions.add(TAction.FAIL);
+            }
+        }
+        
+        return actions;
+    }
+    
+    /**
+     * <p>
+     * Fetches the transaction being constructed by the calling thread.
+     * 
+     * @return The transaction under construction
+     */
+    private Transaction builder() {
+        
+        Transaction t = ts.getBuilder();
+        
+        if (Objects.isNull(t)) {
             
-            this.stateManagerLock.writeLock().unlock();
+            throw new IllegalStateException("No transaction is being constructed, call `newTransaction` first");
         }
         
         return t;
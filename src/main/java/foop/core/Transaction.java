@@ -8,40 +8,109 @@
  */
 package foop.core;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import foop.core.AdaptiveControl.Contention;
+import foop.core.ConflictScheduler.Lane;
+import foop.core.EventTracer.Event;
+import foop.core.MemCell.Versioned;
+import foop.core.TransactionMetrics.Abort;
+import foop.core.StateManager.ConcurrencyControl;
+import foop.core.StateManager.Isolation;
 import foop.core.StateManager.TAction;
 import foop.core.StateManager.TOperation;
+import foop.core.StateManager.Transactions;
+import foop.core.StateManager.WriteMode;
+import foop.utils.InstanceFactory;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 /**
+ * <p>
+ * The <i>Transaction</i> is a task that is run by the transaction runtime,
+ * the {@link ExecutorService} of its <i>StateManager</i>. It is no longer a
+ * thread of its own, so executing a transaction doesn't cost making and
+ * tearing down a thread.
+ * 
  * @author sidmishraw
  *
  *         Qualified Name: foop.core.Transaction
  *
  */
-public class Transaction extends Thread {
+public class Transaction implements Runnable {
     
     /*** Log and administrative stuff *****/
     private static final Logger            logger              = LoggerFactory.getLogger(Transaction.class);
-    private static final long              MAX_SLEEP_WAIT_TIME = 1000;
+    
+    // marks a transaction that is about to draw its commit version
+    static final long                      COMMITTING          = -1L;
+    
+    // the snapshot version of transactions that are not registered as
+    // snapshot readers
+    static final long                      NO_SNAPSHOT         = -1L;
+    
+    // orders the snapshot readers, oldest first
+    static final Comparator<Transaction>   BY_SNAPSHOT_VERSION = Comparator
+            .comparingLong(Transaction::getSnapshotVersion)
+            .thenComparingLong(t -> t.id);
+    
+    // the most attempts a nested transaction makes before its conflict is
+    // handed over to the enclosing transaction
+    static final int                       NESTED_ATTEMPTS     = 8;
+    
+    // the times the owner of a variable that the transaction adds a delta to
+    // is spun for at commit before the transaction backs off
+    static final int                       DELTA_SPINS         = 1 << 12;
+    
+    // the times a pessimistic transaction spins for a locked variable before
+    // it parks, and how long it parks for at a time
+    static final int                       LOCK_SPINS          = 1 << 8;
+    static final long                      LOCK_PARK           = TimeUnit.MICROSECONDS.toNanos(20L);
+    
+    // the off-heap variables are locked after the `MemCell`s, in the order of
+    // their slots
+    static final long                      SLOT_KEYS           = 1L << 32;
+    
+    // the ids of the transactions
+    private static final AtomicLong        IDS                 = new AtomicLong(0L);
+    
+    // the per thread transaction context
+    private static final Transactions      ts                  = InstanceFactory.getInstance(Transactions.class);
     
     // for scheduling purposes, to make sure that the main thread
     // waits till the transaction is done processing!
     private @Getter @Setter CountDownLatch latch;
+    
+    // completes with the outcome of the transaction once it is done
+    // processing
+    private final @Getter(AccessLevel.PACKAGE) CompletableFuture<TAction> outcome = new CompletableFuture<>();
     /*** Log and administrative stuff *****/
     
+    /**
+     * <p>
+     * The name of the transaction
+     */
+    private @Getter @Setter String         name;
+    
     /**
      * <p>
      * record holds the metadata of the transaction
@@ -55,12 +124,92 @@ public class Transaction extends Thread {
      */
     private @Getter List<TOperation>       operations          = new ArrayList<>();
     
+    /**
+     * <p>
+     * The {@link WriteMode} of the transaction, decides how the writeSet
+     * members are updated.
+     */
+    private @Getter @Setter WriteMode      writeMode           = WriteMode.DIRECT;
+    
+    /**
+     * <p>
+     * A read-only transaction reads a consistent snapshot of the `MemCell`s as
+     * of its start version. It doesn't keep a readSet, take ownership or take
+     * backups and it has nothing to validate at commit.
+     */
+    private @Getter @Setter boolean        readOnly;
+    
+    /**
+     * <p>
+     * The {@link Isolation} of the transaction, decides what the transaction
+     * reads and validates.
+     */
+    private @Getter @Setter Isolation      isolation           = Isolation.SERIALIZABLE;
+    
+    /**
+     * <p>
+     * The {@link ConcurrencyControl} of the transaction, decides if it locks
+     * the variables it reads and writes.
+     */
+    private @Getter @Setter ConcurrencyControl concurrencyControl = ConcurrencyControl.OPTIMISTIC;
+    
+    // the greatest key of the variables owned by the current attempt, the
+    // transaction only waits for the variables ordered after it
+    private long                           lockedUpTo;
+    
+    /**
+     * <p>
+     * The version the transaction is registered with as an active snapshot
+     * reader, {@link #NO_SNAPSHOT} when it is not registered.
+     */
+    private @Getter @Setter long           snapshotVersion     = NO_SNAPSHOT;
+    
+    /**
+     * <p>
+     * The unique id of the transaction, used to order the snapshot readers
+     * registered with the same version.
+     */
+    private final @Getter(AccessLevel.PACKAGE) long id         = IDS.incrementAndGet();
+    
+    /**
+     * <p>
+     * The commit version of the transaction while it is publishing its
+     * writeSet members, {@link #COMMITTING} till the commit version is drawn
+     * and 0 when the transaction is not committing.
+     */
+    private volatile long                  committingAt;
+    
+    /**
+     * <p>
+     * The log sequence number of the last commit record of the transaction in
+     * the write-ahead log, 0 if it has none.
+     */
+    private @Getter(AccessLevel.PACKAGE) long lsn;
+    
+    /**
+     * <p>
+     * The {@link ContentionManager} of the transaction, decides how long the
+     * transaction waits before it is retried.
+     */
+    private @Getter @Setter ContentionManager contentionManager = ContentionManager.exponentialBackoff();
+    
+    /**
+     * <p>
+     * The names of the variables the transaction is known to touch, declared
+     * up front or learned from its aborted attempts. The
+     * {@link ConflictScheduler} queues the transaction on the hot ones.
+     */
+    private final @Getter(AccessLevel.PACKAGE) Set<String> footprint = new TreeSet<>();
+    
+    // the queues of the hot variables the current attempt holds
+    private List<Lane>                     lanes;
+    
     /**
      * <p>
      * <i>operation</i>: The functional interface that is used to define the
      * transaction's operational logic(execution logic).
      */
-    private boolean operate() {
+    boolean operate() {
         
         // for each operation, do the operation
         for (TOperation to : this.getOperations()) {
@@ -76,28 +225,192 @@ public class Transaction extends Thread {
         return true;
     }
     
+    /**
+     * <p>
+     * Runs the operations as a closed nested transaction of this transaction.
+     * The nested transaction reads and writes on top of the bookkeeping of
+     * this transaction, from a {@link Savepoint}. If it runs into another
+     * transaction only its own updates are undone and it is retried alone,
+     * after checking that what this transaction read before it is still
+     * valid. So the work done before the nested transaction is not redone.
+     * 
+     * <p>
+     * The conflict is handed over to this transaction, which is rolled back
+     * and retried as a whole, if what it read before the nested transaction
+     * is stale, if it reads a snapshot or if the nested transaction failed
+     * {@link #NESTED_ATTEMPTS} times.
+     * 
+     * @param operations
+     *            The operations of the nested transaction
+     * 
+     * @return DONE if the operations were done, FAIL if one of them failed,
+     *         its updates are undone then, or if the conflict was handed over
+     */
+    TAction nested(TOperation... operations) {
+        
+        Savepoint savepoint = new Savepoint(this.record);
+        
+        for (int attempt = 1;; attempt++) {
+            
+            boolean done = true;
+            
+            for (TOperation operation : operations) {
+                
+                if (operation.go() == TAction.FAIL) {
+                    
+                    done = false;
+                    
+                    break;
+                }
+            }
+            
+            if (done) {
+                
+                return TAction.DONE;
+            }
+            
+            Abort reason = this.record.getAbort();
+            
+            if (this.record.getRetry() && !this.record.getConflicted()) {
+                
+                // handed over, the enclosing transaction waits for what the
+                // nested transaction read to change
+                return TAction.FAIL;
+            }
+            
+            if (!this.record.getConflicted()) {
+                
+                // faulty operational logic, the updates of the nested
+                // transaction are undone and the enclosing transaction decides
+                savepoint.rollback(this);
+                
+                return TAction.FAIL;
+            }
+            
+            if (this.readsSnapshot() || attempt >= NESTED_ATTEMPTS || reason == Abort.LOCK_ORDER) {
+                
+                // the conflict is handed over to the enclosing transaction,
+                // the locks are taken in order only from its start
+                return TAction.FAIL;
+            }
+            
+            savepoint.rollback(this);
+            
+            this.manager.getMetrics().partiallyRolledBack();
+            this.manager.trace(Event.ABORT, this, null, reason.ordinal());
+            
+            if (!this.extend()) {
+                
+                // what the enclosing transaction read is stale too
+                this.conflict(Abort.VALIDATION_FAILURE);
+                
+                return TAction.FAIL;
+            }
+            
+            this.contentionManager.backoff(this, attempt);
+        }
+    }
+    
+    /**
+     * <p>
+     * Runs the alternatives as closed nested transactions of this transaction,
+     * one after the other till one of them doesn't retry. The updates of an
+     * alternative that called {@link StateManager#retryT()} are undone before
+     * the next one is run, but what it read is kept, so if every alternative
+     * retries this transaction waits for any of what they read to change.
+     * 
+     * @param alternatives
+     *            The operations of the alternatives
+     * 
+     * @return the outcome of the first alternative that didn't retry, or FAIL
+     *         if all of them retried
+     */
+    TAction orElse(TOperation... alternatives) {
+        
+        Savepoint savepoint = new Savepoint(this.record);
+        TAction action = TAction.DONE;
+        
+        for (int i = 0; i < alternatives.length; i++) {
+            
+            if (i > 0) {
+                
+                savepoint.rollback(this, true);
+            }
+            
+            action = this.nested(alternatives[i]);
+            
+            if (action == TAction.DONE || !this.record.getRetry() || this.record.getConflicted()) {
+                
+                return action;
+            }
+        }
+        
+        // every alternative retried, the retry is left to this transaction
+        return action;
+    }
+    
     /**
      * <p>
      * The reference to the StateManager that takes care of global operations.
      */
-    private @Setter StateManager manager;
+    private @Getter(AccessLevel.PACKAGE) @Setter StateManager manager;
     
     /*
      * (non-Javadoc)
      * 
-     * @see java.lang.Thread#run()
+     * @see java.lang.Runnable#run()
      */
     @Override
     public void run() {
         
-        logger.debug("Transaction:: " + this.getName() + " has started...");
+        // bind this transaction as the transaction context of the running
+        // thread, `readT` and `writeT` resolve the current transaction from it
+        Transaction previous = ts.getT();
+        
+        ts.setT(this);
+        
+        TAction action = TAction.FAIL;
+        
+        try {
+            
+            action = this.runTransaction();
+        } catch (RuntimeException | Error e) {
+            
+            this.outcome.completeExceptionally(e);
+            
+            throw e;
+        } finally {
+            
+            ts.setT(previous);
+            
+            // countdown the latches to indicate that the transaction is done
+            // processing
+            if (!Objects.isNull(this.latch)) {
+                
+                this.latch.countDown();
+            }
+        }
+        
+        this.outcome.complete(action);
+        
+    }
+    
+    /**
+     * <p>
+     * Runs the transaction's operational logic till it successfully commits
+     * or fails.
+     * 
+     * @return DONE if the transaction committed, FAIL if its operational logic
+     *         failed
+     */
+    private TAction runTransaction() {
+        
+        TAction action = TAction.DONE;
         
         while (!this.record.getStatus()) {
             
             try {
                 
-                logger.debug(String.format("Initiating transaction:: %s", this.getName()));
-                
                 /**
                  * <p>
                  * Apply the transaction's operational logic to the writeSet and readSet members
@@ -107,8 +420,66 @@ public class Transaction extends Thread {
                  * It also takes the backup of the variable states before modifying it in the State table.
                  * 
                  */
+                this.queue();
+                
+                this.begin();
+                
                 Boolean operationStatus = this.operate();
                 
+                if (!operationStatus && this.record.getConflicted() && this.readOnly) {
+                    
+                    // the read-only transaction came across a state committed
+                    // after it started, there is nothing to roll back or wait
+                    // for, it restarts right away from a newer version
+                    this.aborted(this.record.getAbort());
+                    
+                    continue;
+                }
+                
+                if (!operationStatus && this.record.getConflicted()) {
+                    
+                    // the operation failed because it ran into another
+                    // transaction, this is not faulty logic, so retry
+                    Abort reason = this.record.getAbort();
+                    
+                    this.aborted(reason);
+                    
+                    this.rollback();
+                    
+                    if (reason != Abort.LOCK_ORDER) {
+                        
+                        // the restarted pessimistic transaction waits for
+                        // its locks instead
+                        this.backoff();
+                    }
+                    
+                    continue;
+                }
+                
+                if (!operationStatus && this.record.getRetry()) {
+                    
+                    // the transaction can't go on with what it read, it is
+                    // parked till that changes instead of failing or polling
+                    this.rollback();
+                    
+                    this.manager.getMetrics().waited();
+                    
+                    if (!this.awaitChange()) {
+                        
+                        logger.error(String.format(
+                                "CRITICAL:: Transaction:: %s was interrupted while waiting to retry, bailing out",
+                                this.getName()));
+                        
+                        this.record.setStatus(true);
+                        
+                        action = TAction.FAIL;
+                        
+                        break;
+                    }
+                    
+                    continue;
+                }
+                
                 if (!operationStatus) {
                     
                     // failed to operate successfully, this transaction is
@@ -117,215 +488,1408 @@ public class Transaction extends Thread {
                             "CRITICAL:: Transaction:: %s has faulty operational logic, bailing out after rolling back",
                             this.getName()));
                     
+                    this.aborted(Abort.OPERATION_FAIL);
+                    
                     this.rollback();
                     
                     this.record.setStatus(true);
                     
+                    action = TAction.FAIL;
+                    
                     break;
                 }
                 
-                logger.debug(String.format("Transaction:: %s operation completed, moving to commit changes...",
-                        this.getName()));
-                
                 // commit changes
+                long commitStart = System.nanoTime();
+                
                 Boolean commitStatus = this.commit();
                 
+                this.manager.getMetrics().getCommitLatency().record(System.nanoTime() - commitStart);
+                
                 if (!commitStatus) {
                     
                     // failed to commit changes to the writeSet, hence rolling
                     // back
                     // and then retrying
-                    logger.error(String.format(
-                            "MODERATE:: Transaction:: %s couldn't commit its changes, rolling back and retrying...",
-                            this.getName()));
+                    this.aborted(this.record.getAbort());
                     
                     this.rollback();
                     
-                    try {
-                        
-                        Thread.sleep(MAX_SLEEP_WAIT_TIME);
-                    } catch (InterruptedException e) {
-                        
-                        logger.error(e.getMessage(), e);
-                    }
+                    this.backoff();
                     
                     continue;
                 }
                 
-                logger.debug(String.format(
-                        "transaction:: %s has successfully committed its changes made to the writeSet members, marking transaction as completed.",
-                        this.getName()));
-                
                 // since the commit was successful, the transaction releases all
                 // its
                 // writeSet members of its ownership and marks itself as
                 // complete
                 this.releaseOwnership();
                 
+                this.manager.getWaiters().committed(this);
+                
+                WriteAheadLog log = this.manager.getLog();
+                
+                if (this.lsn > 0 && !Objects.isNull(log)) {
+                    
+                    log.afterPublish(this.lsn);
+                }
+                
                 // marks itself as complete
                 this.record.setStatus(true);
+                
+                this.manager.getMetrics().committed();
+            } catch (UncheckedIOException e) {
+                
+                // the commit couldn't be made durable, retrying won't help
+                this.rollback();
+                
+                throw e;
             } catch (Exception e) {
                 
                 logger.error(e.getMessage(), e);
+            } finally {
+                
+                this.leave();
+                
+                this.manager.deregister(this);
             }
         }
         
-        // countdown the latches to indicate that the transaction is done
-        // processing
-        if (!Objects.isNull(this.latch)) {
-            
-            this.latch.countDown();
-        }
+        this.manager.getMetrics().finished(this.record.getAttempts());
         
-        logger.debug("Transaction:: " + this.getName() + " has ended...");
+        return action;
     }
     
     /**
      * <p>
-     * Rolls back all changes made by the transaction and releases ownerships of
-     * the writeSet members as well.
+     * Begins a new attempt of the transaction, clearing the bookkeeping of the
+     * previous attempt and sampling the start version.
      */
-    private void rollback() {
+    void begin() {
         
-        logger.debug("Initiating rollback for transaction:: " + this.getName());
+        this.record.reset();
+        this.record.setAttempts(this.record.getAttempts() + 1);
         
-        Queue<String> writeSet = new LinkedBlockingQueue<>(this.record.getWriteSet());
-        
-        while (!writeSet.isEmpty()) {
-            
-            String variableName = writeSet.poll();
-            
-            // fetch the backup
-            foop.core.State backup = this.record.getOldValues().get(variableName);
-            
-            // restore the backup
-            this.manager.write(variableName, backup);
-        }
+        // the variables locked before the start version is sampled are read
+        // as of it
+        this.lockFootprint();
         
-        // release all the writeSet members from ownership
-        this.releaseOwnership();
+        this.record.setStartVersion(this.readsSnapshot() ? this.manager.register(this) : this.manager.now());
         
-        logger.debug("Rollback complete for transaction:: " + this.getName());
+        this.manager.trace(Event.BEGIN, this, null, this.record.getStartVersion());
     }
     
     /**
      * <p>
-     * Commits the changes made by the transaction to its writeSet members after
-     * referring to the state's of its readSet members.
+     * Completes the transaction with its outcome, when it was run by something
+     * other than {@link #run()}.
      * 
-     * @return true if commit was successful else returns false
-     * @throws Exception
+     * @param action
+     *            The outcome of the transaction
      */
-    private Boolean commit() {
-        
-        logger.debug(String.format("Initiating commit for transaction:: %s", this.getName()));
-        
-        Boolean status = true;
+    void complete(TAction action) {
         
-        Queue<String> readSet = new LinkedBlockingQueue<>(this.record.getReadSet());
-        
-        while (!readSet.isEmpty()) {
-            
-            String variableName = readSet.poll();
-            
-            Optional<foop.core.State> currentState = this.manager.read(variableName);
-            
-            foop.core.State backup = this.record.getOldValues().get(variableName);
+        if (!Objects.isNull(this.latch)) {
             
-            if (currentState.isPresent()) {
-                
-                // there is some non-null state in the statetable.
-                if (null == backup) {
-                    
-                    // this means that when the backup was taken, the readSet
-                    // member was un-initiaized but now it has some non-null
-                    // state this means that it has been modified in some way
-                    // and this
-                    // might not be good since the new state of the readSet
-                    // member might cause some
-                    // problem with states of the writeSet members.
-                    
-                    // commit failed
-                    status = false;
-                    break;
-                } else if (!currentState.get().equals(backup)) {
-                    
-                    // backup is not null, now check if their values are equal
-                    status = false;
-                    break;
-                } else {
-                    
-                    // backup of the readSet member matches its current state
-                    status = true;
-                }
-            } else {
-                
-                // currentstate is empty or null, if old state was not null,
-                // then there has been a change in state
-                if (null == backup) {
-                    
-                    // means that both currentState of the readSet member and
-                    // its backup were empty
-                    status = true;
-                } else {
-                    
-                    status = false;
-                }
-            }
+            this.latch.countDown();
         }
         
-        logger.debug(String.format("Completing commit for transaction:: %s", this.getName()));
-        
-        return status;
+        this.outcome.complete(action);
     }
     
     /**
      * <p>
-     * Releases the ownerships of all the writeSet member `MemCells`
+     * Completes the transaction with the error it ran into, when it was run by
+     * something other than {@link #run()}.
+     * 
+     * @param error
+     *            The error
      */
-    private void releaseOwnership() {
-        
-        logger.debug(String.format("Initiating release of ownership of writeSet members of transaction:: %s",
-                this.getName()));
+    void fail(Throwable error) {
         
-        Queue<String> writeSet = new LinkedBlockingQueue<>(this.record.getWriteSet());
-        
-        while (!writeSet.isEmpty()) {
-            
-            String variableName = writeSet.poll();
+        if (!Objects.isNull(this.latch)) {
             
-            if (this.manager.getOwner(variableName).isPresent()
-                    && this.manager.getOwner(variableName).get().equals(this)) {
-                
-                // release ownership only if this transaction owns it
-                // this is to prevent race conditions(?)
-                this.manager.releaseOwnership(variableName);
-            }
+            this.latch.countDown();
         }
         
-        logger.debug(
-                String.format("Finished release of ownership of writeSet members of transaction:: %s", this.getName()));
+        this.outcome.completeExceptionally(error);
     }
     
-    /*** Book keeping methods **/
+    /**
+     * <p>
+     * Waits before retrying the transaction, as long as its
+     * {@link ContentionManager} wants it to. The wait doesn't hold any monitor,
+     * so a transaction running on a virtual thread unmounts from its carrier
+     * thread while waiting instead of pinning it.
+     */
+    private void backoff() {
+        
+        // a waiting snapshot reader doesn't need its versions kept, and a
+        // waiting transaction doesn't hold up the queues of hot variables
+        this.manager.deregister(this);
+        this.leave();
+        
+        this.contentionManager.backoff(this, this.record.getAttempts());
+    }
     
     /**
      * <p>
-     * Adds the member <i>Variable</i> or `MemCell`s names to the writeSet of
-     * the transaction.
+     * Parks the rolled back transaction till one of the variables it read is
+     * committed by another transaction, see {@link Waiters}.
      * 
-     * @param variableNames
-     *            The names of the `MemCell`s that this transaction intends to
-     *            modify/write
+     * @return true once what the transaction read changed, false if it was
+     *         interrupted
      */
-    public final void addWriteSetMembers(String... variableNames) {
+    private boolean awaitChange() {
         
-        Set<String> writeSet = this.record.getWriteSet();
+        // like a waiting transaction, a parked transaction doesn't need its
+        // versions kept or hold up the queues of hot variables
+        this.manager.deregister(this);
+        this.leave();
         
-        for (String variableName : variableNames) {
-            
-            writeSet.add(variableName);
-        }
+        return this.manager.getWaiters().await(this);
+    }
+    
+    /**
+     * <p>
+     * Rolls back all changes made by the transaction and releases ownerships of
+     * the writeSet members as well.
+     */
+    void rollback() {
+        
+        if (this.writeMode == WriteMode.DEFERRED) {
+            
+            // nothing was updated in place, dropping the redo log is enough
+            this.releaseOwnership();
+            this.record.getRedoLog().clear();
+            
+            return;
+        }
+        
+        CellSet writeCells = this.record.getWriteCells();
+        
+        for (int i = 0; i < writeCells.size(); i++) {
+            
+            // reinstate the committed state that the transaction replaced
+            writeCells.cell(i).revert(this);
+        }
+        
+        // release all the writeSet members from ownership
+        this.releaseOwnership();
+    }
+    
+    /**
+     * <p>
+     * Commits the changes made by the transaction to its writeSet members after
+     * validating the versions of its readSet members.
+     * 
+     * <p>
+     * The commit ticks the global version clock and stamps the writeSet members
+     * with the new version. The readSet members are validated by comparing
+     * the versions they were read at against their current versions, so the
+     * cost of the commit depends on the size of the readSet alone.
+     * 
+     * @return true if commit was successful else returns false
+     */
+    private Boolean commit() {
+        
+        if (!this.hasUpdates()) {
+            
+            // every readSet member was read at or before the start version, so
+            // the reads are consistent and there is nothing to publish
+            this.manager.trace(Event.COMMIT, this, null, this.record.getStartVersion());
+            
+            return true;
+        }
+        
+        if (!this.lock()) {
+            
+            return false;
+        }
+        
+        // readers that come across the writeSet members while they are being
+        // published wait for the commit to finish
+        this.committing(COMMITTING);
+        
+        long commitVersion = this.manager.tick();
+        
+        this.committing(commitVersion);
+        
+        if (!this.validateAt(commitVersion)) {
+            
+            return false;
+        }
+        
+        WriteAheadLog log = this.manager.getLog();
+        
+        if (!Objects.isNull(this.log(log, commitVersion))) {
+            
+            log.beforePublish(this.lsn);
+        }
+        
+        this.publish(commitVersion);
+        
+        return true;
+    }
+    
+    /**
+     * <p>
+     * The first phase of the commit, makes sure that the transaction owns its
+     * writeSet members. A transaction in the direct write mode owns them
+     * already, a transaction in the deferred write mode takes ownership now.
+     * The primitive `MemCell`s are owned now in every write mode.
+     * 
+     * @return true if the transaction owns all its writeSet members, else
+     *         false
+     */
+    boolean lock() {
+        
+        if (!this.own()) {
+            
+            this.manager.trace(Event.OWN, this, null, 0L);
+            
+            this.record.setAbort(Abort.OWNERSHIP_CONFLICT);
+            
+            return false;
+        }
+        
+        this.manager.trace(Event.OWN, this, null, 1L);
+        
+        return true;
+    }
+    
+    /**
+     * <p>
+     * Marks the transaction as committing, readers that come across its
+     * writeSet members wait for the commit to finish.
+     * 
+     * @param commitVersion
+     *            The commit version, {@link #COMMITTING} till it is drawn
+     */
+    void committing(long commitVersion) {
+        
+        this.committingAt = commitVersion;
+        
+        SlotSet offHeapWrites = this.record.getOffHeapWrites();
+        
+        for (int i = 0; i < offHeapWrites.size(); i++) {
+            
+            // the readers of off-heap variables look it up in the slots
+            this.manager.getOffHeap().committing(offHeapWrites.slot(i), commitVersion);
+        }
+        
+        SlotSet offHeapDeltas = this.record.getOffHeapDeltas();
+        
+        for (int i = 0; i < offHeapDeltas.size(); i++) {
+            
+            this.manager.getOffHeap().committing(offHeapDeltas.slot(i), commitVersion);
+        }
+    }
+    
+    /**
+     * <p>
+     * The second phase of the commit, validates the transaction at its commit
+     * version according to its {@link Isolation}.
+     * 
+     * @param commitVersion
+     *            The commit version
+     * 
+     * @return true if the transaction can publish its updates, else false
+     */
+    boolean validateAt(long commitVersion) {
+        
+        long validationStart = System.nanoTime();
+        
+        boolean valid;
+        
+        if (this.isolation == Isolation.SNAPSHOT && !this.locks()) {
+            
+            // first committer wins, the snapshot is kept only if no writeSet
+            // member was committed after the transaction started
+            valid = this.validateWrites();
+        } else {
+            
+            // if no other transaction committed since this transaction
+            // started, the readSet is still valid
+            valid = commitVersion == this.record.getStartVersion() + 1 || this.validate();
+        }
+        
+        this.manager.getMetrics().getValidationLatency().record(System.nanoTime() - validationStart);
+        
+        this.manager.trace(Event.VALIDATE, this, null, valid ? 1L : 0L);
+        
+        if (!valid) {
+            
+            this.record.setAbort(Abort.VALIDATION_FAILURE);
+        }
+        
+        return valid;
+    }
+    
+    /**
+     * <p>
+     * Appends the commit record of the transaction to the write-ahead log, if
+     * the <i>StateManager</i> is durable.
+     * 
+     * @param log
+     *            The write-ahead log, null if there is none
+     * @param commitVersion
+     *            The commit version
+     * 
+     * @return the log, null if there is none
+     */
+    WriteAheadLog log(WriteAheadLog log, long commitVersion) {
+        
+        this.lsn = 0L;
+        
+        if (Objects.isNull(log)) {
+            
+            return null;
+        }
+        
+        this.lsn = log.append(commitVersion, this.updates());
+        
+        return log;
+    }
+    
+    /**
+     * <p>
+     * Gets the updates of the transaction as the states they will be
+     * committed with, by the names of the variables. Called before they are
+     * published, while the transaction owns its writeSet members.
+     * 
+     * @return the updates of the transaction
+     */
+    private Map<String, foop.core.State> updates() {
+        
+        Map<String, foop.core.State> updates = new LinkedHashMap<>();
+        
+        if (this.writeMode == WriteMode.DEFERRED) {
+            
+            for (Map.Entry<MemCell, foop.core.State> update : this.record.getRedoLog().entrySet()) {
+                
+                updates.put(update.getKey().getName(), update.getValue());
+            }
+        } else {
+            
+            CellSet writeCells = this.record.getWriteCells();
+            
+            for (int i = 0; i < writeCells.size(); i++) {
+                
+                // the uncommitted state written in place
+                updates.put(writeCells.cell(i).getName(), writeCells.cell(i).getState());
+            }
+        }
+        
+        CellSet primitiveWrites = this.record.getPrimitiveWrites();
+        
+        for (int i = 0; i < primitiveWrites.size(); i++) {
+            
+            MemCell cell = primitiveWrites.cell(i);
+            
+            updates.put(cell.getName(), cell.primitive().copy(primitiveWrites.value(i)));
+        }
+        
+        SlotSet offHeapWrites = this.record.getOffHeapWrites();
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        
+        for (int i = 0; i < offHeapWrites.size(); i++) {
+            
+            int slot = offHeapWrites.slot(i);
+            
+            updates.put(offHeap.name(slot), offHeap.copy(slot, offHeapWrites.value(i)));
+        }
+        
+        CellSet primitiveDeltas = this.record.getPrimitiveDeltas();
+        
+        for (int i = 0; i < primitiveDeltas.size(); i++) {
+            
+            MemCell cell = primitiveDeltas.cell(i);
+            
+            if (primitiveWrites.indexOf(cell) < 0) {
+                
+                PrimitiveState p = cell.primitive();
+                
+                // the transaction owns the `MemCell`, so its value is stable
+                updates.put(cell.getName(), p.copy(p.add(p.bits(), primitiveDeltas.value(i))));
+            }
+        }
+        
+        SlotSet offHeapDeltas = this.record.getOffHeapDeltas();
+        
+        for (int i = 0; i < offHeapDeltas.size(); i++) {
+            
+            int slot = offHeapDeltas.slot(i);
+            
+            if (offHeapWrites.indexOf(slot) < 0) {
+                
+                updates.put(offHeap.name(slot),
+                        offHeap.copy(slot, offHeap.add(slot, offHeap.bits(slot), offHeapDeltas.value(i))));
+            }
+        }
+        
+        return updates;
+    }
+    
+    /**
+     * <p>
+     * The last phase of the commit, publishes the updates of the writeSet
+     * members stamped with the commit version.
+     * 
+     * @param commitVersion
+     *            The commit version
+     */
+    void publish(long commitVersion) {
+        
+        Watchers watchers = this.manager.getWatchers();
+        
+        // the deltas are added to the values as they are published, so the
+        // updates are collected first
+        Map<String, foop.core.State> updates = watchers.isWatched() ? this.updates() : null;
+        
+        int history = this.manager.getMaxVersions();
+        long horizon = history > 1 ? this.manager.horizon() : commitVersion;
+        
+        if (this.writeMode == WriteMode.DEFERRED) {
+            
+            // publish the redo log
+            for (Map.Entry<MemCell, foop.core.State> update : this.record.getRedoLog().entrySet()) {
+                
+                update.getKey().publish(update.getValue(), commitVersion, horizon, history);
+            }
+        } else {
+            
+            CellSet writeCells = this.record.getWriteCells();
+            
+            for (int i = 0; i < writeCells.size(); i++) {
+                
+                writeCells.cell(i).commit(this, commitVersion, horizon, history);
+            }
+        }
+        
+        CellSet primitiveWrites = this.record.getPrimitiveWrites();
+        
+        for (int i = 0; i < primitiveWrites.size(); i++) {
+            
+            // updated in place, a single version is kept
+            primitiveWrites.cell(i).primitive().publish(primitiveWrites.value(i), commitVersion);
+        }
+        
+        SlotSet offHeapWrites = this.record.getOffHeapWrites();
+        
+        for (int i = 0; i < offHeapWrites.size(); i++) {
+            
+            this.manager.getOffHeap().publish(offHeapWrites.slot(i), offHeapWrites.value(i), commitVersion);
+        }
+        
+        CellSet primitiveDeltas = this.record.getPrimitiveDeltas();
+        
+        for (int i = 0; i < primitiveDeltas.size(); i++) {
+            
+            MemCell cell = primitiveDeltas.cell(i);
+            
+            if (primitiveWrites.indexOf(cell) < 0) {
+                
+                // the delta is added to the latest value, the write of the
+                // transaction replaces it otherwise
+                PrimitiveState p = cell.primitive();
+                
+                p.publish(p.add(p.bits(), primitiveDeltas.value(i)), commitVersion);
+            }
+        }
+        
+        SlotSet offHeapDeltas = this.record.getOffHeapDeltas();
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        
+        for (int i = 0; i < offHeapDeltas.size(); i++) {
+            
+            int slot = offHeapDeltas.slot(i);
+            
+            if (offHeapWrites.indexOf(slot) < 0) {
+                
+                offHeap.publish(slot, offHeap.add(slot, offHeap.bits(slot), offHeapDeltas.value(i)), commitVersion);
+            }
+        }
+        
+        if (!Objects.isNull(updates)) {
+            
+            watchers.committed(commitVersion, updates);
+        }
+        
+        this.manager.trace(Event.COMMIT, this, null, commitVersion);
+    }
+    
+    /**
+     * <p>
+     * Notes that the attempt of the transaction was aborted, in the metrics
+     * and the trace of the <i>StateManager</i>.
+     * 
+     * @param reason
+     *            The reason the attempt was aborted
+     */
+    void aborted(Abort reason) {
+        
+        this.manager.getMetrics().aborted(reason);
+        this.manager.trace(Event.ABORT, this, null, reason.ordinal());
+        
+        if (reason != Abort.OPERATION_FAIL && !this.readOnly
+                && this.concurrencyControl == ConcurrencyControl.ADAPTIVE) {
+            
+            // locking doesn't help the snapshot readers
+            this.manager.getAdaptiveControl().aborted(this);
+        }
+        
+        ConflictScheduler scheduler = this.manager.getScheduler();
+        
+        if (reason != Abort.OPERATION_FAIL && !Objects.isNull(scheduler)) {
+            
+            scheduler.conflicted(this);
+        }
+    }
+    
+    /**
+     * <p>
+     * Waits for the turn of the transaction on the hot variables it touches,
+     * if the <i>StateManager</i> has a {@link ConflictScheduler}.
+     */
+    private void queue() {
+        
+        ConflictScheduler scheduler = this.manager.getScheduler();
+        
+        if (!Objects.isNull(scheduler) && !this.readOnly) {
+            
+            this.lanes = scheduler.enter(this);
+        }
+    }
+    
+    /**
+     * <p>
+     * Leaves the queues of the hot variables the attempt holds.
+     */
+    private void leave() {
+        
+        if (!Objects.isNull(this.lanes)) {
+            
+            ConflictScheduler.exit(this.lanes);
+            
+            this.lanes = null;
+        }
+    }
+    
+    /**
+     * <p>
+     * Notes that the transaction ran into another transaction, so that it is
+     * rolled back and retried even if its operation swallows the exception.
+     * 
+     * @param reason
+     *            The reason the attempt is aborted
+     */
+    void conflict(Abort reason) {
+        
+        this.record.setConflicted(true);
+        this.record.setAbort(reason);
+    }
+    
+    /**
+     * <p>
+     * Notes that the transaction ran into another transaction on the
+     * variable, see {@link #conflict(Abort)}.
+     * 
+     * @param reason
+     *            The reason the attempt is aborted
+     * @param variableName
+     *            The name of the variable the transaction ran into another
+     *            transaction on
+     */
+    void conflict(Abort reason, String variableName) {
+        
+        this.conflict(reason);
+        
+        this.record.setContended(variableName);
+    }
+    
+    /**
+     * <p>
+     * Notes the variable that failed the commit of the transaction, it is
+     * what the transaction ran into another transaction on.
+     * 
+     * @param variableName
+     *            The name of the variable
+     * 
+     * @return false
+     */
+    private boolean contended(String variableName) {
+        
+        this.record.setContended(variableName);
+        
+        return false;
+    }
+    
+    /**
+     * <p>
+     * Checks if the transaction has updates to publish.
+     * 
+     * @return true if the transaction wrote to some `MemCell`, else false
+     */
+    boolean hasUpdates() {
+        
+        return !this.record.getWriteCells().isEmpty() || !this.record.getRedoLog().isEmpty()
+                || !this.record.getPrimitiveWrites().isEmpty() || !this.record.getOffHeapWrites().isEmpty()
+                || !this.record.getPrimitiveDeltas().isEmpty() || !this.record.getOffHeapDeltas().isEmpty();
+    }
+    
+    /**
+     * <p>
+     * Checks if the transaction reads the `MemCell`s as of its start version,
+     * read-only and snapshot isolated transactions do.
+     * 
+     * @return true if the transaction is a snapshot reader, else false
+     */
+    boolean readsSnapshot() {
+        
+        return this.readOnly || (this.isolation == Isolation.SNAPSHOT && !this.locks());
+    }
+    
+    /**
+     * <p>
+     * Checks if the transaction may lock the variables it reads and writes,
+     * pessimistic and adaptive transactions that update do.
+     * 
+     * @return true if the transaction locks variables, else false
+     */
+    boolean locks() {
+        
+        return this.concurrencyControl != ConcurrencyControl.OPTIMISTIC && !this.readOnly;
+    }
+    
+    /**
+     * <p>
+     * Checks if the transaction locks the `MemCell`, a pessimistic transaction
+     * locks every `MemCell` and an adaptive transaction the hot ones.
+     * 
+     * @param cell
+     *            The `MemCell`
+     * 
+     * @return true if the transaction locks the `MemCell`, else false
+     */
+    private boolean locks(MemCell cell) {
+        
+        return this.concurrencyControl == ConcurrencyControl.PESSIMISTIC
+                || this.manager.getAdaptiveControl().isLocked(cell);
+    }
+    
+    /**
+     * <p>
+     * Checks if the transaction locks the off-heap variable, like
+     * {@link #locks(MemCell)}.
+     * 
+     * @param offHeap
+     *            The off-heap store
+     * @param slot
+     *            The slot of the variable
+     * 
+     * @return true if the transaction locks the variable, else false
+     */
+    private boolean locks(OffHeapStore offHeap, int slot) {
+        
+        return this.concurrencyControl == ConcurrencyControl.PESSIMISTIC
+                || this.manager.getAdaptiveControl().isLocked(offHeap.name(slot));
+    }
+    
+    /**
+     * <p>
+     * Notes that the transaction took ownership of the `MemCell` without
+     * locking it, to update it in place. The transaction won't wait for the
+     * variables ordered before it from now on.
+     * 
+     * @param cell
+     *            The `MemCell`
+     */
+    void owned(MemCell cell) {
+        
+        this.lockedUpTo = Math.max(this.lockedUpTo, cell.getId());
+    }
+    
+    /**
+     * <p>
+     * Locks the variables the transaction is known to touch, in order, at the
+     * start of an attempt of a pessimistic transaction. They are locked in
+     * the order of their keys, the ids of the `MemCell`s followed by the slots
+     * of the off-heap variables offset by {@link #SLOT_KEYS}.
+     */
+    private void lockFootprint() {
+        
+        this.lockedUpTo = -1L;
+        
+        if (!this.locks() || this.footprint.isEmpty()) {
+            
+            return;
+        }
+        
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        List<MemCell> cells = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        
+        for (String variableName : this.footprint) {
+            
+            int slot = Objects.isNull(offHeap) ? -1 : offHeap.slot(variableName);
+            
+            if (slot >= 0) {
+                
+                if (this.locks(offHeap, slot)) {
+                    
+                    slots.add(slot);
+                }
+            } else {
+                
+                MemCell cell = this.manager.lookup(variableName);
+                
+                // a variable that was never made is locked once it is written
+                if (!Objects.isNull(cell) && this.locks(cell)) {
+                    
+                    cells.add(cell);
+                }
+            }
+        }
+        
+        cells.sort(Comparator.comparingInt(MemCell::getId));
+        slots.sort(null);
+        
+        for (MemCell cell : cells) {
+            
+            this.lock(cell);
+        }
+        
+        for (int slot : slots) {
+            
+            this.lock(offHeap, slot);
+        }
+    }
+    
+    /**
+     * <p>
+     * Locks the `MemCell` before a pessimistic transaction reads or writes it,
+     * by taking ownership of it till the transaction commits or is rolled
+     * back.
+     * 
+     * <p>
+     * A `MemCell` ordered after the ones the transaction holds is waited for
+     * while it is locked by another transaction. A `MemCell` ordered before
+     * one of them is not, since its owner may be waiting for the transaction,
+     * the transaction is restarted instead, see {@link #restart(String)}.
+     * 
+     * @param cell
+     *            The `MemCell`
+     */
+    void acquire(MemCell cell) throws Exception {
+        
+        if (!this.locks() || cell.getOwner() == this || !this.locks(cell)) {
+            
+            return;
+        }
+        
+        if (cell.getId() > this.lockedUpTo) {
+            
+            this.lock(cell);
+        } else if (cell.own(this)) {
+            
+            this.record.getLocks().putIfAbsent(cell, 0L);
+            
+            this.manager.trace(Event.OWN, this, cell.getName(), 1L);
+            
+            this.locked(cell.getContention(), false);
+        } else {
+            
+            this.restart(cell.getName());
+        }
+    }
+    
+    /**
+     * <p>
+     * Locks an off-heap variable before a pessimistic transaction reads or
+     * writes it, like {@link #acquire(MemCell)}.
+     * 
+     * @param slot
+     *            The slot of the variable
+     */
+    void acquire(int slot) throws Exception {
+        
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        
+        if (!this.locks() || offHeap.owner(slot) == this.id || !this.locks(offHeap, slot)) {
+            
+            return;
+        }
+        
+        if (SLOT_KEYS + slot > this.lockedUpTo) {
+            
+            this.lock(offHeap, slot);
+        } else if (offHeap.own(slot, this.id)) {
+            
+            this.record.getSlotLocks().putIfAbsent(slot, 0L);
+            
+            this.manager.trace(Event.OWN, this, offHeap.name(slot), 1L);
+            
+            this.locked(this.manager.getAdaptiveControl().contention(offHeap.name(slot)), false);
+        } else {
+            
+            this.restart(offHeap.name(slot));
+        }
+    }
+    
+    /**
+     * <p>
+     * Waits till the transaction locks the `MemCell`, the owner of the
+     * `MemCell` never waits for the transaction since the locks are taken in
+     * order.
+     * 
+     * @param cell
+     *            The `MemCell`
+     */
+    private void lock(MemCell cell) {
+        
+        int spins = 0;
+        
+        for (; !cell.own(this); spins++) {
+            
+            await(spins);
+        }
+        
+        this.record.getLocks().putIfAbsent(cell, 0L);
+        this.lockedUpTo = Math.max(this.lockedUpTo, cell.getId());
+        
+        this.manager.trace(Event.OWN, this, cell.getName(), 1L);
+        
+        this.locked(cell.getContention(), spins > 0);
+    }
+    
+    /**
+     * <p>
+     * Waits till the transaction locks the off-heap variable, like
+     * {@link #lock(MemCell)}.
+     * 
+     * @param offHeap
+     *            The off-heap store
+     * @param slot
+     *            The slot of the variable
+     */
+    private void lock(OffHeapStore offHeap, int slot) {
+        
+        int spins = 0;
+        
+        for (; !offHeap.own(slot, this.id); spins++) {
+            
+            await(spins);
+        }
+        
+        this.record.getSlotLocks().putIfAbsent(slot, 0L);
+        this.lockedUpTo = Math.max(this.lockedUpTo, SLOT_KEYS + slot);
+        
+        this.manager.trace(Event.OWN, this, offHeap.name(slot), 1L);
+        
+        this.locked(this.manager.getAdaptiveControl().contention(offHeap.name(slot)), spins > 0);
+    }
+    
+    /**
+     * <p>
+     * Counts the lock of a variable taken by an adaptive transaction towards
+     * the contention on it, see {@link AdaptiveControl}.
+     * 
+     * @param contention
+     *            The contention on the variable, null if it is not tracked
+     * @param waited
+     *            If the transaction waited for the variable
+     */
+    private void locked(Contention contention, boolean waited) {
+        
+        if (this.concurrencyControl == ConcurrencyControl.ADAPTIVE && !Objects.isNull(contention)) {
+            
+            this.manager.getAdaptiveControl().locked(contention, waited);
+        }
+    }
+    
+    private static void await(int spins) {
+        
+        if (spins < LOCK_SPINS) {
+            
+            Thread.onSpinWait();
+        } else {
+            
+            ContentionManager.park(LOCK_PARK);
+        }
+    }
+    
+    /**
+     * <p>
+     * Restarts the pessimistic transaction that came across a variable locked
+     * by another transaction and ordered before one it holds. The variables
+     * it locked so far and the contended one join its footprint, so the next
+     * attempt locks them in order up front and waits for them instead.
+     * 
+     * @param variableName
+     *            The name of the contended variable
+     */
+    private void restart(String variableName) throws Exception {
+        
+        CellSet locks = this.record.getLocks();
+        
+        for (int i = 0; i < locks.size(); i++) {
+            
+            this.footprint.add(locks.cell(i).getName());
+        }
+        
+        SlotSet slotLocks = this.record.getSlotLocks();
+        
+        for (int i = 0; i < slotLocks.size(); i++) {
+            
+            this.footprint.add(this.manager.getOffHeap().name(slotLocks.slot(i)));
+        }
+        
+        this.footprint.add(variableName);
+        
+        this.manager.trace(Event.OWN, this, variableName, 0L);
+        
+        this.conflict(Abort.LOCK_ORDER, variableName);
+        
+        throw new Exception(
+                "The Memory cell is locked by another transaction, restarting to take the locks in order...");
+    }
+    
+    /**
+     * <p>
+     * Checks if the transaction is publishing updates that a reader with the
+     * given start version must see. The reader waits for such a commit to
+     * finish instead of reading the states the commit is replacing.
+     * 
+     * @param version
+     *            The start version of the reader
+     * 
+     * @return true if the transaction is committing at or before the version
+     */
+    boolean isCommittingAt(long version) {
+        
+        long c = this.committingAt;
+        
+        return c == COMMITTING || (c > 0 && c <= version);
+    }
+    
+    /**
+     * <p>
+     * Takes ownership of the writeSet members buffered in the redo log and of
+     * the primitive `MemCell`s written or added to by the transaction, it is
+     * how a transaction locks its deferred updates at commit.
+     * 
+     * @return true if the transaction owns all its writeSet members, else
+     *         false
+     */
+    private boolean own() {
+        
+        for (MemCell cell : this.record.getRedoLog().keySet()) {
+            
+            if (!cell.own(this)) {
+                
+                return this.contended(cell.getName());
+            }
+        }
+        
+        CellSet primitiveWrites = this.record.getPrimitiveWrites();
+        
+        for (int i = 0; i < primitiveWrites.size(); i++) {
+            
+            if (!primitiveWrites.cell(i).own(this)) {
+                
+                return this.contended(primitiveWrites.cell(i).getName());
+            }
+        }
+        
+        SlotSet offHeapWrites = this.record.getOffHeapWrites();
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        
+        for (int i = 0; i < offHeapWrites.size(); i++) {
+            
+            if (!offHeap.own(offHeapWrites.slot(i), this.id)) {
+                
+                return this.contended(offHeap.name(offHeapWrites.slot(i)));
+            }
+        }
+        
+        String contended;
+        
+        while (!Objects.isNull(contended = this.ownDeltas())) {
+            
+            if (!this.addsOnly()) {
+                
+                return this.contended(contended);
+            }
+            
+            // holds nothing but its deltas, so it lets go of them for the
+            // owner that may be waiting on them and tries again instead of
+            // aborting
+            this.releaseDeltas();
+            
+            ContentionManager.park(LOCK_PARK);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * <p>
+     * Takes ownership of the variables that the transaction adds deltas to.
+     * 
+     * @return null if the transaction owns all of them, else the name of the
+     *         variable it couldn't own
+     */
+    private String ownDeltas() {
+        
+        CellSet primitiveDeltas = this.record.getPrimitiveDeltas();
+        
+        for (int i = 0; i < primitiveDeltas.size(); i++) {
+            
+            if (!this.awaitOwnership(primitiveDeltas.cell(i))) {
+                
+                return primitiveDeltas.cell(i).getName();
+            }
+        }
+        
+        SlotSet offHeapDeltas = this.record.getOffHeapDeltas();
+        
+        for (int i = 0; i < offHeapDeltas.size(); i++) {
+            
+            if (!this.awaitOwnership(offHeapDeltas.slot(i))) {
+                
+                return this.manager.getOffHeap().name(offHeapDeltas.slot(i));
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * <p>
+     * Checks if the only updates of the transaction are deltas, such a
+     * transaction owns nothing but the variables it adds to at commit.
+     * 
+     * @return true if the transaction only adds deltas, else false
+     */
+    private boolean addsOnly() {
+        
+        return this.record.getWriteCells().isEmpty() && this.record.getRedoLog().isEmpty()
+                && this.record.getPrimitiveWrites().isEmpty() && this.record.getOffHeapWrites().isEmpty()
+                && this.record.getLocks().isEmpty() && this.record.getSlotLocks().isEmpty();
+    }
+    
+    /**
+     * <p>
+     * Releases the ownerships of the variables that the transaction adds
+     * deltas to.
+     */
+    private void releaseDeltas() {
+        
+        CellSet primitiveDeltas = this.record.getPrimitiveDeltas();
+        
+        for (int i = 0; i < primitiveDeltas.size(); i++) {
+            
+            primitiveDeltas.cell(i).release(this);
+        }
+        
+        SlotSet offHeapDeltas = this.record.getOffHeapDeltas();
+        
+        for (int i = 0; i < offHeapDeltas.size(); i++) {
+            
+            this.manager.getOffHeap().release(offHeapDeltas.slot(i), this.id);
+        }
+    }
+    
+    /**
+     * <p>
+     * Takes ownership of a primitive `MemCell` that the transaction adds a
+     * delta to. Deltas commute, so the transaction doesn't conflict with the
+     * owner of the `MemCell` and waits for its commit instead. The wait is
+     * bounded since two committing transactions may wait for each other, a
+     * transaction that only adds deltas then lets go and waits again, see
+     * {@link #own()}.
+     * 
+     * @param cell
+     *            The primitive `MemCell`
+     * 
+     * @return true if the transaction owns the `MemCell`, else false
+     */
+    private boolean awaitOwnership(MemCell cell) {
+        
+        for (int spins = 0; spins < DELTA_SPINS; spins++) {
+            
+            if (cell.own(this)) {
+                
+                return true;
+            }
+            
+            Thread.onSpinWait();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * <p>
+     * Takes ownership of an off-heap variable that the transaction adds a
+     * delta to, like {@link #awaitOwnership(MemCell)}.
+     * 
+     * @param slot
+     *            The slot of the variable
+     * 
+     * @return true if the transaction owns the variable, else false
+     */
+    private boolean awaitOwnership(int slot) {
+        
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        
+        for (int spins = 0; spins < DELTA_SPINS; spins++) {
+            
+            if (offHeap.own(slot, this.id)) {
+                
+                return true;
+            }
+            
+            Thread.onSpinWait();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * <p>
+     * Validates the readSet members of the transaction, the readSet is valid
+     * if none of its members were updated or are being updated by some other
+     * transaction since the transaction read them.
+     * 
+     * @return true if the readSet is valid, else false
+     */
+    boolean validate() {
+        
+        CellSet readVersions = this.record.getReadVersions();
+        
+        for (int i = 0; i < readVersions.size(); i++) {
+            
+            MemCell cell = readVersions.cell(i);
+            Versioned committed = cell.committed(this);
+            
+            Transaction owner = cell.getOwner();
+            
+            if (Objects.isNull(committed) || committed.getVersion() != readVersions.value(i)
+                    || (!Objects.isNull(owner) && owner != this)) {
+                
+                return this.contended(cell.getName());
+            }
+        }
+        
+        CellSet primitiveReads = this.record.getPrimitiveReads();
+        
+        for (int i = 0; i < primitiveReads.size(); i++) {
+            
+            MemCell cell = primitiveReads.cell(i);
+            Transaction owner = cell.getOwner();
+            
+            if ((!Objects.isNull(owner) && owner != this) || cell.primitive().version() != primitiveReads.value(i)) {
+                
+                return this.contended(cell.getName());
+            }
+        }
+        
+        SlotSet offHeapReads = this.record.getOffHeapReads();
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        
+        for (int i = 0; i < offHeapReads.size(); i++) {
+            
+            int slot = offHeapReads.slot(i);
+            long owner = offHeap.owner(slot);
+            
+            if ((owner != 0L && owner != this.id) || offHeap.version(slot) != offHeapReads.value(i)) {
+                
+                return this.contended(offHeap.name(slot));
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * <p>
+     * Validates the writeSet members of a snapshot isolated transaction, the
+     * writeSet is valid if none of its members were committed by some other
+     * transaction after the transaction started. The transaction owns its
+     * writeSet members when this is called.
+     * 
+     * @return true if the writeSet is valid, else false
+     */
+    private boolean validateWrites() {
+        
+        CellSet writeCells = this.record.getWriteCells();
+        
+        for (int i = 0; i < writeCells.size(); i++) {
+            
+            if (!this.validateWrite(writeCells.cell(i))) {
+                
+                return false;
+            }
+        }
+        
+        for (MemCell cell : this.record.getRedoLog().keySet()) {
+            
+            if (!this.validateWrite(cell)) {
+                
+                return false;
+            }
+        }
+        
+        CellSet primitiveWrites = this.record.getPrimitiveWrites();
+        
+        for (int i = 0; i < primitiveWrites.size(); i++) {
+            
+            if (primitiveWrites.cell(i).primitive().version() > this.record.getStartVersion()) {
+                
+                return false;
+            }
+        }
+        
+        SlotSet offHeapWrites = this.record.getOffHeapWrites();
+        
+        for (int i = 0; i < offHeapWrites.size(); i++) {
+            
+            if (this.manager.getOffHeap().version(offHeapWrites.slot(i)) > this.record.getStartVersion()) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * <p>
+     * Validates a writeSet member of a snapshot isolated transaction.
+     * 
+     * @param cell
+     *            The writeSet member
+     * 
+     * @return true if the `MemCell` was not committed by some other
+     *         transaction after the transaction started, else false
+     */
+    private boolean validateWrite(MemCell cell) {
+        
+        Versioned committed = cell.committed(this);
+        
+        return !Objects.isNull(committed) && committed.getVersion() <= this.record.getStartVersion();
+    }
+    
+    /**
+     * <p>
+     * Extends the start version of the transaction to the current version of
+     * the global version clock if its readSet is still valid. This lets the
+     * transaction read a `MemCell` that was updated after it started, instead
+     * of bailing out.
+     * 
+     * @return true if the start version was extended, else false
+     */
+    boolean extend() {
+        
+        long now = this.manager.now();
+        
+        if (this.validate()) {
+            
+            this.record.setStartVersion(now);
+            
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * <p>
+     * Releases the ownerships of all the writeSet member `MemCells`
+     */
+    void releaseOwnership() {
+        
+        CellSet writeCells = this.record.getWriteCells();
+        
+        for (int i = 0; i < writeCells.size(); i++) {
+            
+            // release ownership only if this transaction owns it
+            // this is to prevent race conditions
+            writeCells.cell(i).release(this);
+        }
+        
+        for (MemCell cell : this.record.getRedoLog().keySet()) {
+            
+            cell.release(this);
+        }
+        
+        CellSet primitiveWrites = this.record.getPrimitiveWrites();
+        
+        for (int i = 0; i < primitiveWrites.size(); i++) {
+            
+            primitiveWrites.cell(i).release(this);
+        }
+        
+        SlotSet offHeapWrites = this.record.getOffHeapWrites();
+        
+        for (int i = 0; i < offHeapWrites.size(); i++) {
+            
+            this.manager.getOffHeap().release(offHeapWrites.slot(i), this.id);
+        }
+        
+        CellSet primitiveDeltas = this.record.getPrimitiveDeltas();
+        
+        for (int i = 0; i < primitiveDeltas.size(); i++) {
+            
+            primitiveDeltas.cell(i).release(this);
+        }
+        
+        SlotSet offHeapDeltas = this.record.getOffHeapDeltas();
+        
+        for (int i = 0; i < offHeapDeltas.size(); i++) {
+            
+            this.manager.getOffHeap().release(offHeapDeltas.slot(i), this.id);
+        }
+        
+        CellSet locks = this.record.getLocks();
+        
+        for (int i = 0; i < locks.size(); i++) {
+            
+            locks.cell(i).release(this);
+        }
+        
+        SlotSet slotLocks = this.record.getSlotLocks();
+        
+        for (int i = 0; i < slotLocks.size(); i++) {
+            
+            this.manager.getOffHeap().release(slotLocks.slot(i), this.id);
+        }
+        
+        this.committingAt = 0L;
+    }
+    
+    /*** Book keeping methods **/
+    
+    /**
+     * <p>
+     * Adds the member <i>Variable</i> or `MemCell`s names to the writeSet of
+     * the transaction.
+     * 
+     * @param variableNames
+     *            The names of the `MemCell`s that this transaction intends to
+     *            modify/write
+     */
+    public final void addWriteSetMembers(String... variableNames) {
+        
+        Set<String> writeSet = this.record.getWriteSet();
+        
+        for (String variableName : variableNames) {
+            
+            writeSet.add(variableName);
+        }
     }
     
     /**
@@ -360,42 +1924,68 @@ public class Transaction extends Thread {
     // # for executing the transaction
     /**
      * <p>
-     * Executes the transaction, it takes the {@linkplain CountDownLatch} to
-     * make the calling thread wait till this transaction is done executing.
+     * Executes the transaction asynchronously by submitting it to the
+     * transaction runtime of its <i>StateManager</i>.
      * 
-     * @param latch
-     *            The countdown latch
+     * @return The outcome of the transaction, DONE if it committed, FAIL if its
+     *         operational logic failed
      */
-    public void execute(CountDownLatch latch) {
-        
-        this.setLatch(latch);
-        
-        this.start();
+    public CompletableFuture<TAction> executeAsync() {
         
         try {
             
-            this.join();
-        } catch (InterruptedException e) {
+            this.manager.getExecutor().execute(this);
+        } catch (RejectedExecutionException e) {
             
             logger.error(e.getMessage(), e);
+            
+            this.fail(e);
         }
+        
+        return this.outcome;
     }
     
     /**
      * <p>
-     * The simple transaction execution logic without a countdown latch
+     * Executes the transaction, it takes the {@linkplain CountDownLatch} that
+     * is counted down once this transaction is done executing. The calling
+     * thread doesn't wait for the transaction, it can wait on the latch
+     * instead.
+     * 
+     * @param latch
+     *            The countdown latch
      */
-    public void execute() {
+    public void execute(CountDownLatch latch) {
         
-        this.start();
+        this.setLatch(latch);
+        
+        this.executeAsync();
+    }
+    
+    /**
+     * <p>
+     * The simple transaction execution logic without a countdown latch, the
+     * calling thread waits till the transaction is done executing.
+     * 
+     * @return The outcome of the transaction, DONE if it committed, FAIL if its
+     *         operational logic failed
+     */
+    public TAction execute() {
         
         try {
             
-            this.join();
+            return this.executeAsync().get();
         } catch (InterruptedException e) {
             
             logger.error(e.getMessage(), e);
+            
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            
+            logger.error(e.getMessage(), e);
         }
+        
+        return TAction.FAIL;
     }
     // # for executing the transaction
 }
@@ -0,0 +1,473 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: TransactionMetrics.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 10:31:47 PM
+ */
+package foop.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import foop.utils.Histogram;
+import lombok.Getter;
+
+/**
+ * <p>
+ * The metrics of the transactions run by a <i>StateManager</i>: the commits,
+ * the aborts by {@link Abort} reason, the retries per transaction and the
+ * latencies of commit and of readSet validation.
+ * 
+ * <p>
+ * Recording a metric doesn't take a lock or allocate, so the metrics are
+ * always on. They can be read through the getters, or over JMX once
+ * {@link #register(String)} has been called.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.TransactionMetrics
+ *
+ */
+public class TransactionMetrics implements TransactionMetricsMBean {
+    
+    /**
+     * <p>
+     * The reasons an attempt of a transaction is aborted.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.TransactionMetrics.Abort
+     *
+     */
+    public static enum Abort {
+        
+        /**
+         * <p>
+         * An operation of the transaction returned {@link StateManager.TAction#FAIL},
+         * the transaction is not retried
+         */
+        OPERATION_FAIL,
+        
+        /**
+         * <p>
+         * The transaction ran into a `MemCell` owned by another transaction
+         */
+        OWNERSHIP_CONFLICT,
+        
+        /**
+         * <p>
+         * The transaction found that something it read was committed by
+         * another transaction, or is no longer kept
+         */
+        VALIDATION_FAILURE,
+        
+        /**
+         * <p>
+         * A pessimistic transaction came across a variable locked by another
+         * transaction and ordered before one it holds, it restarts to take
+         * its locks in order
+         */
+        LOCK_ORDER;
+    }
+    
+    private final LongAdder               commits           = new LongAdder();
+    private final Map<Abort, LongAdder>   aborts            = new EnumMap<>(Abort.class);
+    private final LongAdder               retries           = new LongAdder();
+    private final LongAdder               partialRollbacks  = new LongAdder();
+    private final LongAdder               queuedAttempts    = new LongAdder();
+    private final LongAdder               retryWaits        = new LongAdder();
+    private final LongAdder               droppedChanges    = new LongAdder();
+    private final LongAdder               pessimisticSwitches = new LongAdder();
+    private final LongAdder               optimisticSwitches  = new LongAdder();
+    
+    // a gauge, it is not reset
+    private final LongAdder               pessimisticVariables = new LongAdder();
+    
+    /**
+     * <p>
+     * The number of retries of each finished transaction
+     */
+    private final @Getter Histogram       retriesPerTransaction = new Histogram();
+    
+    /**
+     * <p>
+     * The time spent committing, in nanoseconds, for every commit attempt
+     * including the ones that failed
+     */
+    private final @Getter Histogram       commitLatency     = new Histogram();
+    
+    /**
+     * <p>
+     * The time spent validating at commit, in nanoseconds
+     */
+    private final @Getter Histogram       validationLatency = new Histogram();
+    
+    private volatile ObjectName           objectName;
+    
+    public TransactionMetrics() {
+        
+        for (Abort reason : Abort.values()) {
+            
+            this.aborts.put(reason, new LongAdder());
+        }
+    }
+    
+    /**
+     * <p>
+     * Records a commit of a transaction.
+     */
+    void committed() {
+        
+        this.commits.increment();
+    }
+    
+    /**
+     * <p>
+     * Records an aborted attempt of a transaction.
+     * 
+     * @param reason
+     *            The reason of the abort
+     */
+    void aborted(Abort reason) {
+        
+        this.aborts.get(reason).increment();
+    }
+    
+    /**
+     * <p>
+     * Records a nested transaction that was rolled back and retried alone,
+     * without aborting the transaction it is nested in.
+     */
+    void partiallyRolledBack() {
+        
+        this.partialRollbacks.increment();
+    }
+    
+    /**
+     * <p>
+     * Records an attempt of a transaction that waited for its turn on a hot
+     * variable, see {@link ConflictScheduler}.
+     */
+    void queued() {
+        
+        this.queuedAttempts.increment();
+    }
+    
+    /**
+     * <p>
+     * Records an attempt of a transaction that called
+     * {@link StateManager#retryT()} and waited for what it read to change.
+     */
+    void waited() {
+        
+        this.retryWaits.increment();
+    }
+    
+    /**
+     * <p>
+     * Records a committed change that a slow subscriber of a watch had no
+     * room for, see {@link StateManager#watch(String)}.
+     */
+    void droppedChange() {
+        
+        this.droppedChanges.increment();
+    }
+    
+    /**
+     * <p>
+     * Records a variable that the transactions lock from now on, see
+     * {@link AdaptiveControl}.
+     */
+    void switchedToPessimistic() {
+        
+        this.pessimisticSwitches.increment();
+        this.pessimisticVariables.increment();
+    }
+    
+    /**
+     * <p>
+     * Records a locked variable that went back to optimistic, see
+     * {@link AdaptiveControl}.
+     */
+    void switchedToOptimistic() {
+        
+        this.optimisticSwitches.increment();
+        this.pessimisticVariables.decrement();
+    }
+    
+    /**
+     * <p>
+     * Records a finished transaction along with the number of attempts it
+     * made.
+     * 
+     * @param attempts
+     *            The number of attempts the transaction made
+     */
+    void finished(int attempts) {
+        
+        long retried = Math.max(attempts - 1, 0);
+        
+        this.retries.add(retried);
+        this.retriesPerTransaction.record(retried);
+    }
+    
+    /**
+     * <p>
+     * Gets the number of aborted attempts for the reason
+     * 
+     * @param reason
+     *            The reason of the abort
+     * 
+     * @return the number of aborts
+     */
+    public long getAborts(Abort reason) {
+        
+        return this.aborts.get(reason).sum();
+    }
+    
+    @Override
+    public long getCommits() {
+        
+        return this.commits.sum();
+    }
+    
+    @Override
+    public long getAborts() {
+        
+        long total = 0;
+        
+        for (LongAdder count : this.aborts.values()) {
+            
+            total += count.sum();
+        }
+        
+        return total;
+    }
+    
+    @Override
+    public long getOperationFailures() {
+        
+        return this.getAborts(Abort.OPERATION_FAIL);
+    }
+    
+    @Override
+    public long getOwnershipConflicts() {
+        
+        return this.getAborts(Abort.OWNERSHIP_CONFLICT);
+    }
+    
+    @Override
+    public long getValidationFailures() {
+        
+        return this.getAborts(Abort.VALIDATION_FAILURE);
+    }
+    
+    @Override
+    public long getLockOrderRestarts() {
+        
+        return this.getAborts(Abort.LOCK_ORDER);
+    }
+    
+    @Override
+    public long getRetries() {
+        
+        return this.retries.sum();
+    }
+    
+    @Override
+    public long getPartialRollbacks() {
+        
+        return this.partialRollbacks.sum();
+    }
+    
+    @Override
+    public long getQueuedAttempts() {
+        
+        return this.queuedAttempts.sum();
+    }
+    
+    @Override
+    public long getRetryWaits() {
+        
+        return this.retryWaits.sum();
+    }
+    
+    @Override
+    public long getDroppedChanges() {
+        
+        return this.droppedChanges.sum();
+    }
+    
+    @Override
+    public long getPessimisticSwitches() {
+        
+        return this.pessimisticSwitches.sum();
+    }
+    
+    @Override
+    public long getOptimisticSwitches() {
+        
+        return this.optimisticSwitches.sum();
+    }
+    
+    @Override
+    public long getPessimisticVariables() {
+        
+        return this.pessimisticVariables.sum();
+    }
+    
+    @Override
+    public long getRetriesPerTransactionMax() {
+        
+        return this.retriesPerTransaction.getMax();
+    }
+    
+    @Override
+    public double getRetriesPerTransactionMean() {
+        
+        return this.retriesPerTransaction.getMean();
+    }
+    
+    @Override
+    public long getRetriesPerTransactionP99() {
+        
+        return this.retriesPerTransaction.getValueAtPercentile(99.0);
+    }
+    
+    @Override
+    public double getCommitLatencyMean() {
+        
+        return this.commitLatency.getMean();
+    }
+    
+    @Override
+    public long getCommitLatencyP50() {
+        
+        return this.commitLatency.getValueAtPercentile(50.0);
+    }
+    
+    @Override
+    public long getCommitLatencyP99() {
+        
+        return this.commitLatency.getValueAtPercentile(99.0);
+    }
+    
+    @Override
+    public long getCommitLatencyP999() {
+        
+        return this.commitLatency.getValueAtPercentile(99.9);
+    }
+    
+    @Override
+    public long getCommitLatencyMax() {
+        
+        return this.commitLatency.getMax();
+    }
+    
+    @Override
+    public double getValidationLatencyMean() {
+        
+        return this.validationLatency.getMean();
+    }
+    
+    @Override
+    public long getValidationLatencyP50() {
+        
+        return this.validationLatency.getValueAtPercentile(50.0);
+    }
+    
+    @Override
+    public long getValidationLatencyP99() {
+        
+        return this.validationLatency.getValueAtPercentile(99.0);
+    }
+    
+    @Override
+    public long getValidationLatencyP999() {
+        
+        return this.validationLatency.getValueAtPercentile(99.9);
+    }
+    
+    @Override
+    public long getValidationLatencyMax() {
+        
+        return this.validationLatency.getMax();
+    }
+    
+    @Override
+    public void reset() {
+        
+        this.commits.reset();
+        this.retries.reset();
+        this.partialRollbacks.reset();
+        this.queuedAttempts.reset();
+        this.retryWaits.reset();
+        this.droppedChanges.reset();
+        this.pessimisticSwitches.reset();
+        this.optimisticSwitches.reset();
+        
+        for (LongAdder count : this.aborts.values()) {
+            
+            count.reset();
+        }
+        
+        this.retriesPerTransaction.reset();
+        this.commitLatency.reset();
+        this.validationLatency.reset();
+    }
+    
+    /**
+     * <p>
+     * Registers the metrics with the platform MBean server as
+     * `foop:type=StateManager,name=&lt;name&gt;`.
+     * 
+     * @param name
+     *            The name the metrics are registered with
+     * 
+     * @return the name of the MBean
+     * 
+     * @throws JMException
+     *             if the metrics couldn't be registered, for eg. the name is
+     *             taken
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("foop:type=StateManager,name=" + ObjectName.quote(name));
+        
+        this.unregister();
+        
+        server.registerMBean(this, objectName);
+        
+        this.objectName = objectName;
+        
+        return objectName;
+    }
+    
+    /**
+     * <p>
+     * Unregisters the metrics from the platform MBean server, if they are
+     * registered.
+     * 
+     * @throws JMException
+     *             if the metrics couldn't be unregistered
+     */
+    public synchronized void unregister() throws JMException {
+        
+        if (!Objects.isNull(this.objectName)) {
+            
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+            
+            this.objectName = null;
+        }
+    }
+}
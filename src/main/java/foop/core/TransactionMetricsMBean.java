@@ -0,0 +1,78 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: TransactionMetricsMBean.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 10:24:05 PM
+ */
+package foop.core;
+
+/**
+ * <p>
+ * The JMX view of the {@link TransactionMetrics} of a <i>StateManager</i>.
+ * The latencies are in nanoseconds.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.TransactionMetricsMBean
+ *
+ */
+public interface TransactionMetricsMBean {
+    
+    long getCommits();
+    
+    long getAborts();
+    
+    long getOperationFailures();
+    
+    long getOwnershipConflicts();
+    
+    long getValidationFailures();
+    
+    long getLockOrderRestarts();
+    
+    long getRetries();
+    
+    long getPartialRollbacks();
+    
+    long getQueuedAttempts();
+    
+    long getRetryWaits();
+    
+    long getDroppedChanges();
+    
+    long getPessimisticSwitches();
+    
+    long getOptimisticSwitches();
+    
+    long getPessimisticVariables();
+    
+    long getRetriesPerTransactionMax();
+    
+    double getRetriesPerTransactionMean();
+    
+    long getRetriesPerTransactionP99();
+    
+    double getCommitLatencyMean();
+    
+    long getCommitLatencyP50();
+    
+    long getCommitLatencyP99();
+    
+    long getCommitLatencyP999();
+    
+    long getCommitLatencyMax();
+    
+    double getValidationLatencyMean();
+    
+    long getValidationLatencyP50();
+    
+    long getValidationLatencyP99();
+    
+    long getValidationLatencyP999();
+    
+    long getValidationLatencyMax();
+    
+    void reset();
+}
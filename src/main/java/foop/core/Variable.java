@@ -11,8 +11,10 @@ package foop.core;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
@@ -26,7 +28,7 @@ import lombok.Getter;
  * <p>
  * Separate `Object` from its `State` and `associate` them with each other with
  * the help of a table like data structure called a `stateTable`.
- *
+ * 
  * <br>
  * <br>
  * 
@@ -51,13 +53,23 @@ import lombok.Getter;
  */
 public class Variable {
     
-    // TODO :: Implement a proper id for Variables -- later
-    // not thought out completely yet, might add an identifier field
-    // in the future when polishing the model
-    // private int id;
-    
     private @Getter String      name;
     
+    /**
+     * <p>
+     * The id of the <i>Variable</i>, dense within the <i>StateManager</i> that
+     * made it. It is the id of its `MemCell`, or its slot if it is kept in the
+     * off-heap store, -1 if the <i>Variable</i> wasn't made by a StateManager.
+     */
+    private @Getter int         id   = -1;
+    
+    // the StateManager that made the Variable and its `MemCell` or its
+    // off-heap slot, so that it can be used as a handle without looking up
+    // its name
+    private @Getter(AccessLevel.PACKAGE) StateManager manager;
+    private @Getter(AccessLevel.PACKAGE) MemCell      cell;
+    private @Getter(AccessLevel.PACKAGE) int          slot = -1;
+    
     private Map<String, Object> immutableProperties;
     
     /**
@@ -95,6 +107,25 @@ public class Variable {
                 .forEach(prop -> this.immutableProperties.put(prop.getKey(), prop.getValue()));
     }
     
+    /**
+     * <p>
+     * Binds the <i>Variable</i> to its `MemCell` or its off-heap slot.
+     * 
+     * @param manager
+     *            The StateManager that made the <i>Variable</i>
+     * @param cell
+     *            The `MemCell`, null if the <i>Variable</i> is kept off-heap
+     * @param slot
+     *            The off-heap slot, -1 if the <i>Variable</i> has a `MemCell`
+     */
+    void bind(StateManager manager, MemCell cell, int slot) {
+        
+        this.cell = cell;
+        this.slot = slot;
+        this.id = Objects.isNull(cell) ? slot : cell.getId();
+        this.manager = manager;
+    }
+    
     /**
      * <p>
      * Gets you the value of the propery of the `Variable` if it exists else
@@ -0,0 +1,280 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: Waiters.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 9:34:50 AM
+ */
+package foop.core;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import foop.core.MemCell.Versioned;
+
+/**
+ * <p>
+ * Parks the transactions of a <i>StateManager</i> that called
+ * {@link StateManager#retryT()} till what they read changes, see
+ * {@link Transaction#awaitChange()}.
+ * 
+ * <p>
+ * A parked transaction waits on the variables of its readSet, and is woken by
+ * the first commit that updates one of them. It registers before it checks
+ * that they are unchanged, and a commit looks for the waiters after it
+ * published its updates, so a commit in between is never missed. A snapshot
+ * reader keeps no readSet, it waits for the next commit of any variable.
+ * 
+ * <p>
+ * Committing costs a single volatile read while no transaction is parked.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.Waiters
+ *
+ */
+final class Waiters {
+    
+    /**
+     * <p>
+     * A parked transaction.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.Waiters.Waiter
+     *
+     */
+    static final class Waiter {
+        
+        private final Thread     thread = Thread.currentThread();
+        
+        private volatile boolean woken;
+    }
+    
+    // the name of a variable the waiters of any commit are registered with
+    private static final String                    ANY     = "";
+    
+    private final ConcurrentMap<String, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+    
+    // the number of parked transactions
+    private final AtomicInteger                    parked  = new AtomicInteger();
+    
+    private final StateManager                     manager;
+    
+    /**
+     * @param manager
+     *            The <i>StateManager</i> of the transactions
+     */
+    Waiters(StateManager manager) {
+        
+        this.manager = manager;
+    }
+    
+    /**
+     * <p>
+     * Parks the transaction till one of the variables it read is committed by
+     * another transaction. The transaction is rolled back, but its record
+     * still holds the versions it read.
+     * 
+     * @param t
+     *            The transaction
+     * 
+     * @return true once what the transaction read changed, false if its
+     *         thread was interrupted while waiting
+     */
+    boolean await(Transaction t) {
+        
+        Set<String> names = names(t);
+        Waiter waiter = new Waiter();
+        
+        this.parked.incrementAndGet();
+        
+        for (String variableName : names) {
+            
+            this.waiters.computeIfAbsent(variableName, n -> ConcurrentHashMap.newKeySet()).add(waiter);
+        }
+        
+        try {
+            
+            // a commit before the waiter was registered isn't missed
+            while (!waiter.woken && !this.changed(t, names)) {
+                
+                if (Thread.currentThread().isInterrupted()) {
+                    
+                    return false;
+                }
+                
+                LockSupport.park(this);
+            }
+            
+            return true;
+        } finally {
+            
+            for (String variableName : names) {
+                
+                Set<Waiter> registered = this.waiters.get(variableName);
+                
+                if (!Objects.isNull(registered)) {
+                    
+                    registered.remove(waiter);
+                }
+            }
+            
+            this.parked.decrementAndGet();
+        }
+    }
+    
+    /**
+     * <p>
+     * Wakes the transactions waiting on the variables the transaction just
+     * committed.
+     * 
+     * @param t
+     *            The transaction, after it published its updates
+     */
+    void committed(Transaction t) {
+        
+        if (this.parked.get() == 0 || !t.hasUpdates()) {
+            
+            return;
+        }
+        
+        this.wake(ANY);
+        
+        Record record = t.getRecord();
+        
+        for (MemCell cell : record.getRedoLog().keySet()) {
+            
+            this.wake(cell.getName());
+        }
+        
+        this.wake(record.getWriteCells());
+        this.wake(record.getPrimitiveWrites());
+        this.wake(record.getPrimitiveDeltas());
+        this.wake(record.getOffHeapWrites());
+        this.wake(record.getOffHeapDeltas());
+    }
+    
+    private void wake(CellSet cells) {
+        
+        for (int i = 0; i < cells.size(); i++) {
+            
+            this.wake(cells.cell(i).getName());
+        }
+    }
+    
+    private void wake(SlotSet slots) {
+        
+        for (int i = 0; i < slots.size(); i++) {
+            
+            this.wake(this.manager.getOffHeap().name(slots.slot(i)));
+        }
+    }
+    
+    private void wake(String variableName) {
+        
+        Set<Waiter> registered = this.waiters.get(variableName);
+        
+        if (Objects.isNull(registered)) {
+            
+            return;
+        }
+        
+        for (Waiter waiter : registered) {
+            
+            waiter.woken = true;
+            
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+    
+    /**
+     * <p>
+     * Gets the names of the variables the transaction waits on, the ones it
+     * read.
+     */
+    private Set<String> names(Transaction t) {
+        
+        Record record = t.getRecord();
+        Set<String> names = new TreeSet<>();
+        
+        for (CellSet cells : new CellSet[] { record.getReadVersions(), record.getPrimitiveReads() }) {
+            
+            for (int i = 0; i < cells.size(); i++) {
+                
+                names.add(cells.cell(i).getName());
+            }
+        }
+        
+        SlotSet offHeapReads = record.getOffHeapReads();
+        
+        for (int i = 0; i < offHeapReads.size(); i++) {
+            
+            names.add(this.manager.getOffHeap().name(offHeapReads.slot(i)));
+        }
+        
+        if (names.isEmpty()) {
+            
+            // a snapshot reader waits for the next commit
+            names.add(ANY);
+        }
+        
+        return names;
+    }
+    
+    /**
+     * <p>
+     * Checks if a variable the transaction read was committed since.
+     */
+    private boolean changed(Transaction t, Set<String> names) {
+        
+        Record record = t.getRecord();
+        
+        if (names.contains(ANY)) {
+            
+            return this.manager.now() > record.getStartVersion();
+        }
+        
+        CellSet readVersions = record.getReadVersions();
+        
+        for (int i = 0; i < readVersions.size(); i++) {
+            
+            Versioned v = readVersions.cell(i).getHead();
+            
+            // an update that is not committed yet wakes the waiters once it is
+            if ((v.isCommitted() ? v : v.getPrev()).getVersion() != readVersions.value(i)) {
+                
+                return true;
+            }
+        }
+        
+        CellSet primitiveReads = record.getPrimitiveReads();
+        
+        for (int i = 0; i < primitiveReads.size(); i++) {
+            
+            if (primitiveReads.cell(i).primitive().version() != primitiveReads.value(i)) {
+                
+                return true;
+            }
+        }
+        
+        SlotSet offHeapReads = record.getOffHeapReads();
+        OffHeapStore offHeap = this.manager.getOffHeap();
+        
+        for (int i = 0; i < offHeapReads.size(); i++) {
+            
+            if (offHeap.version(offHeapReads.slot(i)) != offHeapReads.value(i)) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+}
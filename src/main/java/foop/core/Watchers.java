@@ -0,0 +1,245 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: Watchers.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 10:34:12 AM
+ */
+package foop.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.utils.NamedThreadFactory;
+
+/**
+ * <p>
+ * Publishes the committed updates of the variables of a <i>StateManager</i>
+ * to the subscribers of its watches, see {@link StateManager#watch(String)}.
+ * 
+ * <p>
+ * A committing transaction hands its updates over as one batch to a lock-free
+ * queue, it never waits for a subscriber nor runs any of their code. While
+ * nothing is watched, committing costs a single volatile read. A background
+ * thread drains the queue every {@link #INTERVAL} milliseconds and offers the
+ * changes to the watches that match them.
+ * 
+ * <p>
+ * Every watch is a {@link SubmissionPublisher}: a subscriber gets the changes
+ * on the executor of the <i>StateManager</i>, as many as it requested, and
+ * up to {@link #CAPACITY} changes are buffered for it. The changes a slow
+ * subscriber has no room for are dropped and counted in the
+ * {@link TransactionMetrics}, they never hold up the commits. The changes of
+ * a variable are offered in the order they were committed in, since a
+ * transaction hands them over before it releases the variable.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.Watchers
+ *
+ */
+final class Watchers {
+    
+    /**
+     * <p>
+     * A watch, publishes the changes of the variables its filter matches.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.core.Watchers.Watch
+     *
+     */
+    static final class Watch extends SubmissionPublisher<Change> {
+        
+        private final Predicate<String> filter;
+        
+        Watch(Executor executor, Predicate<String> filter) {
+            
+            super(executor, CAPACITY);
+            
+            this.filter = filter;
+        }
+    }
+    
+    private static final Logger           logger   = LoggerFactory.getLogger(Watchers.class);
+    
+    // how often the committed changes are dispatched
+    static final long                     INTERVAL = 5L;
+    
+    // the changes buffered per subscriber
+    static final int                      CAPACITY = Flow.defaultBufferSize();
+    
+    private final List<Watch>             watches  = new CopyOnWriteArrayList<>();
+    
+    // the changes of each commit, till they are dispatched
+    private final Queue<Change[]>         pending  = new ConcurrentLinkedQueue<>();
+    
+    private volatile boolean              watched;
+    
+    private ScheduledExecutorService      dispatcher;
+    
+    private final StateManager            manager;
+    
+    /**
+     * @param manager
+     *            The <i>StateManager</i> whose variables are watched
+     */
+    Watchers(StateManager manager) {
+        
+        this.manager = manager;
+    }
+    
+    /**
+     * <p>
+     * Checks if any variable is watched, a committing transaction only hands
+     * over its updates then.
+     * 
+     * @return true if there is a watch, else false
+     */
+    boolean isWatched() {
+        
+        return this.watched;
+    }
+    
+    /**
+     * <p>
+     * Makes a watch of the variables that the filter matches. The dispatcher
+     * is started with the first watch.
+     * 
+     * @param filter
+     *            Matches the names of the watched variables
+     * 
+     * @return the watch
+     */
+    synchronized Flow.Publisher<Change> watch(Predicate<String> filter) {
+        
+        Watch watch = new Watch(this.manager.getExecutor(), filter);
+        
+        if (Objects.isNull(this.dispatcher)) {
+            
+            // left over from commits made while the last watch was removed
+            this.pending.clear();
+            
+            this.dispatcher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("foop-watch"));
+            this.dispatcher.scheduleWithFixedDelay(this::dispatch, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        
+        this.watches.add(watch);
+        this.watched = true;
+        
+        return watch;
+    }
+    
+    /**
+     * <p>
+     * Removes the watch, its subscribers get the changes dispatched so far
+     * and then complete. The dispatcher is stopped with the last watch.
+     * 
+     * @param publisher
+     *            The watch
+     * 
+     * @return true if the watch was removed, false if it isn't a watch
+     */
+    synchronized boolean unwatch(Flow.Publisher<Change> publisher) {
+        
+        if (!this.watches.contains(publisher)) {
+            
+            return false;
+        }
+        
+        // the changes committed till now still reach the watch
+        this.dispatch();
+        
+        this.watches.remove(publisher);
+        
+        ((Watch) publisher).close();
+        
+        if (this.watches.isEmpty()) {
+            
+            this.watched = false;
+            
+            this.dispatcher.shutdown();
+            this.dispatcher = null;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * <p>
+     * Hands over the updates a transaction committed, called while it still
+     * owns the variables.
+     * 
+     * @param commitVersion
+     *            The commit version
+     * @param updates
+     *            The committed states by the names of the variables
+     */
+    void committed(long commitVersion, Map<String, State> updates) {
+        
+        Change[] changes = new Change[updates.size()];
+        int i = 0;
+        
+        for (Map.Entry<String, State> update : updates.entrySet()) {
+            
+            changes[i++] = new Change(update.getKey(), commitVersion, update.getValue());
+        }
+        
+        this.pending.offer(changes);
+    }
+    
+    /**
+     * <p>
+     * Offers the pending changes to the watches that match them.
+     */
+    private synchronized void dispatch() {
+        
+        Change[] changes;
+        
+        while (!Objects.isNull(changes = this.pending.poll())) {
+            
+            for (Watch watch : this.watches) {
+                
+                if (!watch.hasSubscribers()) {
+                    
+                    continue;
+                }
+                
+                for (Change change : changes) {
+                    
+                    try {
+                        
+                        if (watch.filter.test(change.getName())) {
+                            
+                            watch.offer(change, (subscriber, dropped) -> {
+                                
+                                this.manager.getMetrics().droppedChange();
+                                
+                                return false;
+                            });
+                        }
+                    } catch (RuntimeException e) {
+                        
+                        // a faulty filter doesn't stop the dispatcher
+                        logger.error(e.getMessage(), e);
+                    }
+                }
+            }
+        }
+    }
+}
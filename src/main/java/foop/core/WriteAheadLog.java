@@ -0,0 +1,712 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.core
+ * File: WriteAheadLog.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 11:48:52 PM
+ */
+package foop.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager.Durability;
+import foop.utils.NamedThreadFactory;
+import lombok.Getter;
+
+/**
+ * <p>
+ * The write-ahead log of a <i>StateManager</i>. Every commit that updates
+ * `MemCell`s appends a commit record holding its commit version and the new
+ * states of its writeSet members, the log is replayed to rebuild the
+ * `MemCell`s when the StateManager starts again.
+ * 
+ * <p>
+ * Appending a record only copies it into a buffer. The buffer is written to
+ * the file and forced to the disk by whichever committer needs its record to
+ * be durable first, the records appended while a force is running are made
+ * durable together by the next force. So concurrent commits share a single
+ * fsync instead of paying for one each.
+ * 
+ * <p>
+ * A record is laid out as its length, the CRC32 of its payload and the
+ * payload. A torn record at the end of the log, left behind by a crash in the
+ * middle of a write, is dropped when the log is recovered.
+ * 
+ * <p>
+ * The positions in the log keep growing, but the file only holds the records
+ * that are not in a checkpoint yet. It starts with the position of its first
+ * record, and is cut down to the records after the position of a checkpoint
+ * once the checkpoint is written, see {@link #truncate(long)}.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.core.WriteAheadLog
+ *
+ */
+final class WriteAheadLog implements Closeable {
+    
+    private static final Logger            logger         = LoggerFactory.getLogger(WriteAheadLog.class);
+    
+    // the length and the CRC32 of a record
+    private static final int               HEADER         = 8;
+    
+    // the magic number and the position of the first record of the file
+    private static final long              MAGIC          = 0x666f6f7057414c31L;
+    private static final int               FILE_HEADER    = 2 * Long.BYTES;
+    
+    // how often the records of asynchronous commits are forced to the disk
+    static final long                      ASYNC_INTERVAL = 10L;
+    
+    private final Path                     path;
+    
+    // replaced when the log is truncated
+    private volatile FileChannel           channel;
+    
+    // the position of the first record of the file
+    private volatile long                  base;
+    
+    /**
+     * <p>
+     * How long the committers wait for their records to be durable
+     */
+    private final @Getter Durability       durability;
+    
+    private final ReentrantLock            lock           = new ReentrantLock();
+    private final Condition                forced         = this.lock.newCondition();
+    
+    // the records appended but not written yet
+    private ByteArrayOutputStream          pending        = new ByteArrayOutputStream();
+    
+    // the end of the last appended record and of the last durable record,
+    // they are the log sequence numbers of the records
+    private long                           appended;
+    private long                           durable;
+    
+    private boolean                        forcing;
+    private IOException                    failure;
+    
+    private final ScheduledExecutorService flusher;
+    
+    /**
+     * <p>
+     * Opens the log for appending after its end, the log must have been
+     * recovered.
+     * 
+     * @param path
+     *            The log file
+     * @param channel
+     *            The open log file
+     * @param base
+     *            The position of the first record of the file
+     * @param end
+     *            The end of the last good record in the file
+     * @param durability
+     *            How long the committers wait for their records to be durable
+     */
+    private WriteAheadLog(Path path, FileChannel channel, long base, long end, Durability durability)
+            throws IOException {
+        
+        this.path = path;
+        this.channel = channel;
+        this.base = base;
+        this.durability = durability;
+        this.appended = base + end - FILE_HEADER;
+        this.durable = this.appended;
+        
+        // drop the torn record at the end, if any
+        this.channel.truncate(end);
+        this.channel.position(end);
+        
+        if (durability == Durability.ASYNC) {
+            
+            this.flusher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("foop-wal"));
+            this.flusher.scheduleWithFixedDelay(this::flushQuietly, ASYNC_INTERVAL, ASYNC_INTERVAL,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            
+            this.flusher = null;
+        }
+    }
+    
+    /**
+     * <p>
+     * Opens the log, replaying its commit records into the `MemCell`s of the
+     * <i>StateManager</i> first.
+     * 
+     * @param manager
+     *            The StateManager whose `MemCell`s are rebuilt
+     * @param path
+     *            The log file, it is made if it doesn't exist
+     * @param from
+     *            Where to start replaying, the position recorded by the latest
+     *            checkpoint or 0
+     * @param durability
+     *            How long the committers wait for their records to be durable
+     * 
+     * @return the log, open for appending
+     * 
+     * @throws IOException
+     *             if the log couldn't be read or opened
+     */
+    static WriteAheadLog open(StateManager manager, Path path, long from, Durability durability)
+            throws IOException {
+        
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        
+        try {
+            
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            
+            if (channel.size() == 0) {
+                
+                header.putLong(MAGIC).putLong(0L).flip();
+                
+                while (header.hasRemaining()) {
+                    
+                    channel.write(header, header.position());
+                }
+                
+                channel.force(true);
+            } else if (channel.size() < FILE_HEADER) {
+                
+                throw new IOException(path + " is not a write-ahead log");
+            } else {
+                
+                readFully(channel, header, 0L);
+            }
+            
+            header.flip();
+            
+            if (header.getLong() != MAGIC) {
+                
+                throw new IOException(path + " is not a write-ahead log");
+            }
+            
+            long base = header.getLong();
+            
+            if (from < base) {
+                
+                throw new IOException("The write-ahead log " + path + " starts after its checkpoint");
+            }
+            
+            if (FILE_HEADER + from - base > channel.size()) {
+                
+                throw new IOException("The write-ahead log " + path + " is behind its checkpoint");
+            }
+            
+            long end = replay(channel, FILE_HEADER + from - base, manager);
+            
+            return new WriteAheadLog(path, channel, base, end, durability);
+        } catch (IOException | RuntimeException e) {
+            
+            channel.close();
+            
+            throw e;
+        }
+    }
+    
+    /**
+     * <p>
+     * Replays the commit records of the log from the position on, applying
+     * the states that are newer than the ones in the `MemCell`s.
+     * 
+     * @param channel
+     *            The log file
+     * @param position
+     *            Where to start replaying in the file
+     * @param manager
+     *            The StateManager whose `MemCell`s are rebuilt
+     * 
+     * @return the end of the last good record in the file
+     * 
+     * @throws IOException
+     *             if the log couldn't be read
+     */
+    static long replay(FileChannel channel, long position, StateManager manager) throws IOException {
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        long size = channel.size();
+        long records = 0;
+        
+        while (position + HEADER <= size) {
+            
+            header.clear();
+            
+            readFully(channel, header, position);
+            
+            header.flip();
+            
+            int length = header.getInt();
+            int checksum = header.getInt();
+            
+            if (length <= 0 || position + HEADER + length > size) {
+                
+                break;
+            }
+            
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            
+            readFully(channel, payload, position + HEADER);
+            
+            CRC32 crc = new CRC32();
+            
+            crc.update(payload.array(), 0, length);
+            
+            if ((int) crc.getValue() != checksum) {
+                
+                break;
+            }
+            
+            apply(manager, payload.array());
+            
+            position += HEADER + length;
+            records++;
+        }
+        
+        logger.info(String.format("Replayed %d commit records of the write-ahead log", records));
+        
+        return position;
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        
+        while (buffer.hasRemaining()) {
+            
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                
+                throw new IOException("Unexpected end of the write-ahead log");
+            }
+        }
+    }
+    
+    /**
+     * <p>
+     * Applies a commit record to the `MemCell`s of the <i>StateManager</i>
+     */
+    private static void apply(StateManager manager, byte[] payload) throws IOException {
+        
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            
+            long version = in.readLong();
+            int count = in.readInt();
+            
+            for (int i = 0; i < count; i++) {
+                
+                String variableName = in.readUTF();
+                State state = (State) in.readObject();
+                
+                manager.recover(variableName, state, version);
+            }
+        } catch (ClassNotFoundException e) {
+            
+            throw new IOException(e);
+        }
+    }
+    
+    /**
+     * <p>
+     * Appends the commit record of a transaction.
+     * 
+     * @param version
+     *            The commit version
+     * @param updates
+     *            The new states of the writeSet members keyed by their names
+     * 
+     * @return the log sequence number of the record, to wait for it to be
+     *         durable
+     * 
+     * @throws UncheckedIOException
+     *             if the log has failed or is closed
+     */
+    long append(long version, Map<String, State> updates) {
+        
+        byte[] record = encode(version, updates);
+        
+        this.lock.lock();
+        
+        try {
+            
+            this.check();
+            
+            this.pending.write(record, 0, record.length);
+            this.appended += record.length;
+            
+            return this.appended;
+        } finally {
+            
+            this.lock.unlock();
+        }
+    }
+    
+    private static byte[] encode(long version, Map<String, State> updates) {
+        
+        try {
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            
+            // room for the header
+            bytes.write(new byte[HEADER]);
+            
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                
+                out.writeLong(version);
+                out.writeInt(updates.size());
+                
+                for (Map.Entry<String, State> update : updates.entrySet()) {
+                    
+                    out.writeUTF(update.getKey());
+                    out.writeObject(update.getValue());
+                }
+            }
+            
+            byte[] record = bytes.toByteArray();
+            
+            CRC32 crc = new CRC32();
+            
+            crc.update(record, HEADER, record.length - HEADER);
+            
+            ByteBuffer.wrap(record).putInt(record.length - HEADER).putInt((int) crc.getValue());
+            
+            return record;
+        } catch (IOException e) {
+            
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * <p>
+     * Waits for a record to be durable before it is published, in the
+     * {@link Durability#SYNC} mode.
+     * 
+     * @param lsn
+     *            The log sequence number of the record
+     */
+    void beforePublish(long lsn) {
+        
+        if (this.durability == Durability.SYNC) {
+            
+            this.await(lsn);
+        }
+    }
+    
+    /**
+     * <p>
+     * Waits for a record to be durable after it was published, in the
+     * {@link Durability#GROUP} mode.
+     * 
+     * @param lsn
+     *            The log sequence number of the record
+     */
+    void afterPublish(long lsn) {
+        
+        if (this.durability == Durability.GROUP) {
+            
+            this.await(lsn);
+        }
+    }
+    
+    /**
+     * <p>
+     * Waits till the record is durable. If no force is running, the caller
+     * writes and forces all the appended records itself, else it waits for the
+     * running force and checks again.
+     * 
+     * @param lsn
+     *            The log sequence number of the record
+     * 
+     * @throws UncheckedIOException
+     *             if the record couldn't be made durable
+     */
+    void await(long lsn) {
+        
+        this.lock.lock();
+        
+        try {
+            
+            while (this.durable < lsn) {
+                
+                this.check();
+                
+                if (this.forcing) {
+                    
+                    this.forced.awaitUninterruptibly();
+                } else {
+                    
+                    this.force();
+                }
+            }
+        } finally {
+            
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * <p>
+     * Writes and forces the appended records, the lock is held on entry and on
+     * return but not while writing.
+     */
+    private void force() {
+        
+        ByteArrayOutputStream batch = this.pending;
+        long end = this.appended;
+        
+        this.pending = new ByteArrayOutputStream();
+        this.forcing = true;
+        
+        this.lock.unlock();
+        
+        IOException error = null;
+        
+        try {
+            
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+            
+            while (buffer.hasRemaining()) {
+                
+                this.channel.write(buffer);
+            }
+            
+            this.channel.force(false);
+        } catch (IOException e) {
+            
+            error = e;
+        } finally {
+            
+            this.lock.lock();
+        }
+        
+        this.forcing = false;
+        
+        if (Objects.isNull(error)) {
+            
+            this.durable = end;
+        } else {
+            
+            logger.error("The write-ahead log failed, no more commits can be made durable", error);
+            
+            this.failure = error;
+        }
+        
+        this.forced.signalAll();
+    }
+    
+    private void check() {
+        
+        if (!Objects.isNull(this.failure)) {
+            
+            throw new UncheckedIOException("The write-ahead log has failed", this.failure);
+        }
+    }
+    
+    /**
+     * <p>
+     * Forces the records of asynchronous commits to the disk
+     */
+    private void flushQuietly() {
+        
+        try {
+            
+            this.flush();
+        } catch (UncheckedIOException e) {
+            
+            // already logged when the log failed
+        }
+    }
+    
+    /**
+     * <p>
+     * Gets the position of the end of the log, the commit records appended
+     * afterwards start at or after it.
+     * 
+     * @return the log sequence number of the last appended record
+     */
+    long position() {
+        
+        this.lock.lock();
+        
+        try {
+            
+            return this.appended;
+        } finally {
+            
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * <p>
+     * Drops the records before the position from the file, they are in a
+     * checkpoint. The records after it are copied into a new file that
+     * replaces the log, most of them while the commits keep going and the
+     * rest while the appends wait. A crash while the log is truncated leaves
+     * the old file intact.
+     * 
+     * @param position
+     *            The position of the checkpoint, the records from it on are
+     *            kept
+     * 
+     * @throws IOException
+     *             if the log couldn't be truncated
+     */
+    void truncate(long position) throws IOException {
+        
+        if (position <= this.base) {
+            
+            return;
+        }
+        
+        Path temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            
+            header.putLong(MAGIC).putLong(position).flip();
+            
+            while (header.hasRemaining()) {
+                
+                out.write(header);
+            }
+            
+            // the records written so far
+            long copied = copy(this.channel, FILE_HEADER + position - this.base, this.channel.position(), out);
+            
+            this.lock.lock();
+            
+            try {
+                
+                // the forces write to the old file till it is replaced
+                while (this.forcing) {
+                    
+                    this.forced.awaitUninterruptibly();
+                }
+                
+                this.check();
+                
+                // the records written since, the ones appended but not
+                // written yet go to the new file
+                copy(this.channel, copied, this.channel.position(), out);
+                
+                out.force(true);
+                
+                Files.move(temporary, this.path, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                
+                FileChannel old = this.channel;
+                
+                this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.channel.position(this.channel.size());
+                this.base = position;
+                
+                old.close();
+            } finally {
+                
+                this.lock.unlock();
+            }
+        }
+        
+        logger.info(String.format("Truncated the write-ahead log to the records from %d", position));
+    }
+    
+    /**
+     * <p>
+     * Copies a part of the file to the end of another file.
+     * 
+     * @return the end of the copied part
+     */
+    private static long copy(FileChannel channel, long from, long to, FileChannel out) throws IOException {
+        
+        while (from < to) {
+            
+            from += channel.transferTo(from, to - from, out);
+        }
+        
+        return to;
+    }
+    
+    /**
+     * <p>
+     * Makes all the records appended so far durable
+     * 
+     * @throws UncheckedIOException
+     *             if the records couldn't be made durable
+     */
+    void flush() {
+        
+        this.await(this.position());
+    }
+    
+    /**
+     * <p>
+     * Makes all the records appended so far durable and closes the log, no
+     * more records can be appended.
+     */
+    @Override
+    public void close() throws IOException {
+        
+        if (!Objects.isNull(this.flusher)) {
+            
+            this.flusher.shutdown();
+            
+            try {
+                
+                this.flusher.awaitTermination(1L, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        try {
+            
+            this.flush();
+        } catch (UncheckedIOException e) {
+            
+            throw e.getCause();
+        } finally {
+            
+            this.lock.lock();
+            
+            try {
+                
+                if (Objects.isNull(this.failure)) {
+                    
+                    this.failure = new IOException("The write-ahead log is closed");
+                }
+            } finally {
+                
+                this.lock.unlock();
+            }
+            
+            this.channel.close();
+        }
+    }
+}
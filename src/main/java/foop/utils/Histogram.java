@@ -0,0 +1,196 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.utils
+ * File: Histogram.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 10:12:36 PM
+ */
+package foop.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * A concurrent histogram of non-negative long values in the style of an HDR
+ * histogram. The values are counted in log-linear buckets, each power of two
+ * is split into {@link #SUB_BUCKETS} buckets of equal width, so the value
+ * reported for a percentile is within 12.5% of the recorded value whatever
+ * its magnitude.
+ * 
+ * <p>
+ * Recording a value doesn't allocate or take a lock, it is a few bit
+ * operations and an atomic increment. Reading the histogram while values are
+ * being recorded gives an approximate view.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.utils.Histogram
+ *
+ */
+public class Histogram {
+    
+    // the number of bits of a value below its leading bit that pick its
+    // bucket
+    private static final int     SUB_BITS    = 3;
+    
+    /**
+     * <p>
+     * The number of buckets each power of two is split into
+     */
+    public static final int      SUB_BUCKETS = 1 << SUB_BITS;
+    
+    // enough buckets for every non-negative long
+    private static final int     BUCKETS     = (64 - SUB_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts     = new AtomicLongArray(BUCKETS);
+    private final LongAdder      count      = new LongAdder();
+    private final LongAdder      sum        = new LongAdder();
+    private final LongAccumulator max       = new LongAccumulator(Math::max, 0L);
+    
+    /**
+     * <p>
+     * Gets the bucket a value is counted in.
+     * 
+     * @param value
+     *            The value, non-negative
+     * 
+     * @return the index of the bucket
+     */
+    static int bucket(long value) {
+        
+        if (value < 2 * SUB_BUCKETS) {
+            
+            return (int) value;
+        }
+        
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+    
+    /**
+     * <p>
+     * Gets the highest value counted in a bucket.
+     * 
+     * @param bucket
+     *            The index of the bucket
+     * 
+     * @return the highest value of the bucket
+     */
+    static long highest(int bucket) {
+        
+        if (bucket < 2 * SUB_BUCKETS) {
+            
+            return bucket;
+        }
+        
+        int magnitude = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - SUB_BITS);
+        
+        return lowest + (1L << (magnitude - SUB_BITS)) - 1;
+    }
+    
+    /**
+     * <p>
+     * Records a value, negative values are recorded as 0.
+     * 
+     * @param value
+     *            The value
+     */
+    public void record(long value) {
+        
+        long v = Math.max(value, 0L);
+        
+        this.counts.incrementAndGet(bucket(v));
+        this.count.increment();
+        this.sum.add(v);
+        this.max.accumulate(v);
+    }
+    
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        
+        return this.count.sum();
+    }
+    
+    /**
+     * @return the largest recorded value, 0 if nothing was recorded
+     */
+    public long getMax() {
+        
+        return this.max.get();
+    }
+    
+    /**
+     * @return the mean of the recorded values, 0 if nothing was recorded
+     */
+    public double getMean() {
+        
+        long n = this.count.sum();
+        
+        return n == 0 ? 0.0 : (double) this.sum.sum() / n;
+    }
+    
+    /**
+     * <p>
+     * Gets the value at the given percentile, the highest value of the bucket
+     * the percentile falls in, capped by the largest recorded value.
+     * 
+     * @param percentile
+     *            The percentile, between 0 and 100
+     * 
+     * @return the value at the percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        
+        long total = 0;
+        
+        for (int i = 0; i < BUCKETS; i++) {
+            
+            total += this.counts.get(i);
+        }
+        
+        if (total == 0) {
+            
+            return 0L;
+        }
+        
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(Math.max(percentile, 0.0), 100.0) / 100.0 * total));
+        long seen = 0;
+        
+        for (int i = 0; i < BUCKETS; i++) {
+            
+            seen += this.counts.get(i);
+            
+            if (seen >= rank) {
+                
+                return Math.min(highest(i), this.getMax());
+            }
+        }
+        
+        return this.getMax();
+    }
+    
+    /**
+     * <p>
+     * Clears the recorded values. Values recorded while the histogram is being
+     * cleared may or may not be kept.
+     */
+    public void reset() {
+        
+        for (int i = 0; i < BUCKETS; i++) {
+            
+            this.counts.set(i, 0L);
+        }
+        
+        this.count.reset();
+        this.sum.reset();
+        this.max.reset();
+    }
+}
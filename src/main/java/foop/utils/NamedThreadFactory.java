@@ -0,0 +1,53 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.utils
+ * File: NamedThreadFactory.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 7:45:12 PM
+ */
+package foop.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Makes daemon threads named after a prefix followed by a sequence number, so
+ * that pooled threads don't keep the JVM alive and are easy to spot in logs.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.utils.NamedThreadFactory
+ *
+ */
+public class NamedThreadFactory implements ThreadFactory {
+    
+    private final String        prefix;
+    
+    private final AtomicInteger sequence = new AtomicInteger(0);
+    
+    /**
+     * @param prefix
+     *            The prefix of the thread names
+     */
+    public NamedThreadFactory(String prefix) {
+        
+        this.prefix = prefix;
+    }
+    
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+     */
+    @Override
+    public Thread newThread(Runnable r) {
+        
+        Thread thread = new Thread(r, String.format("%s-%d", this.prefix, this.sequence.incrementAndGet()));
+        
+        thread.setDaemon(true);
+        
+        return thread;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.utils
+ * File: VirtualThreads.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 8:02:37 PM
+ */
+package foop.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>
+ * Provides access to virtual threads when the running JVM supports them
+ * (Java 21 onwards). The project is compiled against older Java versions, so
+ * the virtual thread executor is looked up reflectively, once.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.utils.VirtualThreads
+ *
+ */
+public final class VirtualThreads {
+    
+    /**
+     * <p>
+     * The handle to `Executors.newVirtualThreadPerTaskExecutor()`, null when
+     * the JVM doesn't support virtual threads.
+     */
+    private static final MethodHandle NEW_EXECUTOR = lookup();
+    
+    private VirtualThreads() {}
+    
+    /**
+     * <p>
+     * Checks if the running JVM supports virtual threads.
+     * 
+     * @return true if virtual threads are supported, else false
+     */
+    public static boolean isSupported() {
+        
+        return !Objects.isNull(NEW_EXECUTOR);
+    }
+    
+    /**
+     * <p>
+     * Makes an executor that starts a new virtual thread for each task.
+     * 
+     * @return The virtual thread per task executor
+     * 
+     * @throws UnsupportedOperationException
+     *             if the JVM doesn't support virtual threads
+     */
+    public static ExecutorService newExecutor() {
+        
+        if (!isSupported()) {
+            
+            throw new UnsupportedOperationException(String.format(
+                    "Virtual threads need Java 21 or later, running on Java %s", System.getProperty("java.version")));
+        }
+        
+        try {
+            
+            return (ExecutorService) NEW_EXECUTOR.invoke();
+        } catch (Throwable e) {
+            
+            throw new UnsupportedOperationException("Couldn't make the virtual thread executor", e);
+        }
+    }
+    
+    /**
+     * <p>
+     * Looks up the virtual thread executor factory.
+     * 
+     * @return The method handle of the factory, null if it doesn't exist
+     */
+    private static MethodHandle lookup() {
+        
+        try {
+            
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            
+            return null;
+        }
+    }
+}
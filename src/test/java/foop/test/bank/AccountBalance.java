@@ -24,6 +24,8 @@ import lombok.ToString;
 @ToString
 public class AccountBalance extends State {
     
+    private static final long serialVersionUID = 1L;
+    
     private @Getter float balance;
     
     /**
@@ -0,0 +1,207 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: AdaptiveBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 8:52:37 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.ConcurrencyControl;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * Customers pay a hot merchant account under the adaptive concurrency
+ * control. The merchant account is locked once the payments keep aborting on
+ * it, and goes back to optimistic once they stop, while the customer accounts
+ * stay optimistic throughout.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.AdaptiveBankDriver
+ *
+ */
+public class AdaptiveBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(AdaptiveBankDriver.class);
+    
+    private static final int    CUSTOMERS = 100;
+    private static final float  BALANCE   = 100.0F;
+    
+    /**
+     * <p>
+     * Pays the amount from the customer to the merchant
+     */
+    private static TAction pay(StateManager manager, String customer, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(customer).get();
+            AccountBalance b = (AccountBalance) manager.readT("Merchant").get();
+            
+            manager.writeT(customer, new AccountBalance(a.getBalance() - amount));
+            manager.writeT("Merchant", new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static StateManager open() {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setConcurrencyControl(ConcurrencyControl.ADAPTIVE);
+        manager.make("Merchant");
+        
+        for (int i = 0; i < CUSTOMERS; i++) {
+            
+            manager.make("Customer" + i);
+        }
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Merchant", new AccountBalance(0.0F));
+                
+                for (int i = 0; i < CUSTOMERS; i++) {
+                    
+                    manager.writeT("Customer" + i, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return manager;
+    }
+    
+    private static float total(StateManager manager) {
+        
+        float[] total = new float[1];
+        
+        manager.newTransaction("Audit").readOnly().op(() -> {
+            
+            try {
+                
+                total[0] = ((AccountBalance) manager.readT("Merchant").get()).getBalance();
+                
+                for (int i = 0; i < CUSTOMERS; i++) {
+                    
+                    total[0] += ((AccountBalance) manager.readT("Customer" + i).get()).getBalance();
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return total[0];
+    }
+    
+    /**
+     * <p>
+     * The payments abort on the merchant account while it is held, till it is
+     * locked and they wait for it instead. Once the payments are made one at
+     * a time, the merchant account goes back to optimistic.
+     */
+    @Test
+    public void testSwitching() throws Exception {
+        
+        StateManager manager = open();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch held = new CountDownLatch(1);
+        
+        // holds the merchant account till it is locked
+        manager.newTransaction("Holder").op(() -> {
+            
+            try {
+                
+                manager.writeT("Merchant", new AccountBalance(0.0F));
+                
+                holding.countDown();
+                release.await();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute(held);
+        
+        holding.await();
+        
+        CountDownLatch latch = new CountDownLatch(CUSTOMERS / 2);
+        
+        for (int i = 0; i < CUSTOMERS / 2; i++) {
+            
+            String customer = "Customer" + i;
+            
+            manager.newTransaction("Pay#" + i).op(() -> pay(manager, customer, 1.0F)).done().execute(latch);
+        }
+        
+        for (int i = 0; i < 1000 && !manager.isPessimistic("Merchant"); i++) {
+            
+            Thread.sleep(5L);
+        }
+        
+        // only the merchant account is hot
+        assertTrue(manager.getMetrics().getPessimisticSwitches() >= 1);
+        assertTrue(manager.getMetrics().getPessimisticVariables() <= 1);
+        
+        for (int i = 0; i < CUSTOMERS; i++) {
+            
+            assertFalse(manager.isPessimistic("Customer" + i));
+        }
+        
+        release.countDown();
+        held.await();
+        latch.await();
+        
+        assertEquals(CUSTOMERS * BALANCE, total(manager), 0.0F);
+        
+        // the payments made one at a time, apart, don't contend
+        for (int i = CUSTOMERS / 2; i < CUSTOMERS; i++) {
+            
+            String customer = "Customer" + i;
+            
+            Thread.sleep(10L);
+            
+            assertEquals(TAction.DONE,
+                    manager.newTransaction("Pay#" + i).op(() -> pay(manager, customer, 1.0F)).done().execute());
+        }
+        
+        assertFalse(manager.isPessimistic("Merchant"));
+        assertEquals(manager.getMetrics().getPessimisticSwitches(), manager.getMetrics().getOptimisticSwitches());
+        assertEquals(0, manager.getMetrics().getPessimisticVariables());
+        assertEquals(CUSTOMERS * BALANCE, total(manager), 0.0F);
+        assertTrue(manager.getMetrics().getCommits() >= CUSTOMERS + 2);
+    }
+}
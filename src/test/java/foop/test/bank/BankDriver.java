@@ -155,7 +155,7 @@ public class BankDriver {
     private static void logMsg(String msg) {
         
         // logger -- after state
-        manager.newTransaction("LoggerTransaction").op(() -> {
+        manager.newTransaction("LoggerTransaction").readOnly().op(() -> {
             
             try {
                 
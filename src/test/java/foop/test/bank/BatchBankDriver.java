@@ -0,0 +1,202 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: BatchBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 11:26:40 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+import foop.core.Transaction;
+
+/**
+ * <p>
+ * Transfers submitted as a batch, while other transfers between the same bank
+ * accounts run outside of the batch. Every transfer of the batch must commit,
+ * except the one overdrawing an account, and no money is lost or made.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.BatchBankDriver
+ *
+ */
+public class BatchBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(BatchBankDriver.class);
+    
+    private static final int    ACCOUNTS  = 16;
+    private static final int    TRANSFERS = 300;
+    private static final float  BALANCE   = 1000.0F;
+    
+    /**
+     * <p>
+     * Transfers the amount between the bank accounts, failing if the account
+     * withdrawn from would be overdrawn
+     */
+    private static TAction transfer(StateManager manager, String from, String to, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(from).get();
+            AccountBalance b = (AccountBalance) manager.readT(to).get();
+            
+            if (a.getBalance() < amount) {
+                
+                return TAction.FAIL;
+            }
+            
+            manager.writeT(from, new AccountBalance(a.getBalance() - amount));
+            manager.writeT(to, new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static float balance(StateManager manager, String name) {
+        
+        float[] balance = new float[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = ((AccountBalance) manager.readT(name).get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    /**
+     * <p>
+     * Runs the batch using the write mode
+     * 
+     * @param mode
+     *            The write mode of the transactions
+     */
+    private static void drive(WriteMode mode) throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(mode);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            manager.make("Account" + i);
+        }
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    manager.writeT("Account" + i, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        Random random = new Random(7);
+        
+        List<Transaction> batch = new ArrayList<>();
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            
+            batch.add(manager.newTransaction("Batched#" + i)
+                    .op(() -> transfer(manager, "Account" + from, "Account" + to, 1.0F)).done());
+        }
+        
+        // overdraws the account, its logic fails
+        batch.add(manager.newTransaction("Overdraw")
+                .op(() -> transfer(manager, "Account0", "Account1", ACCOUNTS * BALANCE)).done());
+        
+        CountDownLatch latch = new CountDownLatch(TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            
+            manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, "Account" + from, "Account" + to, 1.0F)).done().execute(latch);
+        }
+        
+        List<TAction> outcomes = manager.submitBatch(batch);
+        
+        latch.await();
+        
+        assertEquals(TRANSFERS + 1, outcomes.size());
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            assertEquals(TAction.DONE, outcomes.get(i));
+        }
+        
+        assertEquals(TAction.FAIL, outcomes.get(TRANSFERS));
+        
+        float total = 0;
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            total += balance(manager, "Account" + i);
+        }
+        
+        assertEquals(ACCOUNTS * BALANCE, total, 0.0F);
+        assertEquals(2 * TRANSFERS + 1, manager.getMetrics().getCommits() - ACCOUNTS);
+    }
+    
+    /**
+     * <p>
+     * A batch updating the bank accounts in place
+     */
+    @Test
+    public void testDirectBatch() throws Exception {
+        
+        drive(WriteMode.DIRECT);
+    }
+    
+    /**
+     * <p>
+     * A batch buffering its updates till its groups commit
+     */
+    @Test
+    public void testDeferredBatch() throws Exception {
+        
+        drive(WriteMode.DEFERRED);
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: ConcurrentBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 8:31:50 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.ContentionManager;
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+import foop.core.TransactionMetrics;
+
+/**
+ * <p>
+ * Drives many conflicting transfers between a handful of bank accounts
+ * concurrently, the total balance must be the same before and after.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.ConcurrentBankDriver
+ *
+ */
+public class ConcurrentBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(ConcurrentBankDriver.class);
+    
+    private static final int    ACCOUNTS  = 4;
+    private static final int    TRANSFERS = 400;
+    private static final float  BALANCE   = 1000.0F;
+    
+    /**
+     * <p>
+     * Transfers the amount between the bank accounts
+     * 
+     * @param manager
+     *            The state manager
+     * @param from
+     *            The bank account to withdraw from
+     * @param to
+     *            The bank account to deposit into
+     * @param amount
+     *            The amount to transfer
+     */
+    private static TAction transfer(StateManager manager, String from, String to, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(from).get();
+            AccountBalance b = (AccountBalance) manager.readT(to).get();
+            
+            manager.writeT(from, new AccountBalance(a.getBalance() - amount));
+            manager.writeT(to, new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    /**
+     * <p>
+     * Sums up the balances of all the bank accounts
+     * 
+     * @param manager
+     *            The state manager
+     * 
+     * @return The total balance
+     */
+    private static float total(StateManager manager) {
+        
+        float[] total = new float[1];
+        
+        manager.newTransaction("Total").readOnly().op(() -> {
+            
+            try {
+                
+                total[0] = 0;
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    total[0] += ((AccountBalance) manager.readT("Account" + i).get()).getBalance();
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return total[0];
+    }
+    
+    /**
+     * <p>
+     * Runs the conflicting transfers using the write mode
+     * 
+     * @param mode
+     *            The write mode of the transactions
+     */
+    private static void drive(WriteMode mode) throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(mode);
+        manager.setContentionManager(ContentionManager.exponentialBackoff());
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            manager.make("Account" + i);
+        }
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    manager.writeT("Account" + i, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        Random random = new Random(42);
+        
+        CountDownLatch latch = new CountDownLatch(TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            String from = "Account" + random.nextInt(ACCOUNTS);
+            String to = "Account" + ((Integer.parseInt(from.substring(7)) + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS);
+            float amount = random.nextInt(100);
+            
+            manager.newTransaction("Transfer#" + i).op(() -> transfer(manager, from, to, amount)).done().execute(latch);
+        }
+        
+        latch.await();
+        
+        assertEquals(ACCOUNTS * BALANCE, total(manager), 0.0F);
+        
+        TransactionMetrics metrics = manager.getMetrics();
+        
+        // the setup, the transfers and the total
+        assertEquals(TRANSFERS + 2, metrics.getCommits());
+        assertEquals(0, metrics.getOperationFailures());
+        
+        // every aborted attempt was retried
+        assertEquals(metrics.getAborts(), metrics.getRetries());
+        assertEquals(TRANSFERS + 2, metrics.getRetriesPerTransaction().getCount());
+        assertTrue(metrics.getCommitLatency().getCount() >= TRANSFERS + 2);
+        
+        ObjectName name = metrics.register("ConcurrentBankDriver-" + mode);
+        
+        try {
+            
+            assertEquals(TRANSFERS + 2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Commits"));
+        } finally {
+            
+            metrics.unregister();
+        }
+    }
+    
+    /**
+     * <p>
+     * Conflicting transfers updating the bank accounts in place
+     */
+    @Test
+    public void testDirectTransfers() throws Exception {
+        
+        drive(WriteMode.DIRECT);
+    }
+    
+    /**
+     * <p>
+     * Conflicting transfers buffering their updates till they commit
+     */
+    @Test
+    public void testDeferredTransfers() throws Exception {
+        
+        drive(WriteMode.DEFERRED);
+    }
+}
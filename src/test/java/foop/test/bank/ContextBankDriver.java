@@ -0,0 +1,238 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: ContextBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 1:12:40 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.Transaction;
+
+/**
+ * <p>
+ * Tellers build and run their deposits on threads of their own. The
+ * transaction being built and the transaction being run are kept per thread,
+ * so the tellers don't get each other's operations.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.ContextBankDriver
+ *
+ */
+public class ContextBankDriver {
+    
+    private static final Logger logger  = LoggerFactory.getLogger(ContextBankDriver.class);
+    
+    private static final int    TELLERS = 8;
+    
+    private static long balance(StateManager manager, String account) {
+        
+        long[] balance = new long[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = manager.readLongT(account);
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    /**
+     * <p>
+     * The tellers build their deposits at the same time, step by step, and
+     * every deposit ends up with the operations of its own teller only
+     */
+    @Test
+    public void testBuilders() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        for (int i = 0; i < TELLERS; i++) {
+            
+            manager.makeLong("Account" + i, 0L);
+        }
+        
+        // makes the tellers take each step of the builder together
+        CyclicBarrier step = new CyclicBarrier(TELLERS);
+        List<Thread> tellers = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        
+        for (int i = 0; i < TELLERS; i++) {
+            
+            String account = "Account" + i;
+            long amount = i + 1;
+            
+            Thread teller = new Thread(() -> {
+                
+                try {
+                    
+                    manager.newTransaction("Deposit#" + account);
+                    
+                    step.await(5L, TimeUnit.SECONDS);
+                    
+                    manager.op(() -> {
+                        
+                        try {
+                            
+                            manager.addLongT(account, amount);
+                        } catch (Exception e) {
+                            
+                            logger.error(e.getMessage(), e);
+                            return TAction.FAIL;
+                        }
+                        
+                        return TAction.DONE;
+                    });
+                    
+                    step.await(5L, TimeUnit.SECONDS);
+                    
+                    Transaction t = manager.done();
+                    
+                    step.await(5L, TimeUnit.SECONDS);
+                    
+                    assertEquals(1, t.getOperations().size());
+                    assertEquals(TAction.DONE, t.execute());
+                } catch (Throwable e) {
+                    
+                    synchronized (failures) {
+                        
+                        failures.add(e);
+                    }
+                }
+            });
+            
+            tellers.add(teller);
+            teller.start();
+        }
+        
+        for (Thread teller : tellers) {
+            
+            teller.join();
+        }
+        
+        assertTrue(failures.toString(), failures.isEmpty());
+        
+        for (int i = 0; i < TELLERS; i++) {
+            
+            assertEquals(i + 1L, balance(manager, "Account" + i));
+        }
+    }
+    
+    /**
+     * <p>
+     * The tellers' deposits run at the same time, each one reads and writes
+     * through the transaction running on its own thread
+     */
+    @Test
+    public void testRunning() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        for (int i = 0; i < TELLERS; i++) {
+            
+            manager.makeLong("Account" + i, 0L);
+        }
+        
+        // keeps every deposit running till all of them have written
+        CyclicBarrier written = new CyclicBarrier(TELLERS);
+        CountDownLatch latch = new CountDownLatch(TELLERS);
+        
+        for (int i = 0; i < TELLERS; i++) {
+            
+            String account = "Account" + i;
+            long amount = i + 1;
+            
+            manager.newTransaction("Deposit#" + account).op(() -> {
+                
+                try {
+                    
+                    manager.writeLongT(account, manager.readLongT(account) + amount);
+                    
+                    written.await(5L, TimeUnit.SECONDS);
+                    
+                    // still its own write, not one of the other deposits
+                    return manager.readLongT(account) == amount ? TAction.DONE : TAction.FAIL;
+                } catch (Exception e) {
+                    
+                    logger.error(e.getMessage(), e);
+                    return TAction.FAIL;
+                }
+            }).done().execute(latch);
+        }
+        
+        assertTrue(latch.await(10L, TimeUnit.SECONDS));
+        
+        for (int i = 0; i < TELLERS; i++) {
+            
+            assertEquals(i + 1L, balance(manager, "Account" + i));
+        }
+    }
+    
+    /**
+     * <p>
+     * Reading and writing outside of a transaction, or adding an operation
+     * when no transaction is being built, is refused
+     */
+    @Test
+    public void testOutsideTransaction() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Account", 10L);
+        
+        boolean[] refused = new boolean[3];
+        
+        try {
+            
+            manager.readLongT("Account");
+        } catch (Exception e) {
+            
+            refused[0] = true;
+        }
+        
+        try {
+            
+            manager.writeLongT("Account", 20L);
+        } catch (Exception e) {
+            
+            refused[1] = true;
+        }
+        
+        try {
+            
+            manager.op(() -> TAction.DONE);
+        } catch (IllegalStateException e) {
+            
+            refused[2] = true;
+        }
+        
+        assertTrue(refused[0] && refused[1] && refused[2]);
+        assertEquals(10L, balance(manager, "Account"));
+    }
+}
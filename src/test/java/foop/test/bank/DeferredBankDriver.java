@@ -0,0 +1,151 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: DeferredBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 2:03:48 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+
+/**
+ * <p>
+ * Transfers in the deferred write mode keep their updates in a redo log till
+ * they commit. The other transactions never see the updates of a transfer
+ * that is still running or that failed, and aren't held up by it.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.DeferredBankDriver
+ *
+ */
+public class DeferredBankDriver {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeferredBankDriver.class);
+    
+    private static float[] balances(StateManager manager) {
+        
+        float[] balances = new float[2];
+        
+        manager.newTransaction("Balances").readOnly().op(() -> {
+            
+            try {
+                
+                balances[0] = ((AccountBalance) manager.readT("Account0").get()).getBalance();
+                balances[1] = ((AccountBalance) manager.readT("Account1").get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balances;
+    }
+    
+    /**
+     * <p>
+     * A transfer writes both accounts and then fails. While it runs, the
+     * readers see neither of its writes and a deposit into one of the
+     * accounts commits, afterwards nothing of the transfer is left.
+     */
+    @Test
+    public void testFailedTransfer() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(WriteMode.DEFERRED);
+        
+        manager.make("Account0");
+        manager.make("Account1");
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account0", new AccountBalance(0.0F));
+                manager.writeT("Account1", new AccountBalance(0.0F));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+        
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+        boolean[] ownWrites = new boolean[1];
+        
+        CompletableFuture<TAction> transfer = manager.newTransaction("Transfer").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account0", new AccountBalance(-100.0F));
+                manager.writeT("Account1", new AccountBalance(100.0F));
+                
+                // the transfer reads its own writes from the redo log
+                ownWrites[0] = ((AccountBalance) manager.readT("Account0").get()).getBalance() == -100.0F;
+                
+                written.countDown();
+                
+                checked.await(5L, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+            }
+            
+            return TAction.FAIL;
+        }).done().executeAsync();
+        
+        assertTrue(written.await(5L, TimeUnit.SECONDS));
+        
+        assertArrayEquals(new float[] { 0.0F, 0.0F }, balances(manager), 0.0F);
+        
+        // the transfer doesn't own the account it wrote
+        assertEquals(TAction.DONE, manager.newTransaction("Deposit").op(() -> {
+            
+            try {
+                
+                AccountBalance balance = (AccountBalance) manager.readT("Account0").get();
+                
+                manager.writeT("Account0", new AccountBalance(balance.getBalance() + 5.0F));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().executeAsync().get(5L, TimeUnit.SECONDS));
+        
+        assertFalse(transfer.isDone());
+        
+        checked.countDown();
+        
+        assertEquals(TAction.FAIL, transfer.get(5L, TimeUnit.SECONDS));
+        assertTrue(ownWrites[0]);
+        
+        assertArrayEquals(new float[] { 5.0F, 0.0F }, balances(manager), 0.0F);
+    }
+}
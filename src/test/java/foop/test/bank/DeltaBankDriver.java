@@ -0,0 +1,313 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: DeltaBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 6:24:51 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.Durability;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+import foop.core.Variable;
+
+/**
+ * <p>
+ * Customers pay a hot merchant account concurrently. The payments add their
+ * amounts to the merchant account as deltas, so they don't conflict on it.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.DeltaBankDriver
+ *
+ */
+public class DeltaBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(DeltaBankDriver.class);
+    
+    private static final int    CUSTOMERS = 500;
+    private static final long   BALANCE   = 1000L;
+    private static final int    FEES      = 50;
+    
+    @Rule
+    public TemporaryFolder      folder    = new TemporaryFolder();
+    
+    /**
+     * <p>
+     * Pays the amount from the customer to the merchant
+     */
+    private static TAction pay(StateManager manager, String customer, Variable merchant, long amount) {
+        
+        try {
+            
+            manager.writeLongT(customer, manager.readLongT(customer) - amount);
+            manager.addLongT(merchant, amount);
+            manager.addDoubleT("Fees", 0.5);
+            manager.addIntT("Payments", 1);
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    /**
+     * <p>
+     * Runs the payments
+     * 
+     * @param offHeap
+     *            If the accounts are kept off-heap
+     */
+    private static void drive(boolean offHeap) throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        if (offHeap) {
+            
+            manager.useOffHeapStore();
+        }
+        
+        Variable merchant = manager.makeLong("Merchant", 0L);
+        
+        manager.makeDouble("Fees", 0.0);
+        manager.makeInt("Payments", 0);
+        
+        for (int i = 0; i < CUSTOMERS; i++) {
+            
+            manager.makeLong("Customer" + i, BALANCE);
+        }
+        
+        CountDownLatch latch = new CountDownLatch(CUSTOMERS);
+        long paid = 0L;
+        
+        for (int i = 0; i < CUSTOMERS; i++) {
+            
+            String customer = "Customer" + i;
+            long amount = 1 + i % 10;
+            
+            paid += amount;
+            
+            manager.newTransaction("Pay#" + i).op(() -> pay(manager, customer, merchant, amount)).done()
+                    .execute(latch);
+        }
+        
+        latch.await();
+        
+        // the payments read and write their own customers only
+        assertEquals(0, manager.getMetrics().getValidationFailures());
+        
+        long expected = paid;
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Audit").readOnly().op(() -> {
+            
+            try {
+                
+                long customers = 0L;
+                
+                for (int i = 0; i < CUSTOMERS; i++) {
+                    
+                    customers += manager.readLongT("Customer" + i);
+                }
+                
+                return manager.readLongT(merchant) == expected && customers + expected == CUSTOMERS * BALANCE
+                        && manager.readDoubleT("Fees") == CUSTOMERS * 0.5
+                        && manager.readIntT("Payments") == CUSTOMERS ? TAction.DONE : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+    }
+    
+    /**
+     * <p>
+     * Payments to a merchant account kept in its `MemCell`
+     */
+    @Test
+    public void testPayments() throws Exception {
+        
+        drive(false);
+    }
+    
+    /**
+     * <p>
+     * Payments to a merchant account kept in the off-heap store
+     */
+    @Test
+    public void testOffHeapPayments() throws Exception {
+        
+        drive(true);
+    }
+    
+    /**
+     * <p>
+     * A transaction reads its own deltas, a write replaces the deltas added
+     * before it and takes in the ones added after it, and the deltas of a
+     * failed nested transaction are undone
+     */
+    @Test
+    public void testOwnDeltas() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Merchant", 10L);
+        manager.makeLong("Fees", 0L);
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Deltas").op(() -> {
+            
+            try {
+                
+                manager.addLongT("Merchant", 5L);
+                manager.addLongT("Fees", 1L);
+                
+                if (manager.readLongT("Merchant") != 15L) {
+                    
+                    return TAction.FAIL;
+                }
+                
+                manager.writeLongT("Merchant", 100L);
+                manager.addLongT("Merchant", 1L);
+                manager.addLongT("Fees", 1L);
+                
+                TAction nested = manager.nestedT(() -> {
+                    
+                    try {
+                        
+                        manager.addLongT("Fees", 50L);
+                    } catch (Exception e) {
+                        
+                        logger.error(e.getMessage(), e);
+                    }
+                    
+                    return TAction.FAIL;
+                });
+                
+                return nested == TAction.FAIL && manager.readLongT("Merchant") == 101L ? TAction.DONE
+                        : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Audit").readOnly().op(() -> {
+            
+            try {
+                
+                return manager.readLongT("Merchant") == 101L && manager.readLongT("Fees") == 2L ? TAction.DONE
+                        : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+    }
+    
+    /**
+     * <p>
+     * Deposits into the merchant account are never aborted, even while the
+     * fees written to it hold it for a synced commit
+     */
+    @Test
+    public void testDepositsDuringSyncedWrites() throws Exception {
+        
+        Path log = this.folder.newFolder().toPath().resolve("bank.log");
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(WriteMode.DIRECT);
+        manager.enableLog(log, Durability.SYNC);
+        
+        manager.makeLong("Merchant", 0L);
+        manager.make("Statement");
+        
+        CountDownLatch latch = new CountDownLatch(CUSTOMERS + FEES);
+        AtomicInteger attempts = new AtomicInteger();
+        long deposited = 0L;
+        
+        for (int i = 0; i < CUSTOMERS; i++) {
+            
+            long amount = 1 + i % 10;
+            
+            deposited += amount;
+            
+            if (i % (CUSTOMERS / FEES) == 0) {
+                
+                manager.newTransaction("Fee#" + i).op(() -> {
+                    
+                    try {
+                        
+                        long balance = manager.readLongT("Merchant");
+                        
+                        manager.writeT("Statement", new AccountBalance(balance));
+                        manager.writeLongT("Merchant", balance - 1L);
+                    } catch (Exception e) {
+                        
+                        logger.debug(e.getMessage());
+                        return TAction.FAIL;
+                    }
+                    
+                    return TAction.DONE;
+                }).done().execute(latch);
+            }
+            
+            manager.newTransaction("Deposit#" + i).op(() -> {
+                
+                attempts.incrementAndGet();
+                
+                try {
+                    
+                    manager.addLongT("Merchant", amount);
+                } catch (Exception e) {
+                    
+                    logger.error(e.getMessage(), e);
+                    return TAction.FAIL;
+                }
+                
+                return TAction.DONE;
+            }).done().execute(latch);
+        }
+        
+        latch.await();
+        
+        // every deposit ran once
+        assertEquals(CUSTOMERS, attempts.get());
+        
+        long expected = deposited - FEES;
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Audit").readOnly().op(() -> {
+            
+            try {
+                
+                return manager.readLongT("Merchant") == expected ? TAction.DONE : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+        
+        manager.closeLog();
+    }
+}
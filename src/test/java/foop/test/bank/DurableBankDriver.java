@@ -0,0 +1,368 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: DurableBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 12:20:31 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.Durability;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * Transfers between bank accounts are committed to a write-ahead log, a new
+ * state manager recovered from the log, and from the checkpoints taken while
+ * the transfers were running, must have the same balances.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.DurableBankDriver
+ *
+ */
+public class DurableBankDriver {
+    
+    private static final Logger  logger    = LoggerFactory.getLogger(DurableBankDriver.class);
+    
+    private static final int     ACCOUNTS  = 8;
+    private static final int     TRANSFERS = 200;
+    private static final float   BALANCE   = 1000.0F;
+    
+    public @Rule TemporaryFolder folder    = new TemporaryFolder();
+    
+    private static TAction transfer(StateManager manager, String from, String to, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(from).get();
+            AccountBalance b = (AccountBalance) manager.readT(to).get();
+            
+            manager.writeT(from, new AccountBalance(a.getBalance() - amount));
+            manager.writeT(to, new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static float[] balances(StateManager manager) {
+        
+        float[] balances = new float[ACCOUNTS];
+        
+        manager.newTransaction("Balances").readOnly().op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    balances[i] = ((AccountBalance) manager.readT("Account" + i).get()).getBalance();
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balances;
+    }
+    
+    /**
+     * <p>
+     * Runs the transfers with the durability, then recovers the balances from
+     * the log
+     * 
+     * @param durability
+     *            The durability of the commits
+     */
+    private void drive(Durability durability, boolean checkpoints) throws Exception {
+        
+        Path log = this.folder.newFolder().toPath().resolve("bank.log");
+        
+        StateManager manager = new StateManager();
+        
+        manager.enableLog(log, durability);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            manager.make("Account" + i);
+        }
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    manager.writeT("Account" + i, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        Random random = new Random(11);
+        
+        CountDownLatch latch = new CountDownLatch(TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            float amount = random.nextInt(100);
+            
+            manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, "Account" + from, "Account" + to, amount)).done().execute(latch);
+        }
+        
+        if (checkpoints) {
+            
+            // fuzzy checkpoints taken while the transfers are running
+            while (latch.getCount() > 0) {
+                
+                manager.checkpoint();
+            }
+        }
+        
+        latch.await();
+        
+        float[] expected = balances(manager);
+        
+        manager.closeLog();
+        
+        // a torn record left behind by a crash in the middle of a write
+        Files.write(log, new byte[] { 0, 0, 0, 100, 1, 2, 3 }, StandardOpenOption.APPEND);
+        
+        StateManager recovered = new StateManager();
+        
+        recovered.enableLog(log, durability);
+        
+        float[] actual = balances(recovered);
+        float total = 0;
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            assertEquals(expected[i], actual[i], 0.0F);
+            
+            total += actual[i];
+        }
+        
+        assertEquals(ACCOUNTS * BALANCE, total, 0.0F);
+        
+        // the recovered state manager keeps on committing after the log
+        recovered.newTransaction("Transfer").op(() -> transfer(recovered, "Account0", "Account1", 1.0F)).done()
+                .execute();
+        recovered.closeLog();
+        
+        StateManager again = new StateManager();
+        
+        again.enableLog(log, durability);
+        
+        assertEquals(expected[0] - 1.0F, balances(again)[0], 0.0F);
+        
+        again.closeLog();
+    }
+    
+    @Test
+    public void testSyncLog() throws Exception {
+        
+        this.drive(Durability.SYNC, false);
+    }
+    
+    @Test
+    public void testGroupLog() throws Exception {
+        
+        this.drive(Durability.GROUP, false);
+    }
+    
+    @Test
+    public void testAsyncLog() throws Exception {
+        
+        this.drive(Durability.ASYNC, false);
+    }
+    
+    @Test
+    public void testCheckpointedLog() throws Exception {
+        
+        this.drive(Durability.GROUP, true);
+    }
+    
+    /**
+     * <p>
+     * A checkpoint cuts the log down to the transfers after it, and the
+     * balances are still recovered from the checkpoint and what is left of the
+     * log
+     */
+    @Test
+    public void testTruncatedLog() throws Exception {
+        
+        Path log = this.folder.newFolder().toPath().resolve("bank.log");
+        
+        StateManager manager = new StateManager();
+        
+        manager.enableLog(log, Durability.GROUP);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            manager.make("Account" + i);
+        }
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    manager.writeT("Account" + i, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int from = i % ACCOUNTS;
+            
+            manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, "Account" + from, "Account" + ((from + 1) % ACCOUNTS), 1.0F)).done()
+                    .execute();
+        }
+        
+        long logged = Files.size(log);
+        
+        manager.checkpoint();
+        
+        long truncated = Files.size(log);
+        
+        // nothing was committed while the checkpoint was taken
+        assertTrue(truncated < logged / TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int from = i % ACCOUNTS;
+            
+            manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, "Account" + (ACCOUNTS - 1 - from), "Account" + from, 2.0F)).done()
+                    .execute();
+        }
+        
+        assertTrue(Files.size(log) > truncated);
+        
+        float[] expected = balances(manager);
+        
+        manager.closeLog();
+        
+        StateManager recovered = new StateManager();
+        
+        recovered.enableLog(log, Durability.GROUP);
+        
+        float[] actual = balances(recovered);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            assertEquals(expected[i], actual[i], 0.0F);
+        }
+        
+        // the recovered log is truncated by the next checkpoint as well
+        recovered.checkpoint();
+        
+        assertEquals(truncated, Files.size(log));
+        
+        recovered.closeLog();
+        
+        StateManager again = new StateManager();
+        
+        again.enableLog(log, Durability.GROUP);
+        
+        actual = balances(again);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            assertEquals(expected[i], actual[i], 0.0F);
+        }
+        
+        again.closeLog();
+    }
+    
+    /**
+     * <p>
+     * Looking up accounts that were never opened doesn't add them to the
+     * checkpoints
+     */
+    @Test
+    public void testUnknownAccounts() throws Exception {
+        
+        Path log = this.folder.newFolder().toPath().resolve("bank.log");
+        
+        StateManager manager = new StateManager();
+        
+        manager.enableLog(log, Durability.SYNC);
+        manager.make("Account0");
+        
+        boolean[] found = new boolean[2];
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Lookup").op(() -> {
+            
+            try {
+                
+                found[0] = manager.readT("Account1").isPresent();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            try {
+                
+                manager.readLongT("Account2");
+                
+                found[1] = true;
+            } catch (Exception e) {
+                
+                logger.debug(e.getMessage());
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+        
+        assertFalse(found[0]);
+        assertFalse(found[1]);
+        assertEquals(1L, manager.checkpoint());
+        
+        manager.closeLog();
+    }
+}
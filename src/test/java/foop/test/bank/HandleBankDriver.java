@@ -0,0 +1,252 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: HandleBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 4:02:37 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+import foop.core.Variable;
+
+/**
+ * <p>
+ * Transfers between bank accounts using the <i>Variable</i>s returned by
+ * `make` as handles, mixed with transfers using the names of the accounts.
+ * The total balance must be the same before and after.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.HandleBankDriver
+ *
+ */
+public class HandleBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(HandleBankDriver.class);
+    
+    private static final int    ACCOUNTS  = 4;
+    private static final int    TRANSFERS = 400;
+    private static final float  BALANCE   = 1000.0F;
+    
+    /**
+     * <p>
+     * Transfers the amount between the bank accounts using their handles
+     */
+    private static TAction transfer(StateManager manager, Variable from, Variable to, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(from);
+            AccountBalance b = (AccountBalance) manager.readT(to);
+            
+            manager.writeT(from, new AccountBalance(a.getBalance() - amount));
+            manager.writeT(to, new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    /**
+     * <p>
+     * Transfers the amount between the bank accounts using their names
+     */
+    private static TAction transfer(StateManager manager, String from, String to, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(from).get();
+            AccountBalance b = (AccountBalance) manager.readT(to).get();
+            
+            manager.writeT(from, new AccountBalance(a.getBalance() - amount));
+            manager.writeT(to, new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    /**
+     * <p>
+     * Sums up the balances of all the bank accounts
+     */
+    private static float total(StateManager manager, Variable[] accounts) {
+        
+        float[] total = new float[1];
+        
+        manager.newTransaction("Total").readOnly().op(() -> {
+            
+            try {
+                
+                total[0] = 0;
+                
+                for (Variable account : accounts) {
+                    
+                    total[0] += ((AccountBalance) manager.readT(account)).getBalance();
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return total[0];
+    }
+    
+    /**
+     * <p>
+     * Runs the conflicting transfers using the write mode
+     * 
+     * @param mode
+     *            The write mode of the transactions
+     */
+    private static void drive(WriteMode mode) throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(mode);
+        
+        Variable[] accounts = new Variable[ACCOUNTS];
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            accounts[i] = manager.make("Account" + i);
+        }
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                for (Variable account : accounts) {
+                    
+                    manager.writeT(account, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+        
+        Random random = new Random(7);
+        CountDownLatch latch = new CountDownLatch(TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            float amount = random.nextInt(100);
+            
+            if (i % 2 == 0) {
+                
+                manager.newTransaction("Transfer#" + i)
+                        .op(() -> transfer(manager, accounts[from], accounts[to], amount)).done().execute(latch);
+            } else {
+                
+                manager.newTransaction("Transfer#" + i)
+                        .op(() -> transfer(manager, "Account" + from, "Account" + to, amount)).done().execute(latch);
+            }
+        }
+        
+        latch.await();
+        
+        assertEquals(ACCOUNTS * BALANCE, total(manager, accounts), 0.0F);
+        assertEquals(TRANSFERS + 2, manager.getMetrics().getCommits());
+    }
+    
+    /**
+     * <p>
+     * Transfers updating the bank accounts in place
+     */
+    @Test
+    public void testDirectTransfers() throws Exception {
+        
+        drive(WriteMode.DIRECT);
+    }
+    
+    /**
+     * <p>
+     * Transfers buffering their updates in the redo log
+     */
+    @Test
+    public void testDeferredTransfers() throws Exception {
+        
+        drive(WriteMode.DEFERRED);
+    }
+    
+    /**
+     * <p>
+     * The handles get dense ids, and a handle made by some other StateManager
+     * or by hand is looked up by its name
+     */
+    @Test
+    public void testForeignHandles() throws Exception {
+        
+        StateManager manager = new StateManager();
+        StateManager other = new StateManager();
+        
+        Variable account = manager.make("Account");
+        Variable counter = manager.makeLong("Counter", 1L);
+        Variable foreign = other.makeLong("Counter", 100L);
+        
+        assertNotEquals(account.getId(), counter.getId());
+        assertEquals(-1, new Variable("Counter").getId());
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Foreign").op(() -> {
+            
+            try {
+                
+                manager.writeT(account, new AccountBalance(BALANCE));
+                manager.writeLongT(foreign, manager.readLongT(new Variable("Counter")) + 1);
+                
+                return manager.readLongT(counter) == 2L
+                        && ((AccountBalance) manager.readT("Account").get()).getBalance() == BALANCE
+                                ? TAction.DONE
+                                : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+        
+        assertEquals(TAction.DONE, other.newTransaction("Other").readOnly().op(() -> {
+            
+            try {
+                
+                return other.readLongT(foreign) == 100L ? TAction.DONE : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: MemCellBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 1:31:05 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * Every account lives in a `MemCell` of its own. A transfer that holds one
+ * account doesn't hold up the transactions on the other accounts, only the
+ * ones on the account it holds.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.MemCellBankDriver
+ *
+ */
+public class MemCellBankDriver {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MemCellBankDriver.class);
+    
+    private static TAction deposit(StateManager manager, String account, float amount) {
+        
+        try {
+            
+            AccountBalance balance = (AccountBalance) manager.readT(account).get();
+            
+            manager.writeT(account, new AccountBalance(balance.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static float balance(StateManager manager, String account) {
+        
+        float[] balance = new float[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = ((AccountBalance) manager.readT(account).get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    /**
+     * <p>
+     * While a deposit holds the first account, a deposit into the second one
+     * commits and a deposit into the first one waits for it
+     */
+    @Test
+    public void testDisjointAccounts() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.make("Account0");
+        manager.make("Account1");
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account0", new AccountBalance(0.0F));
+                manager.writeT("Account1", new AccountBalance(0.0F));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+        
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // owns the first account from its write till it commits
+        CompletableFuture<TAction> holder = manager.newTransaction("Hold").op(() -> {
+            
+            TAction action = deposit(manager, "Account0", 100.0F);
+            
+            held.countDown();
+            
+            try {
+                
+                release.await(5L, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                
+                Thread.currentThread().interrupt();
+                return TAction.FAIL;
+            }
+            
+            return action;
+        }).done().executeAsync();
+        
+        assertTrue(held.await(5L, TimeUnit.SECONDS));
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Other")
+                .op(() -> deposit(manager, "Account1", 10.0F)).done().execute());
+        
+        CompletableFuture<TAction> same = manager.newTransaction("Same")
+                .op(() -> deposit(manager, "Account0", 1.0F)).done().executeAsync();
+        
+        Thread.sleep(50L);
+        
+        assertFalse(holder.isDone());
+        assertFalse(same.isDone());
+        
+        release.countDown();
+        
+        assertEquals(TAction.DONE, holder.get(5L, TimeUnit.SECONDS));
+        assertEquals(TAction.DONE, same.get(5L, TimeUnit.SECONDS));
+        
+        assertEquals(101.0F, balance(manager, "Account0"), 0.0F);
+        assertEquals(10.0F, balance(manager, "Account1"), 0.0F);
+    }
+}
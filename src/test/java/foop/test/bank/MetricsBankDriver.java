@@ -0,0 +1,222 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: MetricsBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 2:58:30 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.TransactionMetrics;
+
+/**
+ * <p>
+ * A monitoring console reads the metrics of the bank through the platform
+ * MBean server, after a workload whose commits, aborts and retries are known
+ * beforehand.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.MetricsBankDriver
+ *
+ */
+public class MetricsBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(MetricsBankDriver.class);
+    
+    private static final int    TRANSFERS = 100;
+    private static final int    REFUSED   = 5;
+    
+    /**
+     * <p>
+     * Gets the number of times a transfer is made to fail validation, 10 of
+     * them once and 1 of them twice
+     */
+    private static int retries(int transfer) {
+        
+        return transfer < 10 ? 1 : transfer == 10 ? 2 : 0;
+    }
+    
+    /**
+     * <p>
+     * Moves the balance of the source to the target. The attempts of the
+     * transfer that must fail validation have the source changed under them
+     * by another transaction.
+     */
+    private static TAction transfer(StateManager manager, int transfer, AtomicInteger attempts) {
+        
+        String source = "Source" + transfer;
+        
+        try {
+            
+            long balance = manager.readLongT(source);
+            
+            if (attempts.getAndIncrement() < retries(transfer)) {
+                
+                TAction change = manager.newTransaction("Change#" + transfer).op(() -> {
+                    
+                    try {
+                        
+                        manager.writeLongT(source, balance + 1L);
+                    } catch (Exception e) {
+                        
+                        logger.error(e.getMessage(), e);
+                        return TAction.FAIL;
+                    }
+                    
+                    return TAction.DONE;
+                }).done().executeAsync().get();
+                
+                assertEquals(TAction.DONE, change);
+            }
+            
+            manager.writeLongT("Target" + transfer, balance);
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static StateManager run() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            manager.makeLong("Source" + i, 0L);
+            manager.makeLong("Target" + i, 0L);
+        }
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int transfer = i;
+            AtomicInteger attempts = new AtomicInteger();
+            
+            assertEquals(TAction.DONE, manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, transfer, attempts)).done().execute());
+            assertEquals(retries(transfer) + 1, attempts.get());
+        }
+        
+        for (int i = 0; i < REFUSED; i++) {
+            
+            assertEquals(TAction.FAIL, manager.newTransaction("Refused#" + i).op(() -> TAction.FAIL).done().execute());
+        }
+        
+        return manager;
+    }
+    
+    /**
+     * <p>
+     * The counters, the abort reasons and the percentiles of the histograms
+     * read through the MBean server match the workload
+     */
+    @Test
+    public void testAttributes() throws Exception {
+        
+        StateManager manager = run();
+        TransactionMetrics metrics = manager.getMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.register("MetricsBankDriver-attributes");
+        
+        try {
+            
+            // the transfers and the changes made under them
+            assertEquals(TRANSFERS + 12L, server.getAttribute(name, "Commits"));
+            assertEquals(12L + REFUSED, server.getAttribute(name, "Aborts"));
+            assertEquals(12L, server.getAttribute(name, "ValidationFailures"));
+            assertEquals((long) REFUSED, server.getAttribute(name, "OperationFailures"));
+            assertEquals(0L, server.getAttribute(name, "OwnershipConflicts"));
+            assertEquals(0L, server.getAttribute(name, "LockOrderRestarts"));
+            assertEquals(12L, server.getAttribute(name, "Retries"));
+            
+            // 10 transfers retried once and 1 twice, all the others never
+            assertEquals(2L, server.getAttribute(name, "RetriesPerTransactionMax"));
+            assertEquals(1L, server.getAttribute(name, "RetriesPerTransactionP99"));
+            
+            long p50 = (Long) server.getAttribute(name, "CommitLatencyP50");
+            long p99 = (Long) server.getAttribute(name, "CommitLatencyP99");
+            long p999 = (Long) server.getAttribute(name, "CommitLatencyP999");
+            long max = (Long) server.getAttribute(name, "CommitLatencyMax");
+            
+            assertTrue(0L < p50 && p50 <= p99 && p99 <= p999 && p999 <= max);
+            assertEquals(metrics.getCommitLatency().getValueAtPercentile(50.0), p50);
+            assertEquals(metrics.getCommitLatency().getMax(), max);
+            
+            // the commits with reads were validated
+            assertTrue((Long) server.getAttribute(name, "ValidationLatencyMax") > 0L);
+            
+            server.invoke(name, "reset", null, null);
+            
+            assertEquals(0L, server.getAttribute(name, "Commits"));
+            assertEquals(0L, server.getAttribute(name, "ValidationFailures"));
+            assertEquals(0L, server.getAttribute(name, "RetriesPerTransactionMax"));
+        } finally {
+            
+            metrics.unregister();
+        }
+    }
+    
+    /**
+     * <p>
+     * The metrics are registered under their name till they are unregistered
+     * or registered under another one, and a name can't be taken twice
+     */
+    @Test
+    public void testRegistration() throws Exception {
+        
+        TransactionMetrics metrics = new StateManager().getMetrics();
+        TransactionMetrics other = new StateManager().getMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        ObjectName first = metrics.register("MetricsBankDriver-first");
+        
+        assertEquals(new ObjectName("foop:type=StateManager,name=\"MetricsBankDriver-first\""), first);
+        assertTrue(server.isRegistered(first));
+        
+        boolean taken = false;
+        
+        try {
+            
+            other.register("MetricsBankDriver-first");
+        } catch (InstanceAlreadyExistsException e) {
+            
+            taken = true;
+        }
+        
+        assertTrue(taken);
+        
+        ObjectName second = metrics.register("MetricsBankDriver-second");
+        
+        assertFalse(server.isRegistered(first));
+        assertTrue(server.isRegistered(second));
+        
+        metrics.unregister();
+        
+        assertFalse(server.isRegistered(second));
+        
+        // unregistering again does nothing
+        metrics.unregister();
+        other.unregister();
+    }
+}
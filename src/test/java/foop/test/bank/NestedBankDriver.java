@@ -0,0 +1,314 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: NestedBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 5:52:20 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+
+/**
+ * <p>
+ * Transfers between bank accounts run as nested transactions after some work
+ * of the enclosing transaction. A nested transfer that runs into another
+ * transaction is rolled back and retried alone, the work before it is kept.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.NestedBankDriver
+ *
+ */
+public class NestedBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(NestedBankDriver.class);
+    
+    private static final int    TRANSFERS = 200;
+    private static final float  BALANCE   = 500.0F;
+    
+    private static TAction transfer(StateManager manager, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT("Account1").get();
+            AccountBalance b = (AccountBalance) manager.readT("Account2").get();
+            
+            manager.writeT("Account1", new AccountBalance(a.getBalance() - amount));
+            manager.writeT("Account2", new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static StateManager open(WriteMode mode) {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(mode);
+        manager.make("Account1");
+        manager.make("Account2");
+        manager.makeLong("Counter", 0L);
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account1", new AccountBalance(BALANCE));
+                manager.writeT("Account2", new AccountBalance(BALANCE));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return manager;
+    }
+    
+    private static float balance(StateManager manager, String account) {
+        
+        float[] balance = new float[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = ((AccountBalance) manager.readT(account).get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    /**
+     * <p>
+     * Runs the conflicting nested transfers, the work before them is redone
+     * only when the enclosing transaction is retried as a whole
+     * 
+     * @param mode
+     *            The write mode of the transactions
+     */
+    private static void drive(WriteMode mode) throws Exception {
+        
+        StateManager manager = open(mode);
+        AtomicInteger prefixes = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            String log = "Log" + i;
+            
+            manager.make(log);
+            manager.newTransaction("Transfer#" + i).op(() -> {
+                
+                try {
+                    
+                    // the work before the nested transaction
+                    prefixes.incrementAndGet();
+                    manager.writeT(log, new AccountBalance(1.0F));
+                } catch (Exception e) {
+                    
+                    logger.debug(e.getMessage());
+                    
+                    return TAction.FAIL;
+                }
+                
+                return TAction.DONE;
+            }).nest(() -> transfer(manager, 1.0F)).done().execute(latch);
+        }
+        
+        latch.await();
+        
+        assertEquals(TRANSFERS + manager.getMetrics().getRetries(), prefixes.get());
+        assertEquals(BALANCE - TRANSFERS, balance(manager, "Account1"), 0.0F);
+        assertEquals(BALANCE + TRANSFERS, balance(manager, "Account2"), 0.0F);
+    }
+    
+    /**
+     * <p>
+     * Nested transfers updating the bank accounts in place
+     */
+    @Test
+    public void testDirectTransfers() throws Exception {
+        
+        drive(WriteMode.DIRECT);
+    }
+    
+    /**
+     * <p>
+     * Nested transfers buffering their updates in the redo log
+     */
+    @Test
+    public void testDeferredTransfers() throws Exception {
+        
+        drive(WriteMode.DEFERRED);
+    }
+    
+    /**
+     * <p>
+     * A nested transfer that can't take ownership of an account, held by some
+     * other transaction, is rolled back and retried alone
+     */
+    @Test
+    public void testPartialRollback() throws Exception {
+        
+        StateManager manager = open(WriteMode.DIRECT);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch held = new CountDownLatch(1);
+        AtomicInteger prefixes = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        
+        manager.newTransaction("Holder").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account1", new AccountBalance(BALANCE + 100.0F));
+                
+                holding.countDown();
+                release.await();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute(held);
+        
+        holding.await();
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Nested").op(() -> {
+            
+            prefixes.incrementAndGet();
+            
+            return TAction.DONE;
+        }).nest(() -> {
+            
+            if (attempts.incrementAndGet() == 1) {
+                
+                TAction action = transfer(manager, 100.0F);
+                
+                // let the holder commit before the nested transfer is retried
+                release.countDown();
+                
+                try {
+                    
+                    held.await();
+                } catch (InterruptedException e) {
+                    
+                    return TAction.FAIL;
+                }
+                
+                return action;
+            }
+            
+            return transfer(manager, 100.0F);
+        }).done().execute());
+        
+        assertEquals(1, prefixes.get());
+        assertEquals(2, attempts.get());
+        assertEquals(1, manager.getMetrics().getPartialRollbacks());
+        assertEquals(BALANCE, balance(manager, "Account1"), 0.0F);
+        assertEquals(BALANCE + 100.0F, balance(manager, "Account2"), 0.0F);
+    }
+    
+    /**
+     * <p>
+     * A nested transaction that fails on its own leaves the updates of the
+     * enclosing transaction as they were before it
+     * 
+     * @param mode
+     *            The write mode of the transactions
+     */
+    private static void undo(WriteMode mode) throws Exception {
+        
+        StateManager manager = open(mode);
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Undo").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account1", new AccountBalance(BALANCE - 100.0F));
+                manager.writeLongT("Counter", 1L);
+                
+                TAction nested = manager.nestedT(() -> {
+                    
+                    try {
+                        
+                        manager.writeT("Account1", new AccountBalance(0.0F));
+                        manager.writeT("Account2", new AccountBalance(2 * BALANCE));
+                        manager.writeLongT("Counter", manager.readLongT("Counter") + 10L);
+                    } catch (Exception e) {
+                        
+                        logger.error(e.getMessage(), e);
+                    }
+                    
+                    // faulty operational logic
+                    return TAction.FAIL;
+                });
+                
+                return nested == TAction.FAIL
+                        && ((AccountBalance) manager.readT("Account1").get()).getBalance() == BALANCE - 100.0F
+                        && ((AccountBalance) manager.readT("Account2").get()).getBalance() == BALANCE
+                        && manager.readLongT("Counter") == 1L ? TAction.DONE : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+        
+        assertEquals(BALANCE - 100.0F, balance(manager, "Account1"), 0.0F);
+        assertEquals(BALANCE, balance(manager, "Account2"), 0.0F);
+        assertEquals(0, manager.getMetrics().getPartialRollbacks());
+        assertTrue(manager.getMetrics().getCommits() >= 2);
+    }
+    
+    /**
+     * <p>
+     * The failed nested transaction is undone in place
+     */
+    @Test
+    public void testDirectUndo() throws Exception {
+        
+        undo(WriteMode.DIRECT);
+    }
+    
+    /**
+     * <p>
+     * The failed nested transaction is undone from the redo log
+     */
+    @Test
+    public void testDeferredUndo() throws Exception {
+        
+        undo(WriteMode.DEFERRED);
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: PessimisticBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 7:48:12 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.ConcurrencyControl;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+
+/**
+ * <p>
+ * Transfers between a handful of bank accounts made by pessimistic
+ * transactions, which lock the accounts instead of aborting each other.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.PessimisticBankDriver
+ *
+ */
+public class PessimisticBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(PessimisticBankDriver.class);
+    
+    private static final int    ACCOUNTS  = 4;
+    private static final int    TRANSFERS = 400;
+    private static final float  BALANCE   = 1000.0F;
+    
+    /**
+     * <p>
+     * Transfers the amount between the accounts, reading them in the given
+     * order
+     */
+    private static TAction transfer(StateManager manager, String from, String to, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(from).get();
+            AccountBalance b = (AccountBalance) manager.readT(to).get();
+            
+            manager.writeT(from, new AccountBalance(a.getBalance() - amount));
+            manager.writeT(to, new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static StateManager open(WriteMode mode) {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(mode);
+        manager.setConcurrencyControl(ConcurrencyControl.PESSIMISTIC);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            manager.make("Account" + i);
+        }
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    manager.writeT("Account" + i, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return manager;
+    }
+    
+    private static float total(StateManager manager) {
+        
+        float[] total = new float[1];
+        
+        manager.newTransaction("Audit").readOnly().op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    total[0] += ((AccountBalance) manager.readT("Account" + i).get()).getBalance();
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return total[0];
+    }
+    
+    /**
+     * <p>
+     * Runs the transfers between random pairs of accounts, in both directions
+     * 
+     * @param mode
+     *            The write mode of the transactions
+     * @param declared
+     *            If the transfers declare the accounts they touch
+     */
+    private static void drive(WriteMode mode, boolean declared) throws Exception {
+        
+        StateManager manager = open(mode);
+        CountDownLatch latch = new CountDownLatch(TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            String from = "Account" + (i % ACCOUNTS);
+            String to = "Account" + ((i / ACCOUNTS + i + 1) % ACCOUNTS);
+            
+            if (from.equals(to)) {
+                
+                to = "Account" + ((i + 1) % ACCOUNTS);
+            }
+            
+            String payee = to;
+            
+            StateManager transfer = manager.newTransaction("Transfer#" + i);
+            
+            if (declared) {
+                
+                transfer.touches(from, payee);
+            }
+            
+            transfer.op(() -> transfer(manager, from, payee, 1.0F)).done().execute(latch);
+        }
+        
+        latch.await();
+        
+        // the transfers wait for each other instead of aborting
+        assertEquals(0, manager.getMetrics().getOwnershipConflicts());
+        assertEquals(0, manager.getMetrics().getValidationFailures());
+        
+        long restarts = manager.getMetrics().getLockOrderRestarts();
+        
+        if (declared) {
+            
+            assertEquals(0, restarts);
+        } else {
+            
+            // a transfer restarts at most once, to take its locks in order
+            assertTrue(restarts <= TRANSFERS);
+        }
+        
+        assertEquals(restarts, manager.getMetrics().getRetries());
+        assertEquals(TRANSFERS + 1, manager.getMetrics().getCommits());
+        assertEquals(ACCOUNTS * BALANCE, total(manager), 0.0F);
+    }
+    
+    /**
+     * <p>
+     * Transfers that find the accounts they lock as they go, updating them in
+     * place
+     */
+    @Test
+    public void testDirectTransfers() throws Exception {
+        
+        drive(WriteMode.DIRECT, false);
+    }
+    
+    /**
+     * <p>
+     * Transfers that find the accounts they lock as they go, buffering their
+     * updates in the redo log
+     */
+    @Test
+    public void testDeferredTransfers() throws Exception {
+        
+        drive(WriteMode.DEFERRED, false);
+    }
+    
+    /**
+     * <p>
+     * Transfers that declare the accounts they touch, they lock them up front
+     * and never restart
+     */
+    @Test
+    public void testDeclaredTransfers() throws Exception {
+        
+        drive(WriteMode.DIRECT, true);
+    }
+    
+    /**
+     * <p>
+     * A transfer that comes across a locked account ordered before the one it
+     * holds restarts once, and then waits for the account in order
+     */
+    @Test
+    public void testLockOrder() throws Exception {
+        
+        StateManager manager = open(WriteMode.DIRECT);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        
+        manager.newTransaction("Holder").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account0", new AccountBalance(BALANCE + 100.0F));
+                
+                holding.countDown();
+                release.await();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute(new CountDownLatch(1));
+        
+        holding.await();
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Transfer").op(() -> {
+            
+            if (attempts.incrementAndGet() == 1) {
+                
+                // locks Account1 and runs into Account0 held by the holder
+                TAction action = transfer(manager, "Account1", "Account0", 100.0F);
+                
+                release.countDown();
+                
+                return action;
+            }
+            
+            return transfer(manager, "Account1", "Account0", 100.0F);
+        }).done().execute());
+        
+        assertEquals(2, attempts.get());
+        assertEquals(1, manager.getMetrics().getLockOrderRestarts());
+        assertEquals(0, manager.getMetrics().getOwnershipConflicts());
+        assertEquals(0, manager.getMetrics().getValidationFailures());
+        assertEquals(ACCOUNTS * BALANCE + 100.0F, total(manager), 0.0F);
+    }
+}
@@ -0,0 +1,501 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: PrimitiveBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 2:12:48 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.LongState;
+import foop.core.StateManager;
+import foop.core.StateManager.Durability;
+import foop.core.StateManager.TAction;
+import foop.core.StateManager.WriteMode;
+import foop.core.Variable;
+
+/**
+ * <p>
+ * Transfers between bank accounts whose balances are longs, updated using
+ * `readLongT` and `writeLongT`, while audits sum up all the balances. No money
+ * is lost or made and every audit sees the total, whether the balances are
+ * kept in `MemCell`s or in the off-heap store.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.PrimitiveBankDriver
+ *
+ */
+public class PrimitiveBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(PrimitiveBankDriver.class);
+    
+    private static final int    ACCOUNTS  = 8;
+    private static final int    TRANSFERS = 400;
+    private static final int    AUDITS    = 50;
+    private static final long   BALANCE   = 1000L;
+    
+    public @Rule TemporaryFolder folder    = new TemporaryFolder();
+    
+    /**
+     * <p>
+     * Transfers the amount between the bank accounts, failing if the account
+     * withdrawn from would be overdrawn
+     */
+    private static TAction transfer(StateManager manager, String from, String to, long amount) {
+        
+        try {
+            
+            long a = manager.readLongT(from);
+            
+            if (a < amount) {
+                
+                return TAction.FAIL;
+            }
+            
+            manager.writeLongT(from, a - amount);
+            manager.writeLongT(to, manager.readLongT(to) + amount);
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    /**
+     * <p>
+     * Sums up the balances of all the bank accounts
+     */
+    private static TAction audit(StateManager manager, AtomicInteger mismatches) {
+        
+        try {
+            
+            long total = 0;
+            
+            for (int i = 0; i < ACCOUNTS; i++) {
+                
+                total += manager.readLongT("Account" + i);
+            }
+            
+            if (total != ACCOUNTS * BALANCE) {
+                
+                mismatches.incrementAndGet();
+            }
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    /**
+     * <p>
+     * Runs the transfers and audits using the write mode
+     * 
+     * @param mode
+     *            The write mode of the transactions
+     * @param offHeap
+     *            If the balances are kept off-heap
+     */
+    private static void drive(WriteMode mode, boolean offHeap) throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setWriteMode(mode);
+        
+        if (offHeap) {
+            
+            manager.useOffHeapStore();
+        }
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            manager.makeLong("Account" + i, BALANCE);
+        }
+        
+        Random random = new Random(11);
+        AtomicInteger mismatches = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(TRANSFERS + AUDITS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            
+            manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, "Account" + from, "Account" + to, 1 + from)).done().execute(latch);
+            
+            if (i % (TRANSFERS / AUDITS) == 0) {
+                
+                manager.newTransaction("Audit#" + i).readOnly().op(() -> audit(manager, mismatches)).done()
+                        .execute(latch);
+            }
+        }
+        
+        latch.await();
+        
+        assertEquals(0, mismatches.get());
+        
+        AtomicInteger total = new AtomicInteger();
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Total").op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    total.addAndGet((int) manager.readLongT("Account" + i));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+        
+        assertEquals(ACCOUNTS * BALANCE, total.get());
+        assertEquals(TRANSFERS + AUDITS + 1, manager.getMetrics().getCommits());
+    }
+    
+    /**
+     * <p>
+     * Transfers in the direct write mode, primitive updates are deferred
+     * regardless
+     */
+    @Test
+    public void testDirectTransfers() throws Exception {
+        
+        drive(WriteMode.DIRECT, false);
+    }
+    
+    /**
+     * <p>
+     * Transfers in the deferred write mode
+     */
+    @Test
+    public void testDeferredTransfers() throws Exception {
+        
+        drive(WriteMode.DEFERRED, false);
+    }
+    
+    /**
+     * <p>
+     * Transfers between bank accounts kept in the off-heap store
+     */
+    @Test
+    public void testOffHeapTransfers() throws Exception {
+        
+        drive(WriteMode.DEFERRED, true);
+    }
+    
+    /**
+     * <p>
+     * Off-heap bank accounts are checkpointed and rebuilt from the checkpoint
+     * and the write-ahead log
+     */
+    @Test
+    public void testOffHeapRecovery() throws Exception {
+        
+        Path log = this.folder.newFolder().toPath().resolve("bank.log");
+        
+        StateManager manager = new StateManager();
+        
+        manager.useOffHeapStore();
+        manager.enableLog(log, Durability.GROUP);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            manager.makeLong("Account" + i, BALANCE);
+        }
+        
+        manager.makeDouble("Rate", 0.5);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            if (i == TRANSFERS / 2) {
+                
+                manager.checkpoint();
+            }
+            
+            int from = i % ACCOUNTS;
+            
+            assertEquals(TAction.DONE, manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, "Account" + from, "Account" + ((from + 1) % ACCOUNTS), 1 + from))
+                    .done().execute());
+        }
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Rate").op(() -> {
+            
+            try {
+                
+                manager.writeDoubleT("Rate", manager.readDoubleT("Rate") * 3);
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+        
+        long[] balances = balances(manager);
+        
+        manager.closeLog();
+        
+        StateManager recovered = new StateManager();
+        
+        recovered.useOffHeapStore();
+        recovered.enableLog(log, Durability.GROUP);
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            // kept as recovered
+            recovered.makeLong("Account" + i, BALANCE);
+        }
+        
+        assertArrayEquals(balances, balances(recovered));
+        
+        AtomicInteger rate = new AtomicInteger();
+        
+        recovered.newTransaction("Rate").readOnly().op(() -> {
+            
+            try {
+                
+                rate.set((int) (recovered.readDoubleT("Rate") * 10));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        assertEquals(15, rate.get());
+        
+        recovered.closeLog();
+    }
+    
+    /**
+     * <p>
+     * Accounts made by `make` as well as `makeLong`, in both orders, live in
+     * a single place with the off-heap store on, so the checkpoint holds each
+     * of them once and the handles and the names agree after a restart
+     */
+    @Test
+    public void testOffHeapMadeTwice() throws Exception {
+        
+        Path log = this.folder.newFolder().toPath().resolve("bank.log");
+        
+        StateManager manager = new StateManager();
+        
+        manager.useOffHeapStore();
+        manager.enableLog(log, Durability.GROUP);
+        
+        Variable[] accounts = open(manager);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            if (i == TRANSFERS / 2) {
+                
+                assertEquals(ACCOUNTS, manager.checkpoint());
+            }
+            
+            int from = i % ACCOUNTS;
+            
+            assertEquals(TAction.DONE, manager.newTransaction("Transfer#" + i)
+                    .op(() -> transfer(manager, "Account" + from, "Account" + ((from + 1) % ACCOUNTS), 1 + from))
+                    .done().execute());
+        }
+        
+        long[] balances = balances(manager);
+        
+        assertArrayEquals(balances, balances(manager, accounts));
+        
+        manager.closeLog();
+        
+        StateManager recovered = new StateManager();
+        
+        recovered.useOffHeapStore();
+        recovered.enableLog(log, Durability.GROUP);
+        
+        Variable[] recoveredAccounts = open(recovered);
+        
+        assertArrayEquals(balances, balances(recovered));
+        assertArrayEquals(balances, balances(recovered, recoveredAccounts));
+        
+        recovered.closeLog();
+    }
+    
+    /**
+     * <p>
+     * Makes the even accounts using `make` then `makeLong`, the odd ones the
+     * other way around
+     */
+    private static Variable[] open(StateManager manager) {
+        
+        Variable[] accounts = new Variable[ACCOUNTS];
+        
+        for (int i = 0; i < ACCOUNTS; i++) {
+            
+            String account = "Account" + i;
+            
+            if (i % 2 == 0) {
+                
+                manager.make(account);
+                
+                accounts[i] = manager.makeLong(account, BALANCE);
+            } else {
+                
+                manager.makeLong(account, BALANCE);
+                
+                accounts[i] = manager.make(account);
+            }
+        }
+        
+        return accounts;
+    }
+    
+    private static long[] balances(StateManager manager, Variable[] accounts) {
+        
+        long[] balances = new long[ACCOUNTS];
+        
+        manager.newTransaction("Balances").readOnly().op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    balances[i] = manager.readLongT(accounts[i]);
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balances;
+    }
+    
+    private static long[] balances(StateManager manager) {
+        
+        long[] balances = new long[ACCOUNTS];
+        
+        manager.newTransaction("Balances").readOnly().op(() -> {
+            
+            try {
+                
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    
+                    balances[i] = manager.readLongT("Account" + i);
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balances;
+    }
+    
+    /**
+     * <p>
+     * A primitive variable can be read using `readT`, but only written with
+     * its own type of state, and a variable holding some other state can't be
+     * made primitive
+     */
+    @Test
+    public void testPrimitiveStates() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Account1", BALANCE);
+        manager.make("Account2");
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account1", new LongState(2 * BALANCE));
+                manager.writeT("Account2", new AccountBalance(BALANCE));
+                
+                return ((LongState) manager.readT("Account1").get()).get() == 2 * BALANCE ? TAction.DONE
+                        : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+        
+        // the variable already holds an account balance
+        assertNull(manager.makeLong("Account2", BALANCE));
+        
+        // the long is kept
+        manager.makeLong("Account1", BALANCE);
+        
+        AtomicInteger failures = new AtomicInteger();
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Mismatch").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account1", new AccountBalance(BALANCE));
+            } catch (Exception e) {
+                
+                failures.incrementAndGet();
+            }
+            
+            try {
+                
+                manager.readLongT("Account2");
+            } catch (Exception e) {
+                
+                failures.incrementAndGet();
+            }
+            
+            try {
+                
+                return manager.readLongT("Account1") == 2 * BALANCE ? TAction.DONE : TAction.FAIL;
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+        }).done().execute());
+        
+        assertEquals(2, failures.get());
+        assertTrue(manager.getMetrics().getCommits() >= 2);
+    }
+}
@@ -0,0 +1,359 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: RetryBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 9:58:16 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.Transaction;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * Withdrawals that wait for the money to be there, using `retryT` instead of
+ * failing or polling the accounts.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.RetryBankDriver
+ *
+ */
+public class RetryBankDriver {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RetryBankDriver.class);
+    
+    /**
+     * <p>
+     * Withdraws the amount from the account, waiting till the account has it
+     */
+    private static TAction withdraw(StateManager manager, String account, long amount) {
+        
+        try {
+            
+            manager.addLongT("Withdrawals", 1L);
+            
+            long balance = manager.readLongT(account);
+            
+            if (balance < amount) {
+                
+                manager.retryT();
+            }
+            
+            manager.writeLongT(account, balance - amount);
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static void deposit(StateManager manager, String account, long amount) {
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Deposit").op(() -> {
+            
+            try {
+                
+                manager.writeLongT(account, manager.readLongT(account) + amount);
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+    }
+    
+    private static long balance(StateManager manager, String account) {
+        
+        long[] balance = new long[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = manager.readLongT(account);
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    private static void awaitWaits(StateManager manager, long waits) throws InterruptedException {
+        
+        for (int i = 0; i < 1000 && manager.getMetrics().getRetryWaits() < waits; i++) {
+            
+            Thread.sleep(5L);
+        }
+        
+        assertEquals(waits, manager.getMetrics().getRetryWaits());
+    }
+    
+    /**
+     * <p>
+     * The withdrawal waits through a deposit that isn't enough, and is made
+     * after the next one
+     */
+    @Test
+    public void testWithdrawal() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Account", 0L);
+        manager.makeLong("Withdrawals", 0L);
+        
+        CountDownLatch latch = new CountDownLatch(1);
+        
+        manager.newTransaction("Withdraw").op(() -> withdraw(manager, "Account", 100L)).done().execute(latch);
+        
+        awaitWaits(manager, 1L);
+        
+        deposit(manager, "Account", 50L);
+        
+        awaitWaits(manager, 2L);
+        
+        deposit(manager, "Account", 60L);
+        
+        latch.await();
+        
+        assertEquals(10L, balance(manager, "Account"));
+        assertEquals(1L, balance(manager, "Withdrawals"));
+    }
+    
+    /**
+     * <p>
+     * The withdrawal takes the money from savings or else from checking,
+     * whichever has it first. The updates of the alternative that retried are
+     * undone.
+     */
+    @Test
+    public void testOrElse() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Savings", 0L);
+        manager.makeLong("Checking", 0L);
+        manager.makeLong("Withdrawals", 0L);
+        
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<TAction> outcome = new AtomicReference<>();
+        
+        manager.newTransaction("Withdraw").op(() -> {
+            
+            try {
+                
+                outcome.set(manager.orElseT(() -> withdraw(manager, "Savings", 100L),
+                        () -> withdraw(manager, "Checking", 100L)));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return outcome.get();
+        }).done().execute(latch);
+        
+        awaitWaits(manager, 1L);
+        
+        // waits on what both alternatives read
+        deposit(manager, "Checking", 150L);
+        
+        latch.await();
+        
+        assertEquals(TAction.DONE, outcome.get());
+        assertEquals(0L, balance(manager, "Savings"));
+        assertEquals(50L, balance(manager, "Checking"));
+        assertEquals(1L, balance(manager, "Withdrawals"));
+    }
+    
+    /**
+     * <p>
+     * A batch member that waits for a deposit lets the rest of the batch
+     * commit first, so the deposit doesn't run into the writes of the batch
+     */
+    @Test
+    public void testBatch() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.make("Savings");
+        manager.make("Checking");
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Savings", new AccountBalance(0.0F));
+                manager.writeT("Checking", new AccountBalance(0.0F));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        List<Transaction> batch = new ArrayList<>();
+        
+        batch.add(manager.newTransaction("Save").op(() -> {
+            
+            try {
+                
+                manager.writeT("Savings", new AccountBalance(10.0F));
+            } catch (Exception e) {
+                
+                logger.debug(e.getMessage());
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done());
+        
+        batch.add(manager.newTransaction("Withdraw").op(() -> {
+            
+            try {
+                
+                AccountBalance checking = (AccountBalance) manager.readT("Checking").get();
+                
+                if (checking.getBalance() < 100.0F) {
+                    
+                    manager.retryT();
+                }
+                
+                manager.writeT("Checking", new AccountBalance(checking.getBalance() - 100.0F));
+            } catch (Exception e) {
+                
+                logger.debug(e.getMessage());
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done());
+        
+        CompletableFuture<List<TAction>> outcomes = manager.submitBatchAsync(batch);
+        
+        awaitWaits(manager, 1L);
+        
+        CountDownLatch latch = new CountDownLatch(1);
+        
+        // writes what the batch wrote, along with what the withdrawal waits on
+        manager.newTransaction("Deposit").op(() -> {
+            
+            try {
+                
+                AccountBalance savings = (AccountBalance) manager.readT("Savings").get();
+                
+                manager.writeT("Savings", new AccountBalance(savings.getBalance() - 100.0F));
+                manager.writeT("Checking", new AccountBalance(150.0F));
+            } catch (Exception e) {
+                
+                logger.debug(e.getMessage());
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute(latch);
+        
+        assertTrue(latch.await(5L, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(TAction.DONE, TAction.DONE), outcomes.get(5L, TimeUnit.SECONDS));
+        
+        float[] balances = new float[2];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balances[0] = ((AccountBalance) manager.readT("Savings").get()).getBalance();
+                balances[1] = ((AccountBalance) manager.readT("Checking").get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        assertEquals(-90.0F, balances[0], 0.0F);
+        assertEquals(50.0F, balances[1], 0.0F);
+    }
+    
+    /**
+     * <p>
+     * Consumers take items off a queue as producers put them on, waiting
+     * while it is empty
+     */
+    @Test
+    public void testQueue() throws Exception {
+        
+        StateManager manager = new StateManager();
+        int consumers = 20;
+        
+        manager.makeLong("Items", 0L);
+        manager.makeLong("Taken", 0L);
+        manager.makeLong("Withdrawals", 0L);
+        
+        CountDownLatch latch = new CountDownLatch(consumers);
+        
+        for (int i = 0; i < consumers; i++) {
+            
+            manager.newTransaction("Consumer#" + i).op(() -> {
+                
+                TAction action = withdraw(manager, "Items", 1L);
+                
+                if (action == TAction.DONE) {
+                    
+                    try {
+                        
+                        manager.addLongT("Taken", 1L);
+                    } catch (Exception e) {
+                        
+                        logger.error(e.getMessage(), e);
+                        return TAction.FAIL;
+                    }
+                }
+                
+                return action;
+            }).done().execute(latch);
+        }
+        
+        for (int i = 0; i < consumers; i++) {
+            
+            deposit(manager, "Items", 1L);
+        }
+        
+        latch.await();
+        
+        assertEquals(0L, balance(manager, "Items"));
+        assertEquals(consumers, balance(manager, "Taken"));
+    }
+}
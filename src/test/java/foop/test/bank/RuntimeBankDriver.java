@@ -0,0 +1,187 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: RuntimeBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 2:19:56 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.utils.NamedThreadFactory;
+
+/**
+ * <p>
+ * Deposits are run by the transaction runtime of the <i>StateManager</i>.
+ * The caller gets the outcome of a deposit as a future, or a latch that the
+ * deposits count down, and they run at the same time on the threads of the
+ * runtime.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.RuntimeBankDriver
+ *
+ */
+public class RuntimeBankDriver {
+    
+    private static final Logger logger   = LoggerFactory.getLogger(RuntimeBankDriver.class);
+    
+    private static final int    DEPOSITS = 8;
+    
+    private static TAction deposit(StateManager manager, String account, long amount) {
+        
+        try {
+            
+            manager.addLongT(account, amount);
+        } catch (Exception e) {
+            
+            logger.error(e.getMessage(), e);
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static long balance(StateManager manager, String account) {
+        
+        long[] balance = new long[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = manager.readLongT(account);
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    /**
+     * <p>
+     * The future of a deposit completes with DONE once it committed, and with
+     * FAIL if the deposit failed, in which case nothing is deposited
+     */
+    @Test
+    public void testOutcomes() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Account", 0L);
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Deposit").op(() -> deposit(manager, "Account", 10L))
+                .done().executeAsync().get(5L, TimeUnit.SECONDS));
+        
+        assertEquals(TAction.FAIL, manager.newTransaction("Refused").op(() -> {
+            
+            deposit(manager, "Account", 20L);
+            
+            return TAction.FAIL;
+        }).done().executeAsync().get(5L, TimeUnit.SECONDS));
+        
+        assertEquals(TAction.DONE,
+                manager.newTransaction("Deposit").op(() -> deposit(manager, "Account", 1L)).done().execute());
+        
+        assertEquals(11L, balance(manager, "Account"));
+    }
+    
+    /**
+     * <p>
+     * The deposits sharing a latch run at the same time, none of them can get
+     * past the barrier before all of them reach it
+     */
+    @Test
+    public void testLatch() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Account", 0L);
+        
+        CyclicBarrier together = new CyclicBarrier(DEPOSITS);
+        CountDownLatch latch = new CountDownLatch(DEPOSITS);
+        AtomicInteger met = new AtomicInteger();
+        
+        for (int i = 0; i < DEPOSITS; i++) {
+            
+            manager.newTransaction("Deposit#" + i).op(() -> {
+                
+                try {
+                    
+                    together.await(5L, TimeUnit.SECONDS);
+                    
+                    met.incrementAndGet();
+                } catch (Exception e) {
+                    
+                    logger.error(e.getMessage(), e);
+                    return TAction.FAIL;
+                }
+                
+                return deposit(manager, "Account", 1L);
+            }).done().execute(latch);
+        }
+        
+        assertTrue(latch.await(10L, TimeUnit.SECONDS));
+        
+        assertEquals(DEPOSITS, met.get());
+        assertEquals(DEPOSITS, balance(manager, "Account"));
+    }
+    
+    /**
+     * <p>
+     * The deposits run on the threads of the executor set on the
+     * <i>StateManager</i>
+     */
+    @Test
+    public void testExecutor() throws Exception {
+        
+        StateManager manager = new StateManager();
+        ExecutorService executor = Executors.newFixedThreadPool(2, new NamedThreadFactory("bank"));
+        
+        manager.setExecutor(executor);
+        manager.makeLong("Account", 0L);
+        
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(DEPOSITS);
+        
+        for (int i = 0; i < DEPOSITS; i++) {
+            
+            manager.newTransaction("Deposit#" + i).op(() -> {
+                
+                threads.add(Thread.currentThread().getName());
+                
+                return deposit(manager, "Account", 1L);
+            }).done().execute(latch);
+        }
+        
+        assertTrue(latch.await(10L, TimeUnit.SECONDS));
+        
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("bank-")));
+        assertEquals(DEPOSITS, balance(manager, "Account"));
+        
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: ScheduledBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 7:21:40 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.ConflictScheduler;
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * Customers pay a hot merchant account while the transactions are scheduled
+ * by a {@link ConflictScheduler}, which queues them on the merchant account
+ * once it learns that it is hot.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.ScheduledBankDriver
+ *
+ */
+public class ScheduledBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(ScheduledBankDriver.class);
+    
+    private static final int    CUSTOMERS = 200;
+    private static final float  BALANCE   = 100.0F;
+    
+    /**
+     * <p>
+     * Pays the amount from the customer to the merchant
+     */
+    private static TAction pay(StateManager manager, String customer, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT(customer).get();
+            AccountBalance b = (AccountBalance) manager.readT("Merchant").get();
+            
+            manager.writeT(customer, new AccountBalance(a.getBalance() - amount));
+            manager.writeT("Merchant", new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static StateManager open(ConflictScheduler scheduler) {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setScheduler(scheduler);
+        manager.make("Merchant");
+        
+        for (int i = 0; i < CUSTOMERS; i++) {
+            
+            manager.make("Customer" + i);
+        }
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Merchant", new AccountBalance(0.0F));
+                
+                for (int i = 0; i < CUSTOMERS; i++) {
+                    
+                    manager.writeT("Customer" + i, new AccountBalance(BALANCE));
+                }
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return manager;
+    }
+    
+    private static float balance(StateManager manager, String account) {
+        
+        float[] balance = new float[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = ((AccountBalance) manager.readT(account).get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    /**
+     * <p>
+     * The payments learn that the merchant account is hot as they collide on
+     * it, and all of them are made
+     */
+    @Test
+    public void testPayments() throws Exception {
+        
+        StateManager manager = open(new ConflictScheduler());
+        CountDownLatch latch = new CountDownLatch(CUSTOMERS);
+        
+        for (int i = 0; i < CUSTOMERS; i++) {
+            
+            String customer = "Customer" + i;
+            
+            manager.newTransaction("Pay#" + i).op(() -> pay(manager, customer, 1.0F)).done().execute(latch);
+        }
+        
+        latch.await();
+        
+        assertEquals(CUSTOMERS + 1, manager.getMetrics().getCommits());
+        assertEquals(CUSTOMERS, balance(manager, "Merchant"), 0.0F);
+    }
+    
+    /**
+     * <p>
+     * Once the merchant account is hot, the payments declared to touch it run
+     * one after another without colliding, while the customer accounts stay
+     * cold
+     */
+    @Test
+    public void testQueuedPayments() throws Exception {
+        
+        ConflictScheduler scheduler = new ConflictScheduler(1, 10L, TimeUnit.SECONDS);
+        StateManager manager = open(scheduler);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // holds the merchant account till the first payment ran into it
+        manager.newTransaction("Holder").op(() -> {
+            
+            try {
+                
+                manager.writeT("Merchant", new AccountBalance(0.0F));
+                
+                holding.countDown();
+                release.await();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute(new CountDownLatch(1));
+        
+        holding.await();
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Pay#0").op(() -> {
+            
+            TAction action = pay(manager, "Customer0", 1.0F);
+            
+            release.countDown();
+            
+            return action;
+        }).done().execute());
+        
+        assertTrue(scheduler.isHot("Merchant"));
+        assertTrue(manager.getMetrics().getQueuedAttempts() > 0);
+        
+        long aborts = manager.getMetrics().getAborts();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(CUSTOMERS - 1);
+        
+        for (int i = 1; i < CUSTOMERS; i++) {
+            
+            String customer = "Customer" + i;
+            
+            manager.newTransaction("Pay#" + i).touches("Merchant").op(() -> {
+                
+                if (running.incrementAndGet() > 1) {
+                    
+                    overlaps.incrementAndGet();
+                }
+                
+                TAction action = pay(manager, customer, 1.0F);
+                
+                running.decrementAndGet();
+                
+                return action;
+            }).done().execute(latch);
+        }
+        
+        latch.await();
+        
+        assertEquals(0, overlaps.get());
+        assertEquals(aborts, manager.getMetrics().getAborts());
+        assertFalse(scheduler.isHot("Customer1"));
+        assertEquals(CUSTOMERS, balance(manager, "Merchant"), 0.0F);
+    }
+}
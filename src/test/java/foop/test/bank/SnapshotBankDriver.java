@@ -0,0 +1,165 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: SnapshotBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 16, 2026 9:12:26 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.core.Transaction;
+
+/**
+ * <p>
+ * A report reads the bank accounts while a transfer between them commits in
+ * the middle of the report. The report must see the balances as they were
+ * before or after the transfer, never a mix of both.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.SnapshotBankDriver
+ *
+ */
+public class SnapshotBankDriver {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotBankDriver.class);
+    
+    /**
+     * <p>
+     * Makes the bank accounts Account1 and Account2
+     * 
+     * @param manager
+     *            The state manager
+     */
+    private static void setup(StateManager manager) {
+        
+        manager.make("Account1");
+        manager.make("Account2");
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account1", new AccountBalance(500.0F));
+                manager.writeT("Account2", new AccountBalance(1500.0F));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+    }
+    
+    /**
+     * <p>
+     * Runs the report, transferring 100 from Account1 to Account2 after the
+     * report has read Account1 in its first attempt.
+     * 
+     * @param manager
+     *            The state manager
+     * @param seen
+     *            The balances seen by the report
+     * 
+     * @return The report transaction
+     */
+    private static Transaction report(StateManager manager, float[] seen) {
+        
+        Transaction[] report = new Transaction[1];
+        
+        report[0] = manager.newTransaction("Report").readOnly().op(() -> {
+            
+            try {
+                
+                seen[0] = ((AccountBalance) manager.readT("Account1").get()).getBalance();
+                
+                if (report[0].getRecord().getAttempts() == 1) {
+                    
+                    manager.newTransaction("Transfer").op(() -> {
+                        
+                        try {
+                            
+                            float a = ((AccountBalance) manager.readT("Account1").get()).getBalance();
+                            float b = ((AccountBalance) manager.readT("Account2").get()).getBalance();
+                            
+                            manager.writeT("Account1", new AccountBalance(a - 100.0F));
+                            manager.writeT("Account2", new AccountBalance(b + 100.0F));
+                        } catch (Exception e) {
+                            
+                            logger.error(e.getMessage(), e);
+                            return TAction.FAIL;
+                        }
+                        
+                        return TAction.DONE;
+                    }).done().execute();
+                }
+                
+                seen[1] = ((AccountBalance) manager.readT("Account2").get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.debug(e.getMessage());
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done();
+        
+        report[0].execute();
+        
+        return report[0];
+    }
+    
+    /**
+     * <p>
+     * With a single version per variable the report restarts after the
+     * transfer and sees the balances after it.
+     */
+    @Test
+    public void testSingleVersion() {
+        
+        StateManager manager = new StateManager();
+        
+        setup(manager);
+        
+        float[] seen = new float[2];
+        
+        Transaction report = report(manager, seen);
+        
+        assertEquals(2, report.getRecord().getAttempts());
+        assertEquals(400.0F, seen[0], 0.0F);
+        assertEquals(1600.0F, seen[1], 0.0F);
+    }
+    
+    /**
+     * <p>
+     * With multiple versions per variable the report reads as of its start and
+     * sees the balances before the transfer, without restarting.
+     */
+    @Test
+    public void testMultiVersion() {
+        
+        StateManager manager = new StateManager();
+        
+        manager.setMaxVersions(4);
+        
+        setup(manager);
+        
+        float[] seen = new float[2];
+        
+        Transaction report = report(manager, seen);
+        
+        assertEquals(1, report.getRecord().getAttempts());
+        assertEquals(500.0F, seen[0], 0.0F);
+        assertEquals(1500.0F, seen[1], 0.0F);
+    }
+}
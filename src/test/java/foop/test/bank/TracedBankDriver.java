@@ -0,0 +1,173 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: TracedBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 5:06:12 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.EventTracer;
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * Transfers between bank accounts while the events of the transactions are
+ * traced into the ring buffer of the <i>StateManager</i>.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.TracedBankDriver
+ *
+ */
+public class TracedBankDriver {
+    
+    private static final Logger logger    = LoggerFactory.getLogger(TracedBankDriver.class);
+    
+    private static final int    TRANSFERS = 100;
+    
+    public @Rule TemporaryFolder folder    = new TemporaryFolder();
+    
+    private static TAction transfer(StateManager manager, float amount) {
+        
+        try {
+            
+            AccountBalance a = (AccountBalance) manager.readT("Account1").get();
+            AccountBalance b = (AccountBalance) manager.readT("Account2").get();
+            
+            if (a.getBalance() < amount) {
+                
+                return TAction.FAIL;
+            }
+            
+            manager.writeT("Account1", new AccountBalance(a.getBalance() - amount));
+            manager.writeT("Account2", new AccountBalance(b.getBalance() + amount));
+        } catch (Exception e) {
+            
+            logger.debug(e.getMessage());
+            
+            return TAction.FAIL;
+        }
+        
+        return TAction.DONE;
+    }
+    
+    private static StateManager open() {
+        
+        StateManager manager = new StateManager();
+        
+        manager.make("Account1");
+        manager.make("Account2");
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Account1", new AccountBalance(500.0F));
+                manager.writeT("Account2", new AccountBalance(500.0F));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return manager;
+    }
+    
+    /**
+     * <p>
+     * A transfer and an overdraw leave every kind of event in the dump
+     */
+    @Test
+    public void testDump() throws Exception {
+        
+        StateManager manager = open();
+        EventTracer tracer = manager.enableTracing(1024);
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Transfer").op(() -> transfer(manager, 100.0F)).done()
+                .execute());
+        assertEquals(TAction.FAIL,
+                manager.newTransaction("Overdraw").op(() -> transfer(manager, 1000.0F)).done().execute());
+        
+        StringBuilder dump = new StringBuilder();
+        
+        tracer.dump(dump);
+        
+        String events = dump.toString();
+        
+        for (String event : new String[] { " BEGIN Transfer#", " READ Transfer#", " WRITE Transfer#",
+                " OWN Transfer#", " VALIDATE Transfer#", " COMMIT Transfer#", " ABORT Overdraw#" }) {
+            
+            assertTrue(event, events.contains(event));
+        }
+        
+        assertTrue(events.contains("OPERATION_FAIL"));
+        assertEquals(tracer.recorded(), events.split("\n").length);
+        
+        manager.disableTracing();
+    }
+    
+    /**
+     * <p>
+     * The ring buffer keeps the latest events only, while all of them are
+     * streamed to the file
+     */
+    @Test
+    public void testStream() throws Exception {
+        
+        StateManager manager = open();
+        EventTracer tracer = manager.enableTracing(16);
+        Path file = this.folder.newFolder().toPath().resolve("events.log");
+        
+        tracer.streamTo(file);
+        
+        CountDownLatch latch = new CountDownLatch(TRANSFERS);
+        
+        for (int i = 0; i < TRANSFERS; i++) {
+            
+            manager.newTransaction("Transfer#" + i).op(() -> transfer(manager, 1.0F)).done().execute(latch);
+        }
+        
+        latch.await();
+        
+        StringBuilder dump = new StringBuilder();
+        
+        tracer.dump(dump);
+        
+        assertTrue(tracer.recorded() > tracer.capacity());
+        assertTrue(dump.toString().split("\n").length <= tracer.capacity());
+        
+        manager.disableTracing();
+        
+        List<String> lines = Files.readAllLines(file);
+        long events = 0;
+        
+        for (String line : lines) {
+            
+            // the lines of the events that were overwritten before they
+            // were streamed are counted
+            events += line.startsWith("# ") ? Long.parseLong(line.split(" ")[1]) : 1;
+        }
+        
+        assertEquals(tracer.recorded(), events);
+    }
+}
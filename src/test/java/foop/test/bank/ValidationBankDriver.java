@@ -0,0 +1,183 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: ValidationBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 1:47:22 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * A statement copies the balance of an account. The reads of a transaction
+ * are validated by the versions of the accounts, so a statement that read a
+ * balance that was since changed is rerun, even if the balance was changed
+ * back.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.ValidationBankDriver
+ *
+ */
+public class ValidationBankDriver {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ValidationBankDriver.class);
+    
+    private static StateManager open() {
+        
+        StateManager manager = new StateManager();
+        
+        manager.make("Account");
+        manager.make("Statement");
+        
+        set(manager, "Account", 0.0F);
+        set(manager, "Statement", -1.0F);
+        
+        return manager;
+    }
+    
+    private static void set(StateManager manager, String account, float balance) {
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Set").op(() -> {
+            
+            try {
+                
+                manager.writeT(account, new AccountBalance(balance));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+    }
+    
+    private static float balance(StateManager manager, String account) {
+        
+        float[] balance = new float[1];
+        
+        manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = ((AccountBalance) manager.readT(account).get()).getBalance();
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        return balance[0];
+    }
+    
+    /**
+     * <p>
+     * Runs the statement, its first attempt waits after reading the account
+     * till the latch is counted down
+     */
+    private static CompletableFuture<TAction> statement(StateManager manager, AtomicInteger attempts,
+            CountDownLatch read, CountDownLatch changed) {
+        
+        return manager.newTransaction("Statement").op(() -> {
+            
+            try {
+                
+                AccountBalance balance = (AccountBalance) manager.readT("Account").get();
+                
+                if (attempts.incrementAndGet() == 1) {
+                    
+                    read.countDown();
+                    
+                    changed.await(5L, TimeUnit.SECONDS);
+                }
+                
+                manager.writeT("Statement", new AccountBalance(balance.getBalance()));
+            } catch (Exception e) {
+                
+                logger.debug(e.getMessage());
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().executeAsync();
+    }
+    
+    /**
+     * <p>
+     * The account is changed and changed back after the statement read it,
+     * the stale read is caught by its version and the statement is rerun
+     */
+    @Test
+    public void testStaleRead() throws Exception {
+        
+        StateManager manager = open();
+        
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        
+        CompletableFuture<TAction> statement = statement(manager, attempts, read, changed);
+        
+        assertTrue(read.await(5L, TimeUnit.SECONDS));
+        
+        set(manager, "Account", 50.0F);
+        set(manager, "Account", 0.0F);
+        
+        changed.countDown();
+        
+        assertEquals(TAction.DONE, statement.get(5L, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertEquals(1, manager.getMetrics().getValidationFailures());
+        assertEquals(0.0F, balance(manager, "Statement"), 0.0F);
+    }
+    
+    /**
+     * <p>
+     * Other accounts change after the statement read its account, the
+     * statement commits at its first attempt
+     */
+    @Test
+    public void testUnrelatedChanges() throws Exception {
+        
+        StateManager manager = open();
+        
+        manager.make("Other");
+        
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        
+        CompletableFuture<TAction> statement = statement(manager, attempts, read, changed);
+        
+        assertTrue(read.await(5L, TimeUnit.SECONDS));
+        
+        set(manager, "Other", 50.0F);
+        
+        changed.countDown();
+        
+        assertEquals(TAction.DONE, statement.get(5L, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+        assertEquals(0, manager.getMetrics().getValidationFailures());
+        assertEquals(0.0F, balance(manager, "Statement"), 0.0F);
+    }
+}
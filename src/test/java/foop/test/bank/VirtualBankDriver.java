@@ -0,0 +1,162 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: VirtualBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 2:36:11 PM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+import foop.utils.VirtualThreads;
+
+/**
+ * <p>
+ * Many small deposits, each on a virtual thread of its own where the JVM
+ * supports them. Where it doesn't, asking for them is refused and the
+ * deposits keep running on the platform threads.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.VirtualBankDriver
+ *
+ */
+public class VirtualBankDriver {
+    
+    private static final Logger logger   = LoggerFactory.getLogger(VirtualBankDriver.class);
+    
+    private static final int    DEPOSITS = 10000;
+    
+    private static boolean isVirtual(Thread thread) {
+        
+        try {
+            
+            // `Thread.isVirtual` only exists from Java 21 on
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            
+            return false;
+        }
+    }
+    
+    /**
+     * <p>
+     * Runs the deposits, counting the ones that ran on a virtual thread
+     * 
+     * @return the number of deposits that ran on a virtual thread
+     */
+    private static int deposit(StateManager manager) throws Exception {
+        
+        manager.makeLong("Account", 0L);
+        
+        CountDownLatch latch = new CountDownLatch(DEPOSITS);
+        AtomicInteger virtual = new AtomicInteger();
+        
+        for (int i = 0; i < DEPOSITS; i++) {
+            
+            manager.newTransaction("Deposit#" + i).op(() -> {
+                
+                if (isVirtual(Thread.currentThread())) {
+                    
+                    virtual.incrementAndGet();
+                }
+                
+                try {
+                    
+                    manager.addLongT("Account", 1L);
+                } catch (Exception e) {
+                    
+                    logger.error(e.getMessage(), e);
+                    return TAction.FAIL;
+                }
+                
+                return TAction.DONE;
+            }).done().execute(latch);
+        }
+        
+        assertTrue(latch.await(30L, TimeUnit.SECONDS));
+        
+        long[] balance = new long[1];
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Balance").readOnly().op(() -> {
+            
+            try {
+                
+                balance[0] = manager.readLongT("Account");
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+        
+        assertEquals(DEPOSITS, balance[0]);
+        
+        return virtual.get();
+    }
+    
+    /**
+     * <p>
+     * Every deposit runs on a virtual thread
+     */
+    @Test
+    public void testVirtualThreads() throws Exception {
+        
+        assumeTrue(VirtualThreads.isSupported());
+        
+        StateManager manager = new StateManager();
+        
+        manager.useVirtualThreads();
+        
+        assertEquals(DEPOSITS, deposit(manager));
+        
+        manager.getExecutor().shutdown();
+    }
+    
+    /**
+     * <p>
+     * Virtual threads are refused, the runtime is left as it was and the
+     * deposits run on it
+     */
+    @Test
+    public void testUnsupported() throws Exception {
+        
+        assumeFalse(VirtualThreads.isSupported());
+        
+        StateManager manager = new StateManager();
+        ExecutorService executor = manager.getExecutor();
+        
+        boolean refused = false;
+        
+        try {
+            
+            manager.useVirtualThreads();
+        } catch (UnsupportedOperationException e) {
+            
+            refused = true;
+        }
+        
+        assertTrue(refused);
+        assertSame(executor, manager.getExecutor());
+        assertEquals(0, deposit(manager));
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Project: foop-improved-2
+ * Package: foop.test.bank
+ * File: WatchBankDriver.java
+ * 
+ * @author sidmishraw
+ *         Last modified: Oct 17, 2026 10:52:08 AM
+ */
+package foop.test.bank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import foop.core.Change;
+import foop.core.LongState;
+import foop.core.StateManager;
+import foop.core.StateManager.TAction;
+
+/**
+ * <p>
+ * A statement service that watches the committed changes of the accounts
+ * instead of polling their balances.
+ * 
+ * @author sidmishraw
+ *
+ *         Qualified Name: foop.test.bank.WatchBankDriver
+ *
+ */
+public class WatchBankDriver {
+    
+    private static final Logger logger   = LoggerFactory.getLogger(WatchBankDriver.class);
+    
+    private static final int    DEPOSITS = 100;
+    
+    /**
+     * <p>
+     * Collects the changes it gets, requesting them a batch at a time.
+     * 
+     * @author sidmishraw
+     *
+     *         Qualified Name: foop.test.bank.WatchBankDriver.Statement
+     *
+     */
+    private static final class Statement implements Flow.Subscriber<Change> {
+        
+        private final List<Change>      changes  = new CopyOnWriteArrayList<>();
+        private final CountDownLatch    complete = new CountDownLatch(1);
+        private final long              batch;
+        private Flow.Subscription       subscription;
+        private long                    left;
+        
+        Statement(long batch) {
+            
+            this.batch = batch;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            
+            this.subscription = subscription;
+            this.left = this.batch;
+            
+            subscription.request(this.batch);
+        }
+        
+        @Override
+        public void onNext(Change change) {
+            
+            this.changes.add(change);
+            
+            if (--this.left == 0 && this.batch < Long.MAX_VALUE) {
+                
+                // only asks for more once the batch is through
+                this.left = this.batch;
+                
+                this.subscription.request(this.batch);
+            }
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            
+            logger.error(throwable.getMessage(), throwable);
+        }
+        
+        @Override
+        public void onComplete() {
+            
+            this.complete.countDown();
+        }
+    }
+    
+    private static void deposit(StateManager manager, String account, long amount) {
+        
+        assertEquals(TAction.DONE, manager.newTransaction("Deposit").op(() -> {
+            
+            try {
+                
+                manager.addLongT(account, amount);
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute());
+    }
+    
+    /**
+     * <p>
+     * The statement of an account gets every deposit into it, in the order
+     * they were committed, and none into the other account
+     */
+    @Test
+    public void testWatch() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Account0", 0L);
+        manager.makeLong("Account1", 0L);
+        
+        Flow.Publisher<Change> watch = manager.watch("Account0");
+        Statement statement = new Statement(8L);
+        
+        watch.subscribe(statement);
+        
+        CountDownLatch latch = new CountDownLatch(2 * DEPOSITS);
+        
+        for (int i = 0; i < DEPOSITS; i++) {
+            
+            for (String account : new String[] { "Account0", "Account1" }) {
+                
+                manager.newTransaction("Deposit#" + i).op(() -> {
+                    
+                    try {
+                        
+                        manager.addLongT(account, 1L);
+                    } catch (Exception e) {
+                        
+                        logger.debug(e.getMessage());
+                        return TAction.FAIL;
+                    }
+                    
+                    return TAction.DONE;
+                }).done().execute(latch);
+            }
+        }
+        
+        latch.await();
+        
+        assertTrue(manager.unwatch(watch));
+        assertFalse(manager.unwatch(watch));
+        assertTrue(statement.complete.await(5L, TimeUnit.SECONDS));
+        
+        assertEquals(DEPOSITS, statement.changes.size());
+        
+        long version = 0L;
+        
+        for (int i = 0; i < DEPOSITS; i++) {
+            
+            Change change = statement.changes.get(i);
+            
+            assertEquals("Account0", change.getName());
+            assertTrue(change.getVersion() > version);
+            assertEquals(i + 1L, ((LongState) change.getState()).get());
+            
+            version = change.getVersion();
+        }
+        
+        assertEquals(0, manager.getMetrics().getDroppedChanges());
+    }
+    
+    /**
+     * <p>
+     * A prefix watch gets the changes of the customer accounts, a predicate
+     * watch those of the merchant, from the same payments
+     */
+    @Test
+    public void testPrefixAndPredicate() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.make("Merchant");
+        manager.make("Customer0");
+        manager.make("Customer1");
+        
+        manager.newTransaction("Setup").op(() -> {
+            
+            try {
+                
+                manager.writeT("Merchant", new AccountBalance(0.0F));
+            } catch (Exception e) {
+                
+                logger.error(e.getMessage(), e);
+                return TAction.FAIL;
+            }
+            
+            return TAction.DONE;
+        }).done().execute();
+        
+        Flow.Publisher<Change> customers = manager.watchPrefix("Customer");
+        Flow.Publisher<Change> merchant = manager.watch(name -> name.startsWith("Merchant"));
+        Statement customerStatement = new Statement(Long.MAX_VALUE);
+        Statement merchantStatement = new Statement(Long.MAX_VALUE);
+        
+        customers.subscribe(customerStatement);
+        merchant.subscribe(merchantStatement);
+        
+        for (int i = 0; i < DEPOSITS; i++) {
+            
+            String customer = "Customer" + (i % 2);
+            float amount = i;
+            
+            assertEquals(TAction.DONE, manager.newTransaction("Pay#" + i).op(() -> {
+                
+                try {
+                    
+                    float balance = ((AccountBalance) manager.readT("Merchant").get()).getBalance();
+                    
+                    manager.writeT(customer, new AccountBalance(-amount));
+                    manager.writeT("Merchant", new AccountBalance(balance + amount));
+                } catch (Exception e) {
+                    
+                    logger.error(e.getMessage(), e);
+                    return TAction.FAIL;
+                }
+                
+                return TAction.DONE;
+            }).done().execute());
+        }
+        
+        manager.unwatch(customers);
+        manager.unwatch(merchant);
+        
+        assertTrue(customerStatement.complete.await(5L, TimeUnit.SECONDS));
+        assertTrue(merchantStatement.complete.await(5L, TimeUnit.SECONDS));
+        
+        assertEquals(DEPOSITS, customerStatement.changes.size());
+        assertEquals(DEPOSITS, merchantStatement.changes.size());
+        
+        for (int i = 0; i < DEPOSITS; i++) {
+            
+            Change customerChange = customerStatement.changes.get(i);
+            Change merchantChange = merchantStatement.changes.get(i);
+            
+            // the updates of a payment share its commit version
+            assertEquals("Customer" + (i % 2), customerChange.getName());
+            assertEquals(merchantChange.getVersion(), customerChange.getVersion());
+            assertEquals(i * (i + 1) / 2.0F, ((AccountBalance) merchantChange.getState()).getBalance(), 0.0F);
+        }
+    }
+    
+    /**
+     * <p>
+     * A subscriber that stops requesting doesn't hold up the deposits, the
+     * changes it has no room for are dropped
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        
+        StateManager manager = new StateManager();
+        
+        manager.makeLong("Account", 0L);
+        
+        Flow.Publisher<Change> watch = manager.watch("Account");
+        List<Change> changes = new CopyOnWriteArrayList<>();
+        
+        // requests a single change and never more
+        watch.subscribe(new Flow.Subscriber<Change>() {
+            
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                
+                subscription.request(1L);
+            }
+            
+            @Override
+            public void onNext(Change change) {
+                
+                changes.add(change);
+            }
+            
+            @Override
+            public void onError(Throwable throwable) {
+                
+                logger.error(throwable.getMessage(), throwable);
+            }
+            
+            @Override
+            public void onComplete() {
+                
+            }
+        });
+        
+        int deposits = 4 * Flow.defaultBufferSize();
+        
+        for (int i = 0; i < deposits; i++) {
+            
+            deposit(manager, "Account", 1L);
+            
+            if (i % 64 == 0) {
+                
+                // lets the dispatcher keep up
+                Thread.sleep(10L);
+            }
+        }
+        
+        for (int i = 0; i < 1000 && manager.getMetrics().getDroppedChanges() == 0; i++) {
+            
+            Thread.sleep(5L);
+        }
+        
+        assertEquals(1, changes.size());
+        assertTrue(manager.getMetrics().getDroppedChanges() > 0);
+        assertEquals(deposits, manager.getMetrics().getCommits());
+        
+        manager.unwatch(watch);
+    }
+}